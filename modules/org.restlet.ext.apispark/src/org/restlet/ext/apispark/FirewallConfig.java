@@ -25,6 +25,7 @@
 package org.restlet.ext.apispark;
 
 import org.restlet.ext.apispark.internal.firewall.handler.BlockingHandler;
+import org.restlet.ext.apispark.internal.firewall.handler.policy.LimitPolicy;
 import org.restlet.ext.apispark.internal.firewall.handler.policy.RoleLimitPolicy;
 import org.restlet.ext.apispark.internal.firewall.handler.policy.UniqueLimitPolicy;
 import org.restlet.ext.apispark.internal.firewall.rule.ConcurrentFirewallCounterRule;
@@ -32,6 +33,8 @@ import org.restlet.ext.apispark.internal.firewall.rule.FirewallCounterRule;
 import org.restlet.ext.apispark.internal.firewall.rule.FirewallIpFilteringRule;
 import org.restlet.ext.apispark.internal.firewall.rule.FirewallRule;
 import org.restlet.ext.apispark.internal.firewall.rule.PeriodicFirewallCounterRule;
+import org.restlet.ext.apispark.internal.firewall.rule.SlidingWindowFirewallCounterRule;
+import org.restlet.ext.apispark.internal.firewall.rule.TokenBucketFirewallCounterRule;
 import org.restlet.ext.apispark.internal.firewall.rule.policy.HostDomainCountingPolicy;
 import org.restlet.ext.apispark.internal.firewall.rule.policy.IpAddressCountingPolicy;
 import org.restlet.ext.apispark.internal.firewall.rule.policy.UserCountingPolicy;
@@ -104,6 +107,48 @@ public class FirewallConfig {
         FirewallCounterRule rule = new PeriodicFirewallCounterRule(period,
                 periodUnit, new HostDomainCountingPolicy());
         rule.addHandler(new BlockingHandler(new UniqueLimitPolicy(limit)));
+        add(rule);
+    }
+
+    /**
+     * Adds a rule that limits the number of requests for a sliding period of
+     * time by request's host domain.
+     * 
+     * @param period
+     *            The period of time.
+     * @param periodUnit
+     *            Period time unit associated to the rule.
+     * @param limit
+     *            The maximum number of requests allowed by host domain for the
+     *            last period of time.
+     */
+    public void addHostDomainSlidingWindowCounter(int period,
+            TimeUnit periodUnit, int limit) {
+        FirewallCounterRule rule = new SlidingWindowFirewallCounterRule(
+                period, periodUnit, new HostDomainCountingPolicy());
+        rule.addHandler(new BlockingHandler(new UniqueLimitPolicy(limit)));
+        add(rule);
+    }
+
+    /**
+     * Adds a rule that limits the rate of requests by request's host domain
+     * with a token bucket. Bursts are allowed up to the limit, then the
+     * requests are spread over the period of time.
+     * 
+     * @param period
+     *            The period of time needed to fill an empty bucket.
+     * @param periodUnit
+     *            Period time unit associated to the rule.
+     * @param limit
+     *            The size of the bucket of each host domain.
+     */
+    public void addHostDomainTokenBucketCounter(int period,
+            TimeUnit periodUnit, int limit) {
+        LimitPolicy limitPolicy = new UniqueLimitPolicy(limit);
+        FirewallCounterRule rule = new TokenBucketFirewallCounterRule(period,
+                periodUnit, new HostDomainCountingPolicy(), limitPolicy);
+        rule.addHandler(new BlockingHandler(limitPolicy));
+        add(rule);
     }
 
     /**
@@ -150,6 +195,48 @@ public class FirewallConfig {
         add(rule);
     }
 
+    /**
+     * Adds a rule that restricts access by sliding period of time according to
+     * the IP address of the request's client. A unique limit is applied for all
+     * IP addresses.
+     * 
+     * @param period
+     *            The period of time.
+     * @param periodUnit
+     *            Period time unit associated to the rule.
+     * @param limit
+     *            The maximum number of accepted requests for the last period of
+     *            time.
+     */
+    public void addIpAddressesSlidingWindowCounter(int period,
+            TimeUnit periodUnit, int limit) {
+        FirewallCounterRule rule = new SlidingWindowFirewallCounterRule(
+                period, periodUnit, new IpAddressCountingPolicy());
+        rule.addHandler(new BlockingHandler(new UniqueLimitPolicy(limit)));
+        add(rule);
+    }
+
+    /**
+     * Adds a rule that restricts the rate of requests according to the IP
+     * address of the request's client, with a token bucket. A unique limit is
+     * applied for all IP addresses.
+     * 
+     * @param period
+     *            The period of time needed to fill an empty bucket.
+     * @param periodUnit
+     *            Period time unit associated to the rule.
+     * @param limit
+     *            The size of the bucket of each IP address.
+     */
+    public void addIpAddressesTokenBucketCounter(int period,
+            TimeUnit periodUnit, int limit) {
+        LimitPolicy limitPolicy = new UniqueLimitPolicy(limit);
+        FirewallCounterRule rule = new TokenBucketFirewallCounterRule(period,
+                periodUnit, new IpAddressCountingPolicy(), limitPolicy);
+        rule.addHandler(new BlockingHandler(limitPolicy));
+        add(rule);
+    }
+
     /**
      * Adds a rule that restricts access to the given set of IP addresses.
      * 
@@ -232,4 +319,55 @@ public class FirewallConfig {
                 defaultLimit)));
         add(rule);
     }
+
+    /**
+     * Adds a rule that restricts access according to the {@link Role} of the
+     * current authenticated {@link User}. Each role is defined a limit in terms
+     * of requests by sliding period of time, in any other case a default limit
+     * is applied.
+     * 
+     * @param period
+     *            The period of time.
+     * @param periodUnit
+     *            Period time unit associated to the rule.
+     * @param limitsPerRole
+     *            The limit assigned per role's name.
+     * @param defaultLimit
+     *            The limit assigned for any other roles, or for user without
+     *            assigned role.
+     */
+    public void addRolesSlidingWindowCounter(int period, TimeUnit periodUnit,
+            Map<String, Integer> limitsPerRole, int defaultLimit) {
+        FirewallCounterRule rule = new SlidingWindowFirewallCounterRule(
+                period, periodUnit, new UserCountingPolicy());
+        rule.addHandler(new BlockingHandler(new RoleLimitPolicy(limitsPerRole,
+                defaultLimit)));
+        add(rule);
+    }
+
+    /**
+     * Adds a rule that restricts the rate of requests according to the
+     * {@link Role} of the current authenticated {@link User}, with a token
+     * bucket by user. Each role is defined a size of bucket, in any other case
+     * a default size is applied.
+     * 
+     * @param period
+     *            The period of time needed to fill an empty bucket.
+     * @param periodUnit
+     *            Period time unit associated to the rule.
+     * @param limitsPerRole
+     *            The size of bucket assigned per role's name.
+     * @param defaultLimit
+     *            The size of bucket assigned for any other roles, or for user
+     *            without assigned role.
+     */
+    public void addRolesTokenBucketCounter(int period, TimeUnit periodUnit,
+            Map<String, Integer> limitsPerRole, int defaultLimit) {
+        LimitPolicy limitPolicy = new RoleLimitPolicy(limitsPerRole,
+                defaultLimit);
+        FirewallCounterRule rule = new TokenBucketFirewallCounterRule(period,
+                periodUnit, new UserCountingPolicy(), limitPolicy);
+        rule.addHandler(new BlockingHandler(limitPolicy));
+        add(rule);
+    }
 }
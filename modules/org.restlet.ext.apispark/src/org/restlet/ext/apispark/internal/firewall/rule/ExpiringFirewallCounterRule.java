@@ -0,0 +1,197 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.apispark.internal.firewall.rule;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.ext.apispark.internal.firewall.rule.policy.CountingPolicy;
+
+/**
+ * {@link FirewallCounterRule} whose counters expire after a period without
+ * requests. For each countedValue (value returned by the
+ * {@link CountingPolicy}), a counter is created on the first request.<br>
+ * <br>
+ * Contrary to the {@link PeriodicFirewallCounterRule}, the check path neither
+ * locks nor allocates: counters are kept in a concurrent map and the counter
+ * results are reused per thread. Expired counters are purged when new counted
+ * values show up, at most once per period, and at most once per minute for
+ * shorter periods.
+ * 
+ * @author Jerome Louvel
+ * @param <T>
+ *            The type of counter.
+ */
+public abstract class ExpiringFirewallCounterRule<T> extends
+        FirewallCounterRule {
+
+    /** The reusable counter result of each thread. */
+    private final ThreadLocal<CounterResult> counterResults = new ThreadLocal<CounterResult>() {
+        @Override
+        protected CounterResult initialValue() {
+            return new CounterResult();
+        }
+    };
+
+    /** The counters by counted value. */
+    private final ConcurrentMap<String, T> counters;
+
+    /** Next purge time of the expired counters, in nanoseconds. */
+    private final AtomicLong nextPurge;
+
+    /** Period associated to the {@link FirewallCounterRule}. */
+    private final long period;
+
+    /** Period time unit associated to the {@link FirewallCounterRule}. */
+    private final TimeUnit periodUnit;
+
+    /**
+     * Constructor.
+     * 
+     * @param period
+     *            Period associated to the {@link FirewallCounterRule}. Each
+     *            created counter will have this one.
+     * @param periodUnit
+     *            Period time unit associated to the {@link FirewallCounterRule}
+     *            .
+     * @param countingPolicy
+     *            The associated counting policy.
+     */
+    public ExpiringFirewallCounterRule(int period, TimeUnit periodUnit,
+            CountingPolicy countingPolicy) {
+        super(countingPolicy);
+        this.counters = new ConcurrentHashMap<String, T>();
+        this.period = period;
+        this.periodUnit = periodUnit;
+        this.nextPurge = new AtomicLong(System.nanoTime()
+                + getPurgeInterval());
+    }
+
+    /**
+     * Creates a counter.
+     * 
+     * @param period
+     *            The period associated to the counter.
+     * @param periodUnit
+     *            The period time unit.
+     * @return The new counter.
+     */
+    protected abstract T createCounter(long period, TimeUnit periodUnit);
+
+    /**
+     * Does nothing.
+     */
+    @Override
+    protected void decrementCounter(String countedValue) {
+    }
+
+    /**
+     * Returns the counter associated to the given counted value, creating it
+     * if needed.
+     * 
+     * @param countedValue
+     *            Value returned by the attached {@link CountingPolicy}.
+     * @return The counter associated to the given counted value.
+     */
+    protected T getCounter(String countedValue) {
+        T result = counters.get(countedValue);
+
+        if (result == null) {
+            purge();
+            result = createCounter(period, periodUnit);
+            T current = counters.putIfAbsent(countedValue, result);
+
+            if (current != null) {
+                result = current;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of counters currently kept.
+     * 
+     * @return The number of counters currently kept.
+     */
+    public int getCounterCount() {
+        return counters.size();
+    }
+
+    /**
+     * Returns the reusable counter result of the current thread.
+     * 
+     * @return The reusable counter result of the current thread.
+     */
+    protected CounterResult getCounterResult() {
+        return counterResults.get();
+    }
+
+    /**
+     * Returns the interval between two purges of the expired counters. Do not
+     * purge more often than once per minute.
+     * 
+     * @return The interval between two purges, in nanoseconds.
+     */
+    private long getPurgeInterval() {
+        return Math.max(periodUnit.toNanos(period), TimeUnit.MINUTES.toNanos(1));
+    }
+
+    /**
+     * Indicates if a counter is expired. In this case, its state is the same
+     * as a new counter's state and it can be purged.
+     * 
+     * @param counter
+     *            The counter.
+     * @return True if the counter is expired.
+     */
+    protected abstract boolean isExpired(T counter);
+
+    /**
+     * Removes the expired counters if the purge interval is elapsed. Only one
+     * thread purges at a time, the others don't wait for it.
+     */
+    private void purge() {
+        long next = nextPurge.get();
+        long now = System.nanoTime();
+
+        if ((now - next >= 0)
+                && nextPurge.compareAndSet(next, now + getPurgeInterval())) {
+            for (Iterator<Map.Entry<String, T>> iter = counters.entrySet()
+                    .iterator(); iter.hasNext();) {
+                Map.Entry<String, T> entry = iter.next();
+
+                if (isExpired(entry.getValue())) {
+                    counters.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+}
@@ -112,7 +112,7 @@ public abstract class FirewallCounterRule extends FirewallRule {
                     : Filter.CONTINUE;
         }
 
-        CounterResult counterResult = incrementCounter(countedValue);
+        CounterResult counterResult = incrementCounter(request, countedValue);
         counterResult.setCountedValue(countedValue);
 
         Context.getCurrentLogger().log(
@@ -162,6 +162,23 @@ public abstract class FirewallCounterRule extends FirewallRule {
      */
     protected abstract CounterResult incrementCounter(String countedValue);
 
+    /**
+     * Method which increases the counter related to the given countedValue.
+     * By default, it calls {@link #incrementCounter(String)}. Rules that need
+     * the request to update their counter, for instance to look up the limit
+     * of a given client, can override it.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param countedValue
+     *            Value returned by the attached {@link CountingPolicy}
+     * @return The state of the counter related to the given countedValue
+     */
+    protected CounterResult incrementCounter(Request request,
+            String countedValue) {
+        return incrementCounter(countedValue);
+    }
+
     /**
      * Indicates if an unknown counted value should be blocked by default.
      * 
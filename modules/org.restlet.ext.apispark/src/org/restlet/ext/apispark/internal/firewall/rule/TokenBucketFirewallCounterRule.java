@@ -0,0 +1,103 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.apispark.internal.firewall.rule;
+
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Request;
+import org.restlet.ext.apispark.internal.firewall.handler.ThresholdHandler;
+import org.restlet.ext.apispark.internal.firewall.handler.policy.LimitPolicy;
+import org.restlet.ext.apispark.internal.firewall.rule.counter.TokenBucketCounter;
+import org.restlet.ext.apispark.internal.firewall.rule.policy.CountingPolicy;
+
+/**
+ * {@link FirewallCounterRule} specialized in limiting the rate of requests with
+ * token buckets. For each countedValue (value returned by the
+ * {@link CountingPolicy}), a {@link TokenBucketCounter} is associated. The
+ * size of each bucket is given by a {@link LimitPolicy}, usually the one of
+ * the attached {@link ThresholdHandler}, and an empty bucket is filled again
+ * after one period.
+ * 
+ * @author Jerome Louvel
+ */
+public class TokenBucketFirewallCounterRule extends
+        ExpiringFirewallCounterRule<TokenBucketCounter> {
+
+    /** The limit policy giving the size of the buckets. */
+    private final LimitPolicy limitPolicy;
+
+    /**
+     * Constructor.
+     * 
+     * @param period
+     *            Period needed to fill an empty bucket. Each created
+     *            {@link TokenBucketCounter} will have this one.
+     * @param periodUnit
+     *            Period time unit associated to the {@link FirewallCounterRule}
+     *            .
+     * @param countingPolicy
+     *            The associated counting policy.
+     * @param limitPolicy
+     *            The limit policy giving the size of the buckets.
+     */
+    public TokenBucketFirewallCounterRule(int period, TimeUnit periodUnit,
+            CountingPolicy countingPolicy, LimitPolicy limitPolicy) {
+        super(period, periodUnit, countingPolicy);
+        this.limitPolicy = limitPolicy;
+    }
+
+    @Override
+    protected TokenBucketCounter createCounter(long period,
+            TimeUnit periodUnit) {
+        return new TokenBucketCounter(period, periodUnit);
+    }
+
+    /**
+     * Takes a token from the bucket related to the given countedValue, the
+     * request being the current one.
+     * 
+     * @param countedValue
+     *            Value returned by the attached {@link CountingPolicy}
+     * @return The state of the counter related to the given countedValue
+     */
+    @Override
+    protected CounterResult incrementCounter(String countedValue) {
+        return incrementCounter(Request.getCurrent(), countedValue);
+    }
+
+    @Override
+    protected CounterResult incrementCounter(Request request,
+            String countedValue) {
+        return getCounter(countedValue).increment(
+                limitPolicy.getLimit(request, countedValue),
+                getCounterResult());
+    }
+
+    @Override
+    protected boolean isExpired(TokenBucketCounter counter) {
+        return counter.isExpired();
+    }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.apispark.internal.firewall.rule.counter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.restlet.ext.apispark.internal.firewall.rule.CounterResult;
+
+/**
+ * {@link Counter} which counts requests on a sliding period. The number of
+ * requests of the current period is added to the number of requests of the
+ * previous period, weighted by the part of the previous period still covered
+ * by the sliding window. Contrary to the {@link PeriodicCounter}, a burst of
+ * requests around the end of a period is not granted twice the limit.<br>
+ * <br>
+ * The counter is lock-free and does not allocate any object. Each slot stores
+ * in a single long the index of its period and its number of requests, and
+ * the slots are striped by thread in order to reduce the contention on hot
+ * counted values.
+ * 
+ * @author Jerome Louvel
+ */
+public class SlidingWindowCounter extends Counter {
+
+    /** Mask of the number of requests in a slot. */
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    /** Number of longs reserved for each stripe, one cache line. */
+    private static final int STRIDE = 8;
+
+    /** The number of stripes, a power of two. */
+    private static final int STRIPES;
+
+    static {
+        int stripes = 1;
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        while ((stripes < processors) && (stripes < 8)) {
+            stripes <<= 1;
+        }
+
+        STRIPES = stripes;
+    }
+
+    /**
+     * Returns the stripe of the current thread.
+     * 
+     * @return The stripe of the current thread.
+     */
+    private static int getStripe() {
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (STRIPES - 1);
+    }
+
+    /** The time origin of the counter, in nanoseconds. */
+    private final long origin;
+
+    /** The period associated to the counter, in nanoseconds. */
+    private final long period;
+
+    /** The striped slots of the current and the previous periods. */
+    private final AtomicLongArray slots;
+
+    /**
+     * Constructor.
+     * 
+     * @param period
+     *            The period associated to the counter, in seconds.
+     */
+    public SlidingWindowCounter(long period) {
+        this(period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param period
+     *            The period associated to the counter.
+     * @param periodUnit
+     *            The period time unit.
+     */
+    public SlidingWindowCounter(long period, TimeUnit periodUnit) {
+        this.origin = System.nanoTime();
+        this.period = Math.max(1L, periodUnit.toNanos(period));
+        this.slots = new AtomicLongArray(STRIPES * STRIDE);
+    }
+
+    /**
+     * Does nothing.
+     */
+    @Override
+    public void decrement() {
+    }
+
+    /**
+     * Returns the time elapsed since the creation of the counter.
+     * 
+     * @return The time elapsed since the creation of the counter, in
+     *         nanoseconds.
+     */
+    private long getTime() {
+        return System.nanoTime() - origin;
+    }
+
+    @Override
+    public CounterResult increment() {
+        return increment(new CounterResult());
+    }
+
+    /**
+     * Increments the counter value and updates the given result without
+     * allocating any object.
+     * 
+     * @param counterResult
+     *            The result to update.
+     * @return The updated result.
+     */
+    public CounterResult increment(CounterResult counterResult) {
+        long time = getTime();
+        long window = time / period;
+        int slot = (int) (window & 1);
+        int index = getStripe() * STRIDE + slot;
+        long value;
+        long next;
+
+        do {
+            value = slots.get(index);
+            next = ((value >>> 32) == window) ? value + 1
+                    : (window << 32) | 1L;
+        } while (!slots.compareAndSet(index, value, next));
+
+        long current = 0;
+        long previous = 0;
+
+        for (int i = 0; i < slots.length(); i += STRIDE) {
+            value = slots.get(i + slot);
+
+            if ((value >>> 32) == window) {
+                current += value & COUNT_MASK;
+            }
+
+            value = slots.get(i + (slot ^ 1));
+
+            if ((value >>> 32) == window - 1) {
+                previous += value & COUNT_MASK;
+            }
+        }
+
+        long elapsed = time - window * period;
+        long consumed = current
+                + (long) (previous * ((double) (period - elapsed) / period));
+        counterResult.setConsumed((int) Math.min(consumed, Integer.MAX_VALUE));
+        counterResult.setElapsed(TimeUnit.NANOSECONDS.toSeconds(elapsed));
+        counterResult.setReset(System.currentTimeMillis() / 1000L
+                + TimeUnit.NANOSECONDS.toSeconds(period - elapsed + 999999999L));
+        return counterResult;
+    }
+
+    /**
+     * Indicates if the counter has not been incremented for at least two
+     * periods. In this case, its state is the same as a new counter's state.
+     * 
+     * @return True if the counter has not been incremented for at least two
+     *         periods.
+     */
+    public boolean isExpired() {
+        long window = getTime() / period;
+
+        for (int i = 0; i < slots.length(); i += STRIDE) {
+            if (((slots.get(i) >>> 32) >= window - 1)
+                    || ((slots.get(i + 1) >>> 32) >= window - 1)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
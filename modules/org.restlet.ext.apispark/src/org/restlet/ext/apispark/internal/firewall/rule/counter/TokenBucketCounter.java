@@ -0,0 +1,153 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.apispark.internal.firewall.rule.counter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.ext.apispark.internal.firewall.rule.CounterResult;
+
+/**
+ * Token bucket counting requests. The bucket holds as many tokens as the
+ * limit, each request takes one token and the tokens are given back at a
+ * steady rate so that the bucket is full again after one period. Bursts are
+ * thus accepted up to the limit, then requests are smoothed over the
+ * period.<br>
+ * <br>
+ * The counter is lock-free and does not allocate any object. It is based on
+ * the generic cell rate algorithm: a single atomic long holds the time at
+ * which the bucket will be full again, and a request is accepted when it does
+ * not push this time further than one period ahead. Requests rejected by the
+ * bucket do not take any token.<br>
+ * <br>
+ * Contrary to a {@link Counter}, the size of the bucket is required to take a
+ * token. As it may depend on the request, it is given on each call.
+ * 
+ * @author Jerome Louvel
+ */
+public class TokenBucketCounter {
+
+    /** The time at which the bucket will be full, in nanoseconds. */
+    private final AtomicLong fullTime;
+
+    /** The time origin of the counter, in nanoseconds. */
+    private final long origin;
+
+    /** The period needed to fill an empty bucket, in nanoseconds. */
+    private final long period;
+
+    /**
+     * Constructor.
+     * 
+     * @param period
+     *            The period needed to fill an empty bucket, in seconds.
+     */
+    public TokenBucketCounter(long period) {
+        this(period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param period
+     *            The period needed to fill an empty bucket.
+     * @param periodUnit
+     *            The period time unit.
+     */
+    public TokenBucketCounter(long period, TimeUnit periodUnit) {
+        this.fullTime = new AtomicLong();
+        this.origin = System.nanoTime();
+        this.period = Math.max(1L, periodUnit.toNanos(period));
+    }
+
+    /**
+     * Returns the time elapsed since the creation of the counter.
+     * 
+     * @return The time elapsed since the creation of the counter, in
+     *         nanoseconds.
+     */
+    private long getTime() {
+        return System.nanoTime() - origin;
+    }
+
+    /**
+     * Takes a token from the bucket if available and updates the given result
+     * without allocating any object. The consumed value of the result is the
+     * number of tokens taken from the bucket, and is greater than the limit
+     * when the bucket is empty.
+     * 
+     * @param limit
+     *            The size of the bucket.
+     * @param counterResult
+     *            The result to update.
+     * @return The updated result.
+     */
+    public CounterResult increment(int limit, CounterResult counterResult) {
+        long time = getTime();
+        long full;
+        long consumed;
+
+        if (limit <= 0) {
+            full = Math.max(fullTime.get(), time);
+            consumed = 1;
+        } else {
+            long interval = Math.max(1L, period / limit);
+            long tolerance = interval * limit;
+            long current;
+
+            do {
+                time = getTime();
+                current = fullTime.get();
+                full = Math.max(current, time) + interval;
+
+                if (full - time > tolerance) {
+                    // The bucket is empty, don't take any token
+                    full = current;
+                    consumed = limit + 1L;
+                    break;
+                }
+
+                consumed = (full - time + interval - 1) / interval;
+            } while (!fullTime.compareAndSet(current, full));
+        }
+
+        counterResult.setConsumed((int) Math.min(consumed, Integer.MAX_VALUE));
+        counterResult.setElapsed(0);
+        counterResult.setReset(System.currentTimeMillis() / 1000L
+                + TimeUnit.NANOSECONDS.toSeconds(full - time + 999999999L));
+        return counterResult;
+    }
+
+    /**
+     * Indicates if the bucket is full. In this case, its state is the same as a
+     * new counter's state.
+     * 
+     * @return True if the bucket is full.
+     */
+    public boolean isExpired() {
+        return fullTime.get() <= getTime();
+    }
+
+}
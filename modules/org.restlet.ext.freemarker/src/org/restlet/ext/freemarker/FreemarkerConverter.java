@@ -26,7 +26,9 @@ package org.restlet.ext.freemarker;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
+import org.restlet.Context;
 import org.restlet.engine.converter.ConverterHelper;
 import org.restlet.engine.resource.VariantInfo;
 import org.restlet.ext.freemarker.internal.ResolverHashModel;
@@ -35,16 +37,68 @@ import org.restlet.representation.Variant;
 import org.restlet.resource.Resource;
 import org.restlet.util.Resolver;
 
+import freemarker.template.Configuration;
 import freemarker.template.Template;
 
 /**
  * Converter between the FreeMarker Template objects and Representations. The
- * adjoined data model is based on the request and response objects.
+ * adjoined data model is based on the request and response objects.<br>
+ * <br>
+ * This class also owns the FreeMarker configuration shared by the template
+ * representations and filters of an application, so that parsed templates are
+ * cached across calls. See {@link #getConfiguration(Context)}.
  * 
  * @author Thierry Boileau.
  */
 public class FreemarkerConverter extends ConverterHelper {
 
+    /** The name of the context attribute holding the shared configuration. */
+    public static final String ATTRIBUTE = "org.restlet.ext.freemarker.Configuration";
+
+    /** The configuration shared outside of an application. */
+    private static final Configuration CONFIGURATION = new Configuration();
+
+    /**
+     * Returns the FreeMarker configuration shared by the current application.
+     * 
+     * @return The shared FreeMarker configuration.
+     * @see #getConfiguration(Context)
+     */
+    public static Configuration getConfiguration() {
+        return getConfiguration(Context.getCurrent());
+    }
+
+    /**
+     * Returns the FreeMarker configuration shared within a context, usually
+     * the one of an application. It is stored in the context attributes under
+     * the {@link #ATTRIBUTE} name, and created if needed. A global
+     * configuration is returned if the context is null.
+     * 
+     * @param context
+     *            The context or null.
+     * @return The shared FreeMarker configuration.
+     */
+    public static Configuration getConfiguration(Context context) {
+        if (context == null) {
+            return CONFIGURATION;
+        }
+
+        ConcurrentMap<String, Object> attributes = context.getAttributes();
+        Configuration result = (Configuration) attributes.get(ATTRIBUTE);
+
+        if (result == null) {
+            result = new Configuration();
+            Configuration current = (Configuration) attributes.putIfAbsent(
+                    ATTRIBUTE, result);
+
+            if (current != null) {
+                result = current;
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public List<Class<?>> getObjectClasses(Variant source) {
         return null;
@@ -24,6 +24,9 @@
 
 package org.restlet.ext.freemarker;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
@@ -43,6 +46,14 @@ import freemarker.template.TemplateHashModel;
  * happen, the representations must have the {@link Encoding#FREEMARKER}
  * encoding set.<br>
  * <br>
+ * Unless a specific configuration is set or the configuration is customized
+ * via {@link #getConfiguration()}, the FreeMarker configuration shared by the
+ * application is used, see
+ * {@link FreemarkerConverter#getConfiguration(Context)}. Parsed templates are
+ * cached by the configuration used. Templates can also be preloaded when the
+ * filter is started, usually with its application, see
+ * {@link #getPreloadedTemplates()}.<br>
+ * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
  * should be especially careful when storing state in member variables.
@@ -57,12 +68,16 @@ public class TemplateFilter extends Filter {
     /** The template's data model. */
     private volatile Object dataModel;
 
+    /** The names of the templates to preload. */
+    private final List<String> preloadedTemplates;
+
     /**
      * Constructor.
      */
     public TemplateFilter() {
         super();
-        this.configuration = new Configuration();
+        this.configuration = null;
+        this.preloadedTemplates = new CopyOnWriteArrayList<String>();
     }
 
     /**
@@ -73,7 +88,8 @@ public class TemplateFilter extends Filter {
      */
     public TemplateFilter(Context context) {
         super(context);
-        this.configuration = new Configuration();
+        this.configuration = null;
+        this.preloadedTemplates = new CopyOnWriteArrayList<String>();
     }
 
     /**
@@ -86,7 +102,8 @@ public class TemplateFilter extends Filter {
      */
     public TemplateFilter(Context context, Restlet next) {
         super(context, next);
-        this.configuration = new Configuration();
+        this.configuration = null;
+        this.preloadedTemplates = new CopyOnWriteArrayList<String>();
     }
 
     /**
@@ -126,7 +143,7 @@ public class TemplateFilter extends Filter {
                 && response.getEntity().getEncodings()
                         .contains(Encoding.FREEMARKER)) {
             TemplateRepresentation representation = new TemplateRepresentation(
-                    response.getEntity(), this.configuration, response
+                    response.getEntity(), getEffectiveConfiguration(), response
                             .getEntity().getMediaType());
             representation.setDataModel(createDataModel(request, response));
             response.setEntity(representation);
@@ -159,12 +176,27 @@ public class TemplateFilter extends Filter {
     }
 
     /**
-     * Returns the FreeMarker configuration.
+     * Returns the FreeMarker configuration of this filter. As the caller may
+     * customize it, a configuration specific to this filter is created on
+     * first call unless one has been set.
      * 
      * @return The FreeMarker configuration.
      */
     public Configuration getConfiguration() {
-        return this.configuration;
+        Configuration result = this.configuration;
+
+        if (result == null) {
+            synchronized (this) {
+                result = this.configuration;
+
+                if (result == null) {
+                    result = new Configuration();
+                    this.configuration = result;
+                }
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -177,6 +209,35 @@ public class TemplateFilter extends Filter {
         return dataModel;
     }
 
+    /**
+     * Returns the FreeMarker configuration used to process the templates. It
+     * is the configuration of this filter if it has been set or customized,
+     * or else the configuration shared within the filter's context.
+     * 
+     * @return The FreeMarker configuration used.
+     * @see FreemarkerConverter#getConfiguration(Context)
+     */
+    private Configuration getEffectiveConfiguration() {
+        Configuration result = this.configuration;
+
+        if (result == null) {
+            result = FreemarkerConverter.getConfiguration(getContext());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the modifiable list of the names of the templates to load, via
+     * the configuration's template loader, when the filter is started. This
+     * avoids parsing them while handling the first calls.
+     * 
+     * @return The names of the templates to preload.
+     */
+    public List<String> getPreloadedTemplates() {
+        return this.preloadedTemplates;
+    }
+
     /**
      * Sets the FreeMarker configuration.
      * 
@@ -198,4 +259,19 @@ public class TemplateFilter extends Filter {
         this.dataModel = dataModel;
     }
 
+    /**
+     * Preloads the templates then starts the filter.
+     */
+    @Override
+    public synchronized void start() throws Exception {
+        if (isStopped()) {
+            for (String templateName : getPreloadedTemplates()) {
+                TemplateRepresentation.getTemplate(
+                        getEffectiveConfiguration(), templateName);
+            }
+        }
+
+        super.start();
+    }
+
 }
@@ -32,6 +32,7 @@ import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.CharacterSet;
 import org.restlet.data.MediaType;
+import org.restlet.ext.freemarker.internal.RepresentationTemplateCache;
 import org.restlet.ext.freemarker.internal.ResolverHashModel;
 import org.restlet.representation.Representation;
 import org.restlet.representation.WriterRepresentation;
@@ -52,6 +53,9 @@ public class TemplateRepresentation extends WriterRepresentation {
 
     /**
      * Returns a FreeMarker template from a representation and a configuration.
+     * Templates of representations with a location reference and a
+     * modification date or a strong tag are cached by the configuration, and
+     * only parsed again when the representation is updated.
      * 
      * @param config
      *            The FreeMarker configuration.
@@ -61,17 +65,29 @@ public class TemplateRepresentation extends WriterRepresentation {
      */
     public static Template getTemplate(Configuration config,
             Representation templateRepresentation) {
+        RepresentationTemplateCache cache = RepresentationTemplateCache
+                .getInstance(config);
+        Template result = cache.get(templateRepresentation);
+
+        if (result != null) {
+            return result;
+        }
+
         try {
             // Instantiate the template with the character set of the template
             // representation if it has been set, otherwise use UTF-8.
             if (templateRepresentation.getCharacterSet() != null) {
-                return new Template("template",
+                result = new Template("template",
                         templateRepresentation.getReader(), config,
                         templateRepresentation.getCharacterSet().getName());
+            } else {
+                result = new Template("template",
+                        templateRepresentation.getReader(), config,
+                        CharacterSet.UTF_8.getName());
             }
 
-            return new Template("template", templateRepresentation.getReader(),
-                    config, CharacterSet.UTF_8.getName());
+            cache.put(templateRepresentation, result);
+            return result;
         } catch (IOException e) {
             Context.getCurrentLogger().warning(
                     "Unable to get the template from the representation "
@@ -140,20 +156,22 @@ public class TemplateRepresentation extends WriterRepresentation {
     }
 
     /**
-     * Constructor.
+     * Constructor. Uses the shared FreeMarker configuration.
      * 
      * @param templateRepresentation
      *            The FreeMarker template provided via a representation.
      * @param mediaType
      *            The representation's media type.
+     * @see FreemarkerConverter#getConfiguration()
      */
     public TemplateRepresentation(Representation templateRepresentation,
             MediaType mediaType) {
-        this(templateRepresentation, new Configuration(), mediaType);
+        this(templateRepresentation, FreemarkerConverter.getConfiguration(),
+                mediaType);
     }
 
     /**
-     * Constructor. Uses a default FreeMarker configuration.
+     * Constructor. Uses the shared FreeMarker configuration.
      * 
      * @param templateRepresentation
      *            The FreeMarker template provided via a representation.
@@ -161,10 +179,12 @@ public class TemplateRepresentation extends WriterRepresentation {
      *            The template's data model.
      * @param mediaType
      *            The representation's media type.
+     * @see FreemarkerConverter#getConfiguration()
      */
     public TemplateRepresentation(Representation templateRepresentation,
             Object dataModel, MediaType mediaType) {
-        this(templateRepresentation, new Configuration(), dataModel, mediaType);
+        this(templateRepresentation, FreemarkerConverter.getConfiguration(),
+                dataModel, mediaType);
     }
 
     /**
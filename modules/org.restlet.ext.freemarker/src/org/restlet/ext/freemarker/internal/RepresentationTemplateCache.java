@@ -0,0 +1,162 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.freemarker.internal;
+
+import org.restlet.data.Tag;
+import org.restlet.representation.Representation;
+
+import freemarker.cache.CacheStorage;
+import freemarker.cache.MruCacheStorage;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+
+/**
+ * Cache of the templates parsed from representations with a given FreeMarker
+ * configuration. It relies on a FreeMarker MRU cache storage, sized like the
+ * default storage of FreeMarker's own template cache. Templates are cached by
+ * location reference and validator, that is the strong tag or else the
+ * modification date of the representation. Stale versions of a template are
+ * thus never returned and get evicted like unused ones. The cache is stored
+ * as a custom attribute of its configuration.
+ * 
+ * @author Jerome Louvel
+ */
+public class RepresentationTemplateCache {
+
+    /** The name of the configuration custom attribute. */
+    private static final String ATTRIBUTE = "org.restlet.ext.freemarker.RepresentationTemplateCache";
+
+    /** The maximum number of softly referenced templates. */
+    private static final int MAX_SOFT_SIZE = 250;
+
+    /** The maximum number of strongly referenced templates. */
+    private static final int MAX_STRONG_SIZE = 20;
+
+    /**
+     * Returns the cache of a configuration, creating it if needed.
+     * 
+     * @param config
+     *            The FreeMarker configuration.
+     * @return The cache of the configuration.
+     */
+    public static RepresentationTemplateCache getInstance(Configuration config) {
+        synchronized (config) {
+            RepresentationTemplateCache result = (RepresentationTemplateCache) config
+                    .getCustomAttribute(ATTRIBUTE);
+
+            if (result == null) {
+                result = new RepresentationTemplateCache();
+                config.setCustomAttribute(ATTRIBUTE, result);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Returns the cache key of a template representation, made of its
+     * location reference and of its validator.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The cache key or null if the representation can't be cached.
+     */
+    private static String getKey(Representation templateRepresentation) {
+        String result = null;
+
+        if (templateRepresentation.getLocationRef() != null) {
+            Tag tag = templateRepresentation.getTag();
+
+            if ((tag != null) && !tag.isWeak()) {
+                result = tag.format();
+            } else if (templateRepresentation.getModificationDate() != null) {
+                result = Long.toString(templateRepresentation
+                        .getModificationDate().getTime());
+            }
+
+            if (result != null) {
+                result = templateRepresentation.getLocationRef() + " "
+                        + result;
+            }
+        }
+
+        return result;
+    }
+
+    /** The storage of the cached templates, not thread-safe. */
+    private final CacheStorage storage;
+
+    /**
+     * Constructor.
+     */
+    private RepresentationTemplateCache() {
+        this.storage = new MruCacheStorage(MAX_STRONG_SIZE, MAX_SOFT_SIZE);
+    }
+
+    /**
+     * Returns the cached template of a representation if it is still valid.
+     * In this case, the representation is released without being read.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The cached template or null.
+     */
+    public Template get(Representation templateRepresentation) {
+        String key = getKey(templateRepresentation);
+        Template result = null;
+
+        if (key != null) {
+            synchronized (this.storage) {
+                result = (Template) this.storage.get(key);
+            }
+        }
+
+        if (result != null) {
+            templateRepresentation.release();
+        }
+
+        return result;
+    }
+
+    /**
+     * Caches the template parsed from a representation, if the representation
+     * has a location reference and a modification date or a strong tag.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @param template
+     *            The parsed template.
+     */
+    public void put(Representation templateRepresentation, Template template) {
+        String key = getKey(templateRepresentation);
+
+        if ((key != null) && (template != null)) {
+            synchronized (this.storage) {
+                this.storage.put(key, template);
+            }
+        }
+    }
+
+}
@@ -26,6 +26,8 @@ package org.restlet.ext.jackson;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.restlet.data.MediaType;
 import org.restlet.data.Preference;
@@ -35,14 +37,64 @@ import org.restlet.representation.Representation;
 import org.restlet.representation.Variant;
 import org.restlet.resource.Resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
 /**
  * Converter between the JSON, JSON Smile, CSV, XML, YAML and Representation
- * classes based on Jackson.
+ * classes based on Jackson.<br>
+ * <br>
+ * By default, each representation created by this converter has its own
+ * Jackson object mapper, so that subclasses can customize it, for example by
+ * calling {@link JacksonRepresentation#getObjectMapper()} after
+ * {@code super.create(...)}. When sharing is enabled via
+ * {@link #setSharingMappers(boolean)}, the representations share their object
+ * mappers, readers and writers per media type and object class, so that the
+ * serializers and deserializers cached by Jackson are reused across
+ * conversions. The shared mappers can then be replaced via the
+ * {@link #setObjectMapper(MediaType, ObjectMapper)} method, but must not be
+ * modified by the representations.
  * 
  * @author Jerome Louvel
  * @author Thierry Boileau
  */
 public class JacksonConverter extends ConverterHelper {
+
+    /**
+     * Jackson object mapper shared for a given media type, with the object
+     * readers and writers derived from it for each object class.
+     */
+    private static class SharedMapper {
+
+        /** The shared object mapper. */
+        private final ObjectMapper objectMapper;
+
+        /** The object readers per object class. */
+        private final ConcurrentMap<Class<?>, ObjectReader> objectReaders;
+
+        /** The object writers per object class. */
+        private final ConcurrentMap<Class<?>, ObjectWriter> objectWriters;
+
+        /**
+         * Constructor.
+         * 
+         * @param objectMapper
+         *            The shared object mapper.
+         */
+        private SharedMapper(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            this.objectReaders = new ConcurrentHashMap<Class<?>, ObjectReader>();
+            this.objectWriters = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+        }
+    }
+
+    /**
+     * The maximum number of shared mappers. Beyond, the mappers of new media
+     * types aren't shared.
+     */
+    private static final int MAX_SHARED_MAPPERS = 64;
+
     // [ifndef android] instruction
     /** Variant with media type application/xml. */
     private static final VariantInfo VARIANT_APPLICATION_XML = new VariantInfo(
@@ -73,6 +125,12 @@ public class JacksonConverter extends ConverterHelper {
     private static final VariantInfo VARIANT_TEXT_YAML = new VariantInfo(
             MediaType.TEXT_YAML);
 
+    /** The shared object mappers, per media type and parsing options. */
+    private final ConcurrentMap<String, SharedMapper> sharedMappers = new ConcurrentHashMap<String, SharedMapper>();
+
+    /** Indicates if the object mappers are shared between representations. */
+    private volatile boolean sharingMappers = false;
+
     /**
      * Creates the marshaling {@link JacksonRepresentation}.
      * 
@@ -84,7 +142,26 @@ public class JacksonConverter extends ConverterHelper {
      * @return The marshaling {@link JacksonRepresentation}.
      */
     protected <T> JacksonRepresentation<T> create(MediaType mediaType, T source) {
-        return new JacksonRepresentation<T>(mediaType, source);
+        JacksonRepresentation<T> result = new JacksonRepresentation<T>(
+                mediaType, source);
+
+        if (isSharingMappers() && (result.getObjectClass() != null)) {
+            SharedMapper sharedMapper = getSharedMapper(result);
+            ObjectWriter objectWriter = sharedMapper.objectWriters.get(result
+                    .getObjectClass());
+
+            result.setObjectMapper(sharedMapper.objectMapper);
+
+            if (objectWriter == null) {
+                objectWriter = result.createObjectWriter();
+                sharedMapper.objectWriters.putIfAbsent(
+                        result.getObjectClass(), objectWriter);
+            }
+
+            result.setObjectWriter(objectWriter);
+        }
+
+        return result;
     }
 
     /**
@@ -99,7 +176,28 @@ public class JacksonConverter extends ConverterHelper {
      */
     protected <T> JacksonRepresentation<T> create(Representation source,
             Class<T> objectClass) {
-        return new JacksonRepresentation<T>(source, objectClass);
+        JacksonRepresentation<T> result = new JacksonRepresentation<T>(source,
+                objectClass);
+
+        // Representations returned as is may be customized, don't share
+        if (isSharingMappers() && (objectClass != null)
+                && !JacksonRepresentation.class.isAssignableFrom(objectClass)) {
+            SharedMapper sharedMapper = getSharedMapper(result);
+            ObjectReader objectReader = sharedMapper.objectReaders
+                    .get(objectClass);
+
+            result.setObjectMapper(sharedMapper.objectMapper);
+
+            if (objectReader == null) {
+                objectReader = result.createObjectReader();
+                sharedMapper.objectReaders.putIfAbsent(objectClass,
+                        objectReader);
+            }
+
+            result.setObjectReader(objectReader);
+        }
+
+        return result;
     }
 
     @Override
@@ -114,6 +212,72 @@ public class JacksonConverter extends ConverterHelper {
         return result;
     }
 
+    /**
+     * Returns the key of the shared mapper suitable for a given representation.
+     * The parameters of the media type, such as the character set, are left
+     * out of the key as they don't change the object mapper.
+     * 
+     * @param representation
+     *            The Jackson representation.
+     * @return The key of the shared mapper.
+     */
+    private String getMapperKey(JacksonRepresentation<?> representation) {
+        StringBuilder sb = new StringBuilder();
+
+        if (representation.getMediaType() != null) {
+            sb.append(getMapperName(representation.getMediaType()));
+        }
+
+        // [ifndef android]
+        sb.append(representation.isExpandingEntityRefs() ? ";e" : "");
+        sb.append(representation.isValidatingDtd() ? ";v" : "");
+        // [enddef]
+        return sb.toString();
+    }
+
+    /**
+     * Returns the name of a media type without its parameters, used as prefix
+     * of the shared mapper keys.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @return The name of the media type without its parameters.
+     */
+    private String getMapperName(MediaType mediaType) {
+        return mediaType.getMainType() + "/" + mediaType.getSubType();
+    }
+
+    /**
+     * Returns the shared mapper suitable for a given representation, creating
+     * it with the representation's {@link JacksonRepresentation#createObjectMapper()}
+     * method if needed. Once {@link #MAX_SHARED_MAPPERS} mappers are shared,
+     * the mappers created for new keys are returned without being shared.
+     * 
+     * @param representation
+     *            The Jackson representation.
+     * @return The shared mapper.
+     */
+    private SharedMapper getSharedMapper(
+            JacksonRepresentation<?> representation) {
+        String key = getMapperKey(representation);
+        SharedMapper result = this.sharedMappers.get(key);
+
+        if (result == null) {
+            result = new SharedMapper(representation.createObjectMapper());
+
+            if (this.sharedMappers.size() < MAX_SHARED_MAPPERS) {
+                SharedMapper current = this.sharedMappers.putIfAbsent(key,
+                        result);
+
+                if (current != null) {
+                    result = current;
+                }
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public List<VariantInfo> getVariants(Class<?> source) {
         List<VariantInfo> result = null;
@@ -174,6 +338,17 @@ public class JacksonConverter extends ConverterHelper {
         return result;
     }
 
+    /**
+     * Indicates if the Jackson object mappers, readers and writers are shared
+     * between the representations created by this converter. False by
+     * default.
+     * 
+     * @return True if the object mappers are shared.
+     */
+    public boolean isSharingMappers() {
+        return sharingMappers;
+    }
+
     @Override
     public <T> float score(Representation source, Class<T> target,
             Resource resource) {
@@ -191,6 +366,52 @@ public class JacksonConverter extends ConverterHelper {
         return result;
     }
 
+    /**
+     * Sets the Jackson object mapper shared by the representations of the
+     * given media type, whatever their media type parameters. The readers and
+     * writers previously derived for this media type are discarded. Only used
+     * when sharing is enabled.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @param objectMapper
+     *            The object mapper to share or null to restore the default
+     *            one.
+     */
+    public void setObjectMapper(MediaType mediaType, ObjectMapper objectMapper) {
+        String name = getMapperName(mediaType);
+
+        for (String key : this.sharedMappers.keySet()) {
+            if (key.equals(name) || key.startsWith(name + ";")) {
+                this.sharedMappers.remove(key);
+            }
+        }
+
+        if (objectMapper != null) {
+            SharedMapper sharedMapper = new SharedMapper(objectMapper);
+            this.sharedMappers.put(name, sharedMapper);
+            // [ifndef android]
+            this.sharedMappers.put(name + ";e", sharedMapper);
+            this.sharedMappers.put(name + ";v", sharedMapper);
+            this.sharedMappers.put(name + ";e;v", sharedMapper);
+            // [enddef]
+        }
+    }
+
+    /**
+     * Indicates if the Jackson object mappers, readers and writers are shared
+     * between the representations created by this converter. When disabled,
+     * each representation creates its own object mapper that can be
+     * customized separately. When enabled, the shared object mappers must not
+     * be customized by the representations.
+     * 
+     * @param sharingMappers
+     *            True if the object mappers are shared.
+     */
+    public void setSharingMappers(boolean sharingMappers) {
+        this.sharingMappers = sharingMappers;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> T toObject(Representation source, Class<T> target,
@@ -27,6 +27,9 @@ package org.restlet.ext.jetty.internal;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.security.cert.Certificate;
 import java.util.Arrays;
 import java.util.Enumeration;
@@ -36,11 +39,14 @@ import java.util.logging.Level;
 
 import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpOutput;
 import org.restlet.Response;
 import org.restlet.Server;
 import org.restlet.data.Header;
 import org.restlet.data.Status;
 import org.restlet.engine.adapter.ServerCall;
+import org.restlet.engine.io.FileRegion;
+import org.restlet.representation.Representation;
 import org.restlet.util.Series;
 
 /**
@@ -51,6 +57,69 @@ import org.restlet.util.Series;
  */
 public class JettyServerCall extends ServerCall {
 
+    /**
+     * Readable channel limited to a region of a file channel. It fails when
+     * the end of the file is reached before the end of the region.
+     */
+    private static class RegionChannel implements ReadableByteChannel {
+
+        /** The index after the last byte of the region. */
+        private final long end;
+
+        /** The wrapped file channel. */
+        private final FileChannel fileChannel;
+
+        /** The index of the next byte to read. */
+        private long position;
+
+        /**
+         * Constructor.
+         * 
+         * @param fileChannel
+         *            The wrapped file channel.
+         * @param position
+         *            The index of the first byte of the region.
+         * @param size
+         *            The number of bytes of the region.
+         */
+        public RegionChannel(FileChannel fileChannel, long position, long size) {
+            this.end = position + size;
+            this.fileChannel = fileChannel;
+            this.position = position;
+        }
+
+        public void close() throws IOException {
+            this.fileChannel.close();
+        }
+
+        public boolean isOpen() {
+            return this.fileChannel.isOpen();
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            int result = -1;
+
+            if (this.position < this.end) {
+                ByteBuffer region = dst.duplicate();
+                region.limit(region.position()
+                        + (int) Math.min(region.remaining(), this.end
+                                - this.position));
+                result = this.fileChannel.read(region, this.position);
+
+                if (result < 0) {
+                    throw new EofException("The file was truncated at "
+                            + this.position + " bytes instead of "
+                            + this.end);
+                }
+
+                dst.position(region.position());
+                this.position += result;
+            }
+
+            return result;
+        }
+    }
+
     /** The wrapped Jetty HTTP channel. */
     private final HttpChannel<?> channel;
 
@@ -294,4 +363,38 @@ public class JettyServerCall extends ServerCall {
             }
         }
     }
+
+    /**
+     * Writes files and ranges of files with Jetty's channel based content
+     * sending, which reads them into pooled buffers instead of copying them
+     * through the output stream. Fails if the file is shorter than the
+     * announced region. Otherwise, relies on the default behavior.
+     */
+    @Override
+    protected void writeResponseBody(Representation entity,
+            OutputStream responseEntityStream) throws IOException {
+        FileRegion fileRegion = FileRegion.getFileRegion(entity);
+
+        if ((fileRegion != null)
+                && (responseEntityStream instanceof HttpOutput)) {
+            RegionChannel regionChannel = new RegionChannel(
+                    fileRegion.getChannel(), fileRegion.getStartIndex(),
+                    fileRegion.getSize());
+
+            try {
+                if (regionChannel.fileChannel.size() < regionChannel.end) {
+                    throw new EofException("The file has "
+                            + regionChannel.fileChannel.size()
+                            + " bytes instead of the expected "
+                            + regionChannel.end);
+                }
+
+                ((HttpOutput) responseEntityStream).sendContent(regionChannel);
+            } finally {
+                regionChannel.close();
+            }
+        } else {
+            super.writeResponseBody(entity, responseEntityStream);
+        }
+    }
 }
@@ -45,6 +45,7 @@ import org.restlet.data.Status;
 import org.restlet.engine.Engine;
 import org.restlet.engine.connector.ConnectorHelper;
 import org.restlet.engine.log.LoggingThreadFactory;
+import org.restlet.ext.nio.internal.buffer.BufferPool;
 import org.restlet.ext.nio.internal.controller.ConnectionController;
 
 /**
@@ -156,6 +157,14 @@ import org.restlet.ext.nio.internal.controller.ConnectionController;
  * use direct buffers.</td>
  * </tr>
  * <tr>
+ * <td>pooledBuffers</td>
+ * <td>boolean</td>
+ * <td>Same as directBuffers</td>
+ * <td>Indicates if the connection buffers should be leased from a pool shared
+ * by all connections and given back when the connections are idle. At most
+ * 4 MB of idle buffers are kept in the pool.</td>
+ * </tr>
+ * <tr>
  * <td>throttleTimeMs</td>
  * <td>int</td>
  * <td>0</td>
@@ -175,6 +184,9 @@ import org.restlet.ext.nio.internal.controller.ConnectionController;
 public abstract class BaseHelper<T extends Connector> extends
         ConnectorHelper<T> {
 
+    /** The pool of connection buffers. */
+    private volatile BufferPool bufferPool;
+
     /** Indicates if it is helping a client connector. */
     protected final boolean clientSide;
 
@@ -215,21 +227,35 @@ public abstract class BaseHelper<T extends Connector> extends
      * @return Indicates if some concrete activity occurred.
      */
     public boolean control() {
+        return control(getInboundMessages(), getOutboundMessages());
+    }
+
+    /**
+     * Controls the given queues for inbound or outbound messages to handle.
+     * 
+     * @param inboundMessages
+     *            The queue of inbound messages.
+     * @param outboundMessages
+     *            The queue of outbound messages.
+     * @return Indicates if some concrete activity occurred.
+     */
+    public boolean control(Queue<Response> inboundMessages,
+            Queue<Response> outboundMessages) {
         boolean result = false;
         int size;
 
         // Control pending inbound messages
-        size = getInboundMessages().size();
+        size = inboundMessages.size();
 
         for (int i = 0; i < size; i++) {
-            handleInbound(getInboundMessages().poll());
+            handleInbound(inboundMessages.poll());
         }
 
         // Control pending outbound messages
-        size = getOutboundMessages().size();
+        size = outboundMessages.size();
 
         for (int i = 0; i < size; i++) {
-            handleOutbound(getOutboundMessages().poll());
+            handleOutbound(outboundMessages.poll());
         }
 
         return result;
@@ -379,6 +405,16 @@ public abstract class BaseHelper<T extends Connector> extends
         }
     }
 
+    /**
+     * Returns the pool of connection buffers, available once started if
+     * buffers are pooled.
+     * 
+     * @return The pool of connection buffers or null.
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
     /**
      * Returns the controller task.
      * 
@@ -505,7 +541,7 @@ public abstract class BaseHelper<T extends Connector> extends
      * 
      * @return The queue of outbound messages.
      */
-    protected Queue<Response> getOutboundMessages() {
+    public Queue<Response> getOutboundMessages() {
         return outboundMessages;
     }
 
@@ -664,6 +700,18 @@ public abstract class BaseHelper<T extends Connector> extends
      */
     public abstract boolean isControllerDaemon();
 
+    /**
+     * Indicates if the connection buffers should be leased from a shared pool.
+     * By default, pooling is only enabled together with direct buffers.
+     * 
+     * @return True if the connection buffers should be leased from a shared
+     *         pool.
+     */
+    public boolean isPooledBuffers() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "pooledBuffers", Boolean.toString(isDirectBuffers())));
+    }
+
     /**
      * Indicates if direct NIO buffers should be used. Note that tracing must be
      * disabled to use direct buffers.
@@ -746,6 +794,11 @@ public abstract class BaseHelper<T extends Connector> extends
     @Override
     public void start() throws Exception {
         super.start();
+
+        if (isPooledBuffers()) {
+            this.bufferPool = new BufferPool(isDirectBuffers());
+        }
+
         this.controllerService = createControllerService();
 
         if (hasWorkerThreads()) {
@@ -760,6 +813,10 @@ public abstract class BaseHelper<T extends Connector> extends
         super.stop();
         doGracefulStop();
         doFinishStop();
+
+        if (this.bufferPool != null) {
+            this.bufferPool.trim(0);
+        }
     }
 
     /**
@@ -29,6 +29,8 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.channels.SocketChannel;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 
@@ -38,6 +40,7 @@ import org.restlet.Response;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
 import org.restlet.ext.nio.internal.connection.Connection;
+import org.restlet.ext.nio.internal.connection.HostConnections;
 import org.restlet.ext.nio.internal.controller.ConnectionController;
 import org.restlet.ext.nio.internal.state.ConnectionState;
 
@@ -65,19 +68,67 @@ import org.restlet.ext.nio.internal.state.ConnectionState;
  * <td>The port of the HTTP proxy.</td>
  * </tr>
  * <tr>
+ * <td>socketAddressCacheTimeMs</td>
+ * <td>int</td>
+ * <td>30000</td>
+ * <td>Time during which the resolved socket address of a host is reused, or 0
+ * to resolve it for each request.</td>
+ * </tr>
+ * <tr>
  * <td>socketConnectTimeoutMs</td>
  * <td>int</td>
  * <td>0</td>
  * <td>The socket connection timeout or 0 for unlimited wait.</td>
  * </tr>
  * </table>
+ * <br>
+ * Requests with an {@link Request#getOnResponse()} callback are handled
+ * without blocking the calling thread. Their response is marked as not
+ * auto-committing until the callback is invoked on a worker thread, see
+ * {@link org.restlet.resource.ClientResource#handleAsync(org.restlet.data.Method)}.
  * 
  * @author Jerome Louvel
  */
 public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
+    /**
+     * Socket address resolved for a given host domain and port.
+     */
+    private static class CachedSocketAddress {
+
+        /** The time after which the address should be resolved again. */
+        private final long expirationTime;
+
+        /** The resolved socket address. */
+        private final InetSocketAddress socketAddress;
+
+        /**
+         * Constructor.
+         * 
+         * @param socketAddress
+         *            The resolved socket address.
+         * @param expirationTime
+         *            The time after which the address should be resolved
+         *            again.
+         */
+        public CachedSocketAddress(InetSocketAddress socketAddress,
+                long expirationTime) {
+            this.expirationTime = expirationTime;
+            this.socketAddress = socketAddress;
+        }
+    }
+
     protected static final String CONNECTOR_LATCH = "org.restlet.engine.connector.latch";
 
+    /** Number of cached socket addresses above which expired ones are purged. */
+    private static final int MAX_CACHED_SOCKET_ADDRESSES = 1024;
+
+    /** The connections grouped by host socket address. */
+    private final ConcurrentMap<InetSocketAddress, HostConnections<Client>> hostConnections;
+
+    /** The resolved socket addresses by host domain and port. */
+    private final ConcurrentMap<String, CachedSocketAddress> socketAddresses;
+
     /**
      * Constructor.
      * 
@@ -86,6 +137,8 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
      */
     public ClientConnectionHelper(Client connector) {
         super(connector, true);
+        this.hostConnections = new ConcurrentHashMap<InetSocketAddress, HostConnections<Client>>();
+        this.socketAddresses = new ConcurrentHashMap<String, CachedSocketAddress>();
     }
 
     @Override
@@ -193,9 +246,10 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                 } else {
                     getLogger().log(Level.WARNING,
                             "Unable to find a connection to send the request");
-                    response.setStatus(Status.CONNECTOR_ERROR_COMMUNICATION,
-                            "Unable to find a connection to send the request");
-                    unblock(response);
+                    onOutboundError(new Status(
+                            Status.CONNECTOR_ERROR_COMMUNICATION,
+                            "Unable to find a connection to send the request"),
+                            response);
                 }
             }
         } catch (Throwable t) {
@@ -203,15 +257,16 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                     .log(Level.FINE,
                             "An error occurred during the communication with the remote server.",
                             t);
-            response.setStatus(Status.CONNECTOR_ERROR_COMMUNICATION, t);
-            unblock(response);
+            onOutboundError(new Status(Status.CONNECTOR_ERROR_COMMUNICATION,
+                    t), response);
         }
     }
 
     /**
      * Tries to reuse an existing connection for the given request, or creates a
      * new one. It may return null if the maximum number of connections per host
-     * or in general is reached.
+     * or in general is reached. Only the connections opened to the target host
+     * are considered, starting with the ones that recently became available.
      * 
      * @param request
      *            The request to handle.
@@ -237,32 +292,37 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                     .log(Level.WARNING,
                             "Unable to create a socket address related to the request.");
         } else {
-            // Associate the given request to the first available connection
-            // opened on the same host domain and port.
-            for (Iterator<Connection<Client>> iterator = getConnections()
+            HostConnections<Client> host = getHostConnections(socketAddress);
+
+            // Associate the given request to the last connection released by
+            // the host.
+            result = host.checkout();
+            foundConn = (result != null);
+
+            // Otherwise, look for the first available connection opened on
+            // the same host domain and port.
+            for (Iterator<Connection<Client>> iterator = host.getConnections()
                     .iterator(); !foundConn && iterator.hasNext();) {
                 Connection<Client> currConn = iterator.next();
 
-                if (socketAddress.equals(currConn.getSocketAddress())) {
-                    if (currConn.isAvailable()) {
+                if (currConn.isAvailable()) {
+                    result = currConn;
+                    foundConn = true;
+                } else if (currConn.getState().compareTo(
+                        ConnectionState.OPEN) <= 0) {
+                    // Assign the request to the busy connection that
+                    // handles the less number of messages. This is useful
+                    // in case the maximum number of connections has been
+                    // reached. As a drawback, the message will only be
+                    // handled as soon as possible.
+                    int currScore = currConn.getLoadScore();
+
+                    if (bestScore > currScore) {
+                        bestScore = currScore;
                         result = currConn;
-                        foundConn = true;
-                    } else if (currConn.getState().compareTo(
-                            ConnectionState.OPEN) <= 0) {
-                        // Assign the request to the busy connection that
-                        // handles the less number of messages. This is useful
-                        // in case the maximum number of connections has been
-                        // reached. As a drawback, the message will only be
-                        // handled as soon as possible.
-                        int currScore = currConn.getLoadScore();
-
-                        if (bestScore > currScore) {
-                            bestScore = currScore;
-                            result = currConn;
-                        }
-
-                        hostConnectionCount++;
                     }
+
+                    hostConnectionCount++;
                 }
             }
 
@@ -311,6 +371,40 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                         createSocketChannel(request.isConfidential(),
                                 socketAddress), getController(), socketAddress);
                 getConnections().add(result);
+
+                // The host may have been retired in the meantime
+                while (!host.add(result)) {
+                    host = getHostConnections(socketAddress);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the connections opened to the given host socket address. Retired
+     * instances are replaced by new ones.
+     * 
+     * @param socketAddress
+     *            The host socket address.
+     * @return The connections opened to the given host socket address.
+     */
+    protected HostConnections<Client> getHostConnections(
+            InetSocketAddress socketAddress) {
+        HostConnections<Client> result = hostConnections.get(socketAddress);
+
+        while ((result == null) || result.isRetired()) {
+            if (result != null) {
+                hostConnections.remove(socketAddress, result);
+            }
+
+            result = new HostConnections<Client>(socketAddress);
+            HostConnections<Client> current = hostConnections.putIfAbsent(
+                    socketAddress, result);
+
+            if (current != null) {
+                result = current;
             }
         }
 
@@ -392,13 +486,69 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
         }
 
         if (hostDomain != null) {
-            result = new InetSocketAddress(hostDomain, hostPort);
-            if (result != null && result.getAddress() == null) {
+            result = getSocketAddress(hostDomain, hostPort);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the resolved IP socket address of the given host domain and
+     * port. The address is cached during the time returned by
+     * {@link #getSocketAddressCacheTimeMs()}.
+     * 
+     * @param hostDomain
+     *            The host domain.
+     * @param hostPort
+     *            The host port.
+     * @return The resolved IP socket address.
+     * @throws UnknownHostException
+     *             If the host is unresolved.
+     */
+    protected InetSocketAddress getSocketAddress(String hostDomain,
+            int hostPort) throws UnknownHostException {
+        long cacheTime = getSocketAddressCacheTimeMs();
+        String key = hostDomain + ':' + hostPort;
+        long now = System.currentTimeMillis();
+        CachedSocketAddress cached = (cacheTime > 0) ? socketAddresses
+                .get(key) : null;
+
+        if ((cached == null) || (cached.expirationTime < now)) {
+            InetSocketAddress socketAddress = new InetSocketAddress(hostDomain,
+                    hostPort);
+
+            if (socketAddress.getAddress() == null) {
                 throw new UnknownHostException(hostDomain);
             }
+
+            cached = new CachedSocketAddress(socketAddress, now + cacheTime);
+
+            if (cacheTime > 0) {
+                if (socketAddresses.size() >= MAX_CACHED_SOCKET_ADDRESSES) {
+                    for (Iterator<CachedSocketAddress> iterator = socketAddresses
+                            .values().iterator(); iterator.hasNext();) {
+                        if (iterator.next().expirationTime < now) {
+                            iterator.remove();
+                        }
+                    }
+                }
+
+                socketAddresses.put(key, cached);
+            }
         }
 
-        return result;
+        return cached.socketAddress;
+    }
+
+    /**
+     * Returns the time during which the resolved socket address of a host is
+     * reused, or 0 to resolve it for each request.
+     * 
+     * @return The socket address cache time in milliseconds.
+     */
+    public int getSocketAddressCacheTimeMs() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "socketAddressCacheTimeMs", "30000"));
     }
 
     /**
@@ -437,6 +587,12 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                 // Await on the latch
                 latch.await();
             } else {
+                if ((request != null) && request.isAsynchronous()
+                        && request.isExpectingResponse()) {
+                    // The response will be provided later to the callback
+                    response.setAutoCommitting(false);
+                }
+
                 // Add the message to the outbound queue for processing
                 addOutboundMessage(response);
             }
@@ -446,6 +602,7 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                     "Error while handling a " + request.getProtocol().getName()
                             + " client request", e);
             response.setStatus(Status.CONNECTOR_ERROR_INTERNAL, e);
+            response.setAutoCommitting(true);
         }
     }
 
@@ -470,6 +627,38 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
         return getProxyHost() != null;
     }
 
+    /**
+     * Signals that a connection may have become available so that it is
+     * reused first by the next request to its host.
+     * 
+     * @param connection
+     *            The connection.
+     */
+    public void release(Connection<Client> connection) {
+        HostConnections<Client> host = hostConnections.get(connection
+                .getSocketAddress());
+
+        if (host != null) {
+            host.release(connection);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void removeConnection(Connection<?> connection) {
+        super.removeConnection(connection);
+        HostConnections<Client> host = hostConnections.get(connection
+                .getSocketAddress());
+
+        if (host != null) {
+            host.remove((Connection<Client>) connection);
+
+            if (host.retireIfEmpty()) {
+                hostConnections.remove(connection.getSocketAddress(), host);
+            }
+        }
+    }
+
     @Override
     public void start() throws Exception {
         getLogger().info("Starting the internal " + getProtocols() + " client");
@@ -480,6 +669,8 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
     public void stop() throws Exception {
         getLogger().info("Stopping the internal " + getProtocols() + " client");
         super.stop();
+        this.hostConnections.clear();
+        this.socketAddresses.clear();
     }
 
     /**
@@ -195,8 +195,9 @@ public abstract class ConnectionHelper<T extends Connector> extends
                     VirtualHost.getCurrent());
         }
 
-        getOutboundMessages().add(response);
-        getController().wakeup();
+        ConnectionController controller = getController(response);
+        controller.getOutboundMessages().add(response);
+        controller.wakeup();
     }
 
     /**
@@ -347,6 +348,18 @@ public abstract class ConnectionHelper<T extends Connector> extends
         return connections;
     }
 
+    /**
+     * Returns the IO controller in charge of the given message. By default, it
+     * returns the helper's controller.
+     * 
+     * @param response
+     *            The message.
+     * @return The IO controller in charge of the given message.
+     */
+    protected ConnectionController getController(Response response) {
+        return getController();
+    }
+
     /**
      * Returns the initial number of connections pre-created in the connections
      * pool.
@@ -519,4 +532,14 @@ public abstract class ConnectionHelper<T extends Connector> extends
         return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
                 "socketReuseAddress", "true"));
     }
+
+    /**
+     * Removes a closed connection from the set of active connections.
+     * 
+     * @param connection
+     *            The closed connection.
+     */
+    public void removeConnection(Connection<?> connection) {
+        getConnections().remove(connection);
+    }
 }
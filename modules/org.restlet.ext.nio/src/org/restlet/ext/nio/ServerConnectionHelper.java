@@ -69,6 +69,24 @@ import org.restlet.ext.nio.internal.request.InboundRequest;
  * <td>Enable/disable the SO_REUSEADDR socket option. See
  * java.io.ServerSocket#reuseAddress property for additional details.</td>
  * </tr>
+ * <tr>
+ * <td>selectorThreads</td>
+ * <td>int</td>
+ * <td>1</td>
+ * <td>Number of NIO selector threads. With a value of 1, the controller thread
+ * accepts new connections and drives all of them. With a greater value, the
+ * controller thread only accepts new connections and distributes them across
+ * the given number of selector threads, each with its own NIO selector and
+ * message queues.</td>
+ * </tr>
+ * <tr>
+ * <td>selectorDistribution</td>
+ * <td>String</td>
+ * <td>roundRobin</td>
+ * <td>Strategy used to distribute new connections across the selector threads,
+ * either "roundRobin" or "leastLoaded" (the selector thread with the fewest
+ * connections).</td>
+ * </tr>
  * </table>
  * 
  * @author Jerome Louvel
@@ -207,8 +225,10 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
                         connection.getOutboundWay().handle(response);
                     } else {
                         // Put the response at the end of the queue
-                        getOutboundMessages().add(response);
-                        getController().wakeup();
+                        ConnectionController controller = connection
+                                .getController();
+                        controller.getOutboundMessages().add(response);
+                        controller.wakeup();
                     }
                 } catch (IOException e) {
                     getLogger().log(Level.FINE,
@@ -228,6 +248,41 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
         return (ServerConnectionController) super.getController();
     }
 
+    @Override
+    protected ConnectionController getController(Response response) {
+        if (response.getRequest() instanceof InboundRequest) {
+            Connection<Server> connection = ((InboundRequest) response
+                    .getRequest()).getConnection();
+
+            if (connection != null) {
+                return connection.getController();
+            }
+        }
+
+        return super.getController(response);
+    }
+
+    /**
+     * Returns the strategy used to distribute new connections across the
+     * selector threads, either "roundRobin" or "leastLoaded".
+     * 
+     * @return The strategy used to distribute new connections.
+     */
+    public String getSelectorDistribution() {
+        return getHelpedParameters().getFirstValue("selectorDistribution",
+                "roundRobin");
+    }
+
+    /**
+     * Returns the number of NIO selector threads.
+     * 
+     * @return The number of NIO selector threads.
+     */
+    public int getSelectorThreads() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "selectorThreads", "1"));
+    }
+
     /**
      * Returns the server socket channel.
      * 
@@ -62,12 +62,21 @@ public class Buffer {
         return result;
     }
 
-    /** The byte buffer. */
-    private final ByteBuffer bytes;
+    /** The byte buffer, null while none is leased from the pool. */
+    private volatile ByteBuffer bytes;
+
+    /** The buffer capacity. */
+    private final int bufferSize;
 
     /** The index of the buffer's beginning while filling. */
     private volatile int fillBegin;
 
+    /** The lock protecting access to the byte buffer. */
+    private final Object lock;
+
+    /** The optional pool from which the byte buffer is leased. */
+    private final BufferPool pool;
+
     /** The byte buffer IO state. */
     private volatile BufferState state;
 
@@ -93,9 +102,32 @@ public class Buffer {
         super();
         this.fillBegin = 0;
         this.bytes = byteBuffer;
+        this.bufferSize = byteBuffer.capacity();
+        this.lock = new Object();
+        this.pool = null;
         this.state = byteBufferState;
     }
 
+    /**
+     * Constructor. The byte buffer is only leased from the pool when first
+     * accessed and can be given back with {@link #release()} once the buffer
+     * is empty.
+     * 
+     * @param bufferSize
+     *            The byte buffer size.
+     * @param pool
+     *            The pool from which the byte buffer is leased.
+     */
+    public Buffer(int bufferSize, BufferPool pool) {
+        super();
+        this.fillBegin = 0;
+        this.bytes = null;
+        this.bufferSize = pool.getCapacity(bufferSize);
+        this.lock = new Object();
+        this.pool = pool;
+        this.state = BufferState.FILLING;
+    }
+
     /**
      * Constructor. Allocates a new non-direct byte buffer.
      * 
@@ -173,7 +205,7 @@ public class Buffer {
      * @return The maximum capacity of this buffer.
      */
     public final int capacity() {
-        return getBytes().capacity();
+        return this.bufferSize;
     }
 
     /**
@@ -181,7 +213,11 @@ public class Buffer {
      */
     public void clear() {
         this.fillBegin = 0;
-        this.bytes.clear();
+
+        if (this.bytes != null) {
+            this.bytes.clear();
+        }
+
         this.state = BufferState.FILLING;
     }
 
@@ -428,7 +464,25 @@ public class Buffer {
      * @return The byte buffer.
      */
     public ByteBuffer getBytes() {
-        return bytes;
+        ByteBuffer result = this.bytes;
+
+        if (result == null) {
+            synchronized (getLock()) {
+                result = this.bytes;
+
+                if (result == null) {
+                    result = this.pool.lease(this.bufferSize);
+
+                    if (isDraining()) {
+                        result.limit(0);
+                    }
+
+                    this.bytes = result;
+                }
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -438,7 +492,7 @@ public class Buffer {
      * @return The lock on which multiple thread can synchronize.
      */
     public Object getLock() {
-        return this.bytes;
+        return this.lock;
     }
 
     /**
@@ -456,7 +510,7 @@ public class Buffer {
      * @return True if the buffer has remaining bytes to be read or written.
      */
     public final boolean hasRemaining() {
-        return getBytes().hasRemaining();
+        return (this.bytes == null) ? isFilling() : getBytes().hasRemaining();
     }
 
     /**
@@ -476,7 +530,8 @@ public class Buffer {
      * @return True if the buffer is empty.
      */
     public boolean isEmpty() {
-        return isFilling() ? (capacity() == remaining()) : !hasRemaining();
+        return (this.bytes == null)
+                || (isFilling() ? (capacity() == remaining()) : !hasRemaining());
     }
 
     /**
@@ -653,7 +708,33 @@ public class Buffer {
      * @return The number of bytes that can be read or written.
      */
     public final int remaining() {
-        return getBytes().remaining();
+        return (this.bytes == null) ? (isFilling() ? capacity() : 0)
+                : getBytes().remaining();
+    }
+
+    /**
+     * Gives the byte buffer back to its pool if it is empty, so that idle
+     * connections don't hold buffer memory. It will be leased again on next
+     * access. Does nothing if the buffer isn't pooled.
+     * 
+     * @return True if the byte buffer was given back.
+     */
+    public boolean release() {
+        boolean result = false;
+
+        if ((this.pool != null) && (this.bytes != null)) {
+            synchronized (getLock()) {
+                if ((this.bytes != null) && isEmpty()) {
+                    this.pool.release(this.bytes);
+                    this.bytes = null;
+                    this.fillBegin = 0;
+                    this.state = BufferState.FILLING;
+                    result = true;
+                }
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -668,7 +749,8 @@ public class Buffer {
 
     @Override
     public String toString() {
-        return getBytes().toString() + ", " + getState() + ", " + isEmpty();
+        return ((this.bytes == null) ? "Released buffer" : this.bytes
+                .toString()) + ", " + getState() + ", " + isEmpty();
     }
 
 }
@@ -0,0 +1,327 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.ext.nio.internal.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of byte buffers shared by the connections of a connector. Buffers are
+ * grouped by size classes which are powers of two, so a leased buffer can have
+ * a larger capacity than requested. Direct buffers are sliced out of larger
+ * slabs in order to limit the number of native allocations. Free buffers are
+ * kept up to a maximum number of bytes, beyond which the idle buffers are
+ * dropped, starting with the biggest size classes; the memory of a slab is
+ * only given back to the system once all its buffers have been dropped.
+ * Requests larger than the biggest size class are allocated on demand and
+ * simply dropped when released.
+ * 
+ * @author Jerome Louvel
+ */
+public class BufferPool {
+
+    /** The default maximum number of bytes kept in the free buffers. */
+    public static final long DEFAULT_MAX_FREE_BYTES = 4 * 1024 * 1024;
+
+    /** The capacity of the biggest size class. */
+    public static final int MAX_CLASS_CAPACITY = 1 << 20;
+
+    /** The capacity of the smallest size class. */
+    public static final int MIN_CLASS_CAPACITY = 1 << 9;
+
+    /** The minimal size of the slabs allocated for direct buffers. */
+    public static final int SLAB_SIZE = 256 * 1024;
+
+    /**
+     * Returns the index of the size class for a given capacity.
+     * 
+     * @param capacity
+     *            The capacity, already rounded to a size class.
+     * @return The index of the size class.
+     */
+    private static int getClassIndex(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity)
+                - Integer.numberOfTrailingZeros(MIN_CLASS_CAPACITY);
+    }
+
+    /** The total number of bytes allocated by the pool. */
+    private final AtomicLong allocatedBytes;
+
+    /** Indicates if direct NIO buffers should be allocated. */
+    private final boolean direct;
+
+    /** The free buffers, by size class. */
+    private final Queue<ByteBuffer>[] freeBuffers;
+
+    /** The number of bytes available in the free buffers. */
+    private final AtomicLong freeBytes;
+
+    /** The number of bytes currently leased. */
+    private final AtomicLong leasedBytes;
+
+    /** The maximum number of bytes kept in the free buffers. */
+    private final long maxFreeBytes;
+
+    /**
+     * Constructor. Keeps at most {@link #DEFAULT_MAX_FREE_BYTES} in the free
+     * buffers.
+     * 
+     * @param direct
+     *            Indicates if direct NIO buffers should be allocated.
+     */
+    public BufferPool(boolean direct) {
+        this(direct, DEFAULT_MAX_FREE_BYTES);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param direct
+     *            Indicates if direct NIO buffers should be allocated.
+     * @param maxFreeBytes
+     *            The maximum number of bytes kept in the free buffers.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public BufferPool(boolean direct, long maxFreeBytes) {
+        this.allocatedBytes = new AtomicLong();
+        this.direct = direct;
+        this.freeBuffers = new Queue[getClassIndex(MAX_CLASS_CAPACITY) + 1];
+        this.freeBytes = new AtomicLong();
+        this.leasedBytes = new AtomicLong();
+        this.maxFreeBytes = maxFreeBytes;
+
+        for (int i = 0; i < this.freeBuffers.length; i++) {
+            this.freeBuffers[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+        }
+    }
+
+    /**
+     * Allocates a new byte buffer.
+     * 
+     * @param capacity
+     *            The buffer capacity.
+     * @return The new byte buffer.
+     */
+    private ByteBuffer allocate(int capacity) {
+        this.allocatedBytes.addAndGet(capacity);
+        return isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer
+                .allocate(capacity);
+    }
+
+    /**
+     * Allocates a new slab of direct memory and cuts it into buffers of the
+     * given size class. The first buffer is returned, the other ones are added
+     * to the free list.
+     * 
+     * @param capacity
+     *            The capacity of the size class.
+     * @return The first buffer of the slab.
+     */
+    private ByteBuffer allocateSlab(int capacity) {
+        int count = Math.max(1, SLAB_SIZE / capacity);
+        ByteBuffer slab = allocate(count * capacity);
+        ByteBuffer result = null;
+
+        for (int i = 0; i < count; i++) {
+            slab.limit((i + 1) * capacity);
+            slab.position(i * capacity);
+
+            if (result == null) {
+                result = slab.slice();
+            } else {
+                this.freeBuffers[getClassIndex(capacity)].add(slab.slice());
+                this.freeBytes.addAndGet(capacity);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the total number of bytes allocated by the pool, either leased
+     * or free.
+     * 
+     * @return The total number of bytes allocated by the pool.
+     */
+    public long getAllocatedBytes() {
+        return this.allocatedBytes.get();
+    }
+
+    /**
+     * Returns the capacity of the buffers leased for a given requested size.
+     * 
+     * @param size
+     *            The requested size.
+     * @return The capacity of the buffers leased.
+     */
+    public int getCapacity(int size) {
+        int result = size;
+
+        if (size <= MIN_CLASS_CAPACITY) {
+            result = MIN_CLASS_CAPACITY;
+        } else if (size <= MAX_CLASS_CAPACITY) {
+            result = Integer.highestOneBit(size - 1) << 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of bytes available in the free buffers.
+     * 
+     * @return The number of bytes available in the free buffers.
+     */
+    public long getFreeBytes() {
+        return this.freeBytes.get();
+    }
+
+    /**
+     * Returns the number of bytes currently leased.
+     * 
+     * @return The number of bytes currently leased.
+     */
+    public long getLeasedBytes() {
+        return this.leasedBytes.get();
+    }
+
+    /**
+     * Returns the maximum number of bytes kept in the free buffers.
+     * 
+     * @return The maximum number of bytes kept in the free buffers.
+     */
+    public long getMaxFreeBytes() {
+        return maxFreeBytes;
+    }
+
+    /**
+     * Indicates if direct NIO buffers are allocated.
+     * 
+     * @return True if direct NIO buffers are allocated.
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Indicates if a capacity matches one of the size classes.
+     * 
+     * @param capacity
+     *            The capacity to test.
+     * @return True if the capacity matches one of the size classes.
+     */
+    private boolean isPooled(int capacity) {
+        return (capacity >= MIN_CLASS_CAPACITY)
+                && (capacity <= MAX_CLASS_CAPACITY)
+                && (Integer.bitCount(capacity) == 1);
+    }
+
+    /**
+     * Leases a cleared byte buffer with at least the requested size. It must
+     * be given back to the pool with {@link #release(ByteBuffer)} once unused.
+     * 
+     * @param size
+     *            The requested size.
+     * @return The leased byte buffer.
+     */
+    public ByteBuffer lease(int size) {
+        int capacity = getCapacity(size);
+        ByteBuffer result = null;
+
+        if (isPooled(capacity)) {
+            result = this.freeBuffers[getClassIndex(capacity)].poll();
+
+            if (result != null) {
+                this.freeBytes.addAndGet(-capacity);
+                result.clear();
+            } else if (isDirect()) {
+                result = allocateSlab(capacity);
+            }
+        }
+
+        if (result == null) {
+            result = allocate(capacity);
+        }
+
+        this.leasedBytes.addAndGet(capacity);
+        return result;
+    }
+
+    /**
+     * Gives a leased byte buffer back to the pool.
+     * 
+     * @param byteBuffer
+     *            The byte buffer to give back.
+     */
+    public void release(ByteBuffer byteBuffer) {
+        int capacity = byteBuffer.capacity();
+        this.leasedBytes.addAndGet(-capacity);
+
+        if (isPooled(capacity)) {
+            this.freeBuffers[getClassIndex(capacity)].add(byteBuffer);
+
+            if (this.freeBytes.addAndGet(capacity) > getMaxFreeBytes()) {
+                trim(getMaxFreeBytes());
+            }
+        } else {
+            this.allocatedBytes.addAndGet(-capacity);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Buffer pool: " + getLeasedBytes() + " leased bytes, "
+                + getFreeBytes() + " free bytes, " + getAllocatedBytes()
+                + " allocated bytes";
+    }
+
+    /**
+     * Drops idle free buffers, starting with the biggest size classes, until
+     * the number of free bytes doesn't exceed the given maximum.
+     * 
+     * @param maxFreeBytes
+     *            The maximum number of bytes to keep in the free buffers.
+     */
+    public void trim(long maxFreeBytes) {
+        for (int i = this.freeBuffers.length - 1; (i >= 0)
+                && (this.freeBytes.get() > maxFreeBytes); i--) {
+            ByteBuffer byteBuffer = this.freeBuffers[i].poll();
+
+            while (byteBuffer != null) {
+                this.freeBytes.addAndGet(-byteBuffer.capacity());
+                this.allocatedBytes.addAndGet(-byteBuffer.capacity());
+
+                if (this.freeBytes.get() > maxFreeBytes) {
+                    byteBuffer = this.freeBuffers[i].poll();
+                } else {
+                    byteBuffer = null;
+                }
+            }
+        }
+    }
+
+}
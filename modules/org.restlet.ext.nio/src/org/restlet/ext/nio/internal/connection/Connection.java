@@ -61,6 +61,9 @@ import org.restlet.util.SelectionRegistration;
  */
 public class Connection<T extends Connector> implements SelectionListener {
 
+    /** The IO controller. */
+    private volatile ConnectionController controller;
+
     /** The parent connector helper. */
     private final ConnectionHelper<T> helper;
 
@@ -138,6 +141,7 @@ public class Connection<T extends Connector> implements SelectionListener {
         this.readableSelectionChannel = null;
         this.socketChannel = null;
         this.registration = null;
+        this.controller = null;
         this.state = ConnectionState.CLOSED;
         this.writableSelectionChannel = null;
     }
@@ -256,6 +260,17 @@ public class Connection<T extends Connector> implements SelectionListener {
                         .getInetAddress().getHostAddress();
     }
 
+    /**
+     * Returns the IO controller driving this connection. Defaults to the
+     * controller of the parent helper if none was associated.
+     * 
+     * @return The IO controller driving this connection.
+     */
+    public ConnectionController getController() {
+        ConnectionController result = this.controller;
+        return (result == null) ? getHelper().getController() : result;
+    }
+
     /**
      * Returns the parent connector helper.
      * 
@@ -445,6 +460,7 @@ public class Connection<T extends Connector> implements SelectionListener {
         this.pipelining = helper.isPipeliningConnections();
         this.maxIoIdleTimeMs = helper.getMaxIoIdleTimeMs();
         this.state = ConnectionState.OPENING;
+        this.controller = controller;
         this.socketChannel = socketChannel;
         this.socketAddress = socketAddress;
 
@@ -536,6 +552,17 @@ public class Connection<T extends Connector> implements SelectionListener {
         return getHelper().isServerSide();
     }
 
+    /**
+     * Indicates if file entities can be transferred directly to the socket
+     * channel, bypassing the writable selection channel. This isn't possible
+     * when the channel is traced.
+     * 
+     * @return True if file entities can be transferred directly.
+     */
+    public boolean isTransferable() {
+        return !getHelper().isTracing();
+    }
+
     /**
      * Notifies the connection that a new activity has been detected and that it
      * should be kept alive.
@@ -568,7 +595,7 @@ public class Connection<T extends Connector> implements SelectionListener {
         close(false);
 
         // Give the controller a hint to clean up the closed connection
-        getHelper().getController().wakeup();
+        getController().wakeup();
     }
 
     /**
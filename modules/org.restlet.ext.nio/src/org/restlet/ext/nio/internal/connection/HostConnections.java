@@ -0,0 +1,226 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.nio.internal.connection;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.restlet.Connector;
+import org.restlet.ext.nio.internal.state.ConnectionState;
+
+/**
+ * Connections opened to the same host socket address. Connections that become
+ * available are stacked so they can be checked out without scanning all the
+ * connections. Each connection is stacked at most once, so the stack doesn't
+ * grow when a connection is released several times. The stack only gives
+ * hints: a connection is checked again when it is popped, as it may have been
+ * closed or reused for another host since.<br>
+ * <br>
+ * Once its last connection is removed, the instance can be retired so that it
+ * is dropped by its connector. A retired instance refuses new connections, so
+ * that they can't be added after the emptiness check and get orphaned.
+ * 
+ * @author Jerome Louvel
+ */
+public class HostConnections<T extends Connector> {
+
+    /** The connections that became available, most recent first. */
+    private final Deque<Connection<T>> availableConnections;
+
+    /** The connections opened to the host. */
+    private final List<Connection<T>> connections;
+
+    /** Indicates if the instance was retired and refuses new connections. */
+    private volatile boolean retired;
+
+    /** The host socket address. */
+    private final InetSocketAddress socketAddress;
+
+    /** The connections currently in the stack of available connections. */
+    private final Set<Connection<T>> stackedConnections;
+
+    /**
+     * Constructor.
+     * 
+     * @param socketAddress
+     *            The host socket address.
+     */
+    public HostConnections(InetSocketAddress socketAddress) {
+        this.availableConnections = new ConcurrentLinkedDeque<Connection<T>>();
+        this.connections = new CopyOnWriteArrayList<Connection<T>>();
+        this.retired = false;
+        this.socketAddress = socketAddress;
+        this.stackedConnections = Collections
+                .newSetFromMap(new ConcurrentHashMap<Connection<T>, Boolean>());
+    }
+
+    /**
+     * Adds a new connection opened to the host, unless the instance was
+     * retired.
+     * 
+     * @param connection
+     *            The connection to add.
+     * @return True if the connection was added, false if the instance was
+     *         retired.
+     */
+    public synchronized boolean add(Connection<T> connection) {
+        if (!this.retired) {
+            this.connections.add(connection);
+        }
+
+        return !this.retired;
+    }
+
+    /**
+     * Returns an available connection to the host. The most recently used
+     * connections are preferred so that the others can time out when the load
+     * decreases.
+     * 
+     * @return An available connection or null.
+     */
+    public Connection<T> checkout() {
+        Connection<T> result = pop();
+
+        // Skip the connections busy or closed since they have been released
+        while ((result != null) && !isAvailable(result)) {
+            result = pop();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the connections opened to the host.
+     * 
+     * @return The connections opened to the host.
+     */
+    public List<Connection<T>> getConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns the host socket address.
+     * 
+     * @return The host socket address.
+     */
+    public InetSocketAddress getSocketAddress() {
+        return socketAddress;
+    }
+
+    /**
+     * Indicates if the given connection is still opened to the host and ready
+     * to handle a new message.
+     * 
+     * @param connection
+     *            The connection to test.
+     * @return True if the connection is available.
+     */
+    private boolean isAvailable(Connection<T> connection) {
+        return socketAddress.equals(connection.getSocketAddress())
+                && (connection.getState() != ConnectionState.CLOSED)
+                && connection.isAvailable();
+    }
+
+    /**
+     * Indicates if there is no connection opened to the host.
+     * 
+     * @return True if there is no connection opened to the host.
+     */
+    public boolean isEmpty() {
+        return connections.isEmpty();
+    }
+
+    /**
+     * Indicates if the instance was retired and refuses new connections.
+     * 
+     * @return True if the instance was retired.
+     */
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Pops the last connection stacked.
+     * 
+     * @return The last connection stacked or null.
+     */
+    private Connection<T> pop() {
+        Connection<T> result = availableConnections.pollFirst();
+
+        if (result != null) {
+            stackedConnections.remove(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Signals that a connection may have become available. It is stacked
+     * unless it is already, in which case it keeps its position.
+     * 
+     * @param connection
+     *            The connection.
+     */
+    public void release(Connection<T> connection) {
+        if (stackedConnections.add(connection)) {
+            availableConnections.offerFirst(connection);
+        }
+    }
+
+    /**
+     * Removes a closed connection.
+     * 
+     * @param connection
+     *            The connection to remove.
+     */
+    public void remove(Connection<T> connection) {
+        this.connections.remove(connection);
+
+        if (this.stackedConnections.remove(connection)) {
+            this.availableConnections.remove(connection);
+        }
+    }
+
+    /**
+     * Retires the instance if there is no connection opened to the host. This
+     * is atomic with {@link #add(Connection)}.
+     * 
+     * @return True if the instance is retired.
+     */
+    public synchronized boolean retireIfEmpty() {
+        if (isEmpty()) {
+            this.retired = true;
+        }
+
+        return this.retired;
+    }
+
+}
@@ -381,6 +381,16 @@ public class SslConnection<T extends Connector> extends Connection<T> {
         return getSslHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING;
     }
 
+    /**
+     * Returns false as the bytes need to be encrypted by the SSL engine.
+     * 
+     * @return False.
+     */
+    @Override
+    public boolean isTransferable() {
+        return false;
+    }
+
     /**
      * Notifies that the SSL handshake is finished. Application data can now be
      * exchanged.
@@ -437,7 +447,7 @@ public class SslConnection<T extends Connector> extends Connection<T> {
                                 "Unable to handle SSL handshake", e);
                     }
 
-                    getHelper().getController().wakeup();
+                    getController().wakeup();
                 }
             });
         }
@@ -30,12 +30,14 @@ import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 
 import org.restlet.Context;
+import org.restlet.Response;
 import org.restlet.engine.io.WakeupListener;
 import org.restlet.ext.nio.ConnectionHelper;
 import org.restlet.ext.nio.internal.connection.Connection;
@@ -51,9 +53,15 @@ import org.restlet.util.SelectionRegistration;
 public class ConnectionController extends Controller implements Runnable,
         WakeupListener {
 
+    /** The queue of inbound messages. */
+    private final Queue<Response> inboundMessages;
+
     /** The list of new selection registrations. */
     private final Queue<SelectionRegistration> newRegistrations;
 
+    /** The queue of outbound messages. */
+    private final Queue<Response> outboundMessages;
+
     /** The NIO selector. */
     private volatile Selector selector;
 
@@ -67,7 +75,25 @@ public class ConnectionController extends Controller implements Runnable,
      *            The parent connector helper.
      */
     public ConnectionController(ConnectionHelper<?> helper) {
+        this(helper, helper.getInboundMessages(), helper
+                .getOutboundMessages());
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param helper
+     *            The parent connector helper.
+     * @param inboundMessages
+     *            The queue of inbound messages.
+     * @param outboundMessages
+     *            The queue of outbound messages.
+     */
+    protected ConnectionController(ConnectionHelper<?> helper,
+            Queue<Response> inboundMessages, Queue<Response> outboundMessages) {
         super(helper);
+        this.inboundMessages = inboundMessages;
+        this.outboundMessages = outboundMessages;
         this.newRegistrations = new ConcurrentLinkedQueue<SelectionRegistration>();
         this.updatedRegistrations = new ConcurrentLinkedQueue<SelectionRegistration>();
     }
@@ -89,7 +115,7 @@ public class ConnectionController extends Controller implements Runnable,
 
         if (conn.getState() == ConnectionState.CLOSED) {
             // Detach the connection and collect it
-            getHelper().getConnections().remove(conn);
+            removeConnection(conn);
             getHelper().checkin(conn);
         } else if ((conn.getState() == ConnectionState.CLOSING)
                 && conn.isEmpty()) {
@@ -109,11 +135,18 @@ public class ConnectionController extends Controller implements Runnable,
      * @throws IOException
      */
     protected void controlConnections() throws IOException {
-        for (Connection<?> connection : getHelper().getConnections()) {
+        for (Connection<?> connection : getConnections()) {
             controlConnection(connection);
         }
     }
 
+    /**
+     * Controls the pending inbound and outbound messages.
+     */
+    protected void controlMessages() {
+        getHelper().control(getInboundMessages(), getOutboundMessages());
+    }
+
     /**
      * Creates a new NIO selector.
      * 
@@ -134,7 +167,7 @@ public class ConnectionController extends Controller implements Runnable,
 
     @Override
     protected void doInit() {
-        this.selector = createSelector();
+        openSelector();
         // Done in the controller for thread safety reason regarding the byte
         // buffers part of the pooled connections
         getHelper().createConnectionPool();
@@ -143,7 +176,9 @@ public class ConnectionController extends Controller implements Runnable,
     @Override
     protected void doRelease() {
         try {
-            getSelector().close();
+            if (getSelector() != null) {
+                getSelector().close();
+            }
         } catch (IOException e) {
             getHelper().getLogger().log(Level.WARNING,
                     "Unable to close the NIO selector", e);
@@ -152,8 +187,8 @@ public class ConnectionController extends Controller implements Runnable,
 
     @Override
     protected void doRun(long sleepTime) throws IOException {
-        getHelper().getLogger().log(Level.FINEST, "helper.control()");
-        super.doRun(sleepTime);
+        getHelper().getLogger().log(Level.FINEST, "controlMessages()");
+        controlMessages();
         getHelper().getLogger().log(Level.FINEST, "controlConnections()");
         controlConnections();
         getHelper().getLogger().log(Level.FINEST, "registerKeys()");
@@ -165,6 +200,26 @@ public class ConnectionController extends Controller implements Runnable,
         selectKeys(sleepTime);
     }
 
+    /**
+     * Returns the connections controlled. By default, all the helper
+     * connections.
+     * 
+     * @return The connections controlled.
+     */
+    protected Collection<? extends Connection<?>> getConnections() {
+        return getHelper().getConnections();
+    }
+
+    /**
+     * Returns the queue of inbound messages pending for handling. By default,
+     * the helper's queue.
+     * 
+     * @return The queue of inbound messages.
+     */
+    public Queue<Response> getInboundMessages() {
+        return this.inboundMessages;
+    }
+
     /**
      * Returns the queue of new selection registrations.
      * 
@@ -174,6 +229,16 @@ public class ConnectionController extends Controller implements Runnable,
         return this.newRegistrations;
     }
 
+    /**
+     * Returns the queue of outbound messages pending for handling. By default,
+     * the helper's queue.
+     * 
+     * @return The queue of outbound messages.
+     */
+    public Queue<Response> getOutboundMessages() {
+        return this.outboundMessages;
+    }
+
     /**
      * Returns the NIO selector.
      * 
@@ -229,6 +294,13 @@ public class ConnectionController extends Controller implements Runnable,
         wakeup();
     }
 
+    /**
+     * Opens the NIO selector.
+     */
+    protected void openSelector() {
+        this.selector = createSelector();
+    }
+
     /**
      * Registers a selection listener with the underlying selector for the given
      * operations and returns the registration created.
@@ -269,6 +341,16 @@ public class ConnectionController extends Controller implements Runnable,
         }
     }
 
+    /**
+     * Removes a closed connection from the helper connections.
+     * 
+     * @param connection
+     *            The closed connection.
+     */
+    protected void removeConnection(Connection<?> connection) {
+        getHelper().removeConnection(connection);
+    }
+
     /**
      * Selects the keys ready for IO operations.
      * 
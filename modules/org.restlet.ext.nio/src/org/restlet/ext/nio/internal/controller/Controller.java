@@ -117,6 +117,16 @@ public abstract class Controller {
         return running;
     }
 
+    /**
+     * Indicates if the controller tracks the overload state of the worker
+     * service. True by default.
+     * 
+     * @return True if the controller tracks the overload state.
+     */
+    protected boolean isTrackingOverload() {
+        return true;
+    }
+
     /**
      * Listens on the given server socket for incoming connections.
      */
@@ -125,7 +135,8 @@ public abstract class Controller {
             doInit();
             setRunning(true);
             long sleepTime = getHelper().getControllerSleepTimeMs();
-            boolean hasWorkerThreads = getHelper().hasWorkerThreads();
+            boolean hasWorkerThreads = getHelper().hasWorkerThreads()
+                    && isTrackingOverload();
             boolean isWorkerServiceOverloaded;
 
             while (isRunning()) {
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.nio.internal.controller;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Response;
+import org.restlet.engine.io.IoUtils;
+import org.restlet.ext.nio.ConnectionHelper;
+import org.restlet.ext.nio.internal.connection.Connection;
+
+/**
+ * Controls the IO work of a subset of the connections of a server helper,
+ * with its own NIO selector and message queues. Several selector controllers
+ * are fed by a {@link ServerConnectionController} that only accepts new
+ * connections, so that the selection work is spread across several threads.
+ * <br>
+ * <br>
+ * A selector controller is started once. A shutdown requested before its
+ * thread actually started is remembered so that it stops right away.
+ * 
+ * @author Jerome Louvel
+ */
+public class SelectorController extends ConnectionController {
+
+    /** The connections controlled. */
+    private final Set<Connection<?>> connections;
+
+    /** The latch to countdown when the selector is open. */
+    private final CountDownLatch latch;
+
+    /** Indicates if a shutdown was requested. */
+    private volatile boolean shutdownRequested;
+
+    /**
+     * Constructor.
+     * 
+     * @param helper
+     *            The parent connector helper.
+     */
+    public SelectorController(ConnectionHelper<?> helper) {
+        super(helper, new ConcurrentLinkedQueue<Response>(),
+                new ConcurrentLinkedQueue<Response>());
+        this.connections = Collections
+                .newSetFromMap(new ConcurrentHashMap<Connection<?>, Boolean>());
+        this.latch = new CountDownLatch(1);
+    }
+
+    /**
+     * Adds a new connection to control and wakes up the controller so that the
+     * connection is registered with its selector.
+     * 
+     * @param connection
+     *            The new connection.
+     */
+    public void addConnection(Connection<?> connection) {
+        this.connections.add(connection);
+        wakeup();
+    }
+
+    /**
+     * Awaits for the selector to be open.
+     * 
+     * @return True if the selector is open, false if the wait timed out.
+     * @throws InterruptedException
+     */
+    public boolean await() throws InterruptedException {
+        return this.latch.await(IoUtils.TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void doInit() {
+        // The connection pool is created by the accepting controller
+        openSelector();
+        this.latch.countDown();
+    }
+
+    /**
+     * Returns the number of connections controlled.
+     * 
+     * @return The number of connections controlled.
+     */
+    public int getConnectionCount() {
+        return this.connections.size();
+    }
+
+    @Override
+    protected Collection<? extends Connection<?>> getConnections() {
+        return this.connections;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return !this.shutdownRequested && super.isRunning();
+    }
+
+    @Override
+    protected boolean isTrackingOverload() {
+        // Tracked by the accepting controller
+        return false;
+    }
+
+    @Override
+    protected void removeConnection(Connection<?> connection) {
+        super.removeConnection(connection);
+        this.connections.remove(connection);
+    }
+
+    @Override
+    public void shutdown() {
+        this.shutdownRequested = true;
+        super.shutdown();
+    }
+
+}
@@ -32,17 +32,23 @@ import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.restlet.Server;
 import org.restlet.engine.io.IoUtils;
+import org.restlet.engine.log.LoggingThreadFactory;
 import org.restlet.ext.nio.ServerConnectionHelper;
 import org.restlet.ext.nio.internal.connection.Connection;
 
 /**
  * Controls the IO work of parent server helper and manages its connections.
- * Listens on a server socket channel for incoming connections.
+ * Listens on a server socket channel for incoming connections. When several
+ * selector threads are configured, the new connections are distributed across
+ * {@link SelectorController} instances which drive them, and this controller
+ * only accepts connections and handles the helper's message queues.
  * 
  * @author Jerome Louvel
  */
@@ -51,6 +57,15 @@ public class ServerConnectionController extends ConnectionController {
     /** The latch to countdown when the socket is ready to accept connections. */
     private final CountDownLatch latch;
 
+    /** The index of the next selector controller, for round-robin. */
+    private int nextSelector;
+
+    /** The selector controllers or null if this controller drives all. */
+    private volatile SelectorController[] selectorControllers;
+
+    /** The service running the selector controllers. */
+    private volatile ExecutorService selectorService;
+
     /**
      * Constructor.
      * 
@@ -77,8 +92,46 @@ public class ServerConnectionController extends ConnectionController {
         }
     }
 
+    @Override
+    protected void controlConnections() throws IOException {
+        if (this.selectorControllers == null) {
+            super.controlConnections();
+        }
+    }
+
     @Override
     protected void doInit() {
+        int selectorThreads = getHelper().getSelectorThreads();
+
+        if (selectorThreads > 1) {
+            SelectorController[] controllers = new SelectorController[selectorThreads];
+            this.selectorService = Executors.newFixedThreadPool(
+                    selectorThreads,
+                    new LoggingThreadFactory(getHelper().getLogger(),
+                            getHelper().isControllerDaemon()));
+
+            for (int i = 0; i < controllers.length; i++) {
+                controllers[i] = new SelectorController(getHelper());
+                this.selectorService.submit(controllers[i]);
+            }
+
+            // Wait for the selectors before accepting connections
+            try {
+                for (SelectorController controller : controllers) {
+                    if (!controller.await()) {
+                        getHelper()
+                                .getLogger()
+                                .warning(
+                                        "Timed out while waiting for a selector controller to start.");
+                    }
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+
+            this.selectorControllers = controllers;
+        }
+
         super.doInit();
 
         // Register interest in NIO accept events
@@ -94,6 +147,31 @@ public class ServerConnectionController extends ConnectionController {
         this.latch.countDown();
     }
 
+    @Override
+    protected void doRelease() {
+        SelectorController[] controllers = this.selectorControllers;
+
+        if (controllers != null) {
+            for (SelectorController controller : controllers) {
+                controller.shutdown();
+            }
+
+            this.selectorService.shutdown();
+
+            try {
+                this.selectorService.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                getHelper().getLogger().log(Level.FINE,
+                        "Interruption while shutting down the selector service",
+                        ex);
+            }
+
+            this.selectorControllers = null;
+        }
+
+        super.doRelease();
+    }
+
     /**
      * Returns the parent server helper.
      * 
@@ -103,6 +181,48 @@ public class ServerConnectionController extends ConnectionController {
         return (ServerConnectionHelper) super.getHelper();
     }
 
+    /**
+     * Returns the controller that will drive the next accepted connection.
+     * 
+     * @return The controller that will drive the next accepted connection.
+     */
+    protected ConnectionController getNextController() {
+        SelectorController[] controllers = this.selectorControllers;
+
+        if (controllers == null) {
+            return this;
+        }
+
+        SelectorController result;
+
+        if ("leastLoaded".equalsIgnoreCase(getHelper()
+                .getSelectorDistribution())) {
+            result = controllers[0];
+
+            for (int i = 1; i < controllers.length; i++) {
+                if (controllers[i].getConnectionCount() < result
+                        .getConnectionCount()) {
+                    result = controllers[i];
+                }
+            }
+        } else {
+            result = controllers[this.nextSelector];
+            this.nextSelector = (this.nextSelector + 1) % controllers.length;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the selector controllers or null if this controller drives all
+     * the connections.
+     * 
+     * @return The selector controllers.
+     */
+    public SelectorController[] getSelectorControllers() {
+        return this.selectorControllers;
+    }
+
     @Override
     protected void onSelected(SelectionKey key) throws IOException {
         if (!key.isAcceptable()) {
@@ -122,14 +242,20 @@ public class ServerConnectionController extends ConnectionController {
                     if ((getHelper().getMaxTotalConnections() == -1)
                             || (connectionsCount <= getHelper()
                                     .getMaxTotalConnections())) {
+                        ConnectionController controller = getNextController();
                         Connection<Server> connection = getHelper().checkout(
                                 socketChannel,
-                                this,
+                                controller,
                                 (InetSocketAddress) socketChannel.socket()
                                         .getRemoteSocketAddress());
                         connection.open();
                         getHelper().getConnections().add(connection);
 
+                        if (controller != this) {
+                            ((SelectorController) controller)
+                                    .addConnection(connection);
+                        }
+
                         if (getHelper().getLogger().isLoggable(Level.FINE)) {
                             getHelper().getLogger().fine(
                                     "Connection from \""
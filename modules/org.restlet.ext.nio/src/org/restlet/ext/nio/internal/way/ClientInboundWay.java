@@ -156,6 +156,7 @@ public abstract class ClientInboundWay extends InboundWay {
         }
 
         super.onMessageCompleted(endDetected);
+        getHelper().release(getConnection());
     }
 
     @Override
@@ -31,11 +31,10 @@ import java.util.logging.Level;
 import org.restlet.Response;
 import org.restlet.data.Header;
 import org.restlet.data.Status;
-import org.restlet.engine.header.HeaderReader;
+import org.restlet.engine.header.HeadParser;
 import org.restlet.engine.header.HeaderUtils;
 import org.restlet.engine.io.ReadableSelectionChannel;
 import org.restlet.ext.nio.internal.buffer.Buffer;
-import org.restlet.ext.nio.internal.buffer.BufferState;
 import org.restlet.ext.nio.internal.channel.ReadableChunkedChannel;
 import org.restlet.ext.nio.internal.channel.ReadableSizedSelectionChannel;
 import org.restlet.ext.nio.internal.connection.Connection;
@@ -61,6 +60,9 @@ public abstract class InboundWay extends Way {
     /** The NIO selection registration of the entity. */
     private volatile SelectionRegistration entityRegistration;
 
+    /** The parser of message heads. */
+    private final HeadParser headParser;
+
     /**
      * Constructor.
      * 
@@ -72,6 +74,7 @@ public abstract class InboundWay extends Way {
     public InboundWay(Connection<?> connection, int bufferSize) {
         super(connection, bufferSize);
         this.builderIndex = 0;
+        this.headParser = new HeadParser();
     }
 
     @Override
@@ -79,6 +82,7 @@ public abstract class InboundWay extends Way {
         super.clear();
         this.builderIndex = 0;
         this.entityRegistration = null;
+        this.headParser.reset();
     }
 
     /**
@@ -139,28 +143,6 @@ public abstract class InboundWay extends Way {
         return result;
     }
 
-    /**
-     * Read the current message line (start line or header line).
-     * 
-     * @return True if the line is ready for reading.
-     * @throws IOException
-     */
-    protected boolean fillLine() throws IOException {
-        boolean result = false;
-        setLineBuilderState(getBuffer().drain(getLineBuilder(),
-                getLineBuilderState()));
-
-        if (getLineBuilderState() == BufferState.DRAINING) {
-            result = true;
-
-            if (getLogger().isLoggable(Level.FINE)) {
-                getLogger().log(Level.FINE, getLineBuilder().toString());
-            }
-        }
-
-        return result;
-    }
-
     /**
      * Returns the line builder index.
      * 
@@ -179,6 +161,15 @@ public abstract class InboundWay extends Way {
         return entityRegistration;
     }
 
+    /**
+     * Returns the parser of message heads.
+     * 
+     * @return The parser of message heads.
+     */
+    protected HeadParser getHeadParser() {
+        return headParser;
+    }
+
     @Override
     public int getInterestOperations() {
         int result = 0;
@@ -191,15 +182,14 @@ public abstract class InboundWay extends Way {
     }
 
     /**
-     * Indicates if the next message line is readable.
+     * Indicates if the message head can be parsed further.
      * 
-     * @return True if the next message line is readable.
-     * @throws IOException
+     * @return True if the message head can be parsed further.
      */
-    protected boolean isLineReadable() throws IOException {
+    protected boolean isHeadReadable() {
         return getBuffer().canDrain()
                 && (getMessageState() != MessageState.IDLE)
-                && (getMessageState() != MessageState.BODY) && fillLine();
+                && (getMessageState() != MessageState.BODY);
     }
 
     @Override
@@ -212,35 +202,37 @@ public abstract class InboundWay extends Way {
         boolean continueReading = true;
         int beforeDrain = buffer.remaining();
 
-        while (continueReading && isLineReadable()) {
-            // Parse next ready lines
-            if (getMessageState() == MessageState.START) {
-                if (getLineBuilder().length() == 0) {
-                    // Silently eat empty lines used for keep alive purpose
-                    // sometimes (SIP)
-                    continueReading = false;
-                } else {
-                    if (getHelper().getLogger().isLoggable(Level.FINE)) {
-                        getHelper().getLogger().fine(
-                                "Reading message from "
-                                        + getConnection().getSocketAddress());
-                    }
-
-                    readStartLine();
+        while (continueReading && isHeadReadable()) {
+            // Parse the next elements of the head directly from the bytes
+            int event = getHeadParser().parse(buffer.getBytes());
+
+            if (event == HeadParser.START_LINE) {
+                if (getHelper().getLogger().isLoggable(Level.FINE)) {
+                    getHelper().getLogger().fine(
+                            "Reading message from "
+                                    + getConnection().getSocketAddress());
                 }
-            } else if (getMessageState() == MessageState.HEADERS) {
-                Header header = readHeader();
 
-                if (header != null) {
-                    if (getHeaders() == null) {
-                        setHeaders(new Series<Header>(Header.class));
-                    }
+                getHeadParser().appendStartLine(getLineBuilder());
 
-                    getHeaders().add(header);
-                } else {
-                    // All headers received
-                    onHeadersCompleted();
+                if (getLogger().isLoggable(Level.FINE)) {
+                    getLogger().log(Level.FINE, getLineBuilder().toString());
                 }
+
+                readStartLine();
+            } else if (event == HeadParser.HEADER) {
+                Header header = readHeader();
+
+                if (getHeaders() == null) {
+                    setHeaders(new Series<Header>(Header.class));
+                }
+
+                getHeaders().add(header);
+            } else if (event == HeadParser.END) {
+                // All headers received
+                onHeadersCompleted();
+            } else {
+                continueReading = false;
             }
         }
 
@@ -297,7 +289,7 @@ public abstract class InboundWay extends Way {
 
         // Wakeup the controller to update the registrations,
         // since this callback can be called asynchronous
-        getHelper().getController().wakeup();
+        getConnection().getController().wakeup();
 
         if (getLogger().isLoggable(Level.FINER)) {
             getLogger().finer("Inbound message completed");
@@ -357,14 +349,19 @@ public abstract class InboundWay extends Way {
     }
 
     /**
-     * Read a message header.
+     * Read the message header just parsed.
      * 
-     * @return The new message header or null.
+     * @return The new message header.
      * @throws IOException
      */
     protected Header readHeader() throws IOException {
-        Header header = HeaderReader.readHeader(getLineBuilder());
-        clearLineBuilder();
+        Header header = getHeadParser().getHeader();
+
+        if (getLogger().isLoggable(Level.FINE)) {
+            getLogger().log(Level.FINE,
+                    header.getName() + ": " + header.getValue());
+        }
+
         return header;
     }
 
@@ -24,6 +24,7 @@
 
 package org.restlet.ext.nio.internal.way;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
@@ -38,9 +39,11 @@ import org.restlet.data.Header;
 import org.restlet.data.Protocol;
 import org.restlet.data.Status;
 import org.restlet.engine.connector.ConnectorHelper;
+import org.restlet.engine.header.HeadWriter;
 import org.restlet.engine.header.HeaderConstants;
 import org.restlet.engine.header.HeaderUtils;
 import org.restlet.engine.io.BlockableChannel;
+import org.restlet.engine.io.FileRegion;
 import org.restlet.engine.util.StringUtils;
 import org.restlet.ext.nio.internal.buffer.Buffer;
 import org.restlet.ext.nio.internal.channel.ReadableChunkingChannel;
@@ -89,6 +92,15 @@ public abstract class OutboundWay extends Way {
     /** The header index. */
     private volatile int headerIndex;
 
+    /** The writer of the message head. */
+    private final HeadWriter headWriter;
+
+    /** The end index of the file region to transfer. */
+    private volatile long transferEnd;
+
+    /** The current index in the file region to transfer. */
+    private volatile long transferIndex;
+
     /**
      * Constructor.
      * 
@@ -102,6 +114,9 @@ public abstract class OutboundWay extends Way {
         this.entityChannel = null;
         this.entitySelectionKey = null;
         this.headerIndex = 0;
+        this.headWriter = new HeadWriter();
+        this.transferEnd = 0;
+        this.transferIndex = 0;
     }
 
     /**
@@ -148,6 +163,9 @@ public abstract class OutboundWay extends Way {
         this.entityChannel = null;
         this.entitySelectionKey = null;
         this.headerIndex = 0;
+        this.headWriter.clear();
+        this.transferEnd = 0;
+        this.transferIndex = 0;
     }
 
     /**
@@ -227,6 +245,15 @@ public abstract class OutboundWay extends Way {
         return headerIndex;
     }
 
+    /**
+     * Returns the writer of the message head.
+     * 
+     * @return The writer of the message head.
+     */
+    protected HeadWriter getHeadWriter() {
+        return headWriter;
+    }
+
     @Override
     public int getInterestOperations() {
         int result = 0;
@@ -248,7 +275,7 @@ public abstract class OutboundWay extends Way {
     @Override
     protected boolean hasIoInterest() {
         return (getMessageState() == MessageState.START)
-                || getBuffer().canDrain();
+                || getHeadWriter().hasRemaining() || getBuffer().canDrain();
     }
 
     @Override
@@ -293,7 +320,16 @@ public abstract class OutboundWay extends Way {
 
         // Write the message or part of it in the byte
         // buffer
-        if (getMessageState() == MessageState.BODY) {
+        if (getHeadWriter().hasRemaining()) {
+            // Write the pending head bytes before the entity
+            getHeadWriter().writeTo(buffer.getBytes());
+        } else if ((getMessageState() == MessageState.BODY)
+                && (getEntityChannelType() == EntityType.TRANSFERABLE)) {
+            // Wait for the buffered headers to be written first
+            if (buffer.isEmpty()) {
+                transferEntity();
+            }
+        } else if (getMessageState() == MessageState.BODY) {
             try {
                 int filled = buffer.fill(getEntityChannel());
 
@@ -310,8 +346,8 @@ public abstract class OutboundWay extends Way {
                 throw ioe;
             }
         } else if (getMessageState() != MessageState.END) {
-            // Write the start line or the headers,
-            // relying on the line builder
+            // Write the start line or the headers, relying on the line
+            // builder or on the head writer
             if (getLineBuilder().length() == 0) {
                 // A new line can be written in the builder
                 writeLine();
@@ -339,6 +375,12 @@ public abstract class OutboundWay extends Way {
                     getLineBuilder().delete(0, remaining);
                 }
             }
+
+            if (getHeadWriter().hasRemaining()
+                    && (buffer.remaining() > 0)) {
+                // Write the head bytes encoded by the head writer
+                getHeadWriter().writeTo(buffer.getBytes());
+            }
         }
 
         return remaining - buffer.remaining();
@@ -371,37 +413,39 @@ public abstract class OutboundWay extends Way {
             }
 
             setMessageState(MessageState.BODY);
-            ReadableByteChannel rbc = getActualMessage().getEntity()
-                    .getChannel();
 
-            if (rbc instanceof FileChannel) {
-                setEntityChannelType(EntityType.TRANSFERABLE);
-            } else if (rbc instanceof BlockableChannel) {
-                BlockableChannel bc = (BlockableChannel) rbc;
+            if (!getConnection().isTransferable() || !openTransfer()) {
+                ReadableByteChannel rbc = getActualMessage().getEntity()
+                        .getChannel();
 
-                if (bc.isBlocking()) {
-                    setEntityChannelType(EntityType.BLOCKING);
+                if (rbc instanceof BlockableChannel) {
+                    BlockableChannel bc = (BlockableChannel) rbc;
+
+                    if (bc.isBlocking()) {
+                        setEntityChannelType(EntityType.BLOCKING);
+                    } else {
+                        setEntityChannelType(EntityType.NON_BLOCKING);
+                    }
+                } else if (rbc instanceof SelectableChannel) {
+                    SelectableChannel sc = (SelectableChannel) rbc;
+
+                    if (sc.isBlocking()) {
+                        setEntityChannelType(EntityType.BLOCKING);
+                    } else {
+                        setEntityChannelType(EntityType.NON_BLOCKING);
+                    }
                 } else {
-                    setEntityChannelType(EntityType.NON_BLOCKING);
+                    setEntityChannelType(EntityType.BLOCKING);
                 }
-            } else if (rbc instanceof SelectableChannel) {
-                SelectableChannel sc = (SelectableChannel) rbc;
 
-                if (sc.isBlocking()) {
-                    setEntityChannelType(EntityType.BLOCKING);
+                if (getActualMessage().getEntity().getAvailableSize() == Representation.UNKNOWN_SIZE) {
+                    setEntityChannel(new ReadableChunkingChannel(rbc,
+                            getBuffer().capacity()));
                 } else {
-                    setEntityChannelType(EntityType.NON_BLOCKING);
+                    setEntityChannel(new ReadableSizedChannel(rbc,
+                            getActualMessage().getEntity()
+                                    .getAvailableSize()));
                 }
-            } else {
-                setEntityChannelType(EntityType.BLOCKING);
-            }
-
-            if (getActualMessage().getEntity().getAvailableSize() == Representation.UNKNOWN_SIZE) {
-                setEntityChannel(new ReadableChunkingChannel(rbc, getBuffer()
-                        .capacity()));
-            } else {
-                setEntityChannel(new ReadableSizedChannel(rbc,
-                        getActualMessage().getEntity().getAvailableSize()));
             }
 
         } else {
@@ -440,6 +484,31 @@ public abstract class OutboundWay extends Way {
         }
     }
 
+    /**
+     * Prepares the direct transfer of the entity if it is a file or a range of
+     * a file, so that its bytes can be sent with
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * without going through the IO buffer.
+     * 
+     * @return True if the entity will be transferred directly.
+     * @throws IOException
+     */
+    protected boolean openTransfer() throws IOException {
+        FileRegion fileRegion = FileRegion.getFileRegion(getActualMessage()
+                .getEntity());
+        boolean result = (fileRegion != null);
+
+        if (result) {
+            setEntityChannel(fileRegion.getChannel());
+            setEntityChannelType(EntityType.TRANSFERABLE);
+            this.transferIndex = fileRegion.getStartIndex();
+            this.transferEnd = fileRegion.getStartIndex()
+                    + fileRegion.getSize();
+        }
+
+        return result;
+    }
+
     @Override
     protected void onPostProcessing() {
         if ((getMessageState() != MessageState.IDLE) || getBuffer().canDrain()) {
@@ -463,7 +532,8 @@ public abstract class OutboundWay extends Way {
         int result = super.processIoBuffer();
 
         if (getMessage() != null) {
-            if (getMessageState() == MessageState.END) {
+            if ((getMessageState() == MessageState.END)
+                    && !getHeadWriter().hasRemaining()) {
                 // Message fully written, ready for a new one
                 onMessageCompleted(false);
             } else if (getMessageState() == MessageState.IDLE) {
@@ -516,6 +586,48 @@ public abstract class OutboundWay extends Way {
         this.headerIndex = headerIndex;
     }
 
+    /**
+     * Transfers as many bytes as possible of the file entity to the socket
+     * channel. Sets the message state to {@link MessageState#END} once the
+     * file region has been fully transferred, or the IO state to
+     * {@link IoState#INTEREST} when the socket channel can't accept more bytes.
+     * 
+     * @throws IOException
+     *             If the file was truncated.
+     */
+    protected void transferEntity() throws IOException {
+        FileChannel fileChannel = getEntityFileChannel();
+        long end = this.transferEnd;
+        long transferred = 1;
+
+        if (fileChannel.size() < end) {
+            // The announced length can't be sent anymore
+            throw new EOFException(
+                    "The file entity was truncated while being transferred");
+        }
+
+        while ((this.transferIndex < end) && (transferred > 0)) {
+            transferred = fileChannel.transferTo(this.transferIndex, end
+                    - this.transferIndex, getConnection().getSocketChannel());
+            this.transferIndex += transferred;
+        }
+
+        if (getLogger().isLoggable(Level.FINER)) {
+            getLogger().log(Level.FINER,
+                    "Entity transferred up to index " + this.transferIndex);
+        }
+
+        if (this.transferIndex >= end) {
+            setMessageState(MessageState.END);
+        } else {
+            getConnection().onActivity();
+
+            if (getIoState() == IoState.PROCESSING) {
+                setIoState(IoState.INTEREST);
+            }
+        }
+    }
+
     /**
      * Indicates if the entity should be chunked because its length is unknown.
      * 
@@ -563,23 +675,23 @@ public abstract class OutboundWay extends Way {
                 addHeaders(getHeaders());
             }
 
-            if (getHeaderIndex() < getHeaders().size()) {
-                // Write header
+            // Encode all the headers at once
+            while (getHeaderIndex() < getHeaders().size()) {
                 Header header = getHeaders().get(getHeaderIndex());
-                getLineBuilder().append(header.getName());
-                getLineBuilder().append(": ");
-                getLineBuilder().append(header.getValue());
-                getLineBuilder().append('\r'); // CR
-                getLineBuilder().append('\n'); // LF
+                getHeadWriter().writeHeader(header);
+
+                if (getLogger().isLoggable(Level.FINE)) {
+                    getLogger().log(Level.FINE,
+                            header.getName() + ": " + header.getValue());
+                }
 
                 // Move to the next header
                 setHeaderIndex(getHeaderIndex() + 1);
-            } else {
-                // Write the end of the headers section
-                getLineBuilder().append('\r'); // CR
-                getLineBuilder().append('\n'); // LF
-                onHeadersCompleted();
             }
+
+            // Write the end of the headers section
+            getHeadWriter().writeEnd();
+            onHeadersCompleted();
             break;
 
         default:
@@ -127,8 +127,8 @@ public abstract class ServerInboundWay extends InboundWay {
      */
     protected void onReceived(Response message) throws IOException {
         if (message.getRequest() != null) {
-            // Add it to the helper queue
-            getHelper().getInboundMessages().add(message);
+            // Add it to the queue of the connection's controller
+            getConnection().getController().getInboundMessages().add(message);
 
             if (!message.getRequest().isEntityAvailable()) {
                 // The request has been completely read
@@ -188,19 +188,9 @@ public abstract class ServerOutboundWay extends OutboundWay {
 
     @Override
     protected void writeStartLine() throws IOException {
-        getLineBuilder().append(getVersion(getMessage().getRequest()));
-        getLineBuilder().append(' ');
-        getLineBuilder().append(getMessage().getStatus().getCode());
-        getLineBuilder().append(' ');
-
-        if (getMessage().getStatus().getReasonPhrase() != null) {
-            getLineBuilder().append(getMessage().getStatus().getReasonPhrase());
-        } else {
-            getLineBuilder().append(
-                    "Status " + getMessage().getStatus().getCode());
-        }
-
-        getLineBuilder().append("\r\n");
+        Status status = getMessage().getStatus();
+        getHeadWriter().writeStatusLine(getVersion(getMessage().getRequest()),
+                status.getCode(), status.getReasonPhrase());
     }
 
 }
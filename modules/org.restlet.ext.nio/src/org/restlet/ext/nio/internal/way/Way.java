@@ -37,6 +37,7 @@ import org.restlet.data.Status;
 import org.restlet.ext.nio.ConnectionHelper;
 import org.restlet.ext.nio.internal.buffer.Buffer;
 import org.restlet.ext.nio.internal.buffer.BufferProcessor;
+import org.restlet.ext.nio.internal.buffer.BufferPool;
 import org.restlet.ext.nio.internal.buffer.BufferState;
 import org.restlet.ext.nio.internal.connection.Connection;
 import org.restlet.ext.nio.internal.state.ConnectionState;
@@ -94,7 +95,10 @@ public abstract class Way implements SelectionListener, CompletionListener,
      */
     public Way(Connection<?> connection, int bufferSize) {
         this.connection = connection;
-        this.buffer = new Buffer(bufferSize, getHelper().isDirectBuffers());
+        BufferPool bufferPool = getHelper().getBufferPool();
+        this.buffer = (bufferPool == null) ? new Buffer(bufferSize,
+                getHelper().isDirectBuffers()) : new Buffer(bufferSize,
+                bufferPool);
         this.headers = null;
         this.ioState = IoState.IDLE;
         this.lineBuilder = new StringBuilder();
@@ -132,6 +136,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
         }
 
         this.buffer.clear();
+        this.buffer.release();
         this.headers = null;
         this.ioState = IoState.IDLE;
         clearLineBuilder();
@@ -338,6 +343,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
         setMessage(null);
         setHeaders(null);
         getBuffer().clear();
+        getBuffer().release();
     }
 
     /**
@@ -457,6 +463,11 @@ public abstract class Way implements SelectionListener, CompletionListener,
             } else if ((getIoState() == IoState.PROCESSING)) {
                 onPostProcessing();
             }
+
+            // Give the buffer back to the pool between messages
+            if (getMessageState() == MessageState.IDLE) {
+                getBuffer().release();
+            }
         } catch (Exception e) {
             getConnection().onError("Error while processing a connection", e,
                     Status.CONNECTOR_ERROR_COMMUNICATION);
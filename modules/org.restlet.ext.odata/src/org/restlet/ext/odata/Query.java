@@ -24,9 +24,15 @@
 
 package org.restlet.ext.odata;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -144,6 +150,237 @@ public class Query<T> implements Iterable<T> {
         }
     }
 
+    /**
+     * Iterator that streams the entities of an entity set. The pages are
+     * parsed by a background thread which hands over each entity through a
+     * bounded buffer as soon as it is read. The next page is requested as soon
+     * as the current one is parsed, while its last entities are still being
+     * consumed. The memory used is thus bounded by the size of the buffer,
+     * whatever the size of the entity set.<br>
+     * <br>
+     * When the iteration is abandoned before its end, the iterator should be
+     * closed in order to release the background thread. Otherwise, the thread
+     * gives up after a few minutes without consumption.
+     * 
+     * @author Jerome Louvel
+     */
+    private class StreamingIterator implements Iterator<T>, Closeable {
+
+        /** Maximum time to wait for the consumer, in seconds. */
+        private static final int IDLE_TIMEOUT = 300;
+
+        /** The buffer of entities handed over to the consumer. */
+        private final BlockingQueue<Object> buffer;
+
+        /** Indicates if the iterator has been closed. */
+        private volatile boolean closed;
+
+        /** Marks the end of the iteration in the buffer. */
+        private final Object end;
+
+        /** Indicates if the end of the iteration has been reached. */
+        private boolean finished;
+
+        /** The reference to the first page. */
+        private final Reference firstPage;
+
+        /** The metadata of the service. */
+        private final Metadata metadata;
+
+        /** The next entity to return. */
+        private T next;
+
+        /**
+         * Constructor.
+         * 
+         * @param firstPage
+         *            The reference to the first page.
+         * @param metadata
+         *            The metadata of the service.
+         * @param bufferSize
+         *            The maximum number of entities parsed in advance.
+         */
+        public StreamingIterator(Reference firstPage, Metadata metadata,
+                int bufferSize) {
+            this.buffer = new ArrayBlockingQueue<Object>(bufferSize);
+            this.end = new Object();
+            this.firstPage = firstPage;
+            this.metadata = metadata;
+        }
+
+        /**
+         * Stops the parsing and releases the buffered entities.
+         */
+        public void close() {
+            this.closed = true;
+            this.buffer.clear();
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            if ((next == null) && !finished) {
+                Object item = null;
+
+                try {
+                    // Once closed, the end marker may never come
+                    item = closed ? buffer.poll() : buffer.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                }
+
+                if ((item == null) || (item == end)) {
+                    finished = true;
+                } else {
+                    next = (T) item;
+                }
+            }
+
+            return next != null;
+        }
+
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            T result = next;
+            next = null;
+            return result;
+        }
+
+        /**
+         * Parses the given page and hands over its entities.
+         * 
+         * @param page
+         *            The reference to the page.
+         * @return The reference to the next page or null.
+         * @throws Exception
+         */
+        private Reference parsePage(Reference page) throws Exception {
+            Reference result = null;
+            ClientResource resource = service.createResource(page);
+
+            try {
+                Representation rep = resource.get(MediaType.APPLICATION_ATOM);
+
+                if (resource.getStatus().isSuccess()) {
+                    Feed feed = new Feed(rep, new FeedContentHandler<T>(
+                            entityClass, entityType, metadata, getLogger()) {
+                        private Feed currentFeed;
+
+                        @Override
+                        protected void addEntity(T entity) {
+                            put(entity);
+                        }
+
+                        @Override
+                        public void endEntry(Entry entry) {
+                            super.endEntry(entry);
+                            // Don't keep the parsed entries in memory
+                            currentFeed.getEntries().clear();
+                        }
+
+                        @Override
+                        public void startFeed(Feed feed) {
+                            super.startFeed(feed);
+                            this.currentFeed = feed;
+                        }
+                    });
+
+                    for (Link link : feed.getLinks()) {
+                        if (Relation.NEXT.equals(link.getRel())) {
+                            result = new Reference(service.createQuery(
+                                    link.getHref().toString(), entityClass)
+                                    .createTargetUri());
+                            break;
+                        }
+                    }
+                }
+            } finally {
+                resource.release();
+            }
+
+            return result;
+        }
+
+        /**
+         * Hands over an item to the consumer, waiting for free space in the
+         * buffer.
+         * 
+         * @param item
+         *            The item to hand over.
+         * @throws CancellationException
+         *             If the iterator has been closed.
+         */
+        private void put(Object item) {
+            int waited = 0;
+
+            try {
+                while (!closed) {
+                    if (buffer.offer(item, 1, TimeUnit.SECONDS)) {
+                        return;
+                    } else if (++waited >= IDLE_TIMEOUT) {
+                        getLogger().warning(
+                                "Stop streaming the entities of "
+                                        + firstPage
+                                        + " as they are not consumed anymore.");
+                        closed = true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+
+            throw new CancellationException();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Parses all the pages, following the "next" links.
+         */
+        private void run() {
+            Reference page = firstPage;
+
+            try {
+                while ((page != null) && !closed) {
+                    page = parsePage(page);
+                }
+            } catch (Exception e) {
+                if (!closed) {
+                    getLogger().log(Level.WARNING,
+                            "Can't parse the content of " + page, e);
+                }
+            } finally {
+                try {
+                    put(end);
+                } catch (CancellationException e) {
+                    // The consumer has left
+                }
+            }
+        }
+
+        /**
+         * Starts the background parsing thread.
+         */
+        public void start() {
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    StreamingIterator.this.run();
+                }
+            }, "Restlet-ODataStreaming");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /** Default number of entities parsed in advance in streaming mode. */
+    public static final int DEFAULT_STREAMING_BUFFER_SIZE = 100;
+
     // Defines the type of the current query. It has an impact on how to parse
     // the result.
     /** Type of query: complex type or property. */
@@ -202,6 +439,9 @@ public class Query<T> implements Iterable<T> {
     /** The parent client service. */
     private Service service;
 
+    /** Indicates if the entities are streamed. */
+    private boolean streaming;
+
     /** The path of the targeted entity relatively to the data service URI. */
     private String subpath;
 
@@ -252,6 +492,7 @@ public class Query<T> implements Iterable<T> {
     public Query<T> addParameter(String name, String value) {
         Query<T> result = new Query<T>(this.getService(), this.getSubpath(),
                 (Class<T>) this.entityClass);
+        result.setStreaming(isStreaming());
         if (getQuery() == null || "".equals(getQuery())) {
             result.setQuery(name + "=" + value);
         } else {
@@ -274,6 +515,7 @@ public class Query<T> implements Iterable<T> {
     public Query<T> addParameters(Series<Parameter> params) {
         Query<T> result = new Query<T>(this.getService(), this.getSubpath(),
                 (Class<T>) this.entityClass);
+        result.setStreaming(isStreaming());
         StringBuilder builder = new StringBuilder();
 
         if (params != null) {
@@ -632,6 +874,20 @@ public class Query<T> implements Iterable<T> {
         return executed;
     }
 
+    /**
+     * Indicates if the entities are streamed. In this mode, the entities of an
+     * entity set are returned by the iterator as soon as they are parsed, the
+     * next page is fetched in the background and the number of entities kept
+     * in memory is bounded. The iterator implements {@link Closeable} and
+     * should be closed when the iteration is abandoned before its end. Default
+     * is false.
+     * 
+     * @return True if the entities are streamed.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
     /**
      * Returns an iterator over a set of elements of type T. It returns null if
      * the query does not retrieve elements.
@@ -640,6 +896,24 @@ public class Query<T> implements Iterable<T> {
      */
     public Iterator<T> iterator() {
         Iterator<T> result = null;
+        String targetUri = createTargetUri();
+
+        if (isStreaming() && (guessType(targetUri) == TYPE_ENTITY_SET)) {
+            Metadata metadata = (Metadata) service.getMetadata();
+
+            if (metadata == null) {
+                getLogger().warning(
+                        "Can't execute the query without the service's metadata.");
+            } else {
+                StreamingIterator iterator = new StreamingIterator(
+                        new Reference(targetUri), metadata,
+                        DEFAULT_STREAMING_BUFFER_SIZE);
+                iterator.start();
+                result = iterator;
+            }
+
+            return result;
+        }
 
         try {
             execute();
@@ -736,6 +1010,17 @@ public class Query<T> implements Iterable<T> {
         this.query = query;
     }
 
+    /**
+     * Indicates if the entities are streamed.
+     * 
+     * @param streaming
+     *            True if the entities are streamed.
+     * @see #isStreaming()
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
      * Creates a new Query<T> with the $skip option set in the URI generated by
      * the returned query.
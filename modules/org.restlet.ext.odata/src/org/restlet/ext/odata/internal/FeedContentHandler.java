@@ -129,6 +129,18 @@ public class FeedContentHandler<T> extends FeedReader {
         this.metadata = metadata;
     }
 
+    /**
+     * Adds a parsed entity to the list of discovered entities. Can be
+     * overridden in order to handle each entity as soon as it is parsed
+     * instead of keeping all of them in memory.
+     * 
+     * @param entity
+     *            The parsed entity.
+     */
+    protected void addEntity(T entity) {
+        entities.add(entity);
+    }
+
     @Override
     public void characters(char[] ch, int start, int length)
             throws SAXException {
@@ -201,7 +213,7 @@ public class FeedContentHandler<T> extends FeedReader {
             T entity = entryHandler.getEntity();
 
             if (entity != null) {
-                entities.add(entity);
+                addEntity(entity);
             } else {
                 getLogger().warning("Can't add a null entity.");
             }
@@ -24,7 +24,16 @@
 
 package org.restlet.ext.rdf;
 
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.restlet.data.MediaType;
 import org.restlet.data.Reference;
@@ -32,18 +41,101 @@ import org.restlet.representation.Representation;
 
 /**
  * Graph composed of links. This also called a set of RDF statements or a RDF
- * model.
+ * model.<br>
+ * <br>
+ * Links are indexed by source reference, type reference and target reference
+ * or literal value so that adding a link is done in constant time and that
+ * pattern queries such as {@link #getLinks(Reference, Reference, Object)} only
+ * visit the matching links. The references of the links created by the graph
+ * are interned, so that equal references share the same instance. As the
+ * indexes are based on the values at the time a link is added, links should
+ * not be modified once added to the graph.<br>
+ * <br>
+ * Concurrency note: instances of this class are thread-safe. Iterators work on
+ * a snapshot of the links and can't be affected by concurrent modifications.
  * 
  * @author Jerome Louvel
  */
-public class Graph extends CopyOnWriteArraySet<Link> {
+public class Graph extends AbstractSet<Link> implements Serializable {
 
     /** The serialization unique identifier. */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Returns the index key of a node. References are indexed by themselves
+     * and literals by their value. Other nodes such as graphs aren't indexed.
+     * 
+     * @param node
+     *            The node.
+     * @return The index key or null.
+     */
+    private static Object getKey(Object node) {
+        if (node instanceof Reference) {
+            return node;
+        } else if (node instanceof Literal) {
+            return ((Literal) node).getValue();
+        }
+
+        return null;
+    }
+
+    /**
+     * Indicates if two objects are equal, accepting null values.
+     * 
+     * @param object1
+     *            The first object.
+     * @param object2
+     *            The second object.
+     * @return True if both objects are equal.
+     */
+    private static boolean isEqual(Object object1, Object object2) {
+        return (object1 == null) ? (object2 == null) : object1
+                .equals(object2);
+    }
+
+    /**
+     * Indicates if a node matches a node pattern.
+     * 
+     * @param node
+     *            The node to test.
+     * @param pattern
+     *            The node pattern, or null to match any node.
+     * @return True if the node matches the pattern.
+     */
+    private static boolean matches(Object node, Object pattern) {
+        if (pattern == null) {
+            return true;
+        } else if ((pattern instanceof Literal) && (node instanceof Literal)) {
+            Literal literal = (Literal) node;
+            Literal literalPattern = (Literal) pattern;
+            return isEqual(literal.getValue(), literalPattern.getValue())
+                    && isEqual(literal.getDatatypeRef(),
+                            literalPattern.getDatatypeRef())
+                    && isEqual(literal.getLanguage(),
+                            literalPattern.getLanguage());
+        }
+
+        return pattern.equals(node);
+    }
+
     /** The default link that is used to complete new links. */
     private Link defaultLink;
 
+    /** The links, in insertion order. */
+    private final Set<Link> links;
+
+    /** The interned references. */
+    private final Map<Reference, Reference> references;
+
+    /** The links indexed by source reference. */
+    private final Map<Object, List<Link>> sourceIndex;
+
+    /** The links indexed by target reference or literal value. */
+    private final Map<Object, List<Link>> targetIndex;
+
+    /** The links indexed by type reference. */
+    private final Map<Object, List<Link>> typeIndex;
+
     /**
      * Default constructor.
      */
@@ -59,6 +151,31 @@ public class Graph extends CopyOnWriteArraySet<Link> {
      */
     public Graph(Link defaultLink) {
         this.defaultLink = defaultLink;
+        this.links = new LinkedHashSet<Link>();
+        this.references = new HashMap<Reference, Reference>();
+        this.sourceIndex = new HashMap<Object, List<Link>>();
+        this.targetIndex = new HashMap<Object, List<Link>>();
+        this.typeIndex = new HashMap<Object, List<Link>>();
+    }
+
+    /**
+     * Adds a link and indexes it.
+     * 
+     * @param link
+     *            The link to add.
+     * @return True if the link wasn't already in the graph.
+     */
+    @Override
+    public synchronized boolean add(Link link) {
+        boolean result = this.links.add(link);
+
+        if (result) {
+            index(this.sourceIndex, getKey(link.getSource()), link);
+            index(this.typeIndex, link.getTypeRef(), link);
+            index(this.targetIndex, getKey(link.getTarget()), link);
+        }
+
+        return result;
     }
 
     /**
@@ -75,7 +192,7 @@ public class Graph extends CopyOnWriteArraySet<Link> {
      */
     public Link add(Graph sourceGraph, Reference typeRef, Literal targetLit) {
         Link result = new Link(getSourceAsGraph(sourceGraph),
-                getTypeRef(typeRef), getTargetAsLiteral(targetLit));
+                intern(getTypeRef(typeRef)), getTargetAsLiteral(targetLit));
         add(result);
         return result;
     }
@@ -94,7 +211,8 @@ public class Graph extends CopyOnWriteArraySet<Link> {
      */
     public Link add(Graph sourceGraph, Reference typeRef, Reference targetRef) {
         Link result = new Link(getSourceAsGraph(sourceGraph),
-                getTypeRef(typeRef), getTargetAsReference(targetRef));
+                intern(getTypeRef(typeRef)),
+                intern(getTargetAsReference(targetRef)));
         add(result);
         return result;
     }
@@ -112,8 +230,8 @@ public class Graph extends CopyOnWriteArraySet<Link> {
      * @return The created link.
      */
     public Link add(Reference sourceRef, Reference typeRef, Literal targetLit) {
-        Link result = new Link(getSourceAsReference(sourceRef),
-                getTypeRef(typeRef), getTargetAsLiteral(targetLit));
+        Link result = new Link(intern(getSourceAsReference(sourceRef)),
+                intern(getTypeRef(typeRef)), getTargetAsLiteral(targetLit));
         add(result);
         return result;
     }
@@ -131,8 +249,9 @@ public class Graph extends CopyOnWriteArraySet<Link> {
      * @return The created link.
      */
     public Link add(Reference sourceRef, Reference typeRef, Reference targetRef) {
-        Link result = new Link(getSourceAsReference(sourceRef),
-                getTypeRef(typeRef), getTargetAsReference(targetRef));
+        Link result = new Link(intern(getSourceAsReference(sourceRef)),
+                intern(getTypeRef(typeRef)),
+                intern(getTargetAsReference(targetRef)));
         add(result);
         return result;
     }
@@ -300,6 +419,20 @@ public class Graph extends CopyOnWriteArraySet<Link> {
                 new Reference(targetRef));
     }
 
+    @Override
+    public synchronized void clear() {
+        this.links.clear();
+        this.references.clear();
+        this.sourceIndex.clear();
+        this.targetIndex.clear();
+        this.typeIndex.clear();
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        return this.links.contains(o);
+    }
+
     /**
      * Returns the default link that is used to complete new links.
      * 
@@ -309,6 +442,85 @@ public class Graph extends CopyOnWriteArraySet<Link> {
         return defaultLink;
     }
 
+    /**
+     * Returns the links matching a pattern, using the most selective index.
+     * Each null parameter matches any node.
+     * 
+     * @param sourceRef
+     *            The source reference or null.
+     * @param typeRef
+     *            The type reference or null.
+     * @param target
+     *            The target reference or literal, or null.
+     * @return The list of matching links, in insertion order.
+     */
+    public synchronized List<Link> getLinks(Reference sourceRef,
+            Reference typeRef, Object target) {
+        Iterable<Link> candidates = this.links;
+        int count = this.links.size();
+
+        if (sourceRef != null) {
+            List<Link> indexed = lookup(this.sourceIndex, sourceRef);
+
+            if (indexed.size() < count) {
+                candidates = indexed;
+                count = indexed.size();
+            }
+        }
+
+        if (typeRef != null) {
+            List<Link> indexed = lookup(this.typeIndex, typeRef);
+
+            if (indexed.size() < count) {
+                candidates = indexed;
+                count = indexed.size();
+            }
+        }
+
+        if (getKey(target) != null) {
+            List<Link> indexed = lookup(this.targetIndex, getKey(target));
+
+            if (indexed.size() < count) {
+                candidates = indexed;
+                count = indexed.size();
+            }
+        }
+
+        List<Link> result = new ArrayList<Link>();
+
+        if (count > 0) {
+            for (Link link : candidates) {
+                if (matches(link.getSource(), sourceRef)
+                        && matches(link.getTypeRef(), typeRef)
+                        && matches(link.getTarget(), target)) {
+                    result.add(link);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the links matching a pattern. Each null parameter matches any
+     * node.
+     * 
+     * @param sourceRef
+     *            The source reference URI or null.
+     * @param typeRef
+     *            The type reference URI or null.
+     * @param targetRef
+     *            The target reference URI or null.
+     * @return The list of matching links, in insertion order.
+     * @see #getLinks(Reference, Reference, Object)
+     */
+    public List<Link> getLinks(String sourceRef, String typeRef,
+            String targetRef) {
+        return getLinks((sourceRef == null) ? null : new Reference(sourceRef),
+                (typeRef == null) ? null : new Reference(typeRef),
+                (targetRef == null) ? null : new Reference(targetRef));
+    }
+
     /**
      * Returns a representation in the RDF/n3 format.
      * 
@@ -435,6 +647,119 @@ public class Graph extends CopyOnWriteArraySet<Link> {
         return result;
     }
 
+    /**
+     * Adds a link to an index.
+     * 
+     * @param index
+     *            The index to update.
+     * @param key
+     *            The index key or null if the node isn't indexed.
+     * @param link
+     *            The link to add.
+     */
+    private void index(Map<Object, List<Link>> index, Object key, Link link) {
+        if (key != null) {
+            List<Link> indexed = index.get(key);
+
+            if (indexed == null) {
+                indexed = new ArrayList<Link>(2);
+                index.put(key, indexed);
+            }
+
+            indexed.add(link);
+        }
+    }
+
+    /**
+     * Returns the interned instance of a reference, equal to the given one.
+     * 
+     * @param reference
+     *            The reference to intern.
+     * @return The interned reference or null.
+     */
+    private synchronized Reference intern(Reference reference) {
+        Reference result = reference;
+
+        if (reference != null) {
+            result = this.references.get(reference);
+
+            if (result == null) {
+                result = reference;
+                this.references.put(reference, reference);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns an iterator on a snapshot of the links.
+     * 
+     * @return An iterator on a snapshot of the links.
+     */
+    @Override
+    public synchronized Iterator<Link> iterator() {
+        final Iterator<Link> snapshot = new ArrayList<Link>(this.links)
+                .iterator();
+
+        return new Iterator<Link>() {
+            private Link current;
+
+            public boolean hasNext() {
+                return snapshot.hasNext();
+            }
+
+            public Link next() {
+                this.current = snapshot.next();
+                return this.current;
+            }
+
+            public void remove() {
+                if (this.current == null) {
+                    throw new IllegalStateException();
+                }
+
+                Graph.this.remove(this.current);
+                this.current = null;
+            }
+        };
+    }
+
+    /**
+     * Returns the links of an index for a given key.
+     * 
+     * @param index
+     *            The index to look into.
+     * @param key
+     *            The index key.
+     * @return The indexed links, or an empty list.
+     */
+    private List<Link> lookup(Map<Object, List<Link>> index, Object key) {
+        List<Link> result = index.get(key);
+        return (result == null) ? Collections.<Link> emptyList() : result;
+    }
+
+    /**
+     * Removes a link and its index entries.
+     * 
+     * @param o
+     *            The link to remove.
+     * @return True if the link was in the graph.
+     */
+    @Override
+    public synchronized boolean remove(Object o) {
+        boolean result = this.links.remove(o);
+
+        if (result) {
+            Link link = (Link) o;
+            unindex(this.sourceIndex, getKey(link.getSource()), link);
+            unindex(this.typeIndex, link.getTypeRef(), link);
+            unindex(this.targetIndex, getKey(link.getTarget()), link);
+        }
+
+        return result;
+    }
+
     /**
      * Sets the default link that is used to complete new links.
      * 
@@ -445,4 +770,38 @@ public class Graph extends CopyOnWriteArraySet<Link> {
         this.defaultLink = defaultLink;
     }
 
+    @Override
+    public synchronized int size() {
+        return this.links.size();
+    }
+
+    /**
+     * Removes a link from an index.
+     * 
+     * @param index
+     *            The index to update.
+     * @param key
+     *            The index key or null if the node isn't indexed.
+     * @param link
+     *            The link to remove.
+     */
+    private void unindex(Map<Object, List<Link>> index, Object key, Link link) {
+        if (key != null) {
+            List<Link> indexed = index.get(key);
+
+            if (indexed != null) {
+                for (int i = 0; i < indexed.size(); i++) {
+                    if (indexed.get(i) == link) {
+                        indexed.remove(i);
+                        break;
+                    }
+                }
+
+                if (indexed.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
 }
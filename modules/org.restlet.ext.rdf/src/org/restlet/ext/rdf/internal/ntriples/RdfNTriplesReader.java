@@ -397,6 +397,32 @@ public class RdfNTriplesReader extends RdfReader {
         return builder.toString();
     }
 
+    /**
+     * Fills a part of the buffer, unless the end of the stream is reached.
+     * 
+     * @param offset
+     *            The index of the part to fill.
+     * @return The number of characters read or -1 if the end of the stream
+     *         is reached.
+     * @throws IOException
+     */
+    private int read(int offset) throws IOException {
+        int result = this.br.read(buffer, offset, BUFFER_SIZE);
+
+        while ((result != -1) && (result < BUFFER_SIZE)) {
+            int len = this.br.read(buffer, offset + result, BUFFER_SIZE
+                    - result);
+
+            if (len == -1) {
+                break;
+            }
+
+            result += len;
+        }
+
+        return result;
+    }
+
     /**
      * Read a new character.
      * 
@@ -410,7 +436,7 @@ public class RdfNTriplesReader extends RdfReader {
                 // Reached the end of the first part of the buffer, read into
                 // the second one.
                 scoutIndex++;
-                int len = this.br.read(buffer, 0, BUFFER_SIZE);
+                int len = read(BUFFER_SIZE + 1);
                 if (len == -1) {
                     // End of the stream reached
                     buffer[scoutIndex] = EOF;
@@ -421,7 +447,7 @@ public class RdfNTriplesReader extends RdfReader {
                 scoutIndex = 0;
                 // Reached the end of the second part of the buffer, read into
                 // the first one.
-                int len = this.br.read(buffer, 0, BUFFER_SIZE);
+                int len = read(0);
                 if (len == -1) {
                     // End of the stream reached
                     buffer[scoutIndex] = EOF;
@@ -0,0 +1,313 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.velocity;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.exception.ResourceNotFoundException;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.RuntimeSingleton;
+import org.restlet.Application;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Tag;
+import org.restlet.representation.Representation;
+
+/**
+ * Application-scoped Velocity engine and cache of parsed templates. Templates
+ * retrieved by name are loaded by the shared engine, which is initialized once
+ * and caches them according to its resource loader configuration. Templates
+ * read from representations are cached by location reference, in a bounded
+ * LRU cache, and revalidated using the modification date or the tag of the
+ * representation.<br>
+ * <br>
+ * The instance of the current application is stored in its context under the
+ * {@link #ATTRIBUTE} attribute. The engine can be configured via
+ * {@link #getEngine()} before the first template is retrieved.<br>
+ * <br>
+ * Concurrency note: instances of this class are thread-safe. Velocity
+ * templates can be merged by several threads at the same time.
+ * 
+ * @author Jerome Louvel
+ */
+public class TemplateCache {
+
+    /** Parsed template with the validators of its representation. */
+    private static class CachedTemplate {
+
+        /** The modification date of the template representation. */
+        private final Date modificationDate;
+
+        /** The tag of the template representation. */
+        private final Tag tag;
+
+        /** The parsed template. */
+        private final Template template;
+
+        /**
+         * Constructor.
+         * 
+         * @param template
+         *            The parsed template.
+         * @param templateRepresentation
+         *            The template representation.
+         */
+        public CachedTemplate(Template template,
+                Representation templateRepresentation) {
+            this.modificationDate = templateRepresentation
+                    .getModificationDate();
+            this.tag = templateRepresentation.getTag();
+            this.template = template;
+        }
+
+        /**
+         * Indicates if the entry is still valid for the given representation.
+         * 
+         * @param templateRepresentation
+         *            The template representation.
+         * @return True if the entry is still valid.
+         */
+        public boolean isValid(Representation templateRepresentation) {
+            if ((this.tag != null) && !this.tag.isWeak()) {
+                return this.tag.equals(templateRepresentation.getTag());
+            }
+
+            return (this.modificationDate != null)
+                    && this.modificationDate.equals(templateRepresentation
+                            .getModificationDate());
+        }
+    }
+
+    /** The name of the application context attribute. */
+    public static final String ATTRIBUTE = "org.restlet.ext.velocity.TemplateCache";
+
+    /** The default maximum number of cached templates. */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    /** The instance used outside of an application. */
+    private static final TemplateCache INSTANCE = new TemplateCache();
+
+    /**
+     * Creates a template from a representation.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The parsed template.
+     * @throws ResourceNotFoundException
+     * @throws ParseErrorException
+     */
+    public static Template createTemplate(Representation templateRepresentation)
+            throws ResourceNotFoundException, ParseErrorException {
+        Template result = new Template();
+        CharacterSet charSet = (templateRepresentation.getCharacterSet() != null) ? templateRepresentation
+                .getCharacterSet() : CharacterSet.DEFAULT;
+        result.setEncoding(charSet.getName());
+        Date modificationDate = templateRepresentation.getModificationDate();
+        result.setLastModified((modificationDate == null) ? System
+                .currentTimeMillis() : modificationDate.getTime());
+        result.setName("org.restlet.resource.representation");
+        result.setRuntimeServices(RuntimeSingleton.getRuntimeServices());
+        result.setResourceLoader(new RepresentationResourceLoader(
+                templateRepresentation));
+        result.process();
+        return result;
+    }
+
+    /**
+     * Returns the template cache of the current application, or a global one
+     * if there is no current application.
+     * 
+     * @return The current template cache.
+     */
+    public static TemplateCache getCurrent() {
+        Application application = Application.getCurrent();
+
+        if ((application == null) || (application.getContext() == null)) {
+            return INSTANCE;
+        }
+
+        ConcurrentMap<String, Object> attributes = application.getContext()
+                .getAttributes();
+        TemplateCache result = (TemplateCache) attributes.get(ATTRIBUTE);
+
+        if (result == null) {
+            result = new TemplateCache();
+            TemplateCache current = (TemplateCache) attributes.putIfAbsent(
+                    ATTRIBUTE, result);
+
+            if (current != null) {
+                result = current;
+            }
+        }
+
+        return result;
+    }
+
+    /** The shared Velocity engine. */
+    private final VelocityEngine engine;
+
+    /** Indicates if the engine was initialized. */
+    private volatile boolean engineInitialized;
+
+    /** The templates read from representations, by location reference. */
+    private final Map<String, CachedTemplate> templates;
+
+    /**
+     * Constructor.
+     */
+    public TemplateCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of templates read from representations
+     *            that are cached.
+     */
+    @SuppressWarnings("serial")
+    public TemplateCache(final int maxSize) {
+        this.engine = new VelocityEngine();
+        this.engine.setProperty(RuntimeConstants.FILE_RESOURCE_LOADER_CACHE,
+                "true");
+        this.engine.setProperty(
+                RuntimeConstants.RESOURCE_MANAGER_DEFAULTCACHE_SIZE,
+                Integer.toString(maxSize));
+        this.engineInitialized = false;
+        this.templates = new LinkedHashMap<String, CachedTemplate>(16, 0.75f,
+                true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, CachedTemplate> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Removes all the cached templates read from representations.
+     */
+    public void clear() {
+        synchronized (this.templates) {
+            this.templates.clear();
+        }
+    }
+
+    /**
+     * Returns the shared Velocity engine. Its properties must be set before
+     * the first template is retrieved by name.
+     * 
+     * @return The shared Velocity engine.
+     */
+    public VelocityEngine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Returns the cache key of a template representation.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The cache key or null if the representation can't be cached.
+     */
+    private String getKey(Representation templateRepresentation) {
+        boolean validated = (templateRepresentation.getModificationDate() != null)
+                || (templateRepresentation.getTag() != null);
+
+        if ((templateRepresentation.getLocationRef() == null) || !validated) {
+            return null;
+        }
+
+        return templateRepresentation.getLocationRef().toString();
+    }
+
+    /**
+     * Returns the parsed template of a representation, either from the cache
+     * or by parsing it. When a valid cached template is found, the
+     * representation is released without being read.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The parsed template.
+     * @throws ResourceNotFoundException
+     * @throws ParseErrorException
+     */
+    public Template getTemplate(Representation templateRepresentation)
+            throws ResourceNotFoundException, ParseErrorException {
+        String key = getKey(templateRepresentation);
+        CachedTemplate cached = null;
+
+        if (key != null) {
+            synchronized (this.templates) {
+                cached = this.templates.get(key);
+            }
+        }
+
+        if ((cached != null) && cached.isValid(templateRepresentation)) {
+            templateRepresentation.release();
+            return cached.template;
+        }
+
+        Template result = createTemplate(templateRepresentation);
+
+        if (key != null) {
+            synchronized (this.templates) {
+                this.templates.put(key, new CachedTemplate(result,
+                        templateRepresentation));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a template by name, loaded by the shared engine. The engine is
+     * initialized on the first call.
+     * 
+     * @param templateName
+     *            The template name.
+     * @return The template.
+     * @throws Exception
+     */
+    public Template getTemplate(String templateName) throws Exception {
+        if (!this.engineInitialized) {
+            synchronized (this) {
+                if (!this.engineInitialized) {
+                    this.engine.init();
+                    this.engineInitialized = true;
+                }
+            }
+        }
+
+        return this.engine.getTemplate(templateName);
+    }
+
+}
@@ -26,7 +26,6 @@ package org.restlet.ext.velocity;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
@@ -36,11 +35,9 @@ import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.exception.ParseErrorException;
 import org.apache.velocity.exception.ResourceNotFoundException;
-import org.apache.velocity.runtime.RuntimeSingleton;
 import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
-import org.restlet.data.CharacterSet;
 import org.restlet.data.MediaType;
 import org.restlet.representation.Representation;
 import org.restlet.representation.WriterRepresentation;
@@ -48,7 +45,8 @@ import org.restlet.util.Resolver;
 
 /**
  * Velocity template representation. Useful for dynamic string-based
- * representations.
+ * representations. Templates are parsed and cached by the
+ * {@link TemplateCache} of the current application.
  * 
  * @see <a href="http://velocity.apache.org/">Velocity home page</a>
  * @author Jerome Louvel
@@ -135,12 +133,15 @@ public class TemplateRepresentation extends WriterRepresentation {
     /** The template's data model. */
     private volatile org.apache.velocity.context.Context context;
 
-    /** The Velocity engine. */
+    /** The private Velocity engine, if configured by the user. */
     private volatile VelocityEngine engine;
 
     /** The template. */
     private volatile Template template;
 
+    /** The template cache used to retrieve named templates. */
+    private volatile TemplateCache templateCache;
+
     /** The template name. */
     private volatile String templateName;
 
@@ -162,23 +163,9 @@ public class TemplateRepresentation extends WriterRepresentation {
             throws ResourceNotFoundException, ParseErrorException, IOException {
         super(mediaType);
         setDataModel(dataModel);
-        this.engine = null;
-        this.template = new Template();
-
-        CharacterSet charSet = (templateRepresentation.getCharacterSet() != null) ? templateRepresentation
-                .getCharacterSet() : CharacterSet.DEFAULT;
-        this.template.setEncoding(charSet.getName());
-
-        if (templateRepresentation.getModificationDate() != null) {
-            this.template.setLastModified(templateRepresentation
-                    .getModificationDate().getTime());
-        }
-
-        this.template.setName("org.restlet.resource.representation");
-        this.template.setRuntimeServices(RuntimeSingleton.getRuntimeServices());
-        this.template.setResourceLoader(new RepresentationResourceLoader(
-                templateRepresentation));
-        this.template.process();
+        this.templateCache = null;
+        this.template = TemplateCache.getCurrent().getTemplate(
+                templateRepresentation);
         this.templateName = null;
     }
 
@@ -197,20 +184,9 @@ public class TemplateRepresentation extends WriterRepresentation {
             MediaType mediaType) throws ResourceNotFoundException,
             ParseErrorException, IOException {
         super(mediaType);
-        this.engine = null;
-        this.template = new Template();
-
-        CharacterSet charSet = (templateRepresentation.getCharacterSet() != null) ? templateRepresentation
-                .getCharacterSet() : CharacterSet.DEFAULT;
-        this.template.setEncoding(charSet.getName());
-        this.template.setLastModified((templateRepresentation
-                .getModificationDate() == null) ? new Date().getTime()
-                : templateRepresentation.getModificationDate().getTime());
-        this.template.setName("org.restlet.resource.representation");
-        this.template.setRuntimeServices(RuntimeSingleton.getRuntimeServices());
-        this.template.setResourceLoader(new RepresentationResourceLoader(
-                templateRepresentation));
-        this.template.process();
+        this.templateCache = null;
+        this.template = TemplateCache.getCurrent().getTemplate(
+                templateRepresentation);
         this.templateName = null;
     }
 
@@ -231,7 +207,7 @@ public class TemplateRepresentation extends WriterRepresentation {
 
         try {
             setDataModel(dataModel);
-            this.engine = new VelocityEngine();
+            this.templateCache = TemplateCache.getCurrent();
             this.template = null;
             this.templateName = templateName;
         } catch (Exception e) {
@@ -266,7 +242,7 @@ public class TemplateRepresentation extends WriterRepresentation {
             Map<String, Object> dataModel, MediaType mediaType) {
         super(mediaType);
         setDataModel(dataModel);
-        this.engine = null;
+        this.templateCache = null;
         this.template = template;
         this.templateName = null;
     }
@@ -281,7 +257,7 @@ public class TemplateRepresentation extends WriterRepresentation {
      */
     public TemplateRepresentation(Template template, MediaType mediaType) {
         super(mediaType);
-        this.engine = null;
+        this.templateCache = null;
         this.template = template;
         this.templateName = null;
     }
@@ -296,11 +272,19 @@ public class TemplateRepresentation extends WriterRepresentation {
     }
 
     /**
-     * Returns the Velocity engine.
+     * Returns the Velocity engine used to retrieve the named template, or null
+     * if the template isn't retrieved by name. As the caller may configure
+     * the returned engine, a private engine is created on first call and
+     * initialized when the template is retrieved. Otherwise, the engine
+     * shared by the {@link TemplateCache} of the current application is used.
      * 
      * @return The Velocity engine.
      */
     public VelocityEngine getEngine() {
+        if ((this.engine == null) && (this.templateName != null)) {
+            this.engine = new VelocityEngine();
+        }
+
         return this.engine;
     }
 
@@ -313,8 +297,14 @@ public class TemplateRepresentation extends WriterRepresentation {
         if (this.template == null) {
             if (this.templateName != null) {
                 try {
-                    getEngine().init();
-                    this.template = getEngine().getTemplate(this.templateName);
+                    if (this.engine == null) {
+                        this.template = this.templateCache
+                                .getTemplate(this.templateName);
+                    } else {
+                        this.engine.init();
+                        this.template = this.engine
+                                .getTemplate(this.templateName);
+                    }
                 } catch (Exception e) {
                     final Context context = Context.getCurrent();
 
@@ -29,6 +29,7 @@ import junit.framework.TestSuite;
 
 import org.restlet.test.component.ComponentXmlConfigTestCase;
 import org.restlet.test.component.ComponentXmlTestCase;
+import org.restlet.test.component.VirtualHostTestCase;
 import org.restlet.test.connector.FileClientTestCase;
 import org.restlet.test.connector.RestartTestCase;
 import org.restlet.test.connector.RiapTestCase;
@@ -104,6 +105,7 @@ public class RestletTestSuite extends TestSuite {
         addTestSuite(AuthenticationInfoTestCase.class);
         addTestSuite(CallTestCase.class);
         addTestSuite(ComponentXmlConfigTestCase.class);
+        addTestSuite(VirtualHostTestCase.class);
         addTestSuite(CookieTestCase.class);
         addTestSuite(ClientInfoTestCase.class);
         addTestSuite(FileClientTestCase.class);
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.component;
+
+import org.restlet.Component;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+import org.restlet.engine.component.HostRoute;
+import org.restlet.engine.component.ServerRouter;
+import org.restlet.routing.Route;
+import org.restlet.routing.Router;
+import org.restlet.routing.VirtualHost;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the selection of virtual hosts by the server router.
+ * 
+ * @author Jerome Louvel
+ */
+public class VirtualHostTestCase extends RestletTestCase {
+
+    /** Host route counting the number of times it is scored. */
+    private static class CountingHostRoute extends HostRoute {
+
+        private int scores;
+
+        public CountingHostRoute(Router router, VirtualHost target) {
+            super(router, target);
+        }
+
+        @Override
+        public float score(Request request, Response response) {
+            this.scores++;
+            return super.score(request, response);
+        }
+    }
+
+    private Component component;
+
+    private VirtualHost getHost(ServerRouter router, String hostRef) {
+        Request request = new Request(Method.GET, "http://" + hostRef
+                + "/path");
+        request.setHostRef("http://" + hostRef);
+        Route route = (Route) router.getNext(request, new Response(request));
+        return (route instanceof HostRoute) ? ((HostRoute) route)
+                .getVirtualHost() : null;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.component = new Component();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.component = null;
+        super.tearDown();
+    }
+
+    public void testHostIndex() throws Exception {
+        ServerRouter router = new ServerRouter(component);
+        router.start();
+
+        VirtualHost www = new VirtualHost(component.getContext());
+        www.setHostDomain("www.example.com");
+        VirtualHost api = new VirtualHost(component.getContext());
+        api.setHostDomain("api\\.example\\.com");
+        CountingHostRoute wwwRoute = new CountingHostRoute(router, www);
+        CountingHostRoute apiRoute = new CountingHostRoute(router, api);
+        router.getRoutes().clear();
+        router.getRoutes().add(wwwRoute);
+        router.getRoutes().add(apiRoute);
+
+        try {
+            // Dotted and escaped literal domains are served from the index
+            assertSame(api, getHost(router, "api.example.com"));
+            assertEquals(0, wwwRoute.scores);
+            assertEquals(1, apiRoute.scores);
+
+            assertSame(www, getHost(router, "WWW.example.com"));
+            assertEquals(1, wwwRoute.scores);
+            assertEquals(1, apiRoute.scores);
+
+            assertNull(getHost(router, "unknown.example.com"));
+            assertEquals(1, wwwRoute.scores);
+            assertEquals(1, apiRoute.scores);
+
+            // Dots of literal host domains only match dots
+            assertNull(getHost(router, "wwwXexample.com"));
+        } finally {
+            router.stop();
+        }
+    }
+
+    public void testHostSelection() throws Exception {
+        VirtualHost www = new VirtualHost(component.getContext());
+        www.setHostDomain("www.example.com");
+        VirtualHost api = new VirtualHost(component.getContext());
+        api.setHostDomain("api\\..*");
+        VirtualHost other = new VirtualHost(component.getContext());
+        other.setHostDomain("other.example.com");
+        other.setHostPort("8182");
+        component.getHosts().add(www);
+        component.getHosts().add(api);
+        component.getHosts().add(other);
+
+        ServerRouter router = new ServerRouter(component);
+        router.start();
+
+        try {
+            assertSame(www, getHost(router, "www.example.com"));
+            assertSame(www, getHost(router, "WWW.Example.COM"));
+            assertSame(api, getHost(router, "api.example.com"));
+            assertSame(other, getHost(router, "other.example.com:8182"));
+            assertSame(component.getDefaultHost(),
+                    getHost(router, "other.example.com:8183"));
+            assertSame(component.getDefaultHost(),
+                    getHost(router, "unknown.example.com"));
+
+            // Changing a criterion is taken into account
+            www.setHostDomain("www.example.org");
+            assertSame(component.getDefaultHost(),
+                    getHost(router, "www.example.com"));
+            assertSame(www, getHost(router, "www.example.org"));
+
+            www.setHostDomain("(www|web)\\.example\\.org");
+            assertSame(www, getHost(router, "web.example.org"));
+        } finally {
+            router.stop();
+        }
+    }
+
+    public void testHostSelectionOrder() throws Exception {
+        VirtualHost any = new VirtualHost(component.getContext());
+        any.setHostDomain(".*\\.example\\.com");
+        VirtualHost www = new VirtualHost(component.getContext());
+        www.setHostDomain("www.example.com");
+        component.getHosts().add(any);
+        component.getHosts().add(www);
+
+        ServerRouter router = new ServerRouter(component);
+        router.start();
+
+        try {
+            // The first matching host wins, even when it isn't a literal one
+            assertSame(any, getHost(router, "www.example.com"));
+            assertSame(any, getHost(router, "api.example.com"));
+
+            component.getHosts().remove(any);
+            router.getRoutes().remove(0);
+            assertSame(www, getHost(router, "www.example.com"));
+            assertSame(component.getDefaultHost(),
+                    getHost(router, "api.example.com"));
+        } finally {
+            router.stop();
+        }
+    }
+
+}
@@ -82,6 +82,54 @@ public class ReferenceTestCase extends RestletTestCase {
         assertEquals("http://restlet.org/root/dir?abc=123&def", ref.toString());
     }
 
+    /**
+     * Tests that the cached components follow the modifications.
+     */
+    public void testComponentsCache() {
+        Reference ref = new Reference(
+                "http://user@www.restlet.org:8182/a/b%20c/d?x=1&y=%3D#frag");
+        assertSame(ref.getPath(), ref.getPath());
+        assertSame(ref.getAuthority(), ref.getAuthority());
+        assertEquals("/a/b%20c/d", ref.getPath());
+        assertEquals("www.restlet.org", ref.getHostDomain());
+        assertEquals(8182, ref.getHostPort());
+        assertEquals("x=1&y=%3D", ref.getQuery());
+        assertEquals("[a, b%20c, d]", ref.getSegments().toString());
+        assertEquals("[a, b c, d]", ref.getSegments(true).toString());
+
+        // The returned views are copies
+        ref.getSegments().add("e");
+        ref.getSegments(true).clear();
+        assertEquals(3, ref.getSegments().size());
+        Form form = ref.getQueryAsForm();
+        assertEquals("=", form.getFirstValue("y"));
+        form.getFirst("x").setValue("2");
+        form.add("z", "3");
+        assertEquals("1", ref.getQueryAsForm().getFirstValue("x"));
+        assertEquals(2, ref.getQueryAsForm().size());
+
+        // Modifications invalidate the components
+        Reference clone = ref.clone();
+        ref.setPath("/e");
+        ref.setQuery("z=3");
+        ref.setHostDomain("restlet.com");
+        ref.setHostPort(8183);
+        assertEquals("/e", ref.getPath());
+        assertEquals("restlet.com", ref.getHostDomain());
+        assertEquals(8183, ref.getHostPort());
+        assertEquals("[e]", ref.getSegments().toString());
+        assertEquals("3", ref.getQueryAsForm().getFirstValue("z"));
+        assertNull(ref.getQueryAsForm().getFirst("x"));
+        assertEquals("/a/b%20c/d", clone.getPath());
+        assertEquals("www.restlet.org", clone.getHostDomain());
+
+        ref.setIdentifier("/relative/path");
+        assertNull(ref.getAuthority());
+        assertNull(ref.getScheme());
+        assertEquals("/relative/path", ref.getRelativePart());
+        assertEquals(-1, ref.getHostPort());
+    }
+
     public void testEmptyRef() {
         Reference reference = new Reference();
         reference.setAuthority("testAuthority"); // must not produce NPE
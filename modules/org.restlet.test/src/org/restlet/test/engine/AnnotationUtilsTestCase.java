@@ -24,15 +24,20 @@
 
 package org.restlet.test.engine;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
 import org.junit.Assert;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.engine.resource.AnnotationInfo;
 import org.restlet.engine.resource.AnnotationUtils;
 import org.restlet.engine.resource.MethodAnnotationInfo;
+import org.restlet.engine.resource.VariantInfo;
 import org.restlet.resource.Get;
 import org.restlet.resource.Put;
+import org.restlet.service.ConverterService;
+import org.restlet.service.MetadataService;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -42,6 +47,25 @@ import org.restlet.test.RestletTestCase;
  */
 public class AnnotationUtilsTestCase extends RestletTestCase {
 
+    public static class CounterResource implements ICounter {
+
+        public long add(long value) {
+            if (value < 0) {
+                throw new ClassCastException("Negative value");
+            }
+
+            return value + 1;
+        }
+
+    }
+
+    public static interface ICounter {
+
+        @Put
+        long add(long value);
+
+    }
+
     public static interface IChild extends IParent<Integer, String> {
 
     }
@@ -56,6 +80,87 @@ public class AnnotationUtilsTestCase extends RestletTestCase {
 
     }
 
+    public static interface IText {
+
+        @Get
+        String represent();
+
+    }
+
+    public static class TextResource implements IText {
+
+        public String represent() {
+            return "text";
+        }
+
+    }
+
+    public void testInvoke() throws Exception {
+        MethodAnnotationInfo mai = (MethodAnnotationInfo) AnnotationUtils
+                .getInstance().getAnnotations(ICounter.class).get(0);
+        CounterResource resource = new CounterResource();
+        Assert.assertEquals(2L, mai.invoke(resource, 1L));
+
+        // Arguments are converted as by reflection
+        Assert.assertEquals(2L, mai.invoke(resource, Integer.valueOf(1)));
+
+        // Mismatching arguments aren't taken for exceptions of the method
+        for (Object argument : new Object[] { "1", null }) {
+            try {
+                mai.invoke(resource, argument);
+                Assert.fail("The argument should be rejected: " + argument);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+
+        try {
+            mai.invoke(resource, -1L);
+            Assert.fail("The method should throw an exception");
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue(e.getTargetException() instanceof ClassCastException);
+        }
+    }
+
+    public void testGetResponseVariants() throws Exception {
+        MetadataService metadataService = new MetadataService();
+        ConverterService converterService = new ConverterService();
+        List<VariantInfo> variants = AnnotationUtils.getInstance()
+                .getResponseVariants(IText.class, Method.GET, false, null,
+                        metadataService, converterService);
+        MethodAnnotationInfo mai = variants.get(0).getAnnotationInfo();
+        Assert.assertEquals(
+                mai.getResponseVariants(metadataService, converterService)
+                        .size(), variants.size());
+        Assert.assertEquals(0.5f, variants.get(0).getInputScore(), 0f);
+
+        // The dispatch table is reused
+        Assert.assertSame(variants, AnnotationUtils.getInstance()
+                .getResponseVariants(IText.class, Method.GET, false, null,
+                        metadataService, converterService));
+        Assert.assertTrue(AnnotationUtils
+                .getInstance()
+                .getResponseVariants(IText.class, Method.POST, false, null,
+                        metadataService, converterService).isEmpty());
+
+        // Media type parameters such as multipart boundaries share an entry
+        List<VariantInfo> multipart = AnnotationUtils.getInstance()
+                .getResponseVariants(IText.class, Method.GET, true,
+                        MediaType.valueOf("multipart/form-data; boundary=a"),
+                        metadataService, converterService);
+        Assert.assertSame(multipart, AnnotationUtils.getInstance()
+                .getResponseVariants(IText.class, Method.GET, true,
+                        MediaType.valueOf("multipart/form-data; boundary=b"),
+                        metadataService, converterService));
+        Assert.assertNotSame(multipart, AnnotationUtils.getInstance()
+                .getResponseVariants(IText.class, Method.GET, true,
+                        MediaType.MULTIPART_FORM_DATA, metadataService,
+                        converterService));
+
+        // The annotated method is invoked without reflection
+        Assert.assertEquals("text", mai.invoke(new TextResource()));
+    }
+
     public void testGetAnnotationsWithGenericParameterType() {
         List<AnnotationInfo> infos = AnnotationUtils.getInstance()
                 .getAnnotations(IChild.class);
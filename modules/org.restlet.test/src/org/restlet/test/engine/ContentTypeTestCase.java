@@ -24,6 +24,8 @@
 
 package org.restlet.test.engine;
 
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
 import org.restlet.engine.header.ContentType;
 import org.restlet.test.RestletTestCase;
 
@@ -61,4 +63,31 @@ public class ContentTypeTestCase extends RestletTestCase {
                 .getFirstValue("version"));
     }
 
+    public void testCache() {
+        String h = "application/json; charset=UTF-8";
+        ContentType ct1 = new ContentType(h);
+        ContentType ct2 = new ContentType(h);
+
+        // Parsed metadata is shared between identical headers
+        assertSame(ct1.getMediaType(), ct2.getMediaType());
+        assertSame(ct1.getCharacterSet(), ct2.getCharacterSet());
+        assertEquals(MediaType.APPLICATION_JSON, ct1.getMediaType());
+        assertEquals(CharacterSet.UTF_8, ct1.getCharacterSet());
+
+        // And between distinct headers with the same media type
+        assertSame(ct1.getMediaType(),
+                ContentType.readMediaType("application/json;charset=utf-16"));
+    }
+
+    public void testCacheBoundary() {
+        String h = "multipart/form-data; boundary=----1234";
+        ContentType ct1 = new ContentType(h);
+        ContentType ct2 = new ContentType(h);
+
+        // Boundaries are unique to a message, so they aren't cached
+        assertNotSame(ct1.getMediaType(), ct2.getMediaType());
+        assertEquals(ct1.getMediaType(), ct2.getMediaType());
+        assertEquals("----1234",
+                ct1.getMediaType().getParameters().getFirstValue("boundary"));
+    }
 }
@@ -24,9 +24,14 @@
 
 package org.restlet.test.engine;
 
+import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
 
 import org.restlet.engine.util.DateUtils;
+import org.restlet.engine.util.HttpDateUtils;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -78,6 +83,39 @@ public class DateTestCase extends RestletTestCase {
         assertEquals(DATE_RFC1123_1, dateFormat1);
     }
 
+    /**
+     * Tests the dedicated RFC 1123 scanner against the regular date format.
+     */
+    public void testRfc1123Scanner() throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat(
+                DateUtils.FORMAT_RFC_1123.get(0), Locale.US);
+        sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Random random = new Random(1123);
+
+        for (int i = 0; i < 10000; i++) {
+            Date date = new Date((random.nextLong() >>> 1) % 253402300800000L);
+            String expected = sdf.format(date);
+            assertEquals(expected, HttpDateUtils.format(date));
+            assertEquals(sdf.parse(expected), HttpDateUtils.parse(expected));
+        }
+
+        assertEquals(sdf.format(new Date(0)), HttpDateUtils.format(0));
+        assertNull(HttpDateUtils.format(-1000));
+        assertNull(HttpDateUtils.parse("Fri, 31 Feb 1985 23:20:50 GMT"));
+        assertNull(HttpDateUtils.parse("Fri, 12 Apr 1985 23:20:50 PST"));
+        assertNull(HttpDateUtils.parse(DATE_RFC1036_1));
+
+        // Values handled leniently by the regular formats
+        assertEquals(sdf.parse("Fri, 31 Feb 1985 23:20:50 GMT"),
+                DateUtils.parse("Fri, 31 Feb 1985 23:20:50 GMT"));
+        assertEquals(sdf.parse("fri, 12 apr 1985 23:20:50 GMT"),
+                DateUtils.parse("fri, 12 apr 1985 23:20:50 GMT"));
+
+        Date now = new Date();
+        assertEquals(sdf.format(now), DateUtils.format(now));
+        assertEquals(sdf.format(now), DateUtils.format(now));
+    }
+
     /**
      * Tests for dates in the RFC 1036 format.
      */
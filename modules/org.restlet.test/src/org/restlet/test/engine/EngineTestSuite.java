@@ -27,6 +27,7 @@ package org.restlet.test.engine;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.restlet.test.engine.connector.ClientRegistryTestCase;
 import org.restlet.test.engine.connector.ConnectorsTestSuite;
 import org.restlet.test.engine.connector.HttpInboundRequestTestCase;
 import org.restlet.test.engine.io.BioUtilsTestCase;
@@ -58,8 +59,11 @@ public class EngineTestSuite extends TestSuite {
         addTestSuite(Base64TestCase.class);
         addTestSuite(BufferTestCase.class);
         addTestSuite(BioUtilsTestCase.class);
+        addTestSuite(ClientRegistryTestCase.class);
         addTestSuite(CookiesTestCase.class);
         addTestSuite(ContentTypeTestCase.class);
+        addTestSuite(HeadParserTestCase.class);
+        addTestSuite(HeadWriterTestCase.class);
         addTestSuite(HeaderTestCase.class);
         addTestSuite(HttpCallTestCase.class);
         addTestSuite(HttpInboundRequestTestCase.class);
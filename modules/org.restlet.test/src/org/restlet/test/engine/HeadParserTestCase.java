@@ -0,0 +1,150 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.restlet.data.Header;
+import org.restlet.engine.header.HeadParser;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.util.StringUtils;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link HeadParser} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class HeadParserTestCase extends RestletTestCase {
+
+    private static final String HEAD = "\r\nGET /path?q=1 HTTP/1.1\r\n"
+            + "Host: localhost:8182\r\n" + "content-length:  12\r\n"
+            + "X-Custom: a b\r\n" + "Empty:\r\n" + "\r\n";
+
+    /**
+     * Tests that a head split into small buffers is parsed incrementally and
+     * that the bytes following the head are left in the buffer.
+     */
+    public void testByteBuffer() throws IOException {
+        byte[] bytes = StringUtils.getLatin1Bytes(HEAD + "body");
+        HeadParser parser = new HeadParser();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+        int events = 0;
+        int event = HeadParser.UNDERFLOW;
+
+        // Feed the parser three bytes at a time
+        for (int i = 0; (event != HeadParser.END) && (i < bytes.length); i += 3) {
+            buffer.put(bytes, i, Math.min(3, bytes.length - i));
+            buffer.flip();
+            event = parser.parse(buffer);
+
+            while (event != HeadParser.UNDERFLOW) {
+                events++;
+
+                if (event == HeadParser.START_LINE) {
+                    assertEquals("GET /path?q=1 HTTP/1.1",
+                            parser.getStartLine());
+                } else if (event == HeadParser.HEADER) {
+                    assertNotNull(parser.getHeader().getValue());
+                } else {
+                    break;
+                }
+
+                event = parser.parse(buffer);
+            }
+
+            buffer.compact();
+        }
+
+        assertEquals(HeadParser.END, event);
+        assertEquals(6, events);
+        buffer.flip();
+        assertEquals('b', buffer.get());
+    }
+
+    /**
+     * Tests the invalid line endings.
+     */
+    public void testInvalidLineEnding() throws IOException {
+        HeadParser parser = new HeadParser();
+        InputStream is = new ByteArrayInputStream(
+                StringUtils.getLatin1Bytes("GET / HTTP/1.1\r\nHost: a\rb"));
+        assertEquals(HeadParser.START_LINE, parser.parse(is));
+
+        try {
+            parser.parse(is);
+            fail("The line feed is missing");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Tests the parsing of a head read from a stream.
+     */
+    public void testStream() throws IOException {
+        HeadParser parser = new HeadParser();
+        InputStream is = new ByteArrayInputStream(
+                StringUtils.getLatin1Bytes(HEAD + HEAD));
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(HeadParser.START_LINE, parser.parse(is));
+            assertEquals("GET", parser.getStartToken(0));
+            assertEquals("/path?q=1", parser.getStartToken(1));
+            assertEquals("HTTP/1.1", parser.getStartToken(2));
+
+            assertEquals(HeadParser.HEADER, parser.parse(is));
+            Header host = parser.getHeader();
+            assertSame(HeaderConstants.HEADER_HOST, host.getName());
+
+            assertEquals(HeadParser.HEADER, parser.parse(is));
+            Header contentLength = parser.getHeader();
+            assertEquals("content-length", contentLength.getName());
+            assertSame(contentLength.getName(),
+                    contentLength.getName().intern());
+
+            assertEquals(HeadParser.HEADER, parser.parse(is));
+            Header custom = parser.getHeader();
+            assertEquals("X-Custom", custom.getName());
+
+            assertEquals(HeadParser.HEADER, parser.parse(is));
+            Header empty = parser.getHeader();
+            assertEquals(HeadParser.END, parser.parse(is));
+
+            // Values are decoded after the head was fully parsed
+            assertEquals("localhost:8182", host.getValue());
+            assertEquals("12", contentLength.getValue());
+            assertEquals("a b", custom.getValue());
+            assertEquals("", empty.getValue());
+
+            custom.setValue("c");
+            assertEquals("c", custom.getValue());
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.restlet.data.Header;
+import org.restlet.data.MediaType;
+import org.restlet.engine.header.HeadWriter;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.HeaderUtils;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link HeadWriter} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class HeadWriterTestCase extends RestletTestCase {
+
+    /**
+     * Writes a response head and returns it as a string.
+     */
+    private static String writeHead(HeadWriter writer, int code,
+            String reasonPhrase) throws IOException {
+        writer.writeStatusLine("HTTP/1.1", code, reasonPhrase);
+        writer.writeHeader(HeaderConstants.HEADER_CONTENT_TYPE,
+                MediaType.APPLICATION_JSON.getName());
+        writer.writeHeader(new Header("X-Custom", "caf\u00e9"));
+        writer.writeHeader("X-Empty", null);
+        writer.writeEnd();
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writer.writeTo(os);
+        return os.toString("ISO-8859-1");
+    }
+
+    /**
+     * Tests the copy of a head into small byte buffers.
+     */
+    public void testByteBuffer() throws IOException {
+        HeadWriter writer = new HeadWriter(8);
+        writer.writeStatusLine("HTTP/1.1", 204, "No Content");
+        writer.writeEnd();
+
+        ByteBuffer buffer = ByteBuffer.allocate(5);
+        StringBuilder sb = new StringBuilder();
+
+        while (writer.hasRemaining()) {
+            buffer.clear();
+            writer.writeTo(buffer);
+            buffer.flip();
+
+            while (buffer.hasRemaining()) {
+                sb.append((char) buffer.get());
+            }
+        }
+
+        assertEquals("HTTP/1.1 204 No Content\r\n\r\n", sb.toString());
+        assertEquals(0, writer.remaining());
+    }
+
+    /**
+     * Tests the status lines and header lines.
+     */
+    public void testHead() throws IOException {
+        HeadWriter writer = new HeadWriter();
+        String expectedHeaders = "Content-Type: application/json\r\n"
+                + "X-Custom: caf\u00e9\r\n" + "X-Empty: \r\n\r\n";
+
+        assertEquals("HTTP/1.1 200 OK\r\n" + expectedHeaders,
+                writeHead(writer, 200, "OK"));
+
+        // The writer is reused after having been cleared
+        assertEquals("HTTP/1.1 200 Fine\r\n" + expectedHeaders,
+                writeHead(writer, 200, "Fine"));
+        assertEquals("HTTP/1.1 299 Status 299\r\n" + expectedHeaders,
+                writeHead(writer, 299, null));
+        assertEquals("HTTP/1.1 999 Custom\r\n" + expectedHeaders,
+                writeHead(writer, 999, "Custom"));
+    }
+
+    /**
+     * Tests the header lines written directly to a stream.
+     */
+    public void testHeaderLine() throws IOException {
+        Header[] headers = {
+                new Header(HeaderConstants.HEADER_CONTENT_TYPE,
+                        MediaType.APPLICATION_JSON.getName()),
+                new Header("X-Custom", "caf\u00e9"),
+                new Header("X-\u00c9t\u00e9", "x"),
+                new Header("X-Empty", null) };
+        HeadWriter writer = new HeadWriter(8);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        for (Header header : headers) {
+            writer.writeHeader(header);
+            HeaderUtils.writeHeaderLine(header, os);
+        }
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        writer.writeTo(expected);
+        assertEquals(expected.toString("ISO-8859-1"),
+                os.toString("ISO-8859-1"));
+        assertTrue(writer.capacity() > 8);
+    }
+
+}
@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.restlet.data.ClientInfo;
 import org.restlet.data.MediaType;
 import org.restlet.data.Preference;
 import org.restlet.engine.header.PreferenceReader;
@@ -40,6 +41,43 @@ import org.restlet.test.RestletTestCase;
  * @author Jerome Louvel
  */
 public class PreferencesTestCase extends RestletTestCase {
+    /**
+     * Tests that identical preference headers share their parsed metadata but
+     * not their preferences.
+     */
+    public void testCache() {
+        String header = "text/html;level=1, application/x-custom;q=0.8";
+        ClientInfo ci1 = new ClientInfo();
+        ClientInfo ci2 = new ClientInfo();
+        PreferenceReader.addMediaTypes(header, ci1);
+        PreferenceReader.addMediaTypes(header, ci2);
+
+        List<Preference<MediaType>> prefs1 = ci1.getAcceptedMediaTypes();
+        List<Preference<MediaType>> prefs2 = ci2.getAcceptedMediaTypes();
+        assertEquals(2, prefs1.size());
+        assertEquals(2, prefs2.size());
+        assertEquals(PreferenceWriter.write(prefs1),
+                PreferenceWriter.write(prefs2));
+
+        for (int i = 0; i < prefs1.size(); i++) {
+            assertNotSame(prefs1.get(i), prefs2.get(i));
+            assertSame(prefs1.get(i).getMetadata(), prefs2.get(i)
+                    .getMetadata());
+            assertEquals(prefs1.get(i).getQuality(), prefs2.get(i)
+                    .getQuality());
+        }
+
+        assertEquals("1", prefs2.get(0).getMetadata().getParameters()
+                .getFirstValue("level"));
+        assertEquals(0.8F, prefs2.get(1).getQuality());
+
+        // Updating a preference doesn't affect the cached ones
+        prefs1.get(1).setQuality(0.1F);
+        ClientInfo ci3 = new ClientInfo();
+        PreferenceReader.addMediaTypes(header, ci3);
+        assertEquals(0.8F, ci3.getAcceptedMediaTypes().get(1).getQuality());
+    }
+
     /**
      * Tests the parsing of a single preference header.
      * 
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.ext.nio.HttpClientHelper;
+import org.restlet.ext.nio.internal.connection.Connection;
+import org.restlet.ext.nio.internal.connection.HostConnections;
+import org.restlet.ext.nio.internal.state.ConnectionState;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit test for the host connections and the socket address cache of the NIO
+ * client connector.
+ * 
+ * @author Jerome Louvel
+ */
+public class ClientConnectionHelperTestCase extends RestletTestCase {
+
+    private static class TestClientHelper extends HttpClientHelper {
+
+        public TestClientHelper(Client client) {
+            super(client);
+        }
+
+        @Override
+        public Connection<Client> getBestConnection(Request request)
+                throws IOException {
+            return super.getBestConnection(request);
+        }
+
+        @Override
+        public HostConnections<Client> getHostConnections(
+                InetSocketAddress socketAddress) {
+            return super.getHostConnections(socketAddress);
+        }
+
+        @Override
+        public InetSocketAddress getSocketAddress(String hostDomain,
+                int hostPort) throws UnknownHostException {
+            return super.getSocketAddress(hostDomain, hostPort);
+        }
+    }
+
+    private static Connection<Client> createConnection(
+            TestClientHelper helper, InetSocketAddress address)
+            throws IOException {
+        Connection<Client> result = helper.createConnection(null, null,
+                address);
+        result.setState(ConnectionState.OPEN);
+        helper.getConnections().add(result);
+        helper.getHostConnections(address).add(result);
+        return result;
+    }
+
+    private static TestClientHelper createHelper(String cacheTimeMs) {
+        Client client = new Client(new Context(), Protocol.HTTP);
+
+        if (cacheTimeMs != null) {
+            client.getContext().getParameters()
+                    .add("socketAddressCacheTimeMs", cacheTimeMs);
+        }
+
+        return new TestClientHelper(client);
+    }
+
+    public void testHostConnections() throws Exception {
+        TestClientHelper helper = createHelper(null);
+        InetSocketAddress address = helper.getSocketAddress("localhost", 8182);
+        HostConnections<Client> host = helper.getHostConnections(address);
+
+        assertSame(host, helper.getHostConnections(new InetSocketAddress(
+                address.getAddress(), 8182)));
+        assertNotSame(host, helper.getHostConnections(new InetSocketAddress(
+                address.getAddress(), 8183)));
+        assertTrue(host.isEmpty());
+        assertNull(host.checkout());
+    }
+
+    public void testCheckout() throws Exception {
+        TestClientHelper helper = createHelper(null);
+        InetSocketAddress address = helper.getSocketAddress("localhost", 8182);
+        HostConnections<Client> host = helper.getHostConnections(address);
+        Connection<Client> conn1 = createConnection(helper, address);
+        Connection<Client> conn2 = createConnection(helper, address);
+        Connection<Client> conn3 = createConnection(helper, address);
+
+        // The most recently released connections are checked out first
+        host.release(conn1);
+        host.release(conn2);
+        host.release(conn3);
+        assertSame(conn3, host.checkout());
+        assertSame(conn2, host.checkout());
+        assertSame(conn1, host.checkout());
+        assertNull(host.checkout());
+
+        // A connection released several times is only checked out once
+        host.release(conn1);
+        host.release(conn1);
+        assertSame(conn1, host.checkout());
+        assertNull(host.checkout());
+
+        // Closed, busy or re-targeted connections are skipped
+        host.release(conn1);
+        host.release(conn2);
+        host.release(conn3);
+        conn3.setState(ConnectionState.CLOSED);
+        conn2.reuse(null, null, new InetSocketAddress(address.getAddress(),
+                8183));
+        conn2.setState(ConnectionState.OPEN);
+        assertSame(conn1, host.checkout());
+        host.release(conn1);
+        conn1.setPersistent(false);
+        assertNull(host.checkout());
+
+        // The best connection is the last released one
+        conn1.setPersistent(true);
+        host.release(conn1);
+        Request request = new Request(Method.GET, "http://localhost:8182/");
+        assertSame(conn1, helper.getBestConnection(request));
+    }
+
+    public void testMaxConnectionsPerHost() throws Exception {
+        TestClientHelper helper = createHelper(null);
+        helper.getHelpedParameters().add("maxConnectionsPerHost", "2");
+        InetSocketAddress address = helper.getSocketAddress("localhost", 8182);
+        Connection<Client> conn1 = createConnection(helper, address);
+        Connection<Client> conn2 = createConnection(helper, address);
+
+        // Busy connections count for the host, so no new one is created
+        conn1.setPersistent(false);
+        conn2.setPersistent(false);
+        Request request = new Request(Method.GET, "http://localhost:8182/");
+        Connection<Client> best = helper.getBestConnection(request);
+        assertTrue((best == conn1) || (best == conn2));
+        assertEquals(2, helper.getConnections().size());
+    }
+
+    public void testRemoveConnection() throws Exception {
+        TestClientHelper helper = createHelper(null);
+        InetSocketAddress address = helper.getSocketAddress("localhost", 8182);
+        HostConnections<Client> host = helper.getHostConnections(address);
+        Connection<Client> conn1 = createConnection(helper, address);
+        Connection<Client> conn2 = createConnection(helper, address);
+        host.release(conn1);
+        host.release(conn2);
+
+        // A removed connection is no longer checked out
+        helper.removeConnection(conn2);
+        assertSame(host, helper.getHostConnections(address));
+        assertFalse(host.isEmpty());
+        assertSame(conn1, host.checkout());
+        assertNull(host.checkout());
+
+        // The host is retired and removed with its last connection
+        helper.removeConnection(conn1);
+        assertTrue(host.isEmpty());
+        assertTrue(host.isRetired());
+        HostConnections<Client> newHost = helper.getHostConnections(address);
+        assertNotSame(host, newHost);
+
+        // A connection can't be orphaned in a retired host
+        Connection<Client> conn3 = helper.createConnection(null, null,
+                address);
+        assertFalse(host.add(conn3));
+        assertTrue(host.isEmpty());
+        assertTrue(newHost.add(conn3));
+        assertFalse(newHost.retireIfEmpty());
+        assertSame(newHost, helper.getHostConnections(address));
+    }
+
+    public void testSocketAddressCache() throws Exception {
+        TestClientHelper helper = createHelper(null);
+        InetSocketAddress address = helper.getSocketAddress("localhost", 8182);
+        assertNotNull(address.getAddress());
+        assertEquals(8182, address.getPort());
+        assertSame(address, helper.getSocketAddress("localhost", 8182));
+        assertNotSame(address, helper.getSocketAddress("localhost", 8183));
+
+        helper = createHelper("0");
+        address = helper.getSocketAddress("localhost", 8182);
+        InetSocketAddress address2 = helper.getSocketAddress("localhost", 8182);
+        assertNotSame(address, address2);
+        assertEquals(address, address2);
+    }
+
+    public void testUnknownHost() throws Exception {
+        TestClientHelper helper = createHelper(null);
+
+        try {
+            helper.getSocketAddress("unknown.invalid", 80);
+            fail("The host should not be resolved");
+        } catch (UnknownHostException e) {
+            // Expected
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.connector;
+
+import org.restlet.Client;
+import org.restlet.data.Parameter;
+import org.restlet.data.Protocol;
+import org.restlet.engine.connector.ClientRegistry;
+import org.restlet.engine.util.TemplateDispatcher;
+import org.restlet.resource.ClientResource;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.Series;
+
+/**
+ * Unit tests for the shared client connectors registry.
+ * 
+ * @author Jerome Louvel
+ */
+public class ClientRegistryTestCase extends RestletTestCase {
+
+    public void testClientResource() throws Exception {
+        ClientResource cr1 = new ClientResource("http://localhost:8182/a");
+        ClientResource cr2 = new ClientResource("http://localhost:8182/b");
+        Client client = (Client) ((TemplateDispatcher) cr1.getNext())
+                .getNext();
+        assertSame(client,
+                ((TemplateDispatcher) cr2.getNext()).getNext());
+
+        ClientRegistry registry = ClientRegistry.getInstance();
+        int leases = registry.getLeases(client);
+        assertTrue(leases >= 2);
+
+        cr1.release();
+        assertEquals(leases - 1, registry.getLeases(client));
+        cr2.release();
+        assertEquals(leases - 2, registry.getLeases(client));
+    }
+
+    public void testIdleTimeout() throws Exception {
+        ClientRegistry registry = new ClientRegistry(100);
+        Client client = registry.acquire(Protocol.HTTP);
+        client.start();
+        assertTrue(registry.release(client));
+
+        // Leased again before the idle timeout
+        assertSame(client, registry.acquire(Protocol.HTTP));
+        Thread.sleep(300);
+        assertTrue(client.isStarted());
+
+        assertTrue(registry.release(client));
+        Thread.sleep(300);
+        assertTrue(client.isStopped());
+        assertEquals(0, registry.getLeases(client));
+        assertFalse(registry.release(client));
+        assertNotSame(client, registry.acquire(Protocol.HTTP));
+    }
+
+    public void testLeases() throws Exception {
+        ClientRegistry registry = new ClientRegistry(0);
+        Client http1 = registry.acquire(Protocol.HTTP);
+        Client http2 = registry.acquire(Protocol.HTTP);
+        Client https = registry.acquire(Protocol.HTTPS);
+        assertSame(http1, http2);
+        assertNotSame(http1, https);
+        assertEquals(2, registry.getLeases(http1));
+
+        Series<Parameter> parameters = new Series<Parameter>(Parameter.class);
+        parameters.add("socketTimeout", "1000");
+        Client http3 = registry.acquire(Protocol.HTTP, parameters);
+        assertNotSame(http1, http3);
+        assertEquals("1000", http3.getContext().getParameters()
+                .getFirstValue("socketTimeout"));
+        assertSame(http3, registry.acquire(Protocol.HTTP, parameters));
+
+        http1.start();
+        assertTrue(registry.release(http1));
+        assertTrue(http1.isStarted());
+        assertTrue(registry.release(http2));
+        assertTrue(http1.isStopped());
+        assertFalse(registry.release(http1));
+        assertFalse(registry.release(new Client(Protocol.HTTP)));
+    }
+
+}
@@ -51,11 +51,14 @@ public class ConnectorsTestSuite extends TestSuite {
         // addTestSuite(AsynchroneTestCase.class);
         addTestSuite(ChunkedEncodingPutTestCase.class);
         addTestSuite(ChunkedEncodingTestCase.class);
+        addTestSuite(ClientConnectionHelperTestCase.class);
+        addTestSuite(FileTransferTestCase.class);
         addTestSuite(GetTestCase.class);
         addTestSuite(GetChunkedTestCase.class);
         addTestSuite(GetQueryParamTestCase.class);
         addTestSuite(PostPutTestCase.class);
         addTestSuite(RemoteClientAddressTestCase.class);
+        addTestSuite(SelectorControllerTestCase.class);
         addTestSuite(SslClientContextGetTestCase.class);
         addTestSuite(SslGetTestCase.class);
         // [enddef]
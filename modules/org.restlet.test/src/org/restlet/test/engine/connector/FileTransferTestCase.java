@@ -0,0 +1,171 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import org.restlet.Application;
+import org.restlet.Client;
+import org.restlet.Component;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Range;
+import org.restlet.data.Status;
+import org.restlet.engine.Engine;
+import org.restlet.engine.connector.ConnectorHelper;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test that file entities and ranges of files are fully sent by the NIO and
+ * Jetty server connectors, which send them straight from the file channel.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileTransferTestCase extends RestletTestCase {
+
+    /** The content of the file, larger than the socket buffers. */
+    private byte[] content;
+
+    private Component component;
+
+    private File file;
+
+    private String uri;
+
+    /**
+     * Checks that the file and a range of the file are fully sent.
+     */
+    private void check() throws Exception {
+        Response response = get(null);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(new String(this.content, "ISO-8859-1"), response
+                .getEntity().getText());
+
+        response = get(new Range(1000, 300000));
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals(new String(this.content, 1000, 300000, "ISO-8859-1"),
+                response.getEntity().getText());
+    }
+
+    private Response get(Range range) throws Exception {
+        Request request = new Request(Method.GET, this.uri);
+
+        if (range != null) {
+            request.setRanges(Arrays.asList(range));
+        }
+
+        Client client = new Client(Protocol.HTTP);
+        client.start();
+
+        try {
+            Response response = client.handle(request);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            response.getEntity().write(baos);
+            response.setEntity(baos.toString("ISO-8859-1"),
+                    MediaType.TEXT_PLAIN);
+            return response;
+        } finally {
+            client.stop();
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.content = new byte[1024 * 1024];
+
+        for (int i = 0; i < this.content.length; i++) {
+            this.content[i] = (byte) ('a' + (i % 26));
+        }
+
+        this.file = File.createTempFile("transfer", ".txt");
+        FileOutputStream fos = new FileOutputStream(this.file);
+        fos.write(this.content);
+        fos.close();
+    }
+
+    /**
+     * Starts a component serving the file with the given server connector.
+     * 
+     * @param helper
+     *            The server connector helper.
+     */
+    private void start(ConnectorHelper<Server> helper) throws Exception {
+        Engine engine = Engine.register(false);
+        engine.getRegisteredServers().add(helper);
+        engine.getRegisteredClients().add(
+                new org.restlet.engine.connector.HttpClientHelper(null));
+
+        this.component = new Component();
+        Server server = this.component.getServers().add(Protocol.HTTP, 0);
+        this.component.getDefaultHost().attach(new Application() {
+            @Override
+            public Restlet createInboundRoot() {
+                return new Restlet(getContext()) {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        response.setEntity(new FileRepresentation(file,
+                                MediaType.TEXT_PLAIN));
+                    }
+                };
+            }
+        });
+        this.component.start();
+        this.uri = "http://localhost:" + server.getEphemeralPort() + "/test";
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.component != null) {
+            this.component.stop();
+        }
+
+        this.file.delete();
+        super.tearDown();
+
+        // Restore a clean engine
+        Engine.register();
+    }
+
+    public void testJetty() throws Exception {
+        start(new org.restlet.ext.jetty.HttpServerHelper(null));
+        check();
+    }
+
+    public void testNio() throws Exception {
+        start(new org.restlet.ext.nio.HttpServerHelper(null));
+        check();
+    }
+
+}
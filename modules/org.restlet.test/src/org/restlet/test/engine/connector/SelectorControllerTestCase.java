@@ -0,0 +1,68 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import org.restlet.Context;
+import org.restlet.Server;
+import org.restlet.data.Protocol;
+import org.restlet.ext.nio.HttpServerHelper;
+import org.restlet.ext.nio.internal.controller.SelectorController;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit test for the selector controllers of the NIO server connector.
+ * 
+ * @author Jerome Louvel
+ */
+public class SelectorControllerTestCase extends RestletTestCase {
+
+    private static HttpServerHelper createHelper(String selectorThreads) {
+        Server server = new Server(new Context(), Protocol.HTTP, 0);
+        server.getContext().getParameters()
+                .add("selectorThreads", selectorThreads);
+        return new HttpServerHelper(server);
+    }
+
+    public void testShutdownBeforeStart() throws Exception {
+        SelectorController controller = new SelectorController(
+                createHelper("1"));
+        controller.shutdown();
+
+        Thread thread = new Thread(controller);
+        thread.start();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertFalse(controller.isRunning());
+    }
+
+    public void testStartStop() throws Exception {
+        HttpServerHelper helper = createHelper("4");
+        helper.start();
+        long start = System.currentTimeMillis();
+        helper.stop();
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+}
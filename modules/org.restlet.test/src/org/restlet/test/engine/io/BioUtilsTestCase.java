@@ -25,15 +25,31 @@
 package org.restlet.test.engine.io;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
 
 import org.restlet.data.CharacterSet;
 import org.restlet.data.MediaType;
+import org.restlet.engine.io.InlineInputStream;
 import org.restlet.engine.io.IoUtils;
 import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.WriterRepresentation;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -43,6 +59,116 @@ import org.restlet.test.RestletTestCase;
  */
 public class BioUtilsTestCase extends RestletTestCase {
 
+    /**
+     * Writable channel accepting no byte on its first write, then truncating
+     * the source file if required.
+     */
+    private static class StallingChannel implements WritableByteChannel {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final RandomAccessFile truncatedFile;
+
+        private int writes;
+
+        private StallingChannel(RandomAccessFile truncatedFile) {
+            this.truncatedFile = truncatedFile;
+        }
+
+        public void close() {
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public int write(ByteBuffer src) throws IOException {
+            if (this.writes++ == 0) {
+                return 0;
+            }
+
+            if (this.truncatedFile != null) {
+                this.truncatedFile.setLength(10);
+            }
+
+            int result = src.remaining();
+            byte[] array = new byte[result];
+            src.get(array);
+            this.bytes.write(array);
+            return result;
+        }
+    }
+
+    private static File createFile(int size) throws IOException {
+        File file = File.createTempFile("copy", ".bin");
+        file.deleteOnExit();
+        byte[] content = new byte[size];
+        Arrays.fill(content, (byte) 'x');
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(content);
+        fos.close();
+        return file;
+    }
+
+    public void testCopyFileChannel() throws IOException {
+        // Falls back to a buffered copy when no progress is made
+        File file = createFile(100000);
+        StallingChannel channel = new StallingChannel(null);
+        IoUtils.copy(new FileInputStream(file).getChannel(), 10, 99980,
+                channel);
+        assertEquals(99980, channel.bytes.size());
+        file.delete();
+
+        // Fails instead of looping when the file is truncated
+        file = createFile(100000);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        channel = new StallingChannel(raf);
+
+        try {
+            IoUtils.copy(new FileInputStream(file).getChannel(), 0, 100000,
+                    channel);
+            fail("The truncation should be detected");
+        } catch (EOFException e) {
+            // Expected
+        } finally {
+            raf.close();
+            file.delete();
+        }
+
+        // Fails instead of sending fewer bytes when the file is too short
+        file = createFile(1000);
+        channel = new StallingChannel(null);
+
+        try {
+            IoUtils.copy(new FileInputStream(file).getChannel(), 0, 1001,
+                    channel);
+            fail("The short file should be detected");
+        } catch (EOFException e) {
+            assertEquals(0, channel.bytes.size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testCopyFileChannelNonBlocking() throws Exception {
+        // Waits for the non-blocking channel instead of leaving zero-copy
+        File file = createFile(1000000);
+        final Pipe pipe = Pipe.open();
+        pipe.sink().configureBlocking(false);
+        FutureTask<Long> reader = new FutureTask<Long>(new Callable<Long>() {
+            public Long call() throws IOException {
+                return IoUtils.exhaust(Channels.newInputStream(pipe.source()));
+            }
+        });
+        new Thread(reader).start();
+
+        IoUtils.copy(new FileInputStream(file).getChannel(), 0, 1000000,
+                pipe.sink());
+        pipe.sink().close();
+        assertEquals(Long.valueOf(1000000), reader.get());
+        file.delete();
+    }
+
     public void testGetStream() throws IOException {
         StringWriter writer = new StringWriter();
         OutputStream out = IoUtils.getStream(writer, CharacterSet.UTF_8);
@@ -74,4 +200,114 @@ public class BioUtilsTestCase extends RestletTestCase {
         }
     }
 
+    public void testInlineStream() throws IOException {
+        final Thread readingThread = Thread.currentThread();
+        final byte[] content = new byte[10000];
+        Arrays.fill(content, (byte) 7);
+
+        OutputRepresentation or = new OutputRepresentation(
+                MediaType.APPLICATION_OCTET_STREAM) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                assertSame(readingThread, Thread.currentThread());
+                outputStream.write(content);
+            }
+        };
+        or.setSize(content.length);
+
+        assertTrue(or.getStream() instanceof InlineInputStream);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IoUtils.copy(or.getStream(), baos);
+        assertTrue(Arrays.equals(content, baos.toByteArray()));
+
+        WriterRepresentation wr = new WriterRepresentation(
+                MediaType.TEXT_PLAIN) {
+            @Override
+            public void write(Writer writer) throws IOException {
+                assertSame(readingThread, Thread.currentThread());
+                writer.write("testé");
+            }
+        };
+        wr.setCharacterSet(CharacterSet.UTF_8);
+        wr.setSize(6);
+
+        assertEquals("testé", IoUtils.toString(wr.getReader()));
+        assertEquals("testé", wr.getText());
+    }
+
+    public void testInlineStreamOverflow() throws IOException {
+        final byte[] content = new byte[10000];
+        Arrays.fill(content, (byte) 7);
+        final int[] writes = new int[1];
+
+        OutputRepresentation or = new OutputRepresentation(
+                MediaType.APPLICATION_OCTET_STREAM) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                writes[0]++;
+                outputStream.write(content, 0, 5000);
+                outputStream.write(content, 5000, 5000);
+            }
+        };
+
+        // The representation is never written a second time
+        InputStream is = new InlineInputStream(or, 6000);
+
+        try {
+            is.read();
+            fail("The overflow should be reported to the reader");
+        } catch (IOException ioe) {
+            // Expected
+        }
+
+        assertEquals(1, writes[0]);
+    }
+
+    public void testInlineStreamUnknownSize() throws IOException {
+        final Thread readingThread = Thread.currentThread();
+        final byte[] content = new byte[IoUtils.INLINE_BUFFER_SIZE + 10000];
+        Arrays.fill(content, (byte) 7);
+        final int[] writes = new int[1];
+
+        OutputRepresentation or = new OutputRepresentation(
+                MediaType.APPLICATION_OCTET_STREAM) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                assertNotSame(readingThread, Thread.currentThread());
+                writes[0]++;
+                outputStream.write(content);
+            }
+        };
+
+        // Streamed from a writer thread and written once
+        InputStream is = or.getStream();
+        assertFalse(is instanceof InlineInputStream);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IoUtils.copy(is, baos);
+        assertTrue(Arrays.equals(content, baos.toByteArray()));
+        assertEquals(1, writes[0]);
+
+        // Too large to be inlined
+        or.setSize(content.length);
+        assertFalse(or.getStream() instanceof InlineInputStream);
+    }
+
+    public void testInlineStreamError() {
+        OutputRepresentation or = new OutputRepresentation(
+                MediaType.APPLICATION_OCTET_STREAM) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                throw new IOException("Broken");
+            }
+        };
+        or.setSize(10);
+
+        try {
+            or.getStream().read();
+            fail("The writing error should be reported to the reader");
+        } catch (IOException ioe) {
+            assertEquals("Broken", ioe.getMessage());
+        }
+    }
+
 }
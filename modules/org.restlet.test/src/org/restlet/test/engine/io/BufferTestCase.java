@@ -25,8 +25,10 @@
 package org.restlet.test.engine.io;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.restlet.ext.nio.internal.buffer.Buffer;
+import org.restlet.ext.nio.internal.buffer.BufferPool;
 import org.restlet.ext.nio.internal.buffer.BufferState;
 import org.restlet.test.RestletTestCase;
 
@@ -64,4 +66,62 @@ public class BufferTestCase extends RestletTestCase {
         buffer.drain(sb, BufferState.FILLING);
         assertEquals("Remaining buffer", "ijklmnopqrstuvwxyz", sb.toString());
     }
+
+    public void testPooledBuffer() throws IOException {
+        BufferPool pool = new BufferPool(true);
+        Buffer buffer = new Buffer(5000, pool);
+        assertEquals(8192, buffer.capacity());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, pool.getLeasedBytes());
+
+        buffer.fill("abcdefghijklm");
+        assertEquals(8192, pool.getLeasedBytes());
+        assertFalse(buffer.release());
+
+        buffer.flip();
+        StringBuilder sb = new StringBuilder();
+        buffer.drain(sb, BufferState.FILLING);
+        assertEquals("abcdefghijklm", sb.toString());
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.release());
+        assertEquals(0, pool.getLeasedBytes());
+        assertEquals(BufferPool.SLAB_SIZE, pool.getFreeBytes());
+        assertEquals(BufferPool.SLAB_SIZE, pool.getAllocatedBytes());
+
+        // Leasing again reuses the slab
+        buffer.fill("nopq");
+        buffer.flip();
+        assertEquals(4, buffer.remaining());
+        assertEquals(BufferPool.SLAB_SIZE, pool.getAllocatedBytes());
+    }
+
+    public void testPoolSizeClasses() {
+        BufferPool pool = new BufferPool(false);
+        assertEquals(BufferPool.MIN_CLASS_CAPACITY, pool.getCapacity(1));
+        assertEquals(16384, pool.getCapacity(16384));
+        assertEquals(32768, pool.getCapacity(16385));
+
+        int large = BufferPool.MAX_CLASS_CAPACITY + 1;
+        assertEquals(large, pool.getCapacity(large));
+        pool.release(pool.lease(large));
+        assertEquals(0, pool.getAllocatedBytes());
+        assertEquals(0, pool.getFreeBytes());
+    }
+
+    public void testPoolTrim() {
+        BufferPool pool = new BufferPool(false, 16384);
+        ByteBuffer small = pool.lease(4096);
+        ByteBuffer large = pool.lease(16384);
+        pool.release(small);
+        assertEquals(4096, pool.getFreeBytes());
+
+        // Keeping both buffers would exceed the maximum
+        pool.release(large);
+        assertEquals(4096, pool.getFreeBytes());
+        assertEquals(4096, pool.getAllocatedBytes());
+
+        pool.trim(0);
+        assertEquals(0, pool.getFreeBytes());
+        assertEquals(0, pool.getAllocatedBytes());
+    }
 }
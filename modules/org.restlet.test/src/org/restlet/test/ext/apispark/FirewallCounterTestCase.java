@@ -0,0 +1,161 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.ext.apispark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.ext.apispark.FirewallConfig;
+import org.restlet.ext.apispark.internal.firewall.rule.CounterResult;
+import org.restlet.ext.apispark.internal.firewall.rule.FirewallRule;
+import org.restlet.ext.apispark.internal.firewall.rule.counter.SlidingWindowCounter;
+import org.restlet.ext.apispark.internal.firewall.rule.counter.TokenBucketCounter;
+import org.restlet.routing.Filter;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the sliding window and token bucket rules of the firewall.
+ * 
+ * @author Jerome Louvel
+ */
+public class FirewallCounterTestCase extends RestletTestCase {
+
+    private static int beforeHandle(FirewallRule rule, String address,
+            Response response) {
+        Request request = new Request(Method.GET, "http://localhost/test");
+        request.getClientInfo().setAddress(address);
+        response.setRequest(request);
+        return rule.beforeHandle(request, response);
+    }
+
+    public void testFirewallConfig() {
+        List<FirewallRule> rules = new ArrayList<FirewallRule>();
+        FirewallConfig config = new FirewallConfig(rules);
+        config.addIpAddressesTokenBucketCounter(1, TimeUnit.HOURS, 2);
+        config.addIpAddressesSlidingWindowCounter(1, TimeUnit.HOURS, 3);
+        config.addHostDomainPeriodicCounter(1, TimeUnit.HOURS, 5);
+        assertEquals(3, rules.size());
+
+        FirewallRule tokenBucket = rules.get(0);
+        Response response = new Response(null);
+        assertEquals(Filter.CONTINUE,
+                beforeHandle(tokenBucket, "1.1.1.1", response));
+        assertEquals(Filter.CONTINUE,
+                beforeHandle(tokenBucket, "1.1.1.1", response));
+        assertEquals(Filter.SKIP,
+                beforeHandle(tokenBucket, "1.1.1.1", response));
+        assertEquals(Status.CLIENT_ERROR_TOO_MANY_REQUESTS,
+                response.getStatus());
+        assertEquals(Filter.CONTINUE,
+                beforeHandle(tokenBucket, "2.2.2.2", new Response(null)));
+
+        FirewallRule slidingWindow = rules.get(1);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Filter.CONTINUE,
+                    beforeHandle(slidingWindow, "1.1.1.1", new Response(null)));
+        }
+
+        assertEquals(Filter.SKIP,
+                beforeHandle(slidingWindow, "1.1.1.1", new Response(null)));
+    }
+
+    public void testSlidingWindowConcurrency() throws Exception {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(1,
+                TimeUnit.HOURS);
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    CounterResult result = new CounterResult();
+
+                    for (int j = 0; j < 10000; j++) {
+                        counter.increment(result);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80001, counter.increment().getConsumed());
+    }
+
+    public void testSlidingWindowExpiration() throws Exception {
+        SlidingWindowCounter counter = new SlidingWindowCounter(100,
+                TimeUnit.MILLISECONDS);
+        CounterResult result = new CounterResult();
+
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, counter.increment(result).getConsumed());
+        }
+
+        assertFalse(counter.isExpired());
+        Thread.sleep(250);
+        assertTrue(counter.isExpired());
+        assertEquals(1, counter.increment(result).getConsumed());
+    }
+
+    public void testTokenBucket() throws Exception {
+        TokenBucketCounter counter = new TokenBucketCounter(1, TimeUnit.HOURS);
+        CounterResult result = new CounterResult();
+
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, counter.increment(3, result).getConsumed());
+        }
+
+        // An empty bucket doesn't give tokens on credit
+        assertEquals(4, counter.increment(3, result).getConsumed());
+        assertEquals(4, counter.increment(3, result).getConsumed());
+        assertTrue(result.getReset() > System.currentTimeMillis() / 1000L);
+        assertFalse(counter.isExpired());
+
+        // A null bucket size blocks everything
+        assertEquals(1, counter.increment(0, result).getConsumed());
+    }
+
+    public void testTokenBucketRefill() throws Exception {
+        TokenBucketCounter counter = new TokenBucketCounter(200,
+                TimeUnit.MILLISECONDS);
+        CounterResult result = new CounterResult();
+        assertEquals(1, counter.increment(2, result).getConsumed());
+        assertEquals(2, counter.increment(2, result).getConsumed());
+        assertEquals(3, counter.increment(2, result).getConsumed());
+        Thread.sleep(300);
+        assertTrue(counter.isExpired());
+        assertEquals(1, counter.increment(2, result).getConsumed());
+    }
+
+}
@@ -29,12 +29,18 @@ import java.io.FileWriter;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.restlet.Context;
+import org.restlet.data.LocalReference;
 import org.restlet.data.MediaType;
 import org.restlet.engine.io.IoUtils;
+import org.restlet.ext.freemarker.FreemarkerConverter;
+import org.restlet.ext.freemarker.TemplateFilter;
 import org.restlet.ext.freemarker.TemplateRepresentation;
+import org.restlet.resource.ClientResource;
 import org.restlet.test.RestletTestCase;
 
 import freemarker.template.Configuration;
+import freemarker.template.Template;
 
 /**
  * Unit test for the FreeMarker extension.
@@ -43,6 +49,69 @@ import freemarker.template.Configuration;
  */
 public class FreeMarkerTestCase extends RestletTestCase {
 
+    public void testFilterConfiguration() throws Exception {
+        Context context = new Context();
+        Configuration shared = FreemarkerConverter.getConfiguration(context);
+        TemplateFilter filter1 = new TemplateFilter(context);
+        TemplateFilter filter2 = new TemplateFilter(context);
+
+        // A customized filter doesn't alter the shared configuration
+        Configuration fmc1 = filter1.getConfiguration();
+        fmc1.setDefaultEncoding("ISO-8859-1");
+        assertSame(fmc1, filter1.getConfiguration());
+        assertNotSame(shared, fmc1);
+        assertNotSame(fmc1, filter2.getConfiguration());
+        assertFalse("ISO-8859-1".equals(shared.getDefaultEncoding()));
+
+        // An explicit configuration is kept
+        filter2.setConfiguration(shared);
+        assertSame(shared, filter2.getConfiguration());
+    }
+
+    public void testSharedConfiguration() throws Exception {
+        Context context = new Context();
+        Configuration fmc = FreemarkerConverter.getConfiguration(context);
+        assertSame(fmc, FreemarkerConverter.getConfiguration(context));
+        assertNotSame(fmc, FreemarkerConverter.getConfiguration(new Context()));
+
+        // Create a temporary directory for the tests
+        File testDir = new File(System.getProperty("java.io.tmpdir"),
+                "FreeMarkerTestCase");
+        testDir.mkdir();
+
+        // Create a temporary template file
+        File testFile = File.createTempFile("test", ".ftl", testDir);
+        FileWriter fw = new FileWriter(testFile);
+        fw.write("Value=${value}");
+        fw.close();
+
+        Map<String, Object> map = new TreeMap<String, Object>();
+        map.put("value", "myValue");
+
+        // Parsed templates are cached by the configuration
+        ClientResource r = new ClientResource(
+                LocalReference.createFileReference(testFile));
+        Template template = TemplateRepresentation.getTemplate(fmc, r.get());
+        assertSame(template, TemplateRepresentation.getTemplate(fmc, r.get()));
+        assertEquals("Value=myValue", new TemplateRepresentation(template,
+                map, MediaType.TEXT_PLAIN).getText());
+
+        // Update the template file
+        fw = new FileWriter(testFile);
+        fw.write("New value=${value}");
+        fw.close();
+        testFile.setLastModified(testFile.lastModified() + 2000);
+
+        Template updated = TemplateRepresentation.getTemplate(fmc, r.get());
+        assertNotSame(template, updated);
+        assertEquals("New value=myValue", new TemplateRepresentation(updated,
+                map, MediaType.TEXT_PLAIN).getText());
+
+        // Clean-up
+        IoUtils.delete(testFile);
+        IoUtils.delete(testDir, true);
+    }
+
     public void testTemplate() throws Exception {
         // Create a temporary directory for the tests
         final File testDir = new File(System.getProperty("java.io.tmpdir"),
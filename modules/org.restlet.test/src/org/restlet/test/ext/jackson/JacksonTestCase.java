@@ -28,12 +28,16 @@ import java.io.IOException;
 import java.util.Date;
 
 import org.restlet.data.MediaType;
+import org.restlet.ext.jackson.JacksonConverter;
 import org.restlet.ext.jackson.JacksonRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
+import org.restlet.representation.Variant;
 import org.restlet.resource.ClientResource;
 import org.restlet.test.RestletTestCase;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * Unit test for the Jackson extension.
  * 
@@ -115,6 +119,54 @@ public class JacksonTestCase extends RestletTestCase {
         verify(customer, rep.getObject());
     }
 
+    public void testSharedMappers() throws Exception {
+        JacksonConverter converter = new JacksonConverter();
+        Customer customer = createCustomer();
+
+        // Sharing is disabled by default so that mappers can be customized
+        JacksonRepresentation<?> rep1 = (JacksonRepresentation<?>) converter
+                .toRepresentation(customer, new Variant(
+                        MediaType.APPLICATION_JSON), null);
+        JacksonRepresentation<?> rep2 = (JacksonRepresentation<?>) converter
+                .toRepresentation(customer, new Variant(
+                        MediaType.APPLICATION_JSON), null);
+        assertNotSame(rep1.getObjectMapper(), rep2.getObjectMapper());
+
+        converter.setSharingMappers(true);
+        rep1 = (JacksonRepresentation<?>) converter.toRepresentation(customer,
+                new Variant(MediaType.APPLICATION_JSON), null);
+        rep2 = (JacksonRepresentation<?>) converter.toRepresentation(customer,
+                new Variant(MediaType.APPLICATION_JSON), null);
+        assertSame(rep1.getObjectMapper(), rep2.getObjectMapper());
+        assertSame(rep1.getObjectWriter(), rep2.getObjectWriter());
+        verify(customer, converter.toObject(new StringRepresentation(rep1
+                .getText(), MediaType.APPLICATION_JSON), Customer.class, null));
+
+        // Representations returned as is keep their own mapper
+        JacksonRepresentation<?> rep3 = converter.toObject(
+                new StringRepresentation(rep1.getText(),
+                        MediaType.APPLICATION_JSON),
+                JacksonRepresentation.class, null);
+        assertNotSame(rep1.getObjectMapper(), rep3.getObjectMapper());
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        converter.setObjectMapper(MediaType.APPLICATION_JSON, objectMapper);
+        rep1 = (JacksonRepresentation<?>) converter.toRepresentation(customer,
+                new Variant(MediaType.APPLICATION_JSON), null);
+        assertSame(objectMapper, rep1.getObjectMapper());
+
+        // Media type parameters don't change the shared mapper
+        rep2 = (JacksonRepresentation<?>) converter.toRepresentation(customer,
+                new Variant(MediaType.valueOf("application/json; charset=UTF-8")),
+                null);
+        assertSame(objectMapper, rep2.getObjectMapper());
+
+        converter.setSharingMappers(false);
+        rep2 = (JacksonRepresentation<?>) converter.toRepresentation(customer,
+                new Variant(MediaType.APPLICATION_JSON), null);
+        assertNotSame(objectMapper, rep2.getObjectMapper());
+    }
+
     public void testSmile() throws Exception {
         Customer customer = createCustomer();
         JacksonRepresentation<Customer> rep = new JacksonRepresentation<Customer>(
@@ -24,6 +24,7 @@
 
 package org.restlet.test.ext.odata;
 
+import java.io.Closeable;
 import java.util.Iterator;
 
 import org.restlet.Component;
@@ -234,4 +235,32 @@ public class ODataCafeTestCase extends RestletTestCase {
         assertEquals("Marly Le Roi", cafe.getCity());
         assertEquals(78310, cafe.getZipCode());
     }
+
+    /**
+     * Tests the server paging feature in streaming mode.
+     */
+    public void testServerPagingStreaming() throws Exception {
+        Query<Cafe> query1 = service.createCafeQuery("/Cafes");
+        query1.setStreaming(true);
+        Query<Cafe> query2 = query1.skipToken("Skip1");
+        assertTrue(query2.isStreaming());
+
+        Iterator<Cafe> iterator = query2.iterator();
+        String[] ids = { "1", "2", "1", "2" };
+
+        for (String id : ids) {
+            assertTrue(iterator.hasNext());
+            Cafe cafe = iterator.next();
+            assertEquals(id, cafe.getId());
+        }
+
+        assertFalse(iterator.hasNext());
+
+        // Abandon an iteration
+        iterator = query2.iterator();
+        assertTrue(iterator.hasNext());
+        assertEquals("1", iterator.next().getId());
+        ((Closeable) iterator).close();
+        assertFalse(iterator.hasNext());
+    }
 }
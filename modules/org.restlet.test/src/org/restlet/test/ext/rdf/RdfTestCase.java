@@ -24,7 +24,13 @@
 
 package org.restlet.test.ext.rdf;
 
+import java.util.Iterator;
+
 import org.restlet.data.MediaType;
+import org.restlet.data.Reference;
+import org.restlet.ext.rdf.Graph;
+import org.restlet.ext.rdf.Link;
+import org.restlet.ext.rdf.Literal;
 import org.restlet.ext.rdf.RdfRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
@@ -35,6 +41,56 @@ import org.restlet.test.RestletTestCase;
  */
 public class RdfTestCase extends RestletTestCase {
 
+    public void testGraphIndexes() throws Exception {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 1000; i++) {
+            sb.append("<http://example.com/s").append(i % 100).append("> ");
+            sb.append("<http://example.com/p").append(i % 3).append("> ");
+            sb.append("\"v").append(i).append("\" .\n");
+        }
+
+        Graph graph = new RdfRepresentation(new StringRepresentation(
+                sb.toString(), MediaType.TEXT_PLAIN)).getGraph();
+        assertEquals(1000, graph.size());
+
+        // Pattern queries
+        assertEquals(10, graph.getLinks("http://example.com/s7", null, null)
+                .size());
+        assertEquals(334, graph.getLinks(null, "http://example.com/p0", null)
+                .size());
+        assertEquals(4,
+                graph.getLinks("http://example.com/s7", "http://example.com/p1",
+                        null).size());
+        assertEquals(1000, graph.getLinks((String) null, null, null).size());
+
+        Link link = graph.getLinks(null, null, new Literal("v42")).get(0);
+        assertEquals(new Reference("http://example.com/s42"),
+                link.getSourceAsReference());
+        assertTrue(graph.getLinks(null, null, new Literal("v1000")).isEmpty());
+
+        // Interned references
+        Link other = graph.getLinks(null, null, new Literal("v45")).get(0);
+        assertSame(link.getTypeRef(), other.getTypeRef());
+
+        // Removal and snapshot iteration
+        assertTrue(graph.remove(link));
+        assertFalse(graph.contains(link));
+        assertTrue(graph.getLinks(null, null, new Literal("v42")).isEmpty());
+        assertEquals(9, graph.getLinks("http://example.com/s42", null, null)
+                .size());
+
+        int count = 0;
+
+        for (Iterator<Link> iter = graph.iterator(); iter.hasNext();) {
+            graph.add(iter.next().getSourceAsReference(),
+                    "http://example.com/copy", new Literal("c" + count++));
+        }
+
+        assertEquals(999, count);
+        assertEquals(1998, graph.size());
+    }
+
     public void testN3() throws Exception {
         Representation rep = new StringRepresentation(
                 "@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> ."
@@ -33,7 +33,9 @@ import org.restlet.data.LocalReference;
 import org.restlet.data.MediaType;
 import org.restlet.data.Reference;
 import org.restlet.engine.io.IoUtils;
+import org.restlet.ext.velocity.TemplateCache;
 import org.restlet.ext.velocity.TemplateRepresentation;
+import org.apache.velocity.Template;
 import org.restlet.representation.Representation;
 import org.restlet.resource.ClientResource;
 import org.restlet.test.RestletTestCase;
@@ -101,4 +103,80 @@ public class VelocityTestCase extends RestletTestCase {
         IoUtils.delete(testFile);
         IoUtils.delete(testDir, true);
     }
+
+    public void testStandardTemplateLoaderPaths() throws Exception {
+        // Create two temporary directories holding a template of same name
+        File testDir = new File(System.getProperty("java.io.tmpdir"),
+                "VelocityTestCase");
+        File dir1 = new File(testDir, "dir1");
+        File dir2 = new File(testDir, "dir2");
+        dir1.mkdirs();
+        dir2.mkdirs();
+
+        FileWriter fw = new FileWriter(new File(dir1, "test.vm"));
+        fw.write("Value1=$value");
+        fw.close();
+        fw = new FileWriter(new File(dir2, "test.vm"));
+        fw.write("Value2=$value");
+        fw.close();
+
+        Map<String, Object> map = new TreeMap<String, Object>();
+        map.put("value", "myValue");
+
+        // Each representation configures its own loader path
+        TemplateRepresentation tr1 = new TemplateRepresentation("test.vm",
+                map, MediaType.TEXT_PLAIN);
+        tr1.getEngine().setProperty("file.resource.loader.path",
+                dir1.getAbsolutePath());
+        assertEquals("Value1=myValue", tr1.getText());
+
+        TemplateRepresentation tr2 = new TemplateRepresentation("test.vm",
+                map, MediaType.TEXT_PLAIN);
+        tr2.getEngine().setProperty("file.resource.loader.path",
+                dir2.getAbsolutePath());
+        assertNotSame(tr1.getEngine(), tr2.getEngine());
+        assertEquals("Value2=myValue", tr2.getText());
+
+        // Clean-up
+        IoUtils.delete(testDir, true);
+    }
+
+    public void testTemplateCache() throws Exception {
+        // Create a temporary directory for the tests
+        File testDir = new File(System.getProperty("java.io.tmpdir"),
+                "VelocityTestCase");
+        testDir.mkdir();
+
+        // Create a temporary template file
+        File testFile = File.createTempFile("test", ".vm", testDir);
+        FileWriter fw = new FileWriter(testFile);
+        fw.write("Value=$value");
+        fw.close();
+
+        Map<String, Object> map = new TreeMap<String, Object>();
+        map.put("value", "myValue");
+
+        TemplateCache cache = new TemplateCache();
+        ClientResource r = new ClientResource(
+                LocalReference.createFileReference(testFile));
+        Template template = cache.getTemplate(r.get());
+        assertSame(template, cache.getTemplate(r.get()));
+        assertEquals("Value=myValue", new TemplateRepresentation(template,
+                map, MediaType.TEXT_PLAIN).getText());
+
+        // Update the template file
+        fw = new FileWriter(testFile);
+        fw.write("New value=$value");
+        fw.close();
+        testFile.setLastModified(testFile.lastModified() + 2000);
+
+        Template updated = cache.getTemplate(r.get());
+        assertNotSame(template, updated);
+        assertEquals("New value=myValue", new TemplateRepresentation(updated,
+                map, MediaType.TEXT_PLAIN).getText());
+
+        // Clean-up
+        IoUtils.delete(testFile);
+        IoUtils.delete(testDir, true);
+    }
 }
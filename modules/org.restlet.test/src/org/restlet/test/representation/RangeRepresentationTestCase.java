@@ -24,8 +24,16 @@
 
 package org.restlet.test.representation;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.Channels;
+
+import org.restlet.data.MediaType;
 import org.restlet.data.Range;
 import org.restlet.engine.application.RangeRepresentation;
+import org.restlet.engine.io.FileRegion;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.test.RestletTestCase;
 
@@ -58,4 +66,39 @@ public class RangeRepresentationTestCase extends RestletTestCase {
         assertEquals("67890", rr.getText());
     }
 
+    public void testFileRegion() throws Exception {
+        File file = File.createTempFile("range", ".txt");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write("1234567890".getBytes());
+        fos.close();
+
+        FileRepresentation fr = new FileRepresentation(file,
+                MediaType.TEXT_PLAIN);
+        FileRegion region = FileRegion.getFileRegion(fr);
+        assertEquals(0, region.getStartIndex());
+        assertEquals(10, region.getSize());
+
+        RangeRepresentation rr = new RangeRepresentation(fr, new Range(2, 5));
+        region = FileRegion.getFileRegion(rr);
+        assertEquals(2, region.getStartIndex());
+        assertEquals(5, region.getSize());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        rr.write(Channels.newChannel(baos));
+        assertEquals("34567", baos.toString());
+
+        rr.setRange(new Range(Range.INDEX_LAST, 3));
+        assertEquals(7, FileRegion.getFileRegion(rr).getStartIndex());
+        baos = new ByteArrayOutputStream();
+        rr.write(Channels.newChannel(baos));
+        assertEquals("890", baos.toString());
+
+        baos = new ByteArrayOutputStream();
+        fr.write(Channels.newChannel(baos));
+        assertEquals("1234567890", baos.toString());
+
+        assertNull(FileRegion.getFileRegion(new RangeRepresentation(
+                new StringRepresentation("1234567890"), new Range(2, 5))));
+    }
+
 }
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Uniform;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.resource.ClientResource;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.ResponseFuture;
+
+/**
+ * Test the asynchronous methods of the client resources.
+ * 
+ * @author Jerome Louvel
+ */
+public class AsyncClientResourceTestCase extends RestletTestCase {
+
+    /** Restlet deferring the responses like an asynchronous connector. */
+    private static class DeferringRestlet extends Restlet {
+
+        private final List<Response> responses = new ArrayList<Response>();
+
+        @Override
+        public void handle(Request request, Response response) {
+            response.setAutoCommitting(false);
+            this.responses.add(response);
+        }
+    }
+
+    private static class RecordingCallback implements Uniform {
+
+        private final List<String> calls;
+
+        private final String name;
+
+        public RecordingCallback(String name, List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        public void handle(Request request, Response response) {
+            calls.add(name + ":" + response.getStatus().getCode());
+        }
+    }
+
+    public void testCancel() throws Exception {
+        ClientResource resource = new ClientResource("http://local/");
+        resource.setNext(new DeferringRestlet());
+        List<String> calls = new ArrayList<String>();
+        ResponseFuture future = resource.getAsync().onResponse(
+                new RecordingCallback("a", calls));
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertTrue(future.isDone());
+        assertFalse(future.cancel(false));
+
+        try {
+            future.get();
+            fail("The future was cancelled");
+        } catch (CancellationException e) {
+            // Expected
+        }
+
+        future.handle(null, new Response(null));
+        assertTrue(calls.isEmpty());
+    }
+
+    public void testDeferred() throws Exception {
+        ClientResource resource = new ClientResource("http://local/");
+        DeferringRestlet next = new DeferringRestlet();
+        resource.setNext(next);
+        List<String> calls = new ArrayList<String>();
+        ResponseFuture future = resource.postAsync(new StringRepresentation(
+                "entity"));
+        future.onResponse(new RecordingCallback("a", calls));
+        assertFalse(future.isDone());
+        assertEquals(1, next.responses.size());
+
+        try {
+            future.get(10, TimeUnit.MILLISECONDS);
+            fail("No response was provided");
+        } catch (TimeoutException e) {
+            // Expected
+        }
+
+        final Response response = next.responses.get(0);
+        assertEquals(Method.POST, response.getRequest().getMethod());
+        response.setStatus(Status.SUCCESS_CREATED);
+        Thread thread = new Thread() {
+            public void run() {
+                Request request = response.getRequest();
+                request.getOnResponse().handle(request, response);
+            }
+        };
+        thread.start();
+
+        assertSame(response, future.get(5, TimeUnit.SECONDS));
+        thread.join();
+        assertEquals(1, calls.size());
+        assertEquals("a:201", calls.get(0));
+
+        // Callbacks added later are invoked on the current thread
+        future.onResponse(new RecordingCallback("b", calls));
+        assertEquals("b:201", calls.get(1));
+    }
+
+    public void testImmediate() throws Exception {
+        ClientResource resource = new ClientResource("http://local/");
+        resource.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                response.setEntity("hello", MediaType.TEXT_PLAIN);
+            }
+        });
+
+        List<String> calls = new ArrayList<String>();
+        resource.setOnResponse(new RecordingCallback("proto", calls));
+        ResponseFuture future = resource.getAsync(MediaType.TEXT_PLAIN);
+        assertTrue(future.isDone());
+        future.onResponse(new RecordingCallback("a", calls));
+
+        Response response = future.get();
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("hello", response.getEntityAsText());
+        assertEquals(2, calls.size());
+        assertEquals("proto:200", calls.get(0));
+        assertEquals("a:200", calls.get(1));
+    }
+
+    public void testProvisional() throws Exception {
+        Request request = new Request(Method.POST, "http://local/");
+        List<String> calls = new ArrayList<String>();
+        ResponseFuture future = new ResponseFuture()
+                .onResponse(new RecordingCallback("a", calls));
+
+        // A "100 Continue" response doesn't complete the future
+        Response provisional = new Response(request);
+        provisional.setStatus(Status.INFO_CONTINUE);
+        future.handle(request, provisional);
+        assertFalse(future.isDone());
+        assertTrue(calls.isEmpty());
+
+        Response response = new Response(request);
+        response.setStatus(Status.SUCCESS_CREATED);
+        future.handle(request, response);
+        assertTrue(future.isDone());
+        assertSame(response, future.get());
+        assertEquals(1, calls.size());
+        assertEquals("a:201", calls.get(0));
+    }
+
+}
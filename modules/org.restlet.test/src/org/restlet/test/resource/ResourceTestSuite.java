@@ -54,6 +54,7 @@ public class ResourceTestSuite {
         suite.addTestSuite(AnnotatedResource16TestCase.class);
         suite.addTestSuite(AnnotatedResource17TestCase.class);
         suite.addTestSuite(AnnotatedResource18TestCase.class);
+        suite.addTestSuite(AsyncClientResourceTestCase.class);
 
         // Tests based on HTTP client connectors are not supported by the GAE
         // edition.
@@ -26,7 +26,13 @@ package org.restlet.test.routing;
 
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
 import org.restlet.routing.Route;
+import org.restlet.routing.Router;
+import org.restlet.routing.Template;
+import org.restlet.routing.Variable;
+import org.restlet.test.MockRestlet;
 import org.restlet.test.RestletTestCase;
 import org.restlet.util.RouteList;
 
@@ -51,6 +57,70 @@ public class RouteListTestCase extends RestletTestCase {
         }
     }
 
+    /**
+     * Checks that the indexed modes select the same route and extract the
+     * same variables as the linear modes.
+     */
+    public void testGetIndexed() {
+        Router router = new Router();
+        Restlet target = new MockRestlet(null);
+        router.attach("/users", target);
+        router.attach("/users/{id}", target);
+        router.attach("/users/{id}/orders", target);
+        router.attach("/users/me", target);
+        router.attach("/orders/{id}", target);
+        router.attach("/files/{path}", target).getTemplate().getVariables()
+                .put("path", new Variable(Variable.TYPE_URI_PATH));
+        router.attach("/files/", target, Template.MODE_STARTS_WITH);
+        router.attach("/file.{ext}", target);
+        router.attach("{any}", target);
+        RouteList list = router.getRoutes();
+
+        String[] uris = { "/users", "/users/", "/users/me", "/users/12",
+                "/users/12/orders", "/orders/3", "/orders", "/files/a/b.txt",
+                "/files/", "/file.json", "/unknown", "", "/users/12?q=1" };
+
+        for (String uri : uris) {
+            for (float requiredScore : new float[] { 0F, 0.5F, 0.9F }) {
+                Request request = new Request(Method.GET, uri);
+                assertSame(uri, list.getFirst(request, null, requiredScore),
+                        list.getIndexedFirst(request, null, requiredScore));
+                assertSame(uri, list.getBest(request, null, requiredScore),
+                        list.getIndexedBest(request, null, requiredScore));
+            }
+        }
+
+        // Structural changes must be taken into account
+        Route me = list.get(3);
+        Request request = new Request(Method.GET, "/users/me");
+        list.add(0, list.remove(3));
+        assertSame(me, list.getIndexedFirst(request, null, 0.5F));
+        list.remove(me);
+        assertNotSame(me, list.getIndexedFirst(request, null, 0.5F));
+    }
+
+    /**
+     * Checks that a '+' character, taken as a quantifier by the regular
+     * expression of the template, ends the indexed prefix.
+     */
+    public void testGetIndexedQuantifier() {
+        Router router = new Router();
+        Restlet target = new MockRestlet(null);
+        Route route = router.attach("/a+b", target);
+        RouteList list = router.getRoutes();
+
+        for (String uri : new String[] { "/ab", "/aab", "/a+b" }) {
+            Request request = new Request(Method.GET, uri);
+            assertSame(uri, list.getFirst(request, null, 0.5F),
+                    list.getIndexedFirst(request, null, 0.5F));
+            assertSame(uri, list.getBest(request, null, 0.5F),
+                    list.getIndexedBest(request, null, 0.5F));
+        }
+
+        assertSame(route, list.getIndexedBest(new Request(Method.GET, "/aab"),
+                null, 0.5F));
+    }
+
     public void testGetLast() {
         final RouteList list = new RouteList();
 
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.service;
+
+import org.restlet.data.MediaType;
+import org.restlet.engine.Engine;
+import org.restlet.engine.converter.DefaultConverter;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.representation.Variant;
+import org.restlet.resource.Resource;
+import org.restlet.service.ConverterService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the converter service.
+ * 
+ * @author Jerome Louvel
+ */
+public class ConverterServiceTestCase extends RestletTestCase {
+
+    /** Default converter counting the number of scoring requests. */
+    private static class CountingConverter extends DefaultConverter {
+
+        private int scores;
+
+        @Override
+        public float score(Object source, Variant target, Resource resource) {
+            scores++;
+            return super.score(source, target, resource);
+        }
+
+        @Override
+        public <T> float score(Representation source, Class<T> target,
+                Resource resource) {
+            scores++;
+            return super.score(source, target, resource);
+        }
+    }
+
+    public void testSelectionCache() throws Exception {
+        CountingConverter converter = new CountingConverter();
+        Engine.getInstance().getRegisteredConverters().add(0, converter);
+        ConverterService cs = new ConverterService();
+
+        Representation rep = cs.toRepresentation("test", new Variant(
+                MediaType.TEXT_PLAIN));
+        assertEquals("test", rep.getText());
+        cs.toRepresentation("test", new Variant(MediaType.TEXT_PLAIN));
+        assertEquals(1, converter.scores);
+
+        // Different target metadata
+        cs.toRepresentation("test", new Variant(MediaType.TEXT_HTML));
+        assertEquals(2, converter.scores);
+
+        assertEquals("test", cs.toObject(new StringRepresentation("test"),
+                String.class, null));
+        cs.toObject(new StringRepresentation("test"), String.class, null);
+        assertEquals(3, converter.scores);
+
+        // Media type parameters such as multipart boundaries share an entry
+        cs.toRepresentation("test",
+                new Variant(MediaType.valueOf("text/plain; boundary=a")));
+        cs.toRepresentation("test",
+                new Variant(MediaType.valueOf("text/plain; boundary=b")));
+        assertEquals(4, converter.scores);
+
+        // Modifying the registered converters invalidates the cache
+        Engine.getInstance().getRegisteredConverters()
+                .add(new DefaultConverter());
+        cs.toRepresentation("test", new Variant(MediaType.TEXT_PLAIN));
+        assertEquals(5, converter.scores);
+    }
+
+    public void testVariantsCopy() throws Exception {
+        ConverterService cs = new ConverterService();
+        int size = cs.getVariants(String.class, null).size();
+        cs.getVariants(String.class, null).clear();
+        assertEquals(size, cs.getVariants(String.class, null).size());
+    }
+}
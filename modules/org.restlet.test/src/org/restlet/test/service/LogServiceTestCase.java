@@ -0,0 +1,173 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.service;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.engine.log.AsyncAccessLog;
+import org.restlet.service.LogService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the log service.
+ * 
+ * @author Jerome Louvel
+ */
+public class LogServiceTestCase extends RestletTestCase {
+
+    private static Response createResponse(String uri) {
+        Request request = new Request(Method.GET, uri);
+        request.getClientInfo().setAddress("127.0.0.1");
+        request.getClientInfo().setAgent("TestAgent");
+        Response response = new Response(request);
+        response.setStatus(Status.SUCCESS_OK);
+        response.getServerInfo().setAddress("127.0.0.2");
+        response.getServerInfo().setPort(8182);
+        return response;
+    }
+
+    public void testAsynchronousDrop() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void publish(LogRecord record) {
+                started.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        LogService logService = new LogService();
+        logService.setAsynchronous(true);
+        logService.setAsyncBufferSize(4);
+        logService.start();
+        AsyncAccessLog asyncLog = logService.getAsyncAccessLog();
+        assertNotNull(asyncLog);
+
+        // Block the writer thread on the first entry
+        Response response = createResponse("http://localhost:8182/test");
+        assertTrue(asyncLog.log(logger, response, 1));
+        started.await();
+
+        // The slot of the entry being written isn't free yet
+        for (int i = 0; i < 3; i++) {
+            assertTrue(asyncLog.log(logger, response, 1));
+        }
+
+        assertFalse(asyncLog.log(logger, response, 1));
+        assertEquals(1, asyncLog.getDroppedCount());
+
+        release.countDown();
+        logService.stop();
+        assertNull(logService.getAsyncAccessLog());
+        assertFalse(asyncLog.log(logger, response, 1));
+    }
+
+    public void testAsynchronousFile() throws Exception {
+        File file = File.createTempFile("restlet-access", ".log");
+
+        try {
+            LogService logService = new LogService();
+            logService.setAsynchronous(true);
+            logService.setAsyncLogFile(file.getPath());
+            logService.start();
+
+            Response response = createResponse("http://localhost:8182/path?q=1");
+            String expected = logService.getResponseLogMessage(response, 5);
+
+            for (int i = 0; i < 100; i++) {
+                assertTrue(logService.getAsyncAccessLog().log(null, response,
+                        5));
+            }
+
+            logService.stop();
+
+            List<String> lines = Files.readAllLines(file.toPath(),
+                    Charset.forName("UTF-8"));
+            assertEquals(100, lines.size());
+
+            // Ignore the date and time fields
+            String suffix = expected.substring(expected.indexOf('\t',
+                    expected.indexOf('\t') + 1));
+
+            for (String line : lines) {
+                assertTrue(line.endsWith(suffix));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testDefaultResponseLogMessage() {
+        Response response = createResponse("http://localhost:8182/path?q=1");
+        String[] fields = new LogService().getResponseLogMessage(response, 5)
+                .split("\t");
+
+        assertEquals(16, fields.length);
+        assertTrue(fields[0].matches("\\d{4}-\\d{2}-\\d{2}"));
+        assertTrue(fields[1].matches("\\d{2}:\\d{2}:\\d{2}"));
+        assertEquals("127.0.0.1", fields[2]);
+        assertEquals("-", fields[3]);
+        assertEquals("127.0.0.2", fields[4]);
+        assertEquals("8182", fields[5]);
+        assertEquals("GET", fields[6]);
+        assertEquals("/path", fields[7]);
+        assertEquals("q=1", fields[8]);
+        assertEquals("200", fields[9]);
+        assertEquals("0", fields[10]);
+        assertEquals("0", fields[11]);
+        assertEquals("5", fields[12]);
+        assertEquals("-", fields[13]);
+        assertEquals("TestAgent", fields[14]);
+        assertEquals("-", fields[15]);
+    }
+
+}
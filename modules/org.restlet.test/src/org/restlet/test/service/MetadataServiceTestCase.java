@@ -24,7 +24,12 @@
 
 package org.restlet.test.service;
 
+import java.util.List;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Language;
 import org.restlet.data.MediaType;
+import org.restlet.data.Metadata;
 import org.restlet.service.MetadataService;
 import org.restlet.test.RestletTestCase;
 
@@ -35,6 +40,71 @@ import org.restlet.test.RestletTestCase;
  */
 public class MetadataServiceTestCase extends RestletTestCase {
 
+    public void testAddAndClearExtensions() {
+        MetadataService ms = new MetadataService();
+        assertEquals(MediaType.TEXT_XML, ms.getMediaType("xml"));
+        assertEquals("txt", ms.getExtension(MediaType.TEXT_PLAIN));
+
+        // A preferred mapping takes precedence over existing ones
+        ms.addExtension("xml", MediaType.APPLICATION_ATOM, true);
+        assertEquals(MediaType.APPLICATION_ATOM, ms.getMediaType("xml"));
+        assertEquals("xml", ms.getExtension(MediaType.APPLICATION_ATOM));
+
+        ms.addExtension("foo", Language.FRENCH_FRANCE);
+        assertNull(ms.getMediaType("foo"));
+        assertEquals(Language.FRENCH_FRANCE, ms.getLanguage("foo"));
+        assertEquals("foo", ms.getExtension(Language.valueOf("FR-fr")));
+        assertTrue(ms.getAllLanguageExtensionNames().contains("foo"));
+        assertFalse(ms.getAllMediaTypeExtensionNames().contains("foo"));
+
+        ms.clearExtensions();
+        assertNull(ms.getMediaType("xml"));
+        assertNull(ms.getExtension(MediaType.TEXT_PLAIN));
+        assertTrue(ms.getAllExtensionNames().isEmpty());
+    }
+
+    public void testLookups() {
+        MetadataService ms = new MetadataService();
+
+        List<MediaType> mediaTypes = ms.getAllMediaTypes("xml");
+        assertEquals(2, mediaTypes.size());
+        assertEquals(MediaType.TEXT_XML, mediaTypes.get(0));
+        assertEquals(MediaType.APPLICATION_XML, mediaTypes.get(1));
+
+        List<Metadata> metadata = ms.getAllMetadata("xml");
+        assertEquals(2, metadata.size());
+        assertNull(ms.getAllMetadata("unknown"));
+        assertNull(ms.getAllCharacterSets("xml"));
+
+        assertEquals(CharacterSet.UTF_8, ms.getCharacterSet("utf8"));
+        assertEquals("utf8", ms.getExtension(CharacterSet.UTF_8));
+        assertEquals("htm", ms.getExtension(MediaType.TEXT_HTML));
+        assertNull(ms.getExtension(MediaType
+                .valueOf("text/html; charset=UTF-8")));
+
+        List<String> names = ms.getAllExtensionNames();
+        assertEquals(1, countOf(names, "xml"));
+        assertTrue(ms.getAllMediaTypeExtensionNames().contains("xml"));
+        assertTrue(ms.getAllCharacterSetExtensionNames().contains("utf8"));
+        assertTrue(ms.getAllEncodingExtensionNames().contains("ftl"));
+
+        // The returned lists can be modified by the caller
+        names.clear();
+        assertFalse(ms.getAllExtensionNames().isEmpty());
+    }
+
+    private static int countOf(List<String> names, String name) {
+        int result = 0;
+
+        for (String current : names) {
+            if (current.equals(name)) {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
     public void testStrict() {
         MetadataService ms = new MetadataService();
         MediaType ma = ms.getMediaType("ma");
@@ -40,6 +40,31 @@ import org.restlet.test.RestletTestCase;
  */
 public class TemplateTestCase extends RestletTestCase {
 
+    public void testBacktracking() {
+        Template template = new Template("/files/{name}.{ext}",
+                Template.MODE_EQUALS, Variable.TYPE_URI_SEGMENT, "", true,
+                false);
+
+        Map<String, Object> variables = new HashMap<String, Object>();
+        assertEquals(24, template.parse("/files/archive.tar.gz%41", variables));
+        assertEquals("archive.tar", variables.get("name"));
+        assertEquals("gz%41", variables.get("ext"));
+        assertEquals(-1, template.match("/files/archive"));
+        assertEquals(-1, template.match("/files/a/b.txt"));
+
+        // Repeated variables must capture the same value
+        template = new Template("/{a}/{b}/{a}", Template.MODE_STARTS_WITH,
+                Variable.TYPE_URI_SEGMENT, "", true, false);
+        assertEquals(6, template.match("/x/y/x"));
+        assertEquals(-1, template.match("/x/y/z"));
+
+        // Optional variables
+        template = new Template("/users/{id}", Template.MODE_STARTS_WITH,
+                Variable.TYPE_DIGIT, "", false, false);
+        assertEquals(7, template.match("/users/abc"));
+        assertEquals(10, template.match("/users/123abc"));
+    }
+
     public void testEncodedCharacters() {
         Template template = new Template(
                 "http://localhost/{token}/bookstore/{bookid}");
@@ -54,6 +79,20 @@ public class TemplateTestCase extends RestletTestCase {
         assertEquals(encodedToken, variables1.get("token"));
     }
 
+    public void testDecodingUpdate() {
+        Template template = new Template("/files/{name}");
+        Map<String, Object> variables = new HashMap<String, Object>();
+        assertEquals(12, template.parse("/files/a%20b", variables));
+        assertEquals("a%20b", variables.get("name"));
+
+        // Variables updated after the first parsing must be taken into account
+        Variable variable = new Variable(Variable.TYPE_URI_SEGMENT);
+        variable.setDecodingOnParse(true);
+        template.getVariables().put("name", variable);
+        assertEquals(12, template.parse("/files/a%20b", variables));
+        assertEquals("a b", variables.get("name"));
+    }
+
     public void testPathMatching() {
         Template template = new Template("http://www.mydomain.com/abc/{v1}");
         template.setMatchingMode(Template.MODE_STARTS_WITH);
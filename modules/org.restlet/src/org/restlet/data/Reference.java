@@ -26,6 +26,7 @@ package org.restlet.data;
 
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 
@@ -82,7 +83,8 @@ import org.restlet.engine.Edition;
  * The Reference stores its data as a single string, the one passed to the
  * constructor. This string can always be obtained using the toString() method.
  * A couple of integer indexes are maintained to improve the extraction time of
- * various reference properties (URI components).
+ * various reference properties (URI components). The components are also
+ * cached once extracted, until the reference is modified.
  * </p>
  * <p>
  * When you modify a specific component of the URI reference, via the setPath()
@@ -114,6 +116,74 @@ import org.restlet.engine.Edition;
  */
 public class Reference {
 
+    /**
+     * Components parsed from an internal reference. Each component is lazily
+     * computed, at most once per internal reference, and then shared by the
+     * calls to the getters and by the clones.
+     */
+    private static final class Components {
+
+        /** Marks a string component that isn't computed yet. */
+        private static final String UNKNOWN = new String("unknown");
+
+        /** Marks a port that isn't computed yet. */
+        private static final int UNKNOWN_PORT = Integer.MIN_VALUE;
+
+        /** The authority component. */
+        private volatile String authority;
+
+        /** The decoded path segments. */
+        private volatile String[] decodedSegments;
+
+        /** The host domain component. */
+        private volatile String hostDomain;
+
+        /** The host port component. */
+        private volatile int hostPort;
+
+        /** The path component. */
+        private volatile String path;
+
+        /** The query component. */
+        private volatile String query;
+
+        /** The parameters of the query, decoded. */
+        private volatile Parameter[] queryParameters;
+
+        /** The internal reference parsed. */
+        private final String ref;
+
+        /** The relative part. */
+        private volatile String relativePart;
+
+        /** The scheme component. */
+        private volatile String scheme;
+
+        /** The scheme specific part. */
+        private volatile String schemeSpecificPart;
+
+        /** The path segments. */
+        private volatile String[] segments;
+
+        /**
+         * Constructor.
+         * 
+         * @param ref
+         *            The internal reference parsed.
+         */
+        public Components(String ref) {
+            this.authority = UNKNOWN;
+            this.hostDomain = UNKNOWN;
+            this.hostPort = UNKNOWN_PORT;
+            this.path = UNKNOWN;
+            this.query = UNKNOWN;
+            this.ref = ref;
+            this.relativePart = UNKNOWN;
+            this.scheme = UNKNOWN;
+            this.schemeSpecificPart = UNKNOWN;
+        }
+    }
+
     /** Helps to map characters and their validity as URI characters. */
     private static final boolean[] charValidityMap = new boolean[127];
 
@@ -515,6 +585,9 @@ public class Reference {
     /** The base reference for relative references. */
     private volatile Reference baseRef;
 
+    /** The components parsed from the internal reference. */
+    private volatile Components components;
+
     /** The fragment separator index. */
     private volatile int fragmentIndex;
 
@@ -790,6 +863,7 @@ public class Reference {
             newRef.baseRef = this.baseRef.clone();
         }
 
+        newRef.components = this.components;
         newRef.fragmentIndex = this.fragmentIndex;
         newRef.internalRef = this.internalRef;
         newRef.queryIndex = this.queryIndex;
@@ -885,26 +959,15 @@ public class Reference {
      * @return The authority component for hierarchical identifiers.
      */
     public String getAuthority() {
-        final String part = isRelative() ? getRelativePart()
-                : getSchemeSpecificPart();
-
-        if ((part != null) && part.startsWith("//")) {
-            int index = part.indexOf('/', 2);
-
-            if (index != -1) {
-                return part.substring(2, index);
-            }
-
-            index = part.indexOf('?');
-            if (index != -1) {
-                return part.substring(2, index);
-            }
-
-            return part.substring(2);
+        Components components = getComponents();
+        String result = components.authority;
 
+        if (result == Components.UNKNOWN) {
+            result = parseAuthority();
+            components.authority = result;
         }
 
-        return null;
+        return result;
     }
 
     /**
@@ -929,6 +992,24 @@ public class Reference {
         return this.baseRef;
     }
 
+    /**
+     * Returns the components parsed from the internal reference, creating
+     * them if the internal reference changed.
+     * 
+     * @return The components parsed from the internal reference.
+     */
+    private Components getComponents() {
+        Components result = this.components;
+        String ref = this.internalRef;
+
+        if ((result == null) || (result.ref != ref)) {
+            result = new Components(ref);
+            this.components = result;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the optional extensions for hierarchical identifiers. An
      * extensions part starts after the first '.' character of the last path
@@ -1072,36 +1153,12 @@ public class Reference {
      *         identifiers.
      */
     public String getHostDomain() {
-        String result = null;
-        final String authority = getAuthority();
-
-        if (authority != null) {
-            // We must prevent the case where the userinfo part contains ':'
-            // and the case of IPV6 addresses
-            int indexUI = authority.indexOf('@'); // user info
-            int indexIPV6 = authority.indexOf(']'); // IPV6
-            int indexP = authority.indexOf(':', (indexIPV6 == -1) ? indexUI
-                    : indexIPV6);
+        Components components = getComponents();
+        String result = components.hostDomain;
 
-            if (indexUI != -1) {
-                // User info found
-                if (indexP != -1) {
-                    // Port found
-                    result = authority.substring(indexUI + 1, indexP);
-                } else {
-                    // No port found
-                    result = authority.substring(indexUI + 1);
-                }
-            } else {
-                // No user info found
-                if (indexP != -1) {
-                    // Port found
-                    result = authority.substring(0, indexP);
-                } else {
-                    // No port found
-                    result = authority;
-                }
-            }
+        if (result == Components.UNKNOWN) {
+            result = parseHostDomain();
+            components.hostDomain = result;
         }
 
         return result;
@@ -1154,28 +1211,12 @@ public class Reference {
      *         identifiers or -1 if the port number does not exist.
      */
     public int getHostPort() {
-        int result = -1;
-        final String authority = getAuthority();
-
-        if (authority != null) {
-            // We must prevent the case where the userinfo part contains ':'
-            // and the case of IPV6 addresses
-            int indexUI = authority.indexOf('@'); // user info
-            int indexIPV6 = authority.indexOf(']'); // IPV6
-            int index = authority.indexOf(':', (indexIPV6 == -1) ? indexUI
-                    : indexIPV6);
+        Components components = getComponents();
+        int result = components.hostPort;
 
-            if (index != -1) {
-                try {
-                    result = Integer.parseInt(authority.substring(index + 1));
-                } catch (NumberFormatException nfe) {
-                    Context.getCurrentLogger().log(
-                            Level.WARNING,
-                            "Can't parse hostPort : [hostRef,requestUri]=["
-                                    + getBaseRef() + "," + this.internalRef
-                                    + "]");
-                }
-            }
+        if (result == Components.UNKNOWN_PORT) {
+            result = parseHostPort();
+            components.hostPort = result;
         }
 
         return result;
@@ -1373,42 +1414,12 @@ public class Reference {
      * @return The path component for hierarchical identifiers.
      */
     public String getPath() {
-        String result = null;
-        String part = isRelative() ? getRelativePart()
-                : getSchemeSpecificPart();
+        Components components = getComponents();
+        String result = components.path;
 
-        if (part != null) {
-            if (part.startsWith("//")) {
-                // Authority found
-                int index1 = part.indexOf('/', 2);
-
-                if (index1 != -1) {
-                    // Path found
-                    int index2 = part.indexOf('?');
-
-                    if (index2 != -1) {
-                        // Query found
-                        result = part.substring(Math.min(index1, index2),
-                                index2);
-                    } else {
-                        // No query found
-                        result = part.substring(index1);
-                    }
-                } else {
-                    // Path must be empty in this case
-                }
-            } else {
-                // No authority found
-                int index = part.indexOf('?');
-
-                if (index != -1) {
-                    // Query found
-                    result = part.substring(0, index);
-                } else {
-                    // No query found
-                    result = part;
-                }
-            }
+        if (result == Components.UNKNOWN) {
+            result = parsePath();
+            components.path = result;
         }
 
         return result;
@@ -1435,24 +1446,15 @@ public class Reference {
      * @return The query component or null.
      */
     public String getQuery() {
-        if (hasQuery()) {
-            // Query found
-            if (hasFragment()) {
-                if (this.queryIndex < this.fragmentIndex) {
-                    // Fragment found and query sign not inside fragment
-                    return this.internalRef.substring(this.queryIndex + 1,
-                            this.fragmentIndex);
-                }
-
-                return null;
-            }
+        Components components = getComponents();
+        String result = components.query;
 
-            // No fragment found
-            return this.internalRef.substring(this.queryIndex + 1);
+        if (result == Components.UNKNOWN) {
+            result = parseQuery();
+            components.query = result;
         }
 
-        // No query found
-        return null;
+        return result;
     }
 
     /**
@@ -1474,7 +1476,23 @@ public class Reference {
      * @return The optional query component as a form.
      */
     public Form getQueryAsForm() {
-        return new Form(getQuery());
+        Components components = getComponents();
+        Parameter[] parameters = components.queryParameters;
+
+        if (parameters == null) {
+            Form form = new Form(getQuery());
+            parameters = form.toArray(new Parameter[form.size()]);
+            components.queryParameters = parameters;
+        }
+
+        // Copy the mutable parameters
+        Form result = new Form(parameters.length);
+
+        for (Parameter parameter : parameters) {
+            result.add(new Parameter(parameter.getName(), parameter.getValue()));
+        }
+
+        return result;
     }
 
     /**
@@ -1508,7 +1526,15 @@ public class Reference {
      * @return The relative part.
      */
     public String getRelativePart() {
-        return isRelative() ? toString(false, false) : null;
+        Components components = getComponents();
+        String result = components.relativePart;
+
+        if (result == Components.UNKNOWN) {
+            result = parseRelativePart();
+            components.relativePart = result;
+        }
+
+        return result;
     }
 
     /**
@@ -1783,13 +1809,15 @@ public class Reference {
      * @return The scheme component.
      */
     public String getScheme() {
-        if (hasScheme()) {
-            // Scheme found
-            return this.internalRef.substring(0, this.schemeIndex);
+        Components components = getComponents();
+        String result = components.scheme;
+
+        if (result == Components.UNKNOWN) {
+            result = parseScheme();
+            components.scheme = result;
         }
 
-        // No scheme found
-        return null;
+        return result;
     }
 
     /**
@@ -1821,18 +1849,12 @@ public class Reference {
      * @return The scheme specific part.
      */
     public String getSchemeSpecificPart() {
-        String result = null;
+        Components components = getComponents();
+        String result = components.schemeSpecificPart;
 
-        if (hasScheme()) {
-            // Scheme found
-            if (hasFragment()) {
-                // Fragment found
-                result = this.internalRef.substring(this.schemeIndex + 1,
-                        this.fragmentIndex);
-            } else {
-                // No fragment found
-                result = this.internalRef.substring(this.schemeIndex + 1);
-            }
+        if (result == Components.UNKNOWN) {
+            result = parseSchemeSpecificPart();
+            components.schemeSpecificPart = result;
         }
 
         return result;
@@ -1860,42 +1882,15 @@ public class Reference {
      * @return The segments of a hierarchical path.
      */
     public List<String> getSegments() {
-        final List<String> result = new ArrayList<String>();
-        final String path = getPath();
-        int start = -2; // The index of the slash starting the segment
-        char current;
-
-        if (path != null) {
-            for (int i = 0; i < path.length(); i++) {
-                current = path.charAt(i);
+        Components components = getComponents();
+        String[] result = components.segments;
 
-                if (current == '/') {
-                    if (start == -2) {
-                        // Beginning of an absolute path or sequence of two
-                        // separators
-                        start = i;
-                    } else {
-                        // End of a segment
-                        result.add(path.substring(start + 1, i));
-                        start = i;
-                    }
-                } else {
-                    if (start == -2) {
-                        // Starting a new segment for a relative path
-                        start = -1;
-                    } else {
-                        // Looking for the next character
-                    }
-                }
-            }
-
-            if (start != -2) {
-                // Add the last segment
-                result.add(path.substring(start + 1));
-            }
+        if (result == null) {
+            result = parseSegments();
+            components.segments = result;
         }
 
-        return result;
+        return new ArrayList<String>(Arrays.asList(result));
     }
 
     /**
@@ -1908,15 +1903,24 @@ public class Reference {
      * @see #getSegments()
      */
     public List<String> getSegments(boolean decode) {
-        final List<String> result = getSegments();
+        if (!decode) {
+            return getSegments();
+        }
+
+        Components components = getComponents();
+        String[] result = components.decodedSegments;
+
+        if (result == null) {
+            result = getSegments().toArray(new String[0]);
 
-        if (decode) {
-            for (int i = 0; i < result.size(); i++) {
-                result.set(i, decode(result.get(i)));
+            for (int i = 0; i < result.length; i++) {
+                result[i] = decode(result[i]);
             }
+
+            components.decodedSegments = result;
         }
 
-        return result;
+        return new ArrayList<String>(Arrays.asList(result));
     }
 
     /**
@@ -2306,6 +2310,272 @@ public class Reference {
         return this;
     }
 
+    /**
+     * Parses the authority component.
+     * 
+     * @return The authority component or null.
+     */
+    private String parseAuthority() {
+        final String part = isRelative() ? getRelativePart()
+                : getSchemeSpecificPart();
+
+        if ((part != null) && part.startsWith("//")) {
+            int index = part.indexOf('/', 2);
+
+            if (index != -1) {
+                return part.substring(2, index);
+            }
+
+            index = part.indexOf('?');
+            if (index != -1) {
+                return part.substring(2, index);
+            }
+
+            return part.substring(2);
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses the host domain name component.
+     * 
+     * @return The host domain name component or null.
+     */
+    private String parseHostDomain() {
+        String result = null;
+        final String authority = getAuthority();
+
+        if (authority != null) {
+            // We must prevent the case where the userinfo part contains ':'
+            // and the case of IPV6 addresses
+            int indexUI = authority.indexOf('@'); // user info
+            int indexIPV6 = authority.indexOf(']'); // IPV6
+            int indexP = authority.indexOf(':', (indexIPV6 == -1) ? indexUI
+                    : indexIPV6);
+
+            if (indexUI != -1) {
+                // User info found
+                if (indexP != -1) {
+                    // Port found
+                    result = authority.substring(indexUI + 1, indexP);
+                } else {
+                    // No port found
+                    result = authority.substring(indexUI + 1);
+                }
+            } else {
+                // No user info found
+                if (indexP != -1) {
+                    // Port found
+                    result = authority.substring(0, indexP);
+                } else {
+                    // No port found
+                    result = authority;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the optional port number.
+     * 
+     * @return The port number or -1.
+     */
+    private int parseHostPort() {
+        int result = -1;
+        final String authority = getAuthority();
+
+        if (authority != null) {
+            // We must prevent the case where the userinfo part contains ':'
+            // and the case of IPV6 addresses
+            int indexUI = authority.indexOf('@'); // user info
+            int indexIPV6 = authority.indexOf(']'); // IPV6
+            int index = authority.indexOf(':', (indexIPV6 == -1) ? indexUI
+                    : indexIPV6);
+
+            if (index != -1) {
+                try {
+                    result = Integer.parseInt(authority.substring(index + 1));
+                } catch (NumberFormatException nfe) {
+                    Context.getCurrentLogger().log(
+                            Level.WARNING,
+                            "Can't parse hostPort : [hostRef,requestUri]=["
+                                    + getBaseRef() + "," + this.internalRef
+                                    + "]");
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the path component.
+     * 
+     * @return The path component or null.
+     */
+    private String parsePath() {
+        String result = null;
+        String part = isRelative() ? getRelativePart()
+                : getSchemeSpecificPart();
+
+        if (part != null) {
+            if (part.startsWith("//")) {
+                // Authority found
+                int index1 = part.indexOf('/', 2);
+
+                if (index1 != -1) {
+                    // Path found
+                    int index2 = part.indexOf('?');
+
+                    if (index2 != -1) {
+                        // Query found
+                        result = part.substring(Math.min(index1, index2),
+                                index2);
+                    } else {
+                        // No query found
+                        result = part.substring(index1);
+                    }
+                } else {
+                    // Path must be empty in this case
+                }
+            } else {
+                // No authority found
+                int index = part.indexOf('?');
+
+                if (index != -1) {
+                    // Query found
+                    result = part.substring(0, index);
+                } else {
+                    // No query found
+                    result = part;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the query component.
+     * 
+     * @return The query component or null.
+     */
+    private String parseQuery() {
+        if (hasQuery()) {
+            // Query found
+            if (hasFragment()) {
+                if (this.queryIndex < this.fragmentIndex) {
+                    // Fragment found and query sign not inside fragment
+                    return this.internalRef.substring(this.queryIndex + 1,
+                            this.fragmentIndex);
+                }
+
+                return null;
+            }
+
+            // No fragment found
+            return this.internalRef.substring(this.queryIndex + 1);
+        }
+
+        // No query found
+        return null;
+    }
+
+    /**
+     * Parses the relative part.
+     * 
+     * @return The relative part or null.
+     */
+    private String parseRelativePart() {
+        return isRelative() ? toString(false, false) : null;
+    }
+
+    /**
+     * Parses the scheme component.
+     * 
+     * @return The scheme component or null.
+     */
+    private String parseScheme() {
+        if (hasScheme()) {
+            // Scheme found
+            return this.internalRef.substring(0, this.schemeIndex);
+        }
+
+        // No scheme found
+        return null;
+    }
+
+    /**
+     * Parses the scheme specific part.
+     * 
+     * @return The scheme specific part or null.
+     */
+    private String parseSchemeSpecificPart() {
+        String result = null;
+
+        if (hasScheme()) {
+            // Scheme found
+            if (hasFragment()) {
+                // Fragment found
+                result = this.internalRef.substring(this.schemeIndex + 1,
+                        this.fragmentIndex);
+            } else {
+                // No fragment found
+                result = this.internalRef.substring(this.schemeIndex + 1);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the segments of a hierarchical path.
+     * 
+     * @return The segments of a hierarchical path.
+     */
+    private String[] parseSegments() {
+        final List<String> result = new ArrayList<String>();
+        final String path = getPath();
+        int start = -2; // The index of the slash starting the segment
+        char current;
+
+        if (path != null) {
+            for (int i = 0; i < path.length(); i++) {
+                current = path.charAt(i);
+
+                if (current == '/') {
+                    if (start == -2) {
+                        // Beginning of an absolute path or sequence of two
+                        // separators
+                        start = i;
+                    } else {
+                        // End of a segment
+                        result.add(path.substring(start + 1, i));
+                        start = i;
+                    }
+                } else {
+                    if (start == -2) {
+                        // Starting a new segment for a relative path
+                        start = -1;
+                    } else {
+                        // Looking for the next character
+                    }
+                }
+            }
+
+            if (start != -2) {
+                // Add the last segment
+                result.add(path.substring(start + 1));
+            }
+        }
+
+        return result.toArray(new String[result.size()]);
+    }
+
     /**
      * Removes the last segement from the output builder.
      * 
@@ -3090,5 +3360,8 @@ public class Reference {
             this.queryIndex = -1;
             this.fragmentIndex = -1;
         }
+
+        // Discard the components parsed with the previous indexes
+        this.components = null;
     }
 }
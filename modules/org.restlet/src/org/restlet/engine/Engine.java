@@ -510,7 +510,7 @@ public class Engine {
         // [ifndef gwt]
         this.registeredServers = new CopyOnWriteArrayList<org.restlet.engine.connector.ConnectorHelper<org.restlet.Server>>();
         this.registeredAuthenticators = new CopyOnWriteArrayList<org.restlet.engine.security.AuthenticatorHelper>();
-        this.registeredConverters = new CopyOnWriteArrayList<org.restlet.engine.converter.ConverterHelper>();
+        this.registeredConverters = new org.restlet.engine.converter.ConverterList();
         // [enddef]
 
         if (discoverHelpers) {
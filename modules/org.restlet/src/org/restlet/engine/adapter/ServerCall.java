@@ -41,14 +41,14 @@ import org.restlet.engine.connector.ConnectorHelper;
 import org.restlet.engine.header.ContentType;
 import org.restlet.engine.header.DispositionReader;
 import org.restlet.engine.header.EncodingReader;
+import org.restlet.engine.header.HeadParser;
+import org.restlet.engine.header.HeadWriter;
 import org.restlet.engine.header.HeaderConstants;
-import org.restlet.engine.header.HeaderReader;
 import org.restlet.engine.header.HeaderUtils;
 import org.restlet.engine.header.LanguageReader;
 import org.restlet.engine.header.RangeReader;
 import org.restlet.engine.io.IoUtils;
 import org.restlet.engine.util.Base64;
-import org.restlet.engine.util.StringUtils;
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.InputRepresentation;
 import org.restlet.representation.Representation;
@@ -61,6 +61,21 @@ import org.restlet.service.ConnectorService;
  */
 public abstract class ServerCall extends Call {
 
+    /**
+     * The maximum capacity of the head writers kept by each thread. Larger
+     * ones are dropped after use so that a single large head doesn't stay
+     * allocated.
+     */
+    private static final int MAX_HEAD_WRITER_CAPACITY = 8 * 1024;
+
+    /** The head writers reused by each thread to write response heads. */
+    private static final ThreadLocal<HeadWriter> HEAD_WRITERS = new ThreadLocal<HeadWriter>() {
+        @Override
+        protected HeadWriter initialValue() {
+            return new HeadWriter();
+        }
+    };
+
     /** Indicates if the "host" header was already parsed. */
     private volatile boolean hostParsed;
 
@@ -362,64 +377,31 @@ public abstract class ServerCall extends Call {
      * @throws IOException
      */
     protected void readRequestHead(InputStream headStream) throws IOException {
-        StringBuilder sb = new StringBuilder();
+        HeadParser parser = new HeadParser();
 
-        // Parse the request method
-        int next = headStream.read();
-        while ((next != -1) && !HeaderUtils.isSpace(next)) {
-            sb.append((char) next);
-            next = headStream.read();
-        }
+        // Parse the request line
+        parser.parse(headStream);
+        String method = parser.getStartToken(0);
 
-        if (next == -1) {
+        if (method == null) {
             throw new IOException(
-                    "Unable to parse the request method. End of stream reached too early.");
+                    "Unable to parse the request method. End of line reached too early.");
         }
 
-        setMethod(sb.toString());
-        sb.delete(0, sb.length());
-
-        // Parse the request URI
-        next = headStream.read();
-        while ((next != -1) && !HeaderUtils.isSpace(next)) {
-            sb.append((char) next);
-            next = headStream.read();
-        }
-
-        if (next == -1) {
-            throw new IOException(
-                    "Unable to parse the request URI. End of stream reached too early.");
-        }
-        setRequestUri(sb.toString());
-        sb.delete(0, sb.length());
-
-        // Parse the HTTP version
-        next = headStream.read();
-        while ((next != -1) && !HeaderUtils.isCarriageReturn(next)) {
-            sb.append((char) next);
-            next = headStream.read();
-        }
+        String requestUri = parser.getStartToken(1);
 
-        if (next == -1) {
+        if (requestUri == null) {
             throw new IOException(
-                    "Unable to parse the HTTP version. End of stream reached too early.");
+                    "Unable to parse the request URI. End of line reached too early.");
         }
-        next = headStream.read();
 
-        if (HeaderUtils.isLineFeed(next)) {
-            setVersion(sb.toString());
-            sb.delete(0, sb.length());
+        setMethod(method);
+        setRequestUri(requestUri);
+        setVersion(parser.getStartToken(2));
 
-            // Parse the headers
-            Header header = HeaderReader.readHeader(headStream, sb);
-
-            while (header != null) {
-                getRequestHeaders().add(header);
-                header = HeaderReader.readHeader(headStream, sb);
-            }
-        } else {
-            throw new IOException(
-                    "Unable to parse the HTTP version. The carriage return must be followed by a line feed.");
+        // Parse the headers
+        while (parser.parse(headStream) == HeadParser.HEADER) {
+            getRequestHeaders().add(parser.getHeader());
         }
     }
 
@@ -534,23 +516,12 @@ public abstract class ServerCall extends Call {
      */
     protected void writeResponseHead(Response response, OutputStream headStream)
             throws IOException {
+        HeadWriter headWriter = HEAD_WRITERS.get();
+        headWriter.clear();
+
         // Write the status line
         String version = (getVersion() == null) ? "1.1" : getVersion();
-        headStream.write(StringUtils.getAsciiBytes(version));
-        headStream.write(' ');
-        headStream.write(StringUtils.getAsciiBytes(Integer
-                .toString(getStatusCode())));
-        headStream.write(' ');
-
-        if (getReasonPhrase() != null) {
-            headStream.write(StringUtils.getLatin1Bytes(getReasonPhrase()));
-        } else {
-            headStream.write(StringUtils
-                    .getAsciiBytes(("Status " + getStatusCode())));
-        }
-
-        headStream.write(13); // CR
-        headStream.write(10); // LF
+        headWriter.writeStatusLine(version, getStatusCode(), getReasonPhrase());
 
         // We don't support persistent connections yet
         getResponseHeaders().set(HeaderConstants.HEADER_CONNECTION, "close",
@@ -564,12 +535,17 @@ public abstract class ServerCall extends Call {
 
         // Write the response headers
         for (Header header : getResponseHeaders()) {
-            HeaderUtils.writeHeaderLine(header, headStream);
+            headWriter.writeHeader(header);
+        }
+
+        // Write the end of the headers section and the whole head at once
+        headWriter.writeEnd();
+        headWriter.writeTo(headStream);
+
+        if (headWriter.capacity() > MAX_HEAD_WRITER_CAPACITY) {
+            HEAD_WRITERS.remove();
         }
 
-        // Write the end of the headers section
-        headStream.write(13); // CR
-        headStream.write(10); // LF
         headStream.flush();
     }
 }
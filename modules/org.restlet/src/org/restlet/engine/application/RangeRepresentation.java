@@ -31,6 +31,7 @@ import java.io.Reader;
 import java.nio.channels.WritableByteChannel;
 
 import org.restlet.data.Range;
+import org.restlet.engine.io.FileRegion;
 import org.restlet.engine.io.IoUtils;
 import org.restlet.engine.io.RangeInputStream;
 import org.restlet.representation.Representation;
@@ -87,6 +88,29 @@ public class RangeRepresentation extends WrapperRepresentation {
         return IoUtils.getChannel(getStream());
     }
 
+    /**
+     * Returns the index of the first byte of the range inside the wrapped
+     * content, or -1 if it can't be determined because the size of the wrapped
+     * content is unknown.
+     * 
+     * @return The index of the first byte of the range.
+     */
+    public long getStartIndex() {
+        long result = -1;
+
+        if (getRange() == null) {
+            result = 0;
+        } else if (getRange().getIndex() != Range.INDEX_LAST) {
+            result = getRange().getIndex();
+        } else if (getRange().getSize() == Range.SIZE_MAX) {
+            result = 0;
+        } else if (getSize() != UNKNOWN_SIZE) {
+            result = Math.max(0, getSize() - getRange().getSize());
+        }
+
+        return result;
+    }
+
     /**
      * Returns the range specific to this wrapper. The wrapped representation
      * must not have a range set itself.
@@ -140,9 +164,16 @@ public class RangeRepresentation extends WrapperRepresentation {
 
     @Override
     public void write(WritableByteChannel writableChannel) throws IOException {
-        OutputStream os = IoUtils.getStream(writableChannel);
-        write(os);
-        os.flush();
+        FileRegion fileRegion = FileRegion.getFileRegion(this);
+
+        if (fileRegion != null) {
+            // Transfer the range straight from the file
+            fileRegion.write(writableChannel);
+        } else {
+            OutputStream os = IoUtils.getStream(writableChannel);
+            write(os);
+            os.flush();
+        }
     }
 
 }
@@ -43,6 +43,110 @@ import org.restlet.routing.VirtualHost;
  * @author Jerome Louvel
  */
 public class HostRoute extends Route {
+
+    /**
+     * Pattern compiled from a virtual host criterion, with fast paths for the
+     * ".*" wildcard and for literal values.
+     */
+    private static final class HostPattern {
+
+        /** The literal value or null. */
+        private final String literal;
+
+        /** The compiled pattern, null for the wildcard or a literal value. */
+        private final Pattern pattern;
+
+        /** The source regular expression. */
+        private final String regex;
+
+        /**
+         * Constructor.
+         * 
+         * @param regex
+         *            The source regular expression.
+         * @param literalDots
+         *            Indicates if unescaped dots are literal dots.
+         */
+        public HostPattern(String regex, boolean literalDots) {
+            this.literal = WILDCARD.equals(regex) ? null : getLiteral(regex,
+                    literalDots);
+            this.pattern = (WILDCARD.equals(regex) || (this.literal != null)) ? null
+                    : Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+            this.regex = regex;
+        }
+
+        /**
+         * Matches a formatted string, in a case insensitive manner.
+         * 
+         * @param formattedString
+         *            The formatted string to match.
+         * @return True if the formatted string matched.
+         */
+        public boolean matches(String formattedString) {
+            if (this.pattern != null) {
+                return this.pattern.matcher(formattedString).matches();
+            }
+
+            return (this.literal == null)
+                    || this.literal.equalsIgnoreCase(formattedString);
+        }
+    }
+
+    /** The special characters of regular expressions. */
+    private static final String SPECIAL_CHARS = "\\[](){}.*+?^$|";
+
+    /** The regular expression matching any value. */
+    private static final String WILDCARD = ".*";
+
+    /**
+     * Returns the literal value of a regular expression without any special
+     * character, other than escaped ones. Unescaped dots can optionally be
+     * considered as literal dots, as they usually are in host domains.
+     * 
+     * @param regex
+     *            The regular expression.
+     * @param literalDots
+     *            Indicates if unescaped dots are literal dots.
+     * @return The unescaped literal value or null if the regular expression
+     *         isn't a literal value.
+     */
+    static String getLiteral(String regex, boolean literalDots) {
+        StringBuilder result = null;
+
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+
+            if (c == '\\') {
+                if ((i + 1 < regex.length())
+                        && (SPECIAL_CHARS.indexOf(regex.charAt(i + 1)) != -1)) {
+                    // Escaped special character
+                    if (result == null) {
+                        result = new StringBuilder(regex.substring(0, i));
+                    }
+
+                    c = regex.charAt(++i);
+                } else {
+                    return null;
+                }
+            } else if ((c == '.') ? !literalDots
+                    : (SPECIAL_CHARS.indexOf(c) != -1)) {
+                return null;
+            }
+
+            if (result != null) {
+                result.append(c);
+            }
+        }
+
+        return (result == null) ? regex : result.toString();
+    }
+
+    /**
+     * The patterns compiled from the virtual host criteria, recompiled when
+     * the criteria change.
+     */
+    private final HostPattern[] patterns;
+
     /**
      * Constructor.
      * 
@@ -53,6 +157,7 @@ public class HostRoute extends Route {
      */
     public HostRoute(Router router, VirtualHost target) {
         super(router, target);
+        this.patterns = new HostPattern[8];
     }
 
     /**
@@ -96,17 +201,26 @@ public class HostRoute extends Route {
 
     /**
      * Matches a formatted string against a regex pattern, in a case insensitive
-     * manner.
+     * manner. The pattern is compiled once and cached until the criterion
+     * changes. The dots of the host domain criterion are literal dots.
      * 
+     * @param index
+     *            The index of the criterion.
      * @param regex
      *            The pattern to use.
      * @param formattedString
      *            The formatted string to match.
      * @return True if the formatted string matched the pattern.
      */
-    private boolean matches(String regex, String formattedString) {
-        return Pattern.compile(regex, Pattern.CASE_INSENSITIVE)
-                .matcher(formattedString).matches();
+    private boolean matches(int index, String regex, String formattedString) {
+        HostPattern pattern = this.patterns[index];
+
+        if ((pattern == null) || !pattern.regex.equals(regex)) {
+            pattern = new HostPattern(regex, index == 0);
+            this.patterns[index] = pattern;
+        }
+
+        return pattern.matches(formattedString);
     }
 
     /**
@@ -187,17 +301,18 @@ public class HostRoute extends Route {
                     .getPort());
 
             // Check if all the criteria match
-            if (matches(getVirtualHost().getHostDomain(), hostDomain)
-                    && matches(getVirtualHost().getHostPort(), hostPort)
-                    && matches(getVirtualHost().getHostScheme(), hostScheme)
-                    && matches(getVirtualHost().getResourceDomain(),
+            if (matches(0, getVirtualHost().getHostDomain(), hostDomain)
+                    && matches(1, getVirtualHost().getHostPort(), hostPort)
+                    && matches(2, getVirtualHost().getHostScheme(), hostScheme)
+                    && matches(3, getVirtualHost().getResourceDomain(),
                             resourceDomain)
-                    && matches(getVirtualHost().getResourcePort(), resourcePort)
-                    && matches(getVirtualHost().getResourceScheme(),
+                    && matches(4, getVirtualHost().getResourcePort(),
+                            resourcePort)
+                    && matches(5, getVirtualHost().getResourceScheme(),
                             resourceScheme)
-                    && matches(getVirtualHost().getServerAddress(),
+                    && matches(6, getVirtualHost().getServerAddress(),
                             serverAddress)
-                    && matches(getVirtualHost().getServerPort(), serverPort)) {
+                    && matches(7, getVirtualHost().getServerPort(), serverPort)) {
                 result = 1F;
             }
         }
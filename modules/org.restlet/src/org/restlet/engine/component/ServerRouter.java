@@ -24,6 +24,11 @@
 
 package org.restlet.engine.component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.restlet.Component;
@@ -31,6 +36,7 @@ import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
 import org.restlet.data.Status;
+import org.restlet.routing.Route;
 import org.restlet.routing.Router;
 import org.restlet.routing.VirtualHost;
 
@@ -47,9 +53,151 @@ import org.restlet.routing.VirtualHost;
  */
 public class ServerRouter extends Router {
 
+    /**
+     * Index of the host routes by literal host domain, preserving the order of
+     * the routes. Host routes whose domain is a regular expression are
+     * candidates for any host domain.
+     */
+    private static final class HostIndex {
+
+        /** The candidate routes by lower case literal host domain. */
+        private final Map<String, Route[]> candidates;
+
+        /** The host domains of the indexed routes. */
+        private final String[] domains;
+
+        /** The candidate routes for any other host domain. */
+        private final Route[] others;
+
+        /** The indexed routes. */
+        private final Route[] routes;
+
+        /**
+         * Constructor.
+         * 
+         * @param routes
+         *            The routes to index.
+         */
+        public HostIndex(Route[] routes) {
+            this.routes = routes;
+            this.domains = new String[routes.length];
+            Map<String, List<Route>> literals = new HashMap<String, List<Route>>();
+            List<Route> others = new ArrayList<Route>();
+
+            for (int i = 0; i < routes.length; i++) {
+                this.domains[i] = getHostDomain(routes[i]);
+                String key = getKey(this.domains[i]);
+
+                if (key == null) {
+                    // Candidate for all host domains, including the literal
+                    // ones already found and the ones to come
+                    for (List<Route> list : literals.values()) {
+                        list.add(routes[i]);
+                    }
+
+                    others.add(routes[i]);
+                } else {
+                    List<Route> list = literals.get(key);
+
+                    if (list == null) {
+                        list = new ArrayList<Route>(others);
+                        literals.put(key, list);
+                    }
+
+                    list.add(routes[i]);
+                }
+            }
+
+            this.candidates = new HashMap<String, Route[]>();
+
+            for (Map.Entry<String, List<Route>> entry : literals.entrySet()) {
+                this.candidates.put(entry.getKey(), entry.getValue()
+                        .toArray(new Route[0]));
+            }
+
+            this.others = others.toArray(new Route[0]);
+        }
+
+        /**
+         * Returns the routes that can match a host domain, in the list order.
+         * 
+         * @param hostDomain
+         *            The host domain of the request.
+         * @return The candidate routes.
+         */
+        public Route[] getCandidates(String hostDomain) {
+            Route[] result = this.candidates.get(hostDomain
+                    .toLowerCase(Locale.ENGLISH));
+            return (result == null) ? this.others : result;
+        }
+
+        /**
+         * Indicates if the index still reflects the given routes and the host
+         * domains of their virtual hosts.
+         * 
+         * @param routes
+         *            The current routes.
+         * @return True if the index is still valid.
+         */
+        public boolean isValid(List<Route> routes) {
+            int i = 0;
+
+            for (Route route : routes) {
+                if ((i >= this.routes.length) || (route != this.routes[i])
+                        || (getHostDomain(route) != this.domains[i])) {
+                    return false;
+                }
+
+                i++;
+            }
+
+            return i == this.routes.length;
+        }
+    }
+
+    /**
+     * Returns the host domain criterion of a host route.
+     * 
+     * @param route
+     *            The route.
+     * @return The host domain criterion or null if not a host route.
+     */
+    private static String getHostDomain(Route route) {
+        return (route instanceof HostRoute) ? ((HostRoute) route)
+                .getVirtualHost().getHostDomain() : null;
+    }
+
+    /**
+     * Returns the index key of a host domain criterion, only when it is a
+     * literal ASCII value. Dots are literal dots, escaped or not.
+     * 
+     * @param hostDomain
+     *            The host domain criterion.
+     * @return The lower case index key or null.
+     */
+    private static String getKey(String hostDomain) {
+        String literal = (hostDomain == null) ? null : HostRoute.getLiteral(
+                hostDomain, true);
+
+        if (literal == null) {
+            return null;
+        }
+
+        for (int i = 0; i < literal.length(); i++) {
+            if (literal.charAt(i) > 127) {
+                return null;
+            }
+        }
+
+        return literal.toLowerCase(Locale.ENGLISH);
+    }
+
     /** The parent component. */
     private volatile Component component;
 
+    /** The index of the host routes, rebuilt when the routes change. */
+    private volatile HostIndex hostIndex;
+
     /**
      * Constructor.
      * 
@@ -60,7 +208,50 @@ public class ServerRouter extends Router {
         super((component == null) ? null : component.getContext()
                 .createChildContext());
         this.component = component;
-        setRoutingMode(MODE_FIRST_MATCH);
+        setRoutingMode(MODE_CUSTOM);
+    }
+
+    /**
+     * Returns the first matching route, like the {@link #MODE_FIRST_MATCH}
+     * mode, but only scores the host routes whose literal host domain equals
+     * the one of the request, in addition to the host routes using a regular
+     * expression.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param response
+     *            The response to update.
+     * @return The matched route if available or null.
+     */
+    @Override
+    protected Route getCustom(Request request, Response response) {
+        if (getRequiredScore() <= 0F) {
+            // A non positive required score accepts routes that don't match
+            return getRoutes().getFirst(request, response, getRequiredScore());
+        }
+
+        HostIndex index = this.hostIndex;
+
+        if ((index == null) || !index.isValid(getRoutes())) {
+            index = new HostIndex(getRoutes().toArray(new Route[0]));
+            this.hostIndex = index;
+        }
+
+        String hostDomain = "";
+
+        if ((request.getHostRef() != null)
+                && (request.getHostRef().getHostDomain() != null)) {
+            hostDomain = request.getHostRef().getHostDomain();
+        }
+
+        for (Route current : index.getCandidates(hostDomain)) {
+            if (current.score(request, response) >= getRequiredScore()) {
+                return current;
+            }
+        }
+
+        // No match found
+        return null;
     }
 
     /**
@@ -73,7 +264,7 @@ public class ServerRouter extends Router {
     }
 
     @Override
-    protected void logRoute(org.restlet.routing.Route route) {
+    protected void logRoute(Route route) {
         if (getLogger().isLoggable(Level.FINE)) {
             if (route instanceof HostRoute) {
                 VirtualHost vhost = ((HostRoute) route).getVirtualHost();
@@ -0,0 +1,304 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.connector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.data.Parameter;
+import org.restlet.data.Protocol;
+import org.restlet.service.TaskService;
+import org.restlet.util.Series;
+
+/**
+ * Process-wide registry of client connectors, shared by the standalone
+ * {@link org.restlet.resource.ClientResource} instances so that they reuse
+ * the same connection pools. Clients are keyed by protocol and connector
+ * parameters and are reference counted. Once a client isn't leased anymore,
+ * it is stopped after an idle timeout, unless it is leased again in between.
+ * The default idle timeout is 60 seconds and can be changed with the
+ * "org.restlet.engine.connector.clientIdleTimeout" system property, in
+ * milliseconds.
+ * 
+ * @author Jerome Louvel
+ */
+public class ClientRegistry {
+
+    /** A registered client with its number of leases. */
+    private static final class Entry {
+
+        /** The registered client. */
+        private final Client client;
+
+        /** The number of times the client became idle. */
+        private int idleCount;
+
+        /** The registration key. */
+        private final Object key;
+
+        /** The number of leases. */
+        private int leases;
+
+        /** The pending stop task. */
+        private ScheduledFuture<?> stopTask;
+
+        /**
+         * Constructor.
+         * 
+         * @param key
+         *            The registration key.
+         * @param client
+         *            The registered client.
+         */
+        public Entry(Object key, Client client) {
+            this.key = key;
+            this.client = client;
+        }
+    }
+
+    /** The process-wide registry. */
+    private static final ClientRegistry instance = new ClientRegistry(
+            getProperty("org.restlet.engine.connector.clientIdleTimeout",
+                    60000L));
+
+    /**
+     * Returns the process-wide registry.
+     * 
+     * @return The process-wide registry.
+     */
+    public static ClientRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns a long system property.
+     * 
+     * @param name
+     *            The property name.
+     * @param defaultValue
+     *            The default value.
+     * @return The property value or the default value.
+     */
+    private static long getProperty(String name, long defaultValue) {
+        long result = defaultValue;
+
+        try {
+            result = Long.parseLong(System.getProperty(name));
+        } catch (NumberFormatException nfe) {
+            result = defaultValue;
+        }
+
+        return result;
+    }
+
+    /** The registered clients by client instance. */
+    private final Map<Client, Entry> clients;
+
+    /** The registered clients by key. */
+    private final Map<Object, Entry> entries;
+
+    /** The delay in milliseconds before stopping an idle client. */
+    private final long idleTimeout;
+
+    /** The task service stopping the idle clients. */
+    private volatile TaskService taskService;
+
+    /**
+     * Constructor.
+     * 
+     * @param idleTimeout
+     *            The delay in milliseconds before stopping an idle client.
+     */
+    public ClientRegistry(long idleTimeout) {
+        this.clients = new IdentityHashMap<Client, Entry>();
+        this.entries = new HashMap<Object, Entry>();
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Leases a client connector for a given protocol, without parameter.
+     * 
+     * @param protocol
+     *            The connector protocol.
+     * @return The shared client connector.
+     * @see #acquire(Protocol, Series)
+     */
+    public Client acquire(Protocol protocol) {
+        return acquire(protocol, null);
+    }
+
+    /**
+     * Leases a client connector for a given protocol and parameters. The same
+     * client is returned as long as it is leased or idle for less than the
+     * idle timeout. Each lease must be released by calling
+     * {@link #release(Client)}.
+     * 
+     * @param protocol
+     *            The connector protocol.
+     * @param parameters
+     *            The connector parameters or null.
+     * @return The shared client connector.
+     */
+    public synchronized Client acquire(Protocol protocol,
+            Series<Parameter> parameters) {
+        List<Object> key = new ArrayList<Object>();
+        key.add(protocol);
+
+        if (parameters != null) {
+            key.addAll(parameters);
+        }
+
+        Entry entry = this.entries.get(key);
+
+        if (entry == null) {
+            Client client;
+
+            if ((parameters == null) || parameters.isEmpty()) {
+                client = new Client(protocol);
+            } else {
+                Context context = new Context();
+                context.getParameters().addAll(parameters);
+                client = new Client(context, protocol);
+            }
+
+            entry = new Entry(key, client);
+            this.entries.put(key, entry);
+            this.clients.put(client, entry);
+        }
+
+        if (entry.stopTask != null) {
+            entry.stopTask.cancel(false);
+            entry.stopTask = null;
+        }
+
+        entry.leases++;
+        return entry.client;
+    }
+
+    /**
+     * Returns the number of leases of a client.
+     * 
+     * @param client
+     *            The client.
+     * @return The number of leases or 0 if the client isn't registered.
+     */
+    public synchronized int getLeases(Client client) {
+        Entry entry = this.clients.get(client);
+        return (entry == null) ? 0 : entry.leases;
+    }
+
+    /**
+     * Returns the task service stopping the idle clients, creating it if
+     * needed.
+     * 
+     * @return The task service.
+     */
+    private TaskService getTaskService() {
+        if (this.taskService == null) {
+            TaskService service = new TaskService(true, true);
+            service.setCorePoolSize(1);
+            this.taskService = service;
+        }
+
+        return this.taskService;
+    }
+
+    /**
+     * Releases a lease of a client. When the client isn't leased anymore, it
+     * is stopped after the idle timeout.
+     * 
+     * @param client
+     *            The client previously leased.
+     * @return True if the client was leased from this registry.
+     */
+    public boolean release(Client client) {
+        final Entry entry;
+        final int idleCount;
+
+        synchronized (this) {
+            entry = this.clients.get(client);
+
+            if ((entry == null) || (entry.leases <= 0)) {
+                return false;
+            }
+
+            if (--entry.leases > 0) {
+                return true;
+            }
+
+            idleCount = ++entry.idleCount;
+
+            if (this.idleTimeout > 0) {
+                entry.stopTask = getTaskService().schedule(new Runnable() {
+                    public void run() {
+                        stop(entry, idleCount);
+                    }
+                }, this.idleTimeout, TimeUnit.MILLISECONDS);
+                return true;
+            }
+        }
+
+        stop(entry, idleCount);
+        return true;
+    }
+
+    /**
+     * Stops and unregisters a client if it is still idle.
+     * 
+     * @param entry
+     *            The registered client.
+     * @param idleCount
+     *            The idle count when the stop was requested.
+     */
+    private void stop(Entry entry, int idleCount) {
+        synchronized (this) {
+            if ((entry.leases > 0) || (entry.idleCount != idleCount)
+                    || (this.entries.get(entry.key) != entry)) {
+                // Leased again in the meantime
+                return;
+            }
+
+            this.entries.remove(entry.key);
+            this.clients.remove(entry.client);
+            entry.stopTask = null;
+        }
+
+        try {
+            entry.client.stop();
+        } catch (Exception e) {
+            Context.getCurrentLogger().log(Level.WARNING,
+                    "Unable to stop the idle client connector", e);
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.converter;
+
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copy on write list of converter helpers tracking its modifications. The
+ * version is incremented each time the list is modified, which lets the
+ * converter service detect that its cached converter selections are stale.
+ * Note that modifications done through sub lists aren't tracked.
+ * 
+ * @author Jerome Louvel
+ */
+public class ConverterList extends CopyOnWriteArrayList<ConverterHelper> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The modification count. */
+    private final AtomicInteger version = new AtomicInteger();
+
+    /**
+     * Constructor.
+     */
+    public ConverterList() {
+        super();
+    }
+
+    @Override
+    public boolean add(ConverterHelper element) {
+        try {
+            return super.add(element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void add(int index, ConverterHelper element) {
+        try {
+            super.add(index, element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends ConverterHelper> elements) {
+        try {
+            return super.addAll(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(int index,
+            Collection<? extends ConverterHelper> elements) {
+        try {
+            return super.addAll(index, elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public int addAllAbsent(Collection<? extends ConverterHelper> elements) {
+        try {
+            return super.addAllAbsent(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addIfAbsent(ConverterHelper element) {
+        try {
+            return super.addIfAbsent(element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the modification count of the list.
+     * 
+     * @return The modification count of the list.
+     */
+    public int getVersion() {
+        return this.version.get();
+    }
+
+    @Override
+    public ConverterHelper remove(int index) {
+        try {
+            return super.remove(index);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        try {
+            return super.remove(element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        try {
+            return super.removeAll(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> elements) {
+        try {
+            return super.retainAll(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public ConverterHelper set(int index, ConverterHelper element) {
+        try {
+            return super.set(index, element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+}
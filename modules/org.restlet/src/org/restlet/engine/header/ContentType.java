@@ -135,8 +135,22 @@ public class ContentType {
      */
     public ContentType(String headerValue) {
         try {
-            ContentTypeReader ctr = new ContentTypeReader(headerValue);
-            ContentType ct = ctr.readValue();
+            ContentType ct = null;
+            // [ifndef gwt]
+            ct = (headerValue == null) ? null : MetadataCache
+                    .getContentType(headerValue);
+            // [enddef]
+
+            if (ct == null) {
+                ContentTypeReader ctr = new ContentTypeReader(headerValue);
+                ct = ctr.readValue();
+
+                // [ifndef gwt]
+                if (ct != null && headerValue != null) {
+                    MetadataCache.putContentType(headerValue, ct);
+                }
+                // [enddef]
+            }
 
             if (ct != null) {
                 this.mediaType = ct.getMediaType();
@@ -61,6 +61,7 @@ public class ContentTypeReader extends HeaderReader<ContentType> {
             Series<Parameter> parameters) {
         // Attempt to extract the character set
         CharacterSet characterSet = null;
+        MediaType type;
 
         if (parameters != null) {
             String charSet = parameters.getFirstValue("charset");
@@ -70,11 +71,19 @@ public class ContentTypeReader extends HeaderReader<ContentType> {
                 characterSet = new CharacterSet(charSet);
             }
 
-            return new ContentType(new MediaType(mediaType.toString(),
-                    parameters), characterSet);
+            type = new MediaType(mediaType.toString(), parameters);
+        } else {
+            type = new MediaType(mediaType.toString());
         }
 
-        return new ContentType(new MediaType(mediaType.toString()), null);
+        // [ifndef gwt]
+        // Share the instances parsed from distinct headers
+        type = MetadataCache.intern(PreferenceReader.TYPE_MEDIA_TYPE, type);
+        characterSet = MetadataCache.intern(
+                PreferenceReader.TYPE_CHARACTER_SET, characterSet);
+        // [enddef]
+
+        return new ContentType(type, characterSet);
     }
 
     @Override
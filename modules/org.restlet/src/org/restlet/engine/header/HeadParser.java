@@ -0,0 +1,648 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.header;
+
+import static org.restlet.engine.header.HeaderUtils.isCarriageReturn;
+import static org.restlet.engine.header.HeaderUtils.isLineFeed;
+import static org.restlet.engine.header.HeaderUtils.isSpace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.restlet.data.Header;
+
+/**
+ * Incremental parser of HTTP/1.x message heads working directly on bytes. It
+ * is a state machine that can be fed with byte buffers or streams as bytes
+ * become available and that signals each parsed element (start line, header
+ * and end of head) to its caller.<br>
+ * <br>
+ * The well-known header names declared in {@link HeaderConstants} are mapped
+ * to their constant instance without allocating any string, either using their
+ * canonical or lower case spelling. Header values are kept as bytes and only
+ * decoded as ISO-8859-1 strings when first read.<br>
+ * <br>
+ * Note that this class isn't thread-safe, one instance should be used per
+ * connection or per way.
+ * 
+ * @author Jerome Louvel
+ */
+public class HeadParser {
+
+    /**
+     * Header whose value is lazily decoded from the bytes of the parsed head.
+     */
+    private static class ByteHeader extends Header {
+
+        /** The head bytes or null if the value was decoded. */
+        private volatile byte[] bytes;
+
+        /** The length of the value. */
+        private final int length;
+
+        /** The offset of the value. */
+        private final int offset;
+
+        /**
+         * Constructor.
+         * 
+         * @param name
+         *            The header name.
+         * @param bytes
+         *            The head bytes.
+         * @param offset
+         *            The offset of the value.
+         * @param length
+         *            The length of the value.
+         */
+        public ByteHeader(String name, byte[] bytes, int offset, int length) {
+            super(name, null);
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public String getValue() {
+            byte[] b = this.bytes;
+
+            if (b != null) {
+                super.setValue(decode(b, this.offset, this.length));
+                this.bytes = null;
+            }
+
+            return super.getValue();
+        }
+
+        @Override
+        public void setValue(String value) {
+            this.bytes = null;
+            super.setValue(value);
+        }
+    }
+
+    /** Default capacity of the head byte array. */
+    private static final int DEFAULT_CAPACITY = 512;
+
+    /** Event indicating that the empty line ending the head was parsed. */
+    public static final int END = 3;
+
+    /** Event indicating that a header was parsed. */
+    public static final int HEADER = 2;
+
+    /** The ISO-8859-1 character set used to decode heads. */
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    /** The bytes of the well-known header names, indexed by hash. */
+    private static final byte[][] NAME_BYTES;
+
+    /** The mask applied to name hashes. */
+    private static final int NAME_MASK;
+
+    /** The well-known header names, indexed by hash. */
+    private static final String[] NAMES;
+
+    /** Event indicating that the start line was parsed. */
+    public static final int START_LINE = 1;
+
+    /** Expects the line feed ending the head. */
+    private static final int STATE_END_LF = 7;
+
+    /** Expects the beginning of a header line or the end of the head. */
+    private static final int STATE_LINE = 2;
+
+    /** Parses a header name. */
+    private static final int STATE_NAME = 3;
+
+    /** Parses the start line. */
+    private static final int STATE_START_LINE = 0;
+
+    /** Expects the line feed ending the start line. */
+    private static final int STATE_START_LINE_LF = 1;
+
+    /** Parses a header value. */
+    private static final int STATE_VALUE = 5;
+
+    /** Expects the line feed ending a header value. */
+    private static final int STATE_VALUE_LF = 6;
+
+    /** Skips the spaces preceding a header value. */
+    private static final int STATE_VALUE_SPACE = 4;
+
+    /** Event indicating that more bytes are needed to parse the next element. */
+    public static final int UNDERFLOW = 0;
+
+    static {
+        List<String> names = new ArrayList<String>();
+
+        for (String name : getHeaderNames()) {
+            String lowerName = name.toLowerCase(Locale.ENGLISH).intern();
+            names.add(name);
+
+            if (!lowerName.equals(name)) {
+                names.add(lowerName);
+            }
+        }
+
+        int capacity = 1;
+
+        while (capacity < (names.size() * 4)) {
+            capacity <<= 1;
+        }
+
+        NAME_MASK = capacity - 1;
+        NAME_BYTES = new byte[capacity][];
+        NAMES = new String[capacity];
+
+        for (String name : names) {
+            byte[] bytes = name.getBytes(LATIN1);
+            int hash = 0;
+
+            for (byte b : bytes) {
+                hash = 31 * hash + (b & 0xFF);
+            }
+
+            int index = index(hash);
+
+            while ((NAMES[index] != null) && !NAMES[index].equals(name)) {
+                index = (index + 1) & NAME_MASK;
+            }
+
+            NAME_BYTES[index] = bytes;
+            NAMES[index] = name;
+        }
+    }
+
+    /**
+     * Decodes a range of bytes as an ISO-8859-1 string.
+     * 
+     * @param bytes
+     *            The bytes to decode.
+     * @param offset
+     *            The offset of the first byte.
+     * @param length
+     *            The number of bytes.
+     * @return The decoded string.
+     */
+    private static String decode(byte[] bytes, int offset, int length) {
+        return (length == 0) ? "" : new String(bytes, offset, length, LATIN1);
+    }
+
+    /**
+     * Returns the well-known header names declared in {@link HeaderConstants}.
+     * 
+     * @return The well-known header names.
+     */
+    static List<String> getHeaderNames() {
+        List<String> result = new ArrayList<String>();
+
+        for (Field field : HeaderConstants.class.getFields()) {
+            if (field.getName().startsWith("HEADER_")
+                    && Modifier.isStatic(field.getModifiers())
+                    && (field.getType() == String.class)) {
+                try {
+                    result.add((String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    // Should not happen with public constants
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the index in the name table of a given name hash.
+     * 
+     * @param hash
+     *            The name hash.
+     * @return The index in the name table.
+     */
+    private static int index(int hash) {
+        return (hash ^ (hash >>> 16)) & NAME_MASK;
+    }
+
+    /**
+     * Returns the well-known header name matching exactly a range of bytes.
+     * 
+     * @param bytes
+     *            The name bytes.
+     * @param offset
+     *            The offset of the first byte.
+     * @param length
+     *            The number of bytes.
+     * @param hash
+     *            The hash of the name bytes.
+     * @return The well-known header name or null.
+     */
+    private static String lookupName(byte[] bytes, int offset, int length,
+            int hash) {
+        for (int index = index(hash); NAMES[index] != null; index = (index + 1)
+                & NAME_MASK) {
+            byte[] name = NAME_BYTES[index];
+
+            if (name.length == length) {
+                int i = 0;
+
+                while ((i < length) && (name[i] == bytes[offset + i])) {
+                    i++;
+                }
+
+                if (i == length) {
+                    return NAMES[index];
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /** The head bytes, shared with the headers parsed. */
+    private byte[] bytes;
+
+    /** The index of the first space of the start line or -1. */
+    private int firstSpace;
+
+    /** The last header parsed. */
+    private Header header;
+
+    /** The name of the header being parsed. */
+    private String headerName;
+
+    /** The number of head bytes used. */
+    private int length;
+
+    /** The offset of the current header line. */
+    private int lineStart;
+
+    /** The hash of the header name being parsed. */
+    private int nameHash;
+
+    /** The index of the second space of the start line or -1. */
+    private int secondSpace;
+
+    /** Indicates if the head bytes are referenced by parsed headers. */
+    private boolean shared;
+
+    /** The length of the start line. */
+    private int startLineLength;
+
+    /** The current parsing state. */
+    private int state;
+
+    /**
+     * Constructor.
+     */
+    public HeadParser() {
+        reset();
+    }
+
+    /**
+     * Appends the characters of the start line to a string builder.
+     * 
+     * @param sb
+     *            The string builder to fill.
+     */
+    public void appendStartLine(StringBuilder sb) {
+        for (int i = 0; i < this.startLineLength; i++) {
+            sb.append((char) (this.bytes[i] & 0xFF));
+        }
+    }
+
+    /**
+     * Appends a byte to the head bytes.
+     * 
+     * @param b
+     *            The byte to append.
+     */
+    private void append(byte b) {
+        ensureCapacity(1);
+        this.bytes[this.length++] = b;
+    }
+
+    /**
+     * Ensures that a number of bytes can be appended to the head bytes.
+     * 
+     * @param count
+     *            The number of bytes to append.
+     */
+    private void ensureCapacity(int count) {
+        if (this.bytes == null) {
+            this.bytes = new byte[Math.max(DEFAULT_CAPACITY, count)];
+        } else if (this.length + count > this.bytes.length) {
+            byte[] newBytes = new byte[Math.max(this.bytes.length * 2,
+                    this.length + count)];
+            System.arraycopy(this.bytes, 0, newBytes, 0, this.length);
+            this.bytes = newBytes;
+        }
+    }
+
+    /**
+     * Returns the last header parsed.
+     * 
+     * @return The last header parsed.
+     */
+    public Header getHeader() {
+        return this.header;
+    }
+
+    /**
+     * Returns the start line.
+     * 
+     * @return The start line.
+     */
+    public String getStartLine() {
+        return decode(this.bytes, 0, this.startLineLength);
+    }
+
+    /**
+     * Returns one of the three tokens of the start line separated by spaces.
+     * For requests, they are the method, the resource URI and the protocol
+     * version. For responses, they are the protocol version, the status code
+     * and the reason phrase, which can contain spaces.
+     * 
+     * @param index
+     *            The index of the token, between 0 and 2.
+     * @return The start line token or null if it is missing.
+     */
+    public String getStartToken(int index) {
+        String result = null;
+
+        switch (index) {
+        case 0:
+            if (this.firstSpace != -1) {
+                result = decode(this.bytes, 0, this.firstSpace);
+            }
+            break;
+
+        case 1:
+            if (this.secondSpace != -1) {
+                result = decode(this.bytes, this.firstSpace + 1,
+                        this.secondSpace - this.firstSpace - 1);
+            }
+            break;
+
+        case 2:
+            if (this.secondSpace != -1) {
+                result = decode(this.bytes, this.secondSpace + 1,
+                        this.startLineLength - this.secondSpace - 1);
+            }
+            break;
+
+        default:
+            break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the next bytes available in a buffer until an element is parsed
+     * or until the buffer is exhausted. The bytes following the parsed element
+     * are left in the buffer.
+     * 
+     * @param buffer
+     *            The byte buffer to parse.
+     * @return The event parsed ({@link #START_LINE}, {@link #HEADER},
+     *         {@link #END}) or {@link #UNDERFLOW} if more bytes are needed.
+     * @throws IOException
+     */
+    public int parse(ByteBuffer buffer) throws IOException {
+        int result = UNDERFLOW;
+
+        while ((result == UNDERFLOW) && buffer.hasRemaining()) {
+            if (this.state == STATE_VALUE) {
+                // Bulk copy of the value bytes up to the carriage return
+                int position = buffer.position();
+                int limit = buffer.limit();
+                int end = position;
+
+                while ((end < limit) && !isCarriageReturn(buffer.get(end))) {
+                    end++;
+                }
+
+                if (end > position) {
+                    ensureCapacity(end - position);
+                    buffer.get(this.bytes, this.length, end - position);
+                    this.length += end - position;
+                }
+
+                if (end < limit) {
+                    result = parse(buffer.get());
+                }
+            } else {
+                result = parse(buffer.get());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the next byte of the head.
+     * 
+     * @param b
+     *            The byte to parse.
+     * @return The event parsed ({@link #START_LINE}, {@link #HEADER},
+     *         {@link #END}) or {@link #UNDERFLOW} if more bytes are needed.
+     * @throws IOException
+     */
+    @SuppressWarnings("fallthrough")
+    public int parse(byte b) throws IOException {
+        int result = UNDERFLOW;
+
+        switch (this.state) {
+        case STATE_START_LINE:
+            if (isCarriageReturn(b)) {
+                this.state = STATE_START_LINE_LF;
+            } else {
+                if (isSpace(b)) {
+                    if (this.firstSpace == -1) {
+                        this.firstSpace = this.length;
+                    } else if (this.secondSpace == -1) {
+                        this.secondSpace = this.length;
+                    }
+                }
+
+                append(b);
+            }
+            break;
+
+        case STATE_START_LINE_LF:
+            if (!isLineFeed(b)) {
+                throw new IOException(
+                        "Missing line feed character at the end of the start line. Found character \""
+                                + (char) (b & 0xFF) + "\" instead");
+            }
+
+            if (this.length == 0) {
+                // Silently eat empty lines preceding the start line
+                this.state = STATE_START_LINE;
+            } else {
+                this.startLineLength = this.length;
+                this.state = STATE_LINE;
+                result = START_LINE;
+            }
+            break;
+
+        case STATE_LINE:
+            if (isCarriageReturn(b)) {
+                this.state = STATE_END_LF;
+                break;
+            }
+
+            this.lineStart = this.length;
+            this.nameHash = 0;
+            this.state = STATE_NAME;
+            // Continue with the first byte of the header name
+
+        case STATE_NAME:
+            if (b == ':') {
+                this.headerName = lookupName(this.bytes, this.lineStart,
+                        this.length - this.lineStart, this.nameHash);
+
+                if (this.headerName == null) {
+                    this.headerName = decode(this.bytes, this.lineStart,
+                            this.length - this.lineStart);
+                }
+
+                // The value bytes replace the name bytes
+                this.length = this.lineStart;
+                this.state = STATE_VALUE_SPACE;
+            } else if (isCarriageReturn(b) || isLineFeed(b)) {
+                throw new IOException(
+                        "Unable to parse the header name. End of line reached too early.");
+            } else {
+                this.nameHash = 31 * this.nameHash + (b & 0xFF);
+                append(b);
+            }
+            break;
+
+        case STATE_VALUE_SPACE:
+            if (isSpace(b) || (b == '\t')) {
+                // Skip any separator space between colon and header value
+                break;
+            }
+
+            this.state = STATE_VALUE;
+            // Continue with the first byte of the header value
+
+        case STATE_VALUE:
+            if (isCarriageReturn(b)) {
+                this.state = STATE_VALUE_LF;
+            } else {
+                append(b);
+            }
+            break;
+
+        case STATE_VALUE_LF:
+            if (!isLineFeed(b)) {
+                throw new IOException(
+                        "Unable to parse the header value. The carriage return must be followed by a line feed.");
+            }
+
+            this.header = new ByteHeader(this.headerName, this.bytes,
+                    this.lineStart, this.length - this.lineStart);
+            this.headerName = null;
+            this.shared = true;
+            this.state = STATE_LINE;
+            result = HEADER;
+            break;
+
+        case STATE_END_LF:
+            if (!isLineFeed(b)) {
+                throw new IOException(
+                        "Invalid end of headers. Line feed missing after the carriage return.");
+            }
+
+            reset();
+            result = END;
+            break;
+
+        default:
+            break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads and parses the next bytes of a stream until an element is parsed.
+     * No byte following the parsed element is read.
+     * 
+     * @param is
+     *            The input stream to read.
+     * @return The event parsed ({@link #START_LINE}, {@link #HEADER} or
+     *         {@link #END}).
+     * @throws IOException
+     */
+    public int parse(InputStream is) throws IOException {
+        int result = UNDERFLOW;
+        int next;
+
+        while (result == UNDERFLOW) {
+            next = is.read();
+
+            if (next == -1) {
+                throw new IOException(
+                        "Unable to parse the message head. End of stream reached too early.");
+            }
+
+            result = parse((byte) next);
+        }
+
+        return result;
+    }
+
+    /**
+     * Resets the parser so that it expects the start line of a new message.
+     * The head bytes referenced by the headers already parsed are left
+     * untouched.
+     */
+    public void reset() {
+        if (this.shared) {
+            this.bytes = null;
+            this.shared = false;
+        }
+
+        this.firstSpace = -1;
+        this.header = null;
+        this.headerName = null;
+        this.length = 0;
+        this.lineStart = 0;
+        this.nameHash = 0;
+        this.secondSpace = -1;
+        this.startLineLength = 0;
+        this.state = STATE_START_LINE;
+    }
+
+}
@@ -0,0 +1,465 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.header;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.restlet.data.Header;
+import org.restlet.data.Status;
+
+/**
+ * Writer of HTTP/1.x message heads into a reusable byte array. The whole head
+ * is assembled in memory so that it can be written at once to a stream or to a
+ * byte buffer.<br>
+ * <br>
+ * The encoded bytes of the status lines with their standard reason phrase,
+ * of the well-known header names declared in {@link HeaderConstants} and of
+ * the values of headers that usually take a small set of values (Server, Vary,
+ * Content-Type, Accept-Ranges, Connection and Transfer-Encoding) are cached
+ * and shared by all writers.<br>
+ * <br>
+ * Note that this class isn't thread-safe, one instance should be used per
+ * connection, per way or per thread.
+ * 
+ * @author Jerome Louvel
+ */
+public class HeadWriter {
+
+    /**
+     * Encoded status line ending, with the reason phrase it was encoded with.
+     */
+    private static class StatusLine {
+
+        /** The encoded status line ending. */
+        private final byte[] bytes;
+
+        /** The reason phrase. */
+        private final String reasonPhrase;
+
+        /**
+         * Constructor.
+         * 
+         * @param reasonPhrase
+         *            The reason phrase.
+         * @param bytes
+         *            The encoded status line ending.
+         */
+        public StatusLine(String reasonPhrase, byte[] bytes) {
+            this.reasonPhrase = reasonPhrase;
+            this.bytes = bytes;
+        }
+    }
+
+    /** The separator between a header name and its value. */
+    private static final byte[] COLON_SPACE = { ':', ' ' };
+
+    /** The line ending. */
+    private static final byte[] CRLF = { 13, 10 };
+
+    /** Default capacity of the head byte array. */
+    private static final int DEFAULT_CAPACITY = 512;
+
+    /** The encoded HTTP/1.1 version. */
+    private static final byte[] HTTP_1_1 = encode("HTTP/1.1");
+
+    /** The maximum number of cached header values. */
+    private static final int MAX_CACHED_VALUES = 512;
+
+    /** The encoded well-known header names followed by a colon and a space. */
+    private static final Map<String, byte[]> NAMES;
+
+    /** The encoded status lines endings, indexed by status code. */
+    private static final StatusLine[] STATUS_LINES = new StatusLine[500];
+
+    /** The names of the headers whose values are cached. */
+    private static final Set<String> VALUE_NAMES = new HashSet<String>(
+            Arrays.asList(HeaderConstants.HEADER_ACCEPT_RANGES,
+                    HeaderConstants.HEADER_CONNECTION,
+                    HeaderConstants.HEADER_CONTENT_TYPE,
+                    HeaderConstants.HEADER_SERVER,
+                    HeaderConstants.HEADER_TRANSFER_ENCODING,
+                    HeaderConstants.HEADER_VARY));
+
+    /** The cached encoded header values. */
+    private static final ConcurrentMap<String, byte[]> VALUES = new ConcurrentHashMap<String, byte[]>();
+
+    static {
+        NAMES = new HashMap<String, byte[]>();
+
+        for (String name : HeadParser.getHeaderNames()) {
+            NAMES.put(name, encode(name + ": "));
+        }
+    }
+
+    /**
+     * Encodes a string as ISO-8859-1 bytes.
+     * 
+     * @param string
+     *            The string to encode.
+     * @return The encoded bytes.
+     */
+    private static byte[] encode(String string) {
+        return encode(string, (char) 0xFF);
+    }
+
+    /**
+     * Encodes a string as bytes. Characters above the given maximum are
+     * replaced by a question mark.
+     * 
+     * @param string
+     *            The string to encode.
+     * @param max
+     *            The maximum character allowed.
+     * @return The encoded bytes.
+     */
+    private static byte[] encode(String string, char max) {
+        byte[] result = new byte[string.length()];
+
+        for (int i = 0; i < result.length; i++) {
+            char c = string.charAt(i);
+            result[i] = (byte) ((c <= max) ? c : '?');
+        }
+
+        return result;
+    }
+
+    /**
+     * Encodes the ending of a status line, starting with the space preceding
+     * the status code.
+     * 
+     * @param code
+     *            The status code.
+     * @param reasonPhrase
+     *            The reason phrase or null.
+     * @return The encoded status line ending.
+     */
+    private static byte[] encodeStatusLine(int code, String reasonPhrase) {
+        return encode(" " + code + " "
+                + ((reasonPhrase == null) ? "Status " + code : reasonPhrase)
+                + "\r\n");
+    }
+
+    /**
+     * Returns the encoded value of a header whose values are cached, caching
+     * it if there is still room.
+     * 
+     * @param value
+     *            The header value.
+     * @return The encoded header value.
+     */
+    private static byte[] getCachedValue(String value) {
+        byte[] result = VALUES.get(value);
+
+        if (result == null) {
+            result = encode(value);
+
+            if (VALUES.size() < MAX_CACHED_VALUES) {
+                VALUES.putIfAbsent(value, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the encoded ending of a status line, starting with the space
+     * preceding the status code.
+     * 
+     * @param code
+     *            The status code.
+     * @param reasonPhrase
+     *            The reason phrase or null.
+     * @return The encoded status line ending.
+     */
+    private static byte[] getStatusLine(int code, String reasonPhrase) {
+        StatusLine statusLine = null;
+
+        if ((code >= 100) && (code < 600)) {
+            statusLine = STATUS_LINES[code - 100];
+
+            if (statusLine == null) {
+                String standardPhrase = Status.valueOf(code).getReasonPhrase();
+                statusLine = new StatusLine(standardPhrase,
+                        encodeStatusLine(code, standardPhrase));
+                STATUS_LINES[code - 100] = statusLine;
+            }
+        }
+
+        if ((statusLine != null)
+                && ((statusLine.reasonPhrase == reasonPhrase) || ((reasonPhrase != null) && reasonPhrase
+                        .equals(statusLine.reasonPhrase)))) {
+            return statusLine.bytes;
+        }
+
+        return encodeStatusLine(code, reasonPhrase);
+    }
+
+    /**
+     * Writes a header line directly to an output stream, without assembling it
+     * in a head writer first.
+     * 
+     * @param header
+     *            The header to write.
+     * @param os
+     *            The output stream.
+     * @throws IOException
+     */
+    public static void writeHeader(Header header, OutputStream os)
+            throws IOException {
+        String name = header.getName();
+        String value = header.getValue();
+        byte[] nameBytes = NAMES.get(name);
+
+        if (nameBytes != null) {
+            os.write(nameBytes);
+        } else {
+            os.write(encode(name, (char) 0x7F));
+            os.write(COLON_SPACE);
+        }
+
+        if (value != null) {
+            os.write(VALUE_NAMES.contains(name) ? getCachedValue(value)
+                    : encode(value));
+        }
+
+        os.write(CRLF);
+    }
+
+    /** The head bytes. */
+    private byte[] bytes;
+
+    /** The number of head bytes written. */
+    private int length;
+
+    /** The index of the next head byte to send. */
+    private int position;
+
+    /**
+     * Constructor.
+     */
+    public HeadWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param capacity
+     *            The initial capacity of the head byte array.
+     */
+    public HeadWriter(int capacity) {
+        this.bytes = new byte[capacity];
+        this.length = 0;
+        this.position = 0;
+    }
+
+    /**
+     * Appends bytes to the head.
+     * 
+     * @param source
+     *            The bytes to append.
+     */
+    private void append(byte[] source) {
+        ensureCapacity(source.length);
+        System.arraycopy(source, 0, this.bytes, this.length, source.length);
+        this.length += source.length;
+    }
+
+    /**
+     * Appends the characters of a string to the head. Characters above the
+     * given maximum are replaced by a question mark.
+     * 
+     * @param string
+     *            The string to append.
+     * @param max
+     *            The maximum character allowed.
+     */
+    private void append(String string, char max) {
+        int count = string.length();
+        ensureCapacity(count);
+
+        for (int i = 0; i < count; i++) {
+            char c = string.charAt(i);
+            this.bytes[this.length++] = (byte) ((c <= max) ? c : '?');
+        }
+    }
+
+    /**
+     * Returns the capacity of the head byte array.
+     * 
+     * @return The capacity of the head byte array.
+     */
+    public int capacity() {
+        return this.bytes.length;
+    }
+
+    /**
+     * Clears the head.
+     */
+    public void clear() {
+        this.length = 0;
+        this.position = 0;
+    }
+
+    /**
+     * Ensures that a number of bytes can be appended to the head.
+     * 
+     * @param count
+     *            The number of bytes to append.
+     */
+    private void ensureCapacity(int count) {
+        if (this.length + count > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes,
+                    Math.max(this.bytes.length * 2, this.length + count));
+        }
+    }
+
+    /**
+     * Indicates if head bytes remain to be sent.
+     * 
+     * @return True if head bytes remain to be sent.
+     */
+    public boolean hasRemaining() {
+        return this.position < this.length;
+    }
+
+    /**
+     * Returns the number of head bytes that remain to be sent.
+     * 
+     * @return The number of head bytes that remain to be sent.
+     */
+    public int remaining() {
+        return this.length - this.position;
+    }
+
+    /**
+     * Writes the empty line ending the head.
+     */
+    public void writeEnd() {
+        append(CRLF);
+    }
+
+    /**
+     * Writes a header line.
+     * 
+     * @param header
+     *            The header to write.
+     */
+    public void writeHeader(Header header) {
+        writeHeader(header.getName(), header.getValue());
+    }
+
+    /**
+     * Writes a header line.
+     * 
+     * @param name
+     *            The header name.
+     * @param value
+     *            The header value or null.
+     */
+    public void writeHeader(String name, String value) {
+        byte[] nameBytes = NAMES.get(name);
+
+        if (nameBytes != null) {
+            append(nameBytes);
+        } else {
+            append(name, (char) 0x7F);
+            append(COLON_SPACE);
+        }
+
+        if (value != null) {
+            if (VALUE_NAMES.contains(name)) {
+                append(getCachedValue(value));
+            } else {
+                append(value, (char) 0xFF);
+            }
+        }
+
+        append(CRLF);
+    }
+
+    /**
+     * Writes a status line.
+     * 
+     * @param version
+     *            The protocol version, such as "HTTP/1.1".
+     * @param code
+     *            The status code.
+     * @param reasonPhrase
+     *            The reason phrase or null.
+     */
+    public void writeStatusLine(String version, int code, String reasonPhrase) {
+        if ("HTTP/1.1".equals(version)) {
+            append(HTTP_1_1);
+        } else {
+            append(version, (char) 0x7F);
+        }
+
+        append(getStatusLine(code, reasonPhrase));
+    }
+
+    /**
+     * Copies as many of the remaining head bytes as possible to a byte
+     * buffer. The head is cleared once all its bytes were copied.
+     * 
+     * @param buffer
+     *            The target byte buffer.
+     * @return The number of bytes copied.
+     */
+    public int writeTo(ByteBuffer buffer) {
+        int result = Math.min(remaining(), buffer.remaining());
+        buffer.put(this.bytes, this.position, result);
+        this.position += result;
+
+        if (!hasRemaining()) {
+            clear();
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes the remaining head bytes to an output stream with a single call
+     * and clears the head.
+     * 
+     * @param os
+     *            The output stream.
+     * @throws IOException
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        os.write(this.bytes, this.position, remaining());
+        clear();
+    }
+
+}
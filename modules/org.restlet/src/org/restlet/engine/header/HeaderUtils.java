@@ -54,7 +54,6 @@ import org.restlet.data.Tag;
 import org.restlet.engine.Engine;
 import org.restlet.engine.util.CaseInsensitiveHashSet;
 import org.restlet.engine.util.DateUtils;
-import org.restlet.engine.util.StringUtils;
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.util.Series;
@@ -1308,16 +1307,7 @@ public class HeaderUtils {
      */
     public static void writeHeaderLine(Header header, OutputStream os)
             throws IOException {
-        os.write(StringUtils.getAsciiBytes(header.getName()));
-        os.write(':');
-        os.write(' ');
-
-        if (header.getValue() != null) {
-            os.write(StringUtils.getLatin1Bytes(header.getValue()));
-        }
-
-        os.write(13); // CR
-        os.write(10); // LF
+        HeadWriter.writeHeader(header, os);
     }
 
     /**
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.header;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Metadata;
+import org.restlet.data.Parameter;
+import org.restlet.data.Preference;
+import org.restlet.util.Series;
+
+/**
+ * Bounded cache of the metadata parsed from header values. Identical header
+ * values sent by the same clients are parsed once and then only cost a hash
+ * lookup. The cache is shared by {@link ContentTypeReader} and
+ * {@link PreferenceReader}.<br>
+ * <br>
+ * Three kinds of entries are kept, each in concurrent maps that are cleared
+ * when they reach {@link #MAX_ENTRIES} entries:
+ * <ul>
+ * <li>the metadata instances, interned by type and name, so that equal
+ * metadata parsed from distinct headers is shared;</li>
+ * <li>the content types, by raw "Content-Type" header value;</li>
+ * <li>the preference lists, by type and raw "Accept-*" header value.</li>
+ * </ul>
+ * As metadata and content types are immutable, they are directly shared.
+ * Preferences and their parameters are mutable, so fresh copies of the cached
+ * preferences are returned.<br>
+ * <br>
+ * Media types with a "boundary" parameter, such as the ones of multipart
+ * entities, are neither interned nor cached. Their value is usually unique to
+ * a message and would only fill the maps.
+ * 
+ * @author Jerome Louvel
+ */
+class MetadataCache {
+
+    /** Maximum number of entries of each map before it is cleared. */
+    static final int MAX_ENTRIES = 1024;
+
+    /** The content types by header value. */
+    private static final ConcurrentMap<String, ContentType> CONTENT_TYPES = new ConcurrentHashMap<String, ContentType>();
+
+    /** The interned metadata by name, indexed by type. */
+    private static final List<ConcurrentMap<String, Metadata>> METADATA = newMaps();
+
+    /** The parsed preferences by header value, indexed by type. */
+    private static final List<ConcurrentMap<String, List<Preference<Metadata>>>> PREFERENCES = newMaps();
+
+    /**
+     * Adds copies of the preferences cached for a header value.
+     * 
+     * @param type
+     *            The type of metadata, see {@link PreferenceReader}.
+     * @param header
+     *            The header value.
+     * @param preferences
+     *            The list of preferences to update.
+     * @return True if the preferences were cached and added.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static boolean addPreferences(int type, String header,
+            Collection preferences) {
+        List<Preference<Metadata>> cached = PREFERENCES.get(type).get(header);
+
+        if (cached == null) {
+            return false;
+        }
+
+        for (Preference<Metadata> preference : cached) {
+            preferences.add(copy(preference));
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies a preference and its parameters.
+     * 
+     * @param preference
+     *            The preference to copy.
+     * @return The copied preference.
+     */
+    private static Preference<Metadata> copy(Preference<Metadata> preference) {
+        Series<Parameter> parameters = null;
+
+        if (!preference.getParameters().isEmpty()) {
+            parameters = new Series<Parameter>(Parameter.class);
+
+            for (Parameter parameter : preference.getParameters()) {
+                parameters.add(parameter.getName(), parameter.getValue());
+            }
+        }
+
+        return new Preference<Metadata>(preference.getMetadata(),
+                preference.getQuality(), parameters);
+    }
+
+    /**
+     * Returns the content type cached for a header value.
+     * 
+     * @param header
+     *            The "Content-Type" header value.
+     * @return The cached content type or null.
+     */
+    public static ContentType getContentType(String header) {
+        return CONTENT_TYPES.get(header);
+    }
+
+    /**
+     * Returns the interned instance equal to the given metadata.
+     * 
+     * @param type
+     *            The type of metadata, see {@link PreferenceReader}.
+     * @param metadata
+     *            The metadata to intern.
+     * @return The interned instance with the same name.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Metadata> T intern(int type, T metadata) {
+        if (metadata == null || metadata.getName() == null
+                || isUnique(metadata)) {
+            return metadata;
+        }
+
+        ConcurrentMap<String, Metadata> map = METADATA.get(type);
+        Metadata result = map.get(metadata.getName());
+
+        if (result == null) {
+            result = put(map, metadata.getName(), metadata);
+        }
+
+        return (T) result;
+    }
+
+    /**
+     * Indicates if a metadata is likely unique to a message, in which case it
+     * isn't worth caching. This is the case of media types with a "boundary"
+     * parameter.
+     * 
+     * @param metadata
+     *            The metadata to test.
+     * @return True if the metadata is likely unique to a message.
+     */
+    private static boolean isUnique(Metadata metadata) {
+        return (metadata instanceof MediaType)
+                && (metadata.getName().indexOf(';') != -1)
+                && (((MediaType) metadata).getParameters().getFirst("boundary",
+                        true) != null);
+    }
+
+    /**
+     * Creates the list of maps indexed by type of metadata.
+     * 
+     * @return The list of maps.
+     */
+    private static <V> List<ConcurrentMap<String, V>> newMaps() {
+        List<ConcurrentMap<String, V>> result = new ArrayList<ConcurrentMap<String, V>>();
+
+        for (int i = 0; i <= PreferenceReader.TYPE_PATCH; i++) {
+            result.add(new ConcurrentHashMap<String, V>());
+        }
+
+        return result;
+    }
+
+    /**
+     * Puts a value in a map unless already present, clearing it first if full.
+     * 
+     * @param map
+     *            The map to update.
+     * @param key
+     *            The key.
+     * @param value
+     *            The value.
+     * @return The value now associated to the key.
+     */
+    private static <V> V put(ConcurrentMap<String, V> map, String key, V value) {
+        if (map.size() >= MAX_ENTRIES) {
+            map.clear();
+        }
+
+        V previous = map.putIfAbsent(key, value);
+        return (previous == null) ? value : previous;
+    }
+
+    /**
+     * Caches the content type parsed from a header value.
+     * 
+     * @param header
+     *            The "Content-Type" header value.
+     * @param contentType
+     *            The parsed content type.
+     * @return The cached content type, or the given one if it isn't cached.
+     */
+    public static ContentType putContentType(String header,
+            ContentType contentType) {
+        if ((contentType.getMediaType() != null)
+                && isUnique(contentType.getMediaType())) {
+            return contentType;
+        }
+
+        return put(CONTENT_TYPES, header, contentType);
+    }
+
+    /**
+     * Interns the metadata of the preferences parsed from a header value and
+     * caches copies of them.
+     * 
+     * @param type
+     *            The type of metadata, see {@link PreferenceReader}.
+     * @param header
+     *            The header value.
+     * @param preferences
+     *            The parsed preferences.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static void putPreferences(int type, String header,
+            Collection preferences) {
+        List<Preference<Metadata>> cached = new ArrayList<Preference<Metadata>>(
+                preferences.size());
+
+        for (Preference<Metadata> preference : (Collection<Preference<Metadata>>) preferences) {
+            preference.setMetadata(intern(type, preference.getMetadata()));
+            cached.add(copy(preference));
+        }
+
+        put(PREFERENCES.get(type), header, cached);
+    }
+
+}
@@ -31,7 +31,10 @@ import static org.restlet.engine.header.HeaderUtils.isText;
 import static org.restlet.engine.header.HeaderUtils.isTokenChar;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import org.restlet.data.CharacterSet;
 import org.restlet.data.ClientInfo;
@@ -80,10 +83,9 @@ public class PreferenceReader<T extends Metadata> extends
                 clientInfo.getAcceptedCharacterSets().add(
                         new Preference<CharacterSet>(CharacterSet.ISO_8859_1));
             } else {
-                PreferenceReader pr = new PreferenceReader(
-                        PreferenceReader.TYPE_CHARACTER_SET,
-                        acceptCharsetHeader);
-                pr.addValues(clientInfo.getAcceptedCharacterSets());
+                addPreferences(PreferenceReader.TYPE_CHARACTER_SET,
+                        acceptCharsetHeader,
+                        clientInfo.getAcceptedCharacterSets());
             }
         } else {
             clientInfo.getAcceptedCharacterSets().add(
@@ -103,9 +105,8 @@ public class PreferenceReader<T extends Metadata> extends
     public static void addEncodings(String acceptEncodingHeader,
             ClientInfo clientInfo) {
         if (acceptEncodingHeader != null) {
-            PreferenceReader pr = new PreferenceReader(
-                    PreferenceReader.TYPE_ENCODING, acceptEncodingHeader);
-            pr.addValues(clientInfo.getAcceptedEncodings());
+            addPreferences(PreferenceReader.TYPE_ENCODING,
+                    acceptEncodingHeader, clientInfo.getAcceptedEncodings());
         } else {
             clientInfo.getAcceptedEncodings().add(
                     new Preference(Encoding.IDENTITY));
@@ -124,9 +125,8 @@ public class PreferenceReader<T extends Metadata> extends
     public static void addLanguages(String acceptLanguageHeader,
             ClientInfo clientInfo) {
         if (acceptLanguageHeader != null) {
-            PreferenceReader pr = new PreferenceReader(
-                    PreferenceReader.TYPE_LANGUAGE, acceptLanguageHeader);
-            pr.addValues(clientInfo.getAcceptedLanguages());
+            addPreferences(PreferenceReader.TYPE_LANGUAGE,
+                    acceptLanguageHeader, clientInfo.getAcceptedLanguages());
         } else {
             clientInfo.getAcceptedLanguages().add(new Preference(Language.ALL));
         }
@@ -144,9 +144,8 @@ public class PreferenceReader<T extends Metadata> extends
     public static void addMediaTypes(String acceptMediaTypeHeader,
             ClientInfo clientInfo) {
         if (acceptMediaTypeHeader != null) {
-            PreferenceReader pr = new PreferenceReader(
-                    PreferenceReader.TYPE_MEDIA_TYPE, acceptMediaTypeHeader);
-            pr.addValues(clientInfo.getAcceptedMediaTypes());
+            addPreferences(PreferenceReader.TYPE_MEDIA_TYPE,
+                    acceptMediaTypeHeader, clientInfo.getAcceptedMediaTypes());
         } else {
             clientInfo.getAcceptedMediaTypes().add(
                     new Preference(MediaType.ALL));
@@ -165,12 +164,40 @@ public class PreferenceReader<T extends Metadata> extends
     public static void addPatches(String acceptPatchHeader,
             ClientInfo clientInfo) {
         if (acceptPatchHeader != null) {
-            PreferenceReader pr = new PreferenceReader(
-                    PreferenceReader.TYPE_PATCH, acceptPatchHeader);
-            pr.addValues(clientInfo.getAcceptedPatches());
+            addPreferences(PreferenceReader.TYPE_PATCH,
+                    acceptPatchHeader, clientInfo.getAcceptedPatches());
         }
     }
 
+    /**
+     * Parses preferences from a header, or copies the ones cached for the
+     * same header value.
+     * 
+     * @param type
+     *            The type of metadata read.
+     * @param header
+     *            The header to parse.
+     * @param preferences
+     *            The list of preferences to update.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void addPreferences(int type, String header,
+            Collection preferences) {
+        // [ifndef gwt]
+        if (MetadataCache.addPreferences(type, header, preferences)) {
+            return;
+        }
+
+        List parsed = new ArrayList();
+        new PreferenceReader(type, header).addValues(parsed);
+        MetadataCache.putPreferences(type, header, parsed);
+        preferences.addAll(parsed);
+        // [enddef]
+        // [ifdef gwt] uncomment
+        // new PreferenceReader(type, header).addValues(preferences);
+        // [enddef]
+    }
+
     /**
      * Parses a quality value.<br>
      * If the quality is invalid, an IllegalArgumentException is thrown.
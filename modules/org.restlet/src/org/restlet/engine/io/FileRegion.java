@@ -0,0 +1,157 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.restlet.engine.application.RangeRepresentation;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Region of a file exposed by a representation, either a whole
+ * {@link FileRepresentation} or a {@link RangeRepresentation} wrapping one.
+ * Connectors can rely on it to send the bytes straight from the file system,
+ * for example with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileRegion {
+
+    /**
+     * Returns the file region exposed by a representation.
+     * 
+     * @param representation
+     *            The representation to inspect.
+     * @return The file region or null if the representation isn't a file, a
+     *         range of a file or if its size is unknown.
+     */
+    public static FileRegion getFileRegion(Representation representation) {
+        FileRegion result = null;
+        long size = (representation == null) ? Representation.UNKNOWN_SIZE
+                : representation.getAvailableSize();
+
+        if (size == Representation.UNKNOWN_SIZE) {
+            // The region can't be determined
+        } else if ((representation instanceof FileRepresentation)
+                && (representation.getRange() == null)) {
+            result = new FileRegion((FileRepresentation) representation, 0,
+                    size);
+        } else if (representation instanceof RangeRepresentation) {
+            RangeRepresentation range = (RangeRepresentation) representation;
+
+            if ((range.getWrappedRepresentation() instanceof FileRepresentation)
+                    && (range.getStartIndex() != -1)) {
+                result = new FileRegion(
+                        (FileRepresentation) range.getWrappedRepresentation(),
+                        range.getStartIndex(), size);
+            }
+        }
+
+        return result;
+    }
+
+    /** The file representation. */
+    private final FileRepresentation file;
+
+    /** The number of bytes of the region. */
+    private final long size;
+
+    /** The index of the first byte of the region. */
+    private final long startIndex;
+
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            The file representation.
+     * @param startIndex
+     *            The index of the first byte of the region.
+     * @param size
+     *            The number of bytes of the region.
+     */
+    public FileRegion(FileRepresentation file, long startIndex, long size) {
+        this.file = file;
+        this.size = size;
+        this.startIndex = startIndex;
+    }
+
+    /**
+     * Opens a new channel on the whole file. The region still needs to be
+     * selected using the start index and the size.
+     * 
+     * @return A new channel on the whole file.
+     * @throws IOException
+     */
+    public FileChannel getChannel() throws IOException {
+        return getFile().getChannel();
+    }
+
+    /**
+     * Returns the file representation.
+     * 
+     * @return The file representation.
+     */
+    public FileRepresentation getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of bytes of the region.
+     * 
+     * @return The number of bytes of the region.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the first byte of the region.
+     * 
+     * @return The index of the first byte of the region.
+     */
+    public long getStartIndex() {
+        return startIndex;
+    }
+
+    /**
+     * Writes the region to a writable channel using
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+     * 
+     * @param writableChannel
+     *            The writable channel.
+     * @throws IOException
+     */
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        IoUtils.copy(getChannel(), getStartIndex(), getSize(),
+                writableChannel);
+    }
+
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Input stream exposing the content of a representation by writing it on the
+ * reading thread into a bounded buffer, instead of relying on a separate
+ * writer thread and a pipe. The representation is written once, on the first
+ * read, so it should only be used for representations whose size is known and
+ * fits in the buffer. If the content exceeds the buffer capacity anyway, the
+ * writing is aborted and the reading fails with an {@link IOException}.<br>
+ * <br>
+ * Note that the first read only returns once the whole content has been
+ * written.
+ * 
+ * @author Jerome Louvel
+ */
+public class InlineInputStream extends InputStream {
+
+    /**
+     * Output stream buffering bytes up to a given capacity, then failing.
+     */
+    private static class BoundedOutputStream extends OutputStream {
+
+        /** The buffered bytes. */
+        private byte[] buffer;
+
+        /** The maximum number of bytes buffered. */
+        private final int capacity;
+
+        /** The number of bytes buffered. */
+        private int count;
+
+        /** Indicates if the capacity was exceeded. */
+        private volatile boolean overflowed;
+
+        /**
+         * Constructor.
+         * 
+         * @param capacity
+         *            The maximum number of bytes buffered.
+         */
+        public BoundedOutputStream(int capacity) {
+            this.buffer = new byte[Math.min(capacity, IoUtils.BUFFER_SIZE)];
+            this.capacity = capacity;
+            this.count = 0;
+            this.overflowed = false;
+        }
+
+        /**
+         * Ensures that the given number of bytes can be buffered, growing the
+         * buffer if needed.
+         * 
+         * @param length
+         *            The number of bytes to add.
+         * @throws IOException
+         *             If the capacity is exceeded.
+         */
+        private void ensureCapacity(int length) throws IOException {
+            int required = this.count + length;
+
+            if (this.overflowed || (required > this.capacity)) {
+                this.overflowed = true;
+                throw new IOException(
+                        "The inline buffer capacity has been exceeded");
+            } else if (required > this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, Math.min(
+                        this.capacity,
+                        Math.max(this.buffer.length * 2, required)));
+            }
+        }
+
+        /**
+         * Returns an input stream reading the buffered bytes without copying
+         * them.
+         * 
+         * @return An input stream reading the buffered bytes.
+         */
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(this.buffer, 0, this.count);
+        }
+
+        /**
+         * Indicates if the capacity was exceeded.
+         * 
+         * @return True if the capacity was exceeded.
+         */
+        public boolean isOverflowed() {
+            return overflowed;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureCapacity(len);
+            System.arraycopy(b, off, this.buffer, this.count, len);
+            this.count += len;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(1);
+            this.buffer[this.count++] = (byte) b;
+        }
+    }
+
+    /** The maximum number of bytes buffered. */
+    private final int capacity;
+
+    /** The representation to read. */
+    private final Representation representation;
+
+    /** The actual source stream, once the representation has been written. */
+    private volatile InputStream source;
+
+    /**
+     * Constructor.
+     * 
+     * @param representation
+     *            The representation to read.
+     * @param capacity
+     *            The maximum number of bytes buffered.
+     */
+    public InlineInputStream(Representation representation, int capacity) {
+        this.capacity = capacity;
+        this.representation = representation;
+        this.source = null;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return getSource().available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.source != null) {
+            this.source.close();
+        }
+    }
+
+    /**
+     * Returns the actual source stream, writing the representation on the
+     * first call.
+     * 
+     * @return The actual source stream.
+     * @throws IOException
+     */
+    private InputStream getSource() throws IOException {
+        if (this.source == null) {
+            BoundedOutputStream bos = new BoundedOutputStream(this.capacity);
+
+            try {
+                this.representation.write(bos);
+            } catch (IOException ioe) {
+                if (!bos.isOverflowed()) {
+                    throw ioe;
+                }
+            }
+
+            if (bos.isOverflowed()) {
+                // Can't be written again, the representation may be one-shot
+                throw new IOException(
+                        "The representation content exceeds the inline buffer capacity of "
+                                + this.capacity + " bytes");
+            }
+
+            this.source = bos.getInputStream();
+        }
+
+        return this.source;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return getSource().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return getSource().read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return getSource().skip(n);
+    }
+
+}
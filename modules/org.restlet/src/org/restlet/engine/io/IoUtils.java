@@ -78,6 +78,18 @@ public class IoUtils {
     public final static int TIMEOUT_MS = getProperty(
             "org.restlet.engine.io.timeoutMs", 60000);
 
+    // [ifndef gwt] member
+    /**
+     * The maximum number of bytes buffered when converting a representation
+     * into a stream by writing it on the reading thread, see
+     * {@link InlineInputStream}. Larger contents, or contents of unknown size,
+     * are piped from a writer thread. It looks for the System property
+     * "org.restlet.engine.io.inlineBufferSize" and if not defined, uses the
+     * "262144" default value. A value of 0 disables inline writing.
+     */
+    public final static int INLINE_BUFFER_SIZE = getProperty(
+            "org.restlet.engine.io.inlineBufferSize", 256 * 1024);
+
     // [ifndef gwt] method
     /**
      * Copies an input stream to an output stream. When the reading is done, the
@@ -154,6 +166,77 @@ public class IoUtils {
         }
     }
 
+    // [ifndef gwt] method
+    /**
+     * Writes a region of a file channel to a writable channel using the
+     * {@link java.nio.channels.FileChannel#transferTo(long, long, WritableByteChannel)}
+     * method, which lets the operating system send the bytes without copying
+     * them through the JVM heap when supported. When no byte can be
+     * transferred, a non-blocking writable channel is selected until it can
+     * accept more bytes, while a single buffer of bytes is copied to a blocking
+     * one before retrying the transfer. When the writing is done, the file
+     * channel is closed.
+     * 
+     * @param fileChannel
+     *            The file channel.
+     * @param position
+     *            The position of the first byte to write.
+     * @param count
+     *            The number of bytes to write.
+     * @param writableChannel
+     *            The writable channel.
+     * @throws IOException
+     *             If the file is shorter than the region or is truncated
+     *             during the writing.
+     */
+    public static void copy(java.nio.channels.FileChannel fileChannel,
+            long position, long count, WritableByteChannel writableChannel)
+            throws IOException {
+        if ((fileChannel != null) && (writableChannel != null)) {
+            try {
+                long end = position + count;
+                java.nio.ByteBuffer buffer = null;
+
+                while (position < end) {
+                    if (fileChannel.size() < end) {
+                        throw new java.io.EOFException("The file has "
+                                + fileChannel.size()
+                                + " bytes instead of the expected " + end);
+                    }
+
+                    long transferred = fileChannel.transferTo(position, end
+                            - position, writableChannel);
+
+                    if (transferred > 0) {
+                        position += transferred;
+                    } else if (!isBlocking(writableChannel)) {
+                        waitWritable((SelectableChannel) writableChannel);
+                    } else {
+                        // No progress, copy a single buffer then retry
+                        if (buffer == null) {
+                            buffer = java.nio.ByteBuffer.allocate(BUFFER_SIZE);
+                        }
+
+                        buffer.clear();
+                        buffer.limit((int) Math.min(BUFFER_SIZE, end
+                                - position));
+
+                        if (fileChannel.read(buffer, position) > 0) {
+                            buffer.flip();
+                            position += buffer.remaining();
+
+                            while (buffer.hasRemaining()) {
+                                writableChannel.write(buffer);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                fileChannel.close();
+            }
+        }
+    }
+
     // [ifndef gwt] method
     /**
      * Copies characters from a reader to a writer. When the reading is done,
@@ -364,8 +447,10 @@ public class IoUtils {
     // [ifndef gwt] method
     /**
      * Returns a readable byte channel based on the given representation's
-     * content and its write(WritableByteChannel) method. Internally, it uses a
-     * writer thread and a pipe channel.
+     * content. When the representation isn't transient and its size is known
+     * and small enough, its content is written on the reading thread, see
+     * {@link InlineInputStream}. Otherwise, it uses its
+     * write(WritableByteChannel) method, a writer thread and a pipe channel.
      * 
      * @param representation
      *            the representation to get the {@link OutputStream} from.
@@ -376,7 +461,10 @@ public class IoUtils {
             final Representation representation) throws IOException {
         ReadableByteChannel result = null;
 
-        if (Edition.CURRENT != Edition.GAE) {
+        if (isInline(representation)) {
+            result = getChannel(new InlineInputStream(representation,
+                    INLINE_BUFFER_SIZE));
+        } else if (Edition.CURRENT != Edition.GAE) {
             // [ifndef gae]
             final java.nio.channels.Pipe pipe = java.nio.channels.Pipe.open();
 
@@ -426,6 +514,59 @@ public class IoUtils {
         return result;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Returns an input stream based on the given representation's content and
+     * its write(OutputStream) method. Internally, it uses a writer thread and a
+     * pipe stream.
+     * 
+     * @param representation
+     *            the representation to get the {@link java.io.OutputStream}
+     *            from.
+     * @return A stream with the representation's content.
+     */
+    static InputStream getPipedStream(final Representation representation) {
+        InputStream result = null;
+
+        final PipeStream pipe = new PipeStream();
+        final java.io.OutputStream os = pipe.getOutputStream();
+
+        // Creates a thread that will handle the task of continuously
+        // writing the representation into the input side of the pipe
+        Runnable task = new org.restlet.engine.util.ContextualRunnable() {
+            public void run() {
+                try {
+                    representation.write(os);
+                    os.flush();
+                } catch (IOException ioe) {
+                    Context.getCurrentLogger().log(Level.WARNING,
+                            "Error while writing to the piped input stream.",
+                            ioe);
+                } finally {
+                    try {
+                        os.close();
+                    } catch (IOException ioe2) {
+                        Context.getCurrentLogger().log(Level.WARNING,
+                                "Error while closing the pipe.", ioe2);
+                    }
+                }
+            }
+        };
+
+        org.restlet.Context context = org.restlet.Context.getCurrent();
+
+        if (context != null && context.getExecutorService() != null) {
+            context.getExecutorService().execute(task);
+        } else {
+            Engine.createThreadWithLocalVariables(task, "Restlet-IoUtils")
+                    .start();
+        }
+
+        result = pipe.getInputStream();
+
+        return result;
+    }
+
     private static int getProperty(String name, int defaultValue) {
         int result = defaultValue;
 
@@ -462,8 +603,10 @@ public class IoUtils {
 
     // [ifndef gwt] method
     /**
-     * Returns a reader from a writer representation.Internally, it uses a
-     * writer thread and a pipe stream.
+     * Returns a reader from a writer representation. When the representation
+     * isn't transient and its size is known and small enough, its content is
+     * written on the reading thread, see {@link InlineInputStream}. Otherwise,
+     * it uses a writer thread and a pipe stream.
      * 
      * @param representation
      *            The representation to read from.
@@ -473,6 +616,15 @@ public class IoUtils {
     public static Reader getReader(
             final org.restlet.representation.WriterRepresentation representation)
             throws IOException {
+        if (isInline(representation)) {
+            // Decode with the character set used by write(OutputStream)
+            CharacterSet characterSet = representation.getCharacterSet();
+            return getReader(new InlineInputStream(representation,
+                    INLINE_BUFFER_SIZE),
+                    (characterSet == null) ? CharacterSet.ISO_8859_1
+                            : characterSet);
+        }
+
         Reader result = null;
         final java.io.PipedWriter pipedWriter = new java.io.PipedWriter();
 
@@ -575,8 +727,14 @@ public class IoUtils {
     // [ifndef gwt] method
     /**
      * Returns an input stream based on the given representation's content and
-     * its write(OutputStream) method. Internally, it uses a writer thread and a
-     * pipe stream.
+     * its write(OutputStream) method. When the representation isn't transient
+     * and its size is known and small enough, its content is written on the
+     * reading thread, see {@link InlineInputStream}. Otherwise, it uses a
+     * writer thread and a pipe stream. This is still the case for
+     * representations of unknown size: their write(OutputStream) method pushes
+     * the whole content in a single call, which can't be suspended once the
+     * inline buffer is full without a second thread, and writing them again
+     * on a separate thread would duplicate their work.
      * 
      * @param representation
      *            the representation to get the {@link java.io.OutputStream}
@@ -584,49 +742,13 @@ public class IoUtils {
      * @return A stream with the representation's content.
      */
     public static InputStream getStream(final Representation representation) {
-        InputStream result = null;
-
         if (representation == null) {
             return null;
+        } else if (isInline(representation)) {
+            return new InlineInputStream(representation, INLINE_BUFFER_SIZE);
         }
 
-        final PipeStream pipe = new PipeStream();
-        final java.io.OutputStream os = pipe.getOutputStream();
-
-        // Creates a thread that will handle the task of continuously
-        // writing the representation into the input side of the pipe
-        Runnable task = new org.restlet.engine.util.ContextualRunnable() {
-            public void run() {
-                try {
-                    representation.write(os);
-                    os.flush();
-                } catch (IOException ioe) {
-                    Context.getCurrentLogger().log(Level.WARNING,
-                            "Error while writing to the piped input stream.",
-                            ioe);
-                } finally {
-                    try {
-                        os.close();
-                    } catch (IOException ioe2) {
-                        Context.getCurrentLogger().log(Level.WARNING,
-                                "Error while closing the pipe.", ioe2);
-                    }
-                }
-            }
-        };
-
-        org.restlet.Context context = org.restlet.Context.getCurrent();
-
-        if (context != null && context.getExecutorService() != null) {
-            context.getExecutorService().execute(task);
-        } else {
-            Engine.createThreadWithLocalVariables(task, "Restlet-IoUtils")
-                    .start();
-        }
-
-        result = pipe.getInputStream();
-
-        return result;
+        return getPipedStream(representation);
     }
 
     // [ifndef gwt] method
@@ -724,6 +846,24 @@ public class IoUtils {
         return result;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Indicates if a representation can be converted into a stream by writing
+     * it on the reading thread, see {@link InlineInputStream}. Its size must be
+     * known and fit in the inline buffer, so that it is written only once and
+     * the content of streaming representations isn't held back.
+     * 
+     * @param representation
+     *            The representation to convert.
+     * @return True if the representation can be written on the reading thread.
+     */
+    private static boolean isInline(Representation representation) {
+        long size = representation.getSize();
+        return (INLINE_BUFFER_SIZE > 0) && !representation.isTransient()
+                && (size != Representation.UNKNOWN_SIZE)
+                && (size <= INLINE_BUFFER_SIZE);
+    }
+
     // [ifndef gwt] method
     /**
      * Release the selection key, working around for bug #6403933.
@@ -937,6 +1077,43 @@ public class IoUtils {
         return result;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Waits until a non-blocking channel is ready to be written, using a
+     * temporary selector.
+     * 
+     * @param selectableChannel
+     *            The non-blocking channel.
+     * @throws IOException
+     *             If no selector is available or the selection timed out.
+     */
+    private static void waitWritable(SelectableChannel selectableChannel)
+            throws IOException {
+        Selector selector = SelectorFactory.getSelector();
+        SelectionKey selectionKey = null;
+
+        if (selector == null) {
+            throw new IOException(
+                    "Unable to obtain a selector. Selector factory returned null.");
+        }
+
+        try {
+            selectionKey = selectableChannel.register(selector,
+                    SelectionKey.OP_WRITE);
+
+            if (selector.select(TIMEOUT_MS) == 0) {
+                throw new IOException(
+                        "Unable to select the channel to write to it. Selection timed out.");
+            }
+        } finally {
+            if (selectionKey == null) {
+                SelectorFactory.returnSelector(selector);
+            } else {
+                release(selector, selectionKey);
+            }
+        }
+    }
+
     /**
      * Private constructor to ensure that the class acts as a true utility class
      * i.e. it isn't instantiable and extensible.
@@ -0,0 +1,333 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.log;
+
+import java.util.Calendar;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.engine.Engine;
+import org.restlet.service.LogService;
+
+/**
+ * Access log entry capturing the fields of the default access log format for
+ * a call, as described in {@link LogService}. Instances are mutable so that
+ * they can be reused by the {@link AsyncAccessLog}.
+ * 
+ * @author Jerome Louvel
+ */
+public class AccessLogEntry {
+
+    /**
+     * Appends a number padded with zeros.
+     * 
+     * @param sb
+     *            The builder to update.
+     * @param value
+     *            The positive number.
+     * @param digits
+     *            The minimum number of digits.
+     */
+    private static void appendPadded(StringBuilder sb, int value, int digits) {
+        for (int limit = 10; (digits > 1) && (value < limit); limit *= 10, digits--) {
+            sb.append('0');
+        }
+
+        sb.append(value);
+    }
+
+    /** The client agent name. */
+    private volatile String agentName;
+
+    /** The client IP address. */
+    private volatile String clientAddress;
+
+    /** The call duration in milliseconds. */
+    private volatile int duration;
+
+    /** The host reference. */
+    private volatile String hostRef;
+
+    /** The logger to use, if any. */
+    private volatile Logger logger;
+
+    /** The preformatted message, if any. */
+    private volatile String message;
+
+    /** The method name. */
+    private volatile String methodName;
+
+    /** The received size or -1 if unknown. */
+    private volatile long receivedSize;
+
+    /** The referrer reference. */
+    private volatile String referrerRef;
+
+    /** The resource path. */
+    private volatile String resourcePath;
+
+    /** The resource query. */
+    private volatile String resourceQuery;
+
+    /** The sent size or -1 if unknown. */
+    private volatile long sentSize;
+
+    /** The server IP address. */
+    private volatile String serverAddress;
+
+    /** The server port. */
+    private volatile Integer serverPort;
+
+    /** The status code or -1 if unknown. */
+    private volatile int statusCode;
+
+    /** The time of the call, 0 if the entry is empty. */
+    private volatile long time;
+
+    /** The remote user identifier. */
+    private volatile String userIdentifier;
+
+    /**
+     * Constructor.
+     */
+    public AccessLogEntry() {
+        clear();
+    }
+
+    /**
+     * Appends the log entry, in the default format unless a message was
+     * preformatted.
+     * 
+     * @param sb
+     *            The builder to update.
+     * @param calendar
+     *            The calendar to use for the date and time fields.
+     * @return The updated builder.
+     */
+    public StringBuilder appendTo(StringBuilder sb, Calendar calendar) {
+        if (this.message != null) {
+            return sb.append(this.message);
+        }
+
+        // Append the date and time of the request
+        calendar.setTimeInMillis(this.time);
+        appendPadded(sb, calendar.get(Calendar.YEAR), 4);
+        sb.append('-');
+        appendPadded(sb, calendar.get(Calendar.MONTH) + 1, 2);
+        sb.append('-');
+        appendPadded(sb, calendar.get(Calendar.DAY_OF_MONTH), 2);
+        sb.append('\t');
+        appendPadded(sb, calendar.get(Calendar.HOUR_OF_DAY), 2);
+        sb.append(':');
+        appendPadded(sb, calendar.get(Calendar.MINUTE), 2);
+        sb.append(':');
+        appendPadded(sb, calendar.get(Calendar.SECOND), 2);
+        sb.append('\t');
+
+        sb.append((this.clientAddress == null) ? "-" : this.clientAddress);
+        sb.append('\t');
+        sb.append((this.userIdentifier == null) ? "-" : this.userIdentifier);
+        sb.append('\t');
+        sb.append((this.serverAddress == null) ? "-" : this.serverAddress);
+        sb.append('\t');
+        sb.append((this.serverPort == null) ? "-" : this.serverPort
+                .toString());
+        sb.append('\t');
+        sb.append((this.methodName == null) ? "-" : this.methodName);
+        sb.append('\t');
+        sb.append((this.resourcePath == null) ? "-" : this.resourcePath);
+        sb.append('\t');
+        sb.append((this.resourceQuery == null) ? "-" : this.resourceQuery);
+        sb.append('\t');
+
+        if (this.statusCode == -1) {
+            sb.append('-');
+        } else {
+            sb.append(this.statusCode);
+        }
+
+        sb.append('\t');
+
+        if (this.sentSize == -1) {
+            sb.append('-');
+        } else {
+            sb.append(this.sentSize);
+        }
+
+        sb.append('\t');
+
+        if (this.receivedSize == -1) {
+            sb.append('-');
+        } else {
+            sb.append(this.receivedSize);
+        }
+
+        sb.append('\t');
+        sb.append(this.duration);
+        sb.append('\t');
+        sb.append((this.hostRef == null) ? "-" : this.hostRef);
+        sb.append('\t');
+        sb.append((this.agentName == null) ? "-" : this.agentName);
+        sb.append('\t');
+        sb.append((this.referrerRef == null) ? "-" : this.referrerRef);
+        return sb;
+    }
+
+    /**
+     * Clears the entry so that it can be reused.
+     */
+    public void clear() {
+        this.agentName = null;
+        this.clientAddress = null;
+        this.duration = 0;
+        this.hostRef = null;
+        this.logger = null;
+        this.message = null;
+        this.methodName = null;
+        this.receivedSize = -1;
+        this.referrerRef = null;
+        this.resourcePath = null;
+        this.resourceQuery = null;
+        this.sentSize = -1;
+        this.serverAddress = null;
+        this.serverPort = null;
+        this.statusCode = -1;
+        this.time = 0;
+        this.userIdentifier = null;
+    }
+
+    /**
+     * Returns the logger to use, if any.
+     * 
+     * @return The logger to use, if any.
+     */
+    public Logger getLogger() {
+        return this.logger;
+    }
+
+    /**
+     * Indicates if the entry is empty.
+     * 
+     * @return True if the entry is empty.
+     */
+    public boolean isEmpty() {
+        return (this.time == 0) && (this.message == null);
+    }
+
+    /**
+     * Sets the logger to use.
+     * 
+     * @param logger
+     *            The logger to use.
+     */
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Sets a preformatted message.
+     * 
+     * @param message
+     *            The preformatted message.
+     */
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Captures the fields of the default format from a call.
+     * 
+     * @param response
+     *            The response to log.
+     * @param duration
+     *            The call duration (in milliseconds).
+     * @param identityCheck
+     *            Indicates if the identity check (as specified by RFC1413) is
+     *            enabled.
+     */
+    public void update(Response response, int duration, boolean identityCheck) {
+        Request request = response.getRequest();
+        this.time = System.currentTimeMillis();
+        this.clientAddress = request.getClientInfo().getUpstreamAddress();
+
+        // Capture the user name (via IDENT protocol)
+        this.userIdentifier = null;
+
+        if (identityCheck) {
+            // [ifndef gae]
+            IdentClient ic = new IdentClient(request.getClientInfo()
+                    .getUpstreamAddress(), request.getClientInfo().getPort(),
+                    response.getServerInfo().getPort());
+            this.userIdentifier = ic.getUserIdentifier();
+        } else if (request.getChallengeResponse() != null) {
+            this.userIdentifier = request.getChallengeResponse()
+                    .getIdentifier();
+            // [enddef]
+        }
+
+        this.serverAddress = response.getServerInfo().getAddress();
+        this.serverPort = response.getServerInfo().getPort();
+        this.methodName = (request.getMethod() == null) ? "-" : request
+                .getMethod().getName();
+        this.resourcePath = (request.getResourceRef() == null) ? "-"
+                : request.getResourceRef().getPath();
+        this.resourceQuery = (request.getResourceRef() == null) ? "-"
+                : request.getResourceRef().getQuery();
+        this.statusCode = (response.getStatus() == null) ? -1 : response
+                .getStatus().getCode();
+
+        if (!response.isEntityAvailable()
+                || Status.REDIRECTION_NOT_MODIFIED.equals(response.getStatus())
+                || Status.SUCCESS_NO_CONTENT.equals(response.getStatus())
+                || Method.HEAD.equals(request.getMethod())) {
+            this.sentSize = 0;
+        } else {
+            this.sentSize = response.getEntity().getSize();
+        }
+
+        try {
+            this.receivedSize = (request.getEntity() == null) ? 0 : request
+                    .getEntity().getSize();
+        } catch (Throwable t) {
+            // Error while getting the request's entity, cf issue #931
+            Engine.getLogger(LogService.class).log(Level.SEVERE,
+                    "Cannot retrieve size of request's entity", t);
+            this.receivedSize = -1;
+        }
+
+        this.duration = duration;
+        this.hostRef = (request.getHostRef() == null) ? null : request
+                .getHostRef().toString();
+        this.agentName = request.getClientInfo().getAgent();
+        this.referrerRef = (request.getReferrerRef() == null) ? null
+                : request.getReferrerRef().getIdentifier();
+        this.message = null;
+    }
+
+}
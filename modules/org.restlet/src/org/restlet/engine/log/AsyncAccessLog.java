@@ -0,0 +1,492 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.log;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.restlet.Response;
+import org.restlet.engine.Engine;
+import org.restlet.service.LogService;
+
+/**
+ * Asynchronous access log decoupling the formatting and writing of log entries
+ * from the threads handling the calls. Calls are captured into a bounded ring
+ * buffer of preallocated {@link AccessLogEntry} instances, then drained in
+ * batches by a single writer thread. Batches are either appended to a log file
+ * through a reused NIO buffer or passed to the JDK logger of each entry.<br>
+ * <br>
+ * When the buffer is full, new entries are either dropped and counted, or the
+ * calling thread waits for a free slot, depending on
+ * {@link LogService#isAsyncBlocking()}.<br>
+ * <br>
+ * Concurrency note: instances of this class are thread-safe. Entries can be
+ * published by several threads at the same time without locking.
+ * 
+ * @author Jerome Louvel
+ */
+public class AsyncAccessLog {
+
+    /**
+     * Log file output encoding the batches into a reused buffer.
+     */
+    private class Output {
+
+        /** The reused byte buffer. */
+        private final ByteBuffer buffer;
+
+        /** The file channel. */
+        private final FileChannel channel;
+
+        /** The reused encoder. */
+        private final CharsetEncoder encoder;
+
+        /**
+         * Constructor.
+         * 
+         * @param path
+         *            The path of the log file, opened in append mode.
+         * @throws IOException
+         */
+        public Output(String path) throws IOException {
+            this.buffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+            this.channel = new FileOutputStream(path, true).getChannel();
+            this.encoder = Charset.forName("UTF-8")
+                    .newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        /**
+         * Closes the file channel.
+         */
+        public void close() {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING,
+                        "Unable to close the access log file", e);
+            }
+        }
+
+        /**
+         * Writes the content of the byte buffer to the file channel.
+         */
+        public void flush() {
+            this.buffer.flip();
+
+            try {
+                while (this.buffer.hasRemaining()) {
+                    this.channel.write(this.buffer);
+                }
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING,
+                        "Unable to write to the access log file", e);
+            } finally {
+                this.buffer.clear();
+            }
+        }
+
+        /**
+         * Encodes characters into the byte buffer, flushing it when full.
+         * 
+         * @param chars
+         *            The characters to write.
+         */
+        public void write(CharSequence chars) {
+            CharBuffer input = CharBuffer.wrap(chars);
+            this.encoder.reset();
+
+            while (this.encoder.encode(input, this.buffer, true).isOverflow()) {
+                flush();
+            }
+
+            CoderResult result = this.encoder.flush(this.buffer);
+
+            while (result.isOverflow()) {
+                flush();
+                result = this.encoder.flush(this.buffer);
+            }
+        }
+    }
+
+    /** The delay to wait for a free slot when the buffer is full. */
+    private static final long BLOCKING_DELAY = TimeUnit.MILLISECONDS
+            .toNanos(1);
+
+    /** The size of the reused output buffer. */
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    /** The maximum delay of the writer thread between two checks. */
+    private static final long WRITER_DELAY = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Indicates if the response log message of a log service can be captured
+     * into fields and formatted later, i.e. if the service relies on the
+     * default format.
+     * 
+     * @param logService
+     *            The log service.
+     * @return True if the default format is used.
+     */
+    private static boolean isDefaultFormat(LogService logService) {
+        if (logService.getResponseLogFormat() != null) {
+            return false;
+        }
+
+        for (Class<?> clazz = logService.getClass(); clazz != LogService.class; clazz = clazz
+                .getSuperclass()) {
+            for (Method method : clazz.getDeclaredMethods()) {
+                if ("getResponseLogMessage".equals(method.getName())
+                        || "getDefaultResponseLogMessage".equals(method
+                                .getName())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /** Indicates if the calling threads wait when the buffer is full. */
+    private final boolean blocking;
+
+    /** Indicates if the default format is used. */
+    private final boolean defaultFormat;
+
+    /** The number of entries dropped because the buffer was full. */
+    private final AtomicLong droppedCount;
+
+    /** The preallocated entries. */
+    private final AccessLogEntry[] entries;
+
+    /** The path of the log file or null to use the JDK loggers. */
+    private final String file;
+
+    /** Indicates if the identity check is enabled. */
+    private final boolean identityCheck;
+
+    /** The log service. */
+    private final LogService logService;
+
+    /** The mask to compute an index from a position. */
+    private final int mask;
+
+    /** Indicates if the log is running. */
+    private volatile boolean running;
+
+    /** The sequence of each slot, indicating if it is free or published. */
+    private final AtomicLongArray sequences;
+
+    /** The next position to claim. */
+    private final AtomicLong tail;
+
+    /** The writer thread. */
+    private volatile Thread writer;
+
+    /** Indicates if the writer thread is waiting for new entries. */
+    private volatile boolean writerWaiting;
+
+    /**
+     * Constructor.
+     * 
+     * @param logService
+     *            The parent log service.
+     */
+    public AsyncAccessLog(LogService logService) {
+        int capacity = Integer.highestOneBit(Math.max(2,
+                logService.getAsyncBufferSize() - 1)) << 1;
+        this.blocking = logService.isAsyncBlocking();
+        this.defaultFormat = isDefaultFormat(logService);
+        this.droppedCount = new AtomicLong();
+        this.entries = new AccessLogEntry[capacity];
+        this.file = logService.getAsyncLogFile();
+        this.identityCheck = logService.isIdentityCheck();
+        this.logService = logService;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        this.tail = new AtomicLong();
+
+        for (int i = 0; i < capacity; i++) {
+            this.entries[i] = new AccessLogEntry();
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Drains the published entries and writes them.
+     * 
+     * @param head
+     *            The position of the first entry to read.
+     * @param sb
+     *            The reused builder.
+     * @param calendar
+     *            The reused calendar.
+     * @param output
+     *            The output, or null to use the JDK loggers.
+     * @return The position of the next entry to read.
+     */
+    private long drain(long head, StringBuilder sb, Calendar calendar,
+            Output output) {
+        sb.setLength(0);
+        int index = (int) (head & this.mask);
+
+        while (this.sequences.get(index) == head + 1) {
+            AccessLogEntry entry = this.entries[index];
+
+            try {
+                if (!entry.isEmpty()) {
+                    if (output == null) {
+                        int start = sb.length();
+                        entry.appendTo(sb, calendar);
+                        entry.getLogger().log(Level.INFO,
+                                sb.substring(start));
+                        sb.setLength(start);
+                    } else {
+                        entry.appendTo(sb, calendar).append('\n');
+                    }
+                }
+            } catch (Throwable t) {
+                getLogger().log(Level.WARNING,
+                        "Unable to format an access log entry", t);
+            } finally {
+                entry.clear();
+            }
+
+            // Free the slot for the next cycle
+            this.sequences.lazySet(index, head + this.entries.length);
+            head++;
+            index = (int) (head & this.mask);
+
+            if ((output != null) && (sb.length() >= OUTPUT_BUFFER_SIZE)) {
+                output.write(sb);
+                sb.setLength(0);
+            }
+        }
+
+        if ((output != null) && (sb.length() > 0)) {
+            output.write(sb);
+            output.flush();
+        }
+
+        return head;
+    }
+
+    /**
+     * Returns the number of entries dropped because the buffer was full.
+     * 
+     * @return The number of entries dropped.
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    /**
+     * Returns the engine logger.
+     * 
+     * @return The engine logger.
+     */
+    private Logger getLogger() {
+        return Engine.getLogger(AsyncAccessLog.class);
+    }
+
+    /**
+     * Indicates if the log is running.
+     * 
+     * @return True if the log is running.
+     */
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Publishes a log entry for a call. With the default format, only the
+     * fields are captured by the calling thread, otherwise the log message is
+     * formatted immediately.
+     * 
+     * @param logger
+     *            The JDK logger to use if no log file is set.
+     * @param response
+     *            The response to log.
+     * @param duration
+     *            The call duration (in milliseconds).
+     * @return True if the entry was published, false if it was dropped or if
+     *         the log isn't running.
+     */
+    public boolean log(Logger logger, Response response, int duration) {
+        if (!isRunning()) {
+            return false;
+        }
+
+        long position;
+        int index;
+
+        // Claim a free slot
+        for (;;) {
+            position = this.tail.get();
+            index = (int) (position & this.mask);
+            long difference = this.sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (difference < 0) {
+                // The buffer is full
+                if (!this.blocking || !isRunning()) {
+                    this.droppedCount.incrementAndGet();
+                    return false;
+                }
+
+                LockSupport.unpark(this.writer);
+                LockSupport.parkNanos(BLOCKING_DELAY);
+            }
+        }
+
+        AccessLogEntry entry = this.entries[index];
+        boolean result = true;
+
+        try {
+            if (this.defaultFormat) {
+                entry.update(response, duration, this.identityCheck);
+            } else {
+                entry.setMessage(this.logService.getResponseLogMessage(
+                        response, duration));
+            }
+
+            entry.setLogger(logger);
+        } catch (Throwable t) {
+            // The slot must be published anyway
+            entry.clear();
+            result = false;
+            getLogger().log(Level.WARNING,
+                    "Unable to capture an access log entry", t);
+        } finally {
+            this.sequences.lazySet(index, position + 1);
+
+            if (this.writerWaiting) {
+                LockSupport.unpark(this.writer);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Starts the writer thread.
+     * 
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (!isRunning()) {
+            final Output output = (this.file == null) ? null : new Output(
+                    this.file);
+            this.running = true;
+            this.writer = new LoggingThreadFactory(getLogger(), true)
+                    .newThread(new Runnable() {
+                        public void run() {
+                            write(output);
+                        }
+                    });
+            this.writer.setName("Restlet-AsyncAccessLog-"
+                    + this.writer.hashCode());
+            this.writer.start();
+        }
+    }
+
+    /**
+     * Stops the writer thread after writing the pending entries.
+     * 
+     * @throws InterruptedException
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (isRunning()) {
+            this.running = false;
+            LockSupport.unpark(this.writer);
+            this.writer.join();
+            this.writer = null;
+        }
+    }
+
+    /**
+     * Writes the published entries until the log is stopped.
+     * 
+     * @param output
+     *            The output, or null to use the JDK loggers.
+     */
+    private void write(Output output) {
+        StringBuilder sb = new StringBuilder(OUTPUT_BUFFER_SIZE);
+        Calendar calendar = Calendar.getInstance();
+        long head = 0;
+
+        try {
+            while (isRunning()) {
+                long next = drain(head, sb, calendar, output);
+
+                if (next == head) {
+                    this.writerWaiting = true;
+
+                    if (isRunning()
+                            && (this.sequences.get((int) (head & this.mask)) != head + 1)) {
+                        LockSupport.parkNanos(this, WRITER_DELAY);
+                    }
+
+                    this.writerWaiting = false;
+                }
+
+                head = next;
+            }
+
+            // Write the entries published before stopping, including those of
+            // threads that claimed a slot just before
+            long deadline = System.nanoTime() + WRITER_DELAY;
+
+            do {
+                head = drain(head, sb, calendar, output);
+            } while ((head != this.tail.get())
+                    && (System.nanoTime() < deadline));
+        } finally {
+            if (output != null) {
+                output.close();
+            }
+        }
+    }
+
+}
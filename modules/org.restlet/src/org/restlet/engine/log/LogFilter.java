@@ -95,8 +95,18 @@ public class LogFilter extends Filter {
                 long startTime = (Long) request.getAttributes().get(
                         "org.restlet.startTime");
                 int duration = (int) (System.currentTimeMillis() - startTime);
-                this.logLogger.log(Level.INFO, this.logService
-                        .getResponseLogMessage(response, duration));
+                // [ifndef gae]
+                AsyncAccessLog asyncLog = this.logService.getAsyncAccessLog();
+
+                if (asyncLog != null) {
+                    asyncLog.log(this.logLogger, response, duration);
+                } else {
+                    // [enddef]
+                    this.logLogger.log(Level.INFO, this.logService
+                            .getResponseLogMessage(response, duration));
+                    // [ifndef gae]
+                }
+                // [enddef]
             }
         } catch (Throwable e) {
             // Error while logging the call, cf issue #931
@@ -26,14 +26,20 @@ package org.restlet.engine.resource;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
 
+import org.restlet.Context;
 import org.restlet.data.Form;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.representation.Representation;
+import org.restlet.representation.Variant;
 import org.restlet.resource.ServerResource;
 import org.restlet.resource.Status;
 import org.restlet.service.MetadataService;
@@ -46,9 +52,114 @@ import org.restlet.service.MetadataService;
  */
 public class AnnotationUtils {
 
+    /**
+     * Key of the response variants dispatch table. Services are compared by
+     * identity. The parameters of the request entity media type, such as a
+     * multipart boundary, are left out of the key so that they don't create
+     * one entry per request. Only their presence is kept, as it prevents an
+     * exact match with the annotation media types.
+     */
+    private static class DispatchKey {
+
+        /** The resource class. */
+        private final Class<?> clazz;
+
+        /** The converter service. */
+        private final org.restlet.service.ConverterService converterService;
+
+        /** Indicates if a request entity is available. */
+        private final boolean entityAvailable;
+
+        /** The media type of the request entity without parameters or null. */
+        private final MediaType entityMediaType;
+
+        /** Indicates if the request entity media type has parameters. */
+        private final boolean entityParameters;
+
+        /** The metadata service. */
+        private final MetadataService metadataService;
+
+        /** The Restlet method. */
+        private final Method method;
+
+        /**
+         * Constructor.
+         * 
+         * @param clazz
+         *            The resource class.
+         * @param method
+         *            The Restlet method.
+         * @param entityAvailable
+         *            Indicates if a request entity is available.
+         * @param entityMediaType
+         *            The media type of the request entity or null.
+         * @param metadataService
+         *            The metadata service.
+         * @param converterService
+         *            The converter service.
+         */
+        private DispatchKey(Class<?> clazz, Method method,
+                boolean entityAvailable, MediaType entityMediaType,
+                MetadataService metadataService,
+                org.restlet.service.ConverterService converterService) {
+            this.clazz = clazz;
+            this.method = method;
+            this.entityAvailable = entityAvailable;
+            this.entityParameters = (entityMediaType != null)
+                    && !entityMediaType.getParameters().isEmpty();
+            this.entityMediaType = this.entityParameters ? MediaType
+                    .valueOf(entityMediaType.getMainType() + "/"
+                            + entityMediaType.getSubType()) : entityMediaType;
+            this.metadataService = metadataService;
+            this.converterService = converterService;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof DispatchKey)) {
+                return false;
+            }
+
+            DispatchKey key = (DispatchKey) other;
+            return (this.clazz == key.clazz)
+                    && (this.entityAvailable == key.entityAvailable)
+                    && (this.entityParameters == key.entityParameters)
+                    && (this.metadataService == key.metadataService)
+                    && (this.converterService == key.converterService)
+                    && this.method.equals(key.method)
+                    && ((this.entityMediaType == null) ? (key.entityMediaType == null)
+                            : this.entityMediaType.equals(key.entityMediaType));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = this.clazz.hashCode();
+            result = 31 * result + this.method.hashCode();
+            result = 31 * result + (this.entityAvailable ? 1 : 0);
+            result = 31 * result + (this.entityParameters ? 1 : 0);
+            result = 31
+                    * result
+                    + ((this.entityMediaType == null) ? 0
+                            : this.entityMediaType.hashCode());
+            result = 31 * result
+                    + System.identityHashCode(this.metadataService);
+            return 31 * result
+                    + System.identityHashCode(this.converterService);
+        }
+    }
+
     /** Annotation info cache. */
     private static final ConcurrentMap<Class<?>, List<AnnotationInfo>> cache = new ConcurrentHashMap<Class<?>, List<AnnotationInfo>>();
 
+    /**
+     * Maximum number of entries in the dispatch table. As the request media
+     * types are provided by clients, the table is cleared when it is reached.
+     */
+    private static final int DISPATCH_TABLE_MAX_SIZE = 1024;
+
+    /** Response variants dispatch table. */
+    private static final ConcurrentMap<DispatchKey, List<VariantInfo>> dispatchTable = new ConcurrentHashMap<DispatchKey, List<VariantInfo>>();
+
     /** Current instance. */
     private static AnnotationUtils instance = new AnnotationUtils();
 
@@ -220,10 +331,71 @@ public class AnnotationUtils {
     }
 
     /**
-     * Clears the annotation descriptors cache.
+     * Adds the response variants of an annotated method, scored against the
+     * request entity media type.
+     * 
+     * @param variants
+     *            The list of variants to update.
+     * @param annotationInfo
+     *            The method annotation descriptor.
+     * @param entityAvailable
+     *            Indicates if a request entity is available.
+     * @param entityMediaType
+     *            The media type of the request entity or null.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     */
+    private void addResponseVariants(List<VariantInfo> variants,
+            MethodAnnotationInfo annotationInfo, boolean entityAvailable,
+            MediaType entityMediaType, MetadataService metadataService,
+            org.restlet.service.ConverterService converterService) {
+        try {
+            List<Variant> annoVariants = annotationInfo.getResponseVariants(
+                    metadataService, converterService);
+
+            if (annoVariants != null) {
+                // Compute an affinity score between this annotation and the
+                // input entity.
+                float score = 0.5f;
+
+                if (entityAvailable) {
+                    List<MediaType> amts = metadataService
+                            .getAllMediaTypes(annotationInfo.getInput());
+
+                    if (amts != null) {
+                        for (MediaType amt : amts) {
+                            if (amt.equals(entityMediaType)) {
+                                score = 1.0f;
+                            } else if (amt.includes(entityMediaType)) {
+                                score = Math.max(0.8f, score);
+                            } else if (amt.isCompatible(entityMediaType)) {
+                                score = Math.max(0.6f, score);
+                            }
+                        }
+                    }
+                }
+
+                for (Variant v : annoVariants) {
+                    VariantInfo vi = new VariantInfo(v, annotationInfo);
+                    vi.setInputScore(score);
+                    variants.add(vi);
+                }
+            }
+        } catch (IOException e) {
+            Context.getCurrentLogger().log(Level.FINE,
+                    "Unable to get variants from annotation", e);
+        }
+    }
+
+    /**
+     * Clears the annotation descriptors cache and the response variants
+     * dispatch table.
      */
     public void clearCache() {
         cache.clear();
+        dispatchTable.clear();
     }
 
     /**
@@ -343,6 +515,69 @@ public class AnnotationUtils {
                         .value());
     }
 
+    /**
+     * Returns the candidate response variants of the annotated methods of a
+     * resource class for a given Restlet method and request entity media type.
+     * The variants are computed once per resource class, Restlet method,
+     * request media type and services, then kept in a dispatch table. They are
+     * sorted in the order of the annotations and carry the affinity score
+     * between their annotation and the request entity.<br>
+     * <br>
+     * The returned list and its variants are shared and must not be modified.
+     * The compatibility of each annotation with the actual query and request
+     * entity still needs to be verified with
+     * {@link MethodAnnotationInfo#isCompatible(Method, Form, Representation, MetadataService, org.restlet.service.ConverterService)}
+     * .
+     * 
+     * @param clazz
+     *            The resource class.
+     * @param method
+     *            The Restlet method.
+     * @param entityAvailable
+     *            Indicates if a request entity is available.
+     * @param entityMediaType
+     *            The media type of the request entity or null.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return The shared list of candidate response variants.
+     */
+    public List<VariantInfo> getResponseVariants(Class<?> clazz,
+            Method method, boolean entityAvailable, MediaType entityMediaType,
+            MetadataService metadataService,
+            org.restlet.service.ConverterService converterService) {
+        DispatchKey key = new DispatchKey(clazz, method, entityAvailable,
+                entityMediaType, metadataService, converterService);
+        List<VariantInfo> result = dispatchTable.get(key);
+
+        if (result == null) {
+            result = new ArrayList<VariantInfo>();
+
+            for (AnnotationInfo annotationInfo : getAnnotations(clazz)) {
+                if (annotationInfo instanceof MethodAnnotationInfo) {
+                    MethodAnnotationInfo methodAnnotationInfo = (MethodAnnotationInfo) annotationInfo;
+
+                    if (method.equals(methodAnnotationInfo.getRestletMethod())) {
+                        addResponseVariants(result, methodAnnotationInfo,
+                                entityAvailable, entityMediaType,
+                                metadataService, converterService);
+                    }
+                }
+            }
+
+            result = Collections.unmodifiableList(result);
+
+            if (dispatchTable.size() >= DISPATCH_TABLE_MAX_SIZE) {
+                dispatchTable.clear();
+            }
+
+            dispatchTable.put(key, result);
+        }
+
+        return result;
+    }
+
     /**
      * Returns the status annotation descriptor if present or null.
      * 
@@ -25,6 +25,7 @@
 package org.restlet.engine.resource;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -49,15 +50,61 @@ import org.restlet.service.MetadataService;
  */
 public class MethodAnnotationInfo extends AnnotationInfo {
 
+    /**
+     * Request variants computed for a given pair of metadata and converter
+     * services.
+     */
+    private static class CachedVariants {
+
+        /** The converter service used. */
+        private final org.restlet.service.ConverterService converterService;
+
+        /** The metadata service used. */
+        private final MetadataService metadataService;
+
+        /** The computed variants. */
+        private final List<Variant> variants;
+
+        /**
+         * Constructor.
+         * 
+         * @param metadataService
+         *            The metadata service used.
+         * @param converterService
+         *            The converter service used.
+         * @param variants
+         *            The computed variants.
+         */
+        private CachedVariants(MetadataService metadataService,
+                org.restlet.service.ConverterService converterService,
+                List<Variant> variants) {
+            this.metadataService = metadataService;
+            this.converterService = converterService;
+            this.variants = variants;
+        }
+    }
+
     /** The input part of the annotation value. */
     private final String input;
 
+    /** The invoker of the Java method, lazily created. */
+    private volatile MethodInvoker invoker;
+
+    /** The input types of the Java method, lazily computed. */
+    private volatile Class<?>[] javaInputTypes;
+
     /** The output part of the annotation value. */
     private final String output;
 
     /** The optional query part of the annotation value. */
     private final String query;
 
+    /** The parsed query parameters required by the annotation. */
+    private volatile Form queryParameters;
+
+    /** The request variants cached for the last services used. */
+    private volatile CachedVariants requestVariants;
+
     /** The matching Restlet method. */
     private final Method restletMethod;
 
@@ -161,14 +208,20 @@ public class MethodAnnotationInfo extends AnnotationInfo {
      * @return The input types of the Java method.
      */
     public Class<?>[] getJavaInputTypes() {
-        int count = getJavaMethod().getParameterTypes().length;
-        Class<?>[] classes = new Class[count];
+        Class<?>[] classes = this.javaInputTypes;
+
+        if (classes == null) {
+            int count = getJavaMethod().getParameterTypes().length;
+            classes = new Class[count];
+
+            for (int i = 0; i < count; i++) {
+                classes[i] = getJavaInputType(i);
+            }
 
-        for (int i = 0; i < count; i++) {
-            classes[i] = getJavaInputType(i);
+            this.javaInputTypes = classes;
         }
 
-        return classes;
+        return classes.clone();
     }
 
     /**
@@ -199,6 +252,50 @@ public class MethodAnnotationInfo extends AnnotationInfo {
         return query;
     }
 
+    /**
+     * Returns the query parameters required by the annotation, parsed once.
+     * 
+     * @return The query parameters required by the annotation or null.
+     */
+    private Form getQueryParameters() {
+        Form result = this.queryParameters;
+
+        if ((result == null) && (getQuery() != null)) {
+            result = new Form(getQuery());
+            this.queryParameters = result;
+        }
+
+        return result;
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Returns the request variants, computed once for the given services. The
+     * returned list must not be modified.
+     * 
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return A list of request variants.
+     * @throws IOException
+     */
+    private List<Variant> getCachedRequestVariants(
+            MetadataService metadataService,
+            org.restlet.service.ConverterService converterService)
+            throws IOException {
+        CachedVariants cached = this.requestVariants;
+
+        if ((cached == null) || (cached.metadataService != metadataService)
+                || (cached.converterService != converterService)) {
+            cached = new CachedVariants(metadataService, converterService,
+                    getRequestVariants(metadataService, converterService));
+            this.requestVariants = cached;
+        }
+
+        return cached.variants;
+    }
+
     // [ifndef gwt] method
     /**
      * Returns a list of request variants based on the annotation value.
@@ -357,6 +454,31 @@ public class MethodAnnotationInfo extends AnnotationInfo {
         return result;
     }
 
+    /**
+     * Invokes the annotated Java method on the given resource. The invoker is
+     * created on the first call and avoids most of the reflection overhead.
+     * 
+     * @param resource
+     *            The target resource.
+     * @param parameters
+     *            The method parameters.
+     * @return The result of the invocation or null for void methods.
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException
+     *             Wrapping any exception thrown by the Java method.
+     */
+    public Object invoke(Object resource, Object... parameters)
+            throws IllegalAccessException, InvocationTargetException {
+        MethodInvoker result = this.invoker;
+
+        if (result == null) {
+            result = new MethodInvoker(getJavaMethod());
+            this.invoker = result;
+        }
+
+        return result.invoke(resource, parameters);
+    }
+
     /**
      * Indicates if the annotated method described is compatible with the given
      * parameters.
@@ -380,7 +502,7 @@ public class MethodAnnotationInfo extends AnnotationInfo {
 
         // Verify query parameters
         if (getQuery() != null) {
-            Form requiredParams = new Form(getQuery());
+            Form requiredParams = getQueryParameters();
 
             for (Iterator<Parameter> iter = requiredParams.iterator(); iter
                     .hasNext() && result;) {
@@ -424,8 +546,8 @@ public class MethodAnnotationInfo extends AnnotationInfo {
         boolean result = true;
 
         if ((requestEntity != null) && requestEntity.isAvailable()) {
-            List<Variant> requestVariants = getRequestVariants(metadataService,
-                    converterService);
+            List<Variant> requestVariants = getCachedRequestVariants(
+                    metadataService, converterService);
 
             if ((requestVariants != null) && !requestVariants.isEmpty()) {
                 // Check that the compatibility
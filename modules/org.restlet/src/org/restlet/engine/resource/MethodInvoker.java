@@ -0,0 +1,193 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.resource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+
+// [excludes gwt]
+/**
+ * Invoker of an annotated Java method. When possible, the method is invoked
+ * through a method handle bound once, which avoids the access checks and
+ * argument validation done by {@link java.lang.reflect.Method#invoke(Object,
+ * Object...)} on each call. Otherwise, for example for static methods, non
+ * public classes or platforms lacking the java.lang.invoke package, it falls
+ * back to reflection. It also falls back to reflection when the arguments
+ * don't exactly match the parameter types, so that conversions and
+ * mismatches are handled as by {@link java.lang.reflect.Method#invoke(Object,
+ * Object...)}, the latter with an {@link IllegalArgumentException}.
+ * 
+ * @author Jerome Louvel
+ */
+class MethodInvoker {
+
+    /**
+     * Invoker based on a method handle. Isolated in its own class so that the
+     * java.lang.invoke package is only loaded when available.
+     */
+    private static class HandleInvoker {
+
+        /** The declaring class of the method. */
+        private final Class<?> declaringClass;
+
+        /** The spread method handle, typed (Object, Object[])Object. */
+        private final java.lang.invoke.MethodHandle handle;
+
+        /** The parameter types. */
+        private final Class<?>[] parameterTypes;
+
+        /** The parameter types, primitive types being wrapped. */
+        private final Class<?>[] wrappedTypes;
+
+        /**
+         * Constructor.
+         * 
+         * @param javaMethod
+         *            The Java method to invoke.
+         * @throws IllegalAccessException
+         *             If the method isn't publicly accessible.
+         */
+        private HandleInvoker(java.lang.reflect.Method javaMethod)
+                throws IllegalAccessException {
+            this.declaringClass = javaMethod.getDeclaringClass();
+            this.parameterTypes = javaMethod.getParameterTypes();
+            this.wrappedTypes = java.lang.invoke.MethodType.methodType(
+                    void.class, this.parameterTypes).wrap().parameterArray();
+            this.handle = java.lang.invoke.MethodHandles
+                    .publicLookup()
+                    .unreflect(javaMethod)
+                    .asSpreader(Object[].class, this.parameterTypes.length)
+                    .asType(java.lang.invoke.MethodType.methodType(
+                            Object.class, Object.class, Object[].class));
+        }
+
+        /**
+         * Indicates if the method handle accepts the given target and
+         * parameters without conversion.
+         * 
+         * @param target
+         *            The target instance.
+         * @param parameters
+         *            The method parameters.
+         * @return True if the method handle accepts the arguments.
+         */
+        private boolean accepts(Object target, Object[] parameters) {
+            if (!this.declaringClass.isInstance(target)
+                    || (parameters.length != this.parameterTypes.length)) {
+                return false;
+            }
+
+            for (int i = 0; i < parameters.length; i++) {
+                if ((parameters[i] == null) ? this.parameterTypes[i]
+                        .isPrimitive() : !this.wrappedTypes[i]
+                        .isInstance(parameters[i])) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Invokes the method. The arguments must be accepted, see
+         * {@link #accepts(Object, Object[])}, so that any exception comes from
+         * the method itself.
+         * 
+         * @param target
+         *            The target instance.
+         * @param parameters
+         *            The method parameters.
+         * @return The result of the invocation.
+         * @throws InvocationTargetException
+         *             Wrapping any exception thrown by the method.
+         */
+        private Object invoke(Object target, Object[] parameters)
+                throws InvocationTargetException {
+            try {
+                return (Object) this.handle.invokeExact(target, parameters);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    /** The empty parameters array. */
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    /** The handle based invoker or null if reflection must be used. */
+    private final HandleInvoker handleInvoker;
+
+    /** The Java method to invoke. */
+    private final java.lang.reflect.Method javaMethod;
+
+    /**
+     * Constructor.
+     * 
+     * @param javaMethod
+     *            The Java method to invoke.
+     */
+    public MethodInvoker(java.lang.reflect.Method javaMethod) {
+        this.javaMethod = javaMethod;
+        HandleInvoker invoker = null;
+
+        if (!Modifier.isStatic(javaMethod.getModifiers())) {
+            try {
+                invoker = new HandleInvoker(javaMethod);
+            } catch (IllegalAccessException e) {
+                // Use reflection instead
+            } catch (LinkageError e) {
+                // The java.lang.invoke package isn't available
+            }
+        }
+
+        this.handleInvoker = invoker;
+    }
+
+    /**
+     * Invokes the method on the given target instance.
+     * 
+     * @param target
+     *            The target instance.
+     * @param parameters
+     *            The method parameters or null if none is expected.
+     * @return The result of the invocation or null for void methods.
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException
+     *             Wrapping any exception thrown by the method.
+     */
+    public Object invoke(Object target, Object... parameters)
+            throws IllegalAccessException, InvocationTargetException {
+        Object[] actualParameters = (parameters == null) ? NO_PARAMETERS
+                : parameters;
+
+        if ((this.handleInvoker != null)
+                && this.handleInvoker.accepts(target, actualParameters)) {
+            return this.handleInvoker.invoke(target, actualParameters);
+        }
+
+        return this.javaMethod.invoke(target, actualParameters);
+    }
+
+}
@@ -175,6 +175,14 @@ public final class DateUtils {
         }
 
         // [ifndef gwt]
+        if (FORMAT_RFC_1123.get(0).equals(format)) {
+            String result = HttpDateUtils.format(date.getTime());
+
+            if (result != null) {
+                return result;
+            }
+        }
+
         java.text.DateFormat formatter = null;
 
         if (FORMAT_RFC_3339.get(0).equals(format)) {
@@ -232,6 +240,13 @@ public final class DateUtils {
             throw new IllegalArgumentException("Date is null");
         }
 
+        // [ifndef gwt]
+        if (!formats.isEmpty() && FORMAT_RFC_1123.get(0).equals(formats.get(0))) {
+            // Try first the scanner dedicated to the preferred format
+            result = HttpDateUtils.parse(date);
+        }
+        // [enddef]
+
         String format = null;
         int formatsSize = formats.size();
 
@@ -0,0 +1,337 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.util;
+
+import java.util.Date;
+
+// [excludes gwt]
+/**
+ * Formatter and parser dedicated to the preferred HTTP date format (RFC 1123),
+ * for example "Sun, 06 Nov 1994 08:49:37 GMT". Unlike
+ * {@link java.text.SimpleDateFormat}, it is thread-safe and doesn't need to be
+ * instantiated for each call. The formatted value of the current second is
+ * cached as it is typically used by the "Date" header of every message.<br>
+ * <br>
+ * Only dates in the common range (years 1970 to 9999, GMT time zone, strict
+ * syntax) are handled. For other values, the methods return null and the
+ * caller is expected to fall back to the regular formats of {@link DateUtils}.
+ * 
+ * @author Jerome Louvel
+ */
+public final class HttpDateUtils {
+
+    /** Formatted value of a given second. */
+    private static final class FormattedSecond {
+
+        /** The number of seconds since January 1, 1970 GMT. */
+        private final long second;
+
+        /** The formatted value. */
+        private final String value;
+
+        /**
+         * Constructor.
+         * 
+         * @param second
+         *            The number of seconds since January 1, 1970 GMT.
+         * @param value
+         *            The formatted value.
+         */
+        private FormattedSecond(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
+    /** The short names of the days of the week, starting on Sunday. */
+    private static final String[] DAYS = { "Sun", "Mon", "Tue", "Wed", "Thu",
+            "Fri", "Sat" };
+
+    /** The length of a formatted date. */
+    private static final int LENGTH = 29;
+
+    /** The short names of the months. */
+    private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr",
+            "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+    /** The cached value of the current second. */
+    private static volatile FormattedSecond current = new FormattedSecond(-1,
+            null);
+
+    /**
+     * Appends a number padded with zeros.
+     * 
+     * @param value
+     *            The number to append.
+     * @param digits
+     *            The number of digits.
+     * @param buffer
+     *            The target buffer.
+     * @param offset
+     *            The offset in the buffer.
+     */
+    private static void append(int value, int digits, char[] buffer,
+            int offset) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+    }
+
+    /**
+     * Returns the number of days since January 1, 1970 of a given date in the
+     * proleptic Gregorian calendar.
+     * 
+     * @param year
+     *            The year.
+     * @param month
+     *            The month, from 1 to 12.
+     * @param day
+     *            The day of the month, from 1 to 31.
+     * @return The number of days since January 1, 1970.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = (month <= 2) ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5
+                + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+                + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    /**
+     * Formats a date in the RFC 1123 format.
+     * 
+     * @param date
+     *            The date to format.
+     * @return The formatted date or null if the date is out of the supported
+     *         range.
+     */
+    public static String format(Date date) {
+        return format(date.getTime());
+    }
+
+    /**
+     * Formats a date in the RFC 1123 format.
+     * 
+     * @param time
+     *            The number of milliseconds since January 1, 1970 GMT.
+     * @return The formatted date or null if the date is out of the supported
+     *         range.
+     */
+    public static String format(long time) {
+        if (time < 0) {
+            return null;
+        }
+
+        long second = time / 1000;
+        FormattedSecond cached = current;
+
+        if (cached.second == second) {
+            return cached.value;
+        }
+
+        String result = format(second, second / 86400);
+
+        if ((result != null)
+                && (second == System.currentTimeMillis() / 1000)) {
+            current = new FormattedSecond(second, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Formats a date in the RFC 1123 format.
+     * 
+     * @param second
+     *            The number of seconds since January 1, 1970 GMT.
+     * @param days
+     *            The number of days since January 1, 1970.
+     * @return The formatted date or null if the date is out of the supported
+     *         range.
+     */
+    private static String format(long second, long days) {
+        // Convert the days into a civil date
+        long z = days + 719468L;
+        long era = z / 146097L;
+        int dayOfEra = (int) (z - era * 146097L);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra
+                / 146096) / 365;
+        int dayOfYear = dayOfEra
+                - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = (mp < 10) ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + ((month <= 2) ? 1 : 0);
+
+        if (year > 9999) {
+            return null;
+        }
+
+        int secondOfDay = (int) (second - days * 86400L);
+        char[] buffer = new char[LENGTH];
+        DAYS[(int) ((days + 4) % 7)].getChars(0, 3, buffer, 0);
+        buffer[3] = ',';
+        buffer[4] = ' ';
+        append(day, 2, buffer, 5);
+        buffer[7] = ' ';
+        MONTHS[month - 1].getChars(0, 3, buffer, 8);
+        buffer[11] = ' ';
+        append((int) year, 4, buffer, 12);
+        buffer[16] = ' ';
+        append(secondOfDay / 3600, 2, buffer, 17);
+        buffer[19] = ':';
+        append((secondOfDay / 60) % 60, 2, buffer, 20);
+        buffer[22] = ':';
+        append(secondOfDay % 60, 2, buffer, 23);
+        buffer[25] = ' ';
+        buffer[26] = 'G';
+        buffer[27] = 'M';
+        buffer[28] = 'T';
+        return new String(buffer);
+    }
+
+    /**
+     * Returns the number of days of a month.
+     * 
+     * @param year
+     *            The year.
+     * @param month
+     *            The month, from 1 to 12.
+     * @return The number of days of the month.
+     */
+    private static int getMonthLength(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0)
+                    && ((year % 100 != 0) || (year % 400 == 0));
+            return leap ? 29 : 28;
+        } else if ((month == 4) || (month == 6) || (month == 9)
+                || (month == 11)) {
+            return 30;
+        }
+
+        return 31;
+    }
+
+    /**
+     * Returns the index of a name in an array of names, ignoring the case.
+     * 
+     * @param names
+     *            The array of names.
+     * @param value
+     *            The value to scan.
+     * @param offset
+     *            The offset of the name in the value.
+     * @return The index of the name or -1 if not found.
+     */
+    private static int indexOf(String[] names, String value, int offset) {
+        for (int i = 0; i < names.length; i++) {
+            if (value.regionMatches(true, offset, names[i], 0, 3)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Parses a date in the RFC 1123 format.
+     * 
+     * @param date
+     *            The date to parse.
+     * @return The parsed date or null if the date doesn't strictly follow the
+     *         format or is out of the supported range.
+     */
+    public static Date parse(String date) {
+        if ((date == null) || (date.length() != LENGTH)
+                || (date.charAt(3) != ',') || (date.charAt(4) != ' ')
+                || (date.charAt(7) != ' ') || (date.charAt(11) != ' ')
+                || (date.charAt(16) != ' ') || (date.charAt(19) != ':')
+                || (date.charAt(22) != ':') || (date.charAt(25) != ' ')
+                || !date.endsWith("GMT") || (indexOf(DAYS, date, 0) < 0)) {
+            return null;
+        }
+
+        int month = indexOf(MONTHS, date, 8) + 1;
+        int day = parseNumber(date, 5, 2);
+        int year = parseNumber(date, 12, 4);
+        int hour = parseNumber(date, 17, 2);
+        int minute = parseNumber(date, 20, 2);
+        int second = parseNumber(date, 23, 2);
+
+        if ((month < 1) || (day < 1) || (year < 1970) || (hour < 0)
+                || (hour > 23) || (minute < 0) || (minute > 59)
+                || (second < 0) || (second > 59)) {
+            return null;
+        }
+
+        // Leave the lenient handling of invalid days to the regular parser
+        if (day > getMonthLength(year, month)) {
+            return null;
+        }
+
+        long days = daysFromCivil(year, month, day);
+        return new Date((((days * 24 + hour) * 60 + minute) * 60 + second)
+                * 1000L);
+    }
+
+    /**
+     * Parses a fixed-length decimal number.
+     * 
+     * @param value
+     *            The value to parse.
+     * @param offset
+     *            The offset of the number.
+     * @param digits
+     *            The number of digits.
+     * @return The number or -1 if a character isn't a digit.
+     */
+    private static int parseNumber(String value, int offset, int digits) {
+        int result = 0;
+
+        for (int i = offset; i < offset + digits; i++) {
+            char c = value.charAt(i);
+
+            if ((c < '0') || (c > '9')) {
+                return -1;
+            }
+
+            result = result * 10 + (c - '0');
+        }
+
+        return result;
+    }
+
+    /**
+     * Private constructor to ensure that the class acts as a true utility class
+     * i.e. it isn't instantiable and extensible.
+     */
+    private HttpDateUtils() {
+    }
+
+}
@@ -270,7 +270,8 @@ public class FileRepresentation extends Representation {
      */
     @Override
     public void write(WritableByteChannel writableChannel) throws IOException {
-        IoUtils.copy(getChannel(), writableChannel);
+        FileChannel fileChannel = getChannel();
+        IoUtils.copy(fileChannel, 0, fileChannel.size(), writableChannel);
     }
 
     @Override
@@ -25,6 +25,7 @@
 package org.restlet.representation;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 
 import org.restlet.data.MediaType;
@@ -70,4 +71,14 @@ public abstract class WriterRepresentation extends CharacterRepresentation {
         return IoUtils.getReader(this);
     }
 
+    /**
+     * Returns a stream with the representation's content, encoded by its
+     * write(OutputStream) method rather than by re-encoding the
+     * {@link #getReader()} characters.
+     */
+    @Override
+    public InputStream getStream() throws IOException {
+        return IoUtils.getStream(this);
+    }
+
 }
@@ -530,7 +530,8 @@ public class ClientResource extends Resource {
                 // [ifndef gwt]
                 org.restlet.engine.util.TemplateDispatcher dispatcher = new org.restlet.engine.util.TemplateDispatcher();
                 dispatcher.setContext(getContext());
-                dispatcher.setNext(new Client(protocol));
+                dispatcher.setNext(org.restlet.engine.connector.ClientRegistry
+                        .getInstance().acquire(protocol));
                 result = dispatcher;
                 // [enddef]
                 // [ifdef gwt] uncomment
@@ -610,6 +611,20 @@ public class ClientResource extends Resource {
         return handle(Method.DELETE, mediaType);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously deletes the target resource and all its representations.
+     * 
+     * @return The future response.
+     * @see #handleAsync(Method)
+     * @see <a
+     *      href="http://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.7">HTTP
+     *      DELETE method</a>
+     */
+    public org.restlet.util.ResponseFuture deleteAsync() {
+        return handleAsync(Method.DELETE);
+    }
+
     /**
      * By default, it throws a new resource exception. This can be overridden to
      * provide a different behavior.
@@ -626,6 +641,20 @@ public class ClientResource extends Resource {
     @Override
     protected void doRelease() throws ResourceException {
         if ((getNext() != null) && this.nextCreated) {
+            // [ifndef gwt]
+            if (getNext() instanceof org.restlet.engine.util.TemplateDispatcher) {
+                org.restlet.engine.util.TemplateDispatcher dispatcher = (org.restlet.engine.util.TemplateDispatcher) getNext();
+
+                if (dispatcher.getNext() instanceof Client) {
+                    // Release the shared client instead of stopping it
+                    Client client = (Client) dispatcher.getNext();
+                    dispatcher.setNext((Restlet) null);
+                    org.restlet.engine.connector.ClientRegistry.getInstance()
+                            .release(client);
+                }
+            }
+            // [enddef]
+
             if (getNext() instanceof Restlet) {
                 try {
                     ((Restlet) getNext()).stop();
@@ -708,6 +737,37 @@ public class ClientResource extends Resource {
         return handle(Method.GET, mediaType);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously represents the resource using content negotiation to
+     * select the best variant based on the client preferences.
+     * 
+     * @return The future response.
+     * @see #handleAsync(Method)
+     * @see <a
+     *      href="http://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.3">HTTP
+     *      GET method</a>
+     */
+    public org.restlet.util.ResponseFuture getAsync() {
+        return handleAsync(Method.GET);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Asynchronously represents the resource using a given media type.
+     * 
+     * @param mediaType
+     *            The media type of the representation to retrieve.
+     * @return The future response.
+     * @see #handleAsync(Method)
+     * @see <a
+     *      href="http://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.3">HTTP
+     *      GET method</a>
+     */
+    public org.restlet.util.ResponseFuture getAsync(MediaType mediaType) {
+        return handleAsync(Method.GET, null, new ClientInfo(mediaType));
+    }
+
     /**
      * Returns the attribute value by looking up the given name in the response
      * attributes maps. The toString() method is then invoked on the attribute
@@ -1177,6 +1237,84 @@ public class ClientResource extends Resource {
         }
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously handles the call by cloning the prototype request and
+     * setting the method. The calling thread isn't blocked with the NIO client
+     * connectors, which invoke the future's callbacks on one of their worker
+     * threads once the response is received. With the other connectors and
+     * with local calls, the future is completed before this method returns.<br>
+     * <br>
+     * Contrary to the synchronous methods, no exception is thrown for error
+     * statuses, they must be checked on the response.
+     * 
+     * @param method
+     *            The request method to use.
+     * @return The future response.
+     */
+    public org.restlet.util.ResponseFuture handleAsync(Method method) {
+        return handleAsync(method, null, getClientInfo());
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Asynchronously handles the call by cloning the prototype request,
+     * setting the method and entity.
+     * 
+     * @param method
+     *            The request method to use.
+     * @param entity
+     *            The request entity to set.
+     * @return The future response.
+     * @see #handleAsync(Method)
+     */
+    public org.restlet.util.ResponseFuture handleAsync(Method method,
+            Representation entity) {
+        return handleAsync(method, entity, getClientInfo());
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Asynchronously handles the call by cloning the prototype request,
+     * setting the method and entity. The {@link #getOnResponse()} callback,
+     * if any, is invoked before the ones added to the future.
+     * 
+     * @param method
+     *            The request method to use.
+     * @param entity
+     *            The request entity to set.
+     * @param clientInfo
+     *            The client preferences.
+     * @return The future response.
+     * @see #handleAsync(Method)
+     */
+    protected org.restlet.util.ResponseFuture handleAsync(Method method,
+            Representation entity, ClientInfo clientInfo) {
+        org.restlet.util.ResponseFuture result = new org.restlet.util.ResponseFuture();
+
+        if (getOnResponse() != null) {
+            result.onResponse(getOnResponse());
+        }
+
+        // Prepare the request by cloning the prototype request
+        Request request = createRequest();
+        request.setMethod(method);
+        request.setEntity(entity);
+        request.setClientInfo(clientInfo);
+        request.setOnResponse(result);
+
+        // Actually handle the call
+        Response response = handleOutbound(request);
+
+        if (!result.isDone() && response.isAutoCommitting()) {
+            // The call was handled without deferring the response, for
+            // example by a local Restlet ignoring the callback
+            result.handle(request, response);
+        }
+
+        return result;
+    }
+
     /**
      * Handles the inbound call. Note that only synchronous calls are processed.
      * 
@@ -1530,6 +1668,22 @@ public class ClientResource extends Resource {
         return handle(Method.POST, entity);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously posts a representation.
+     * 
+     * @param entity
+     *            The posted entity.
+     * @return The future response.
+     * @see #handleAsync(Method)
+     * @see <a
+     *      href="http://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.5">HTTP
+     *      POST method</a>
+     */
+    public org.restlet.util.ResponseFuture postAsync(Representation entity) {
+        return handleAsync(Method.POST, entity);
+    }
+
     /**
      * Puts an object entity. Automatically serializes the object using the
      * {@link org.restlet.service.ConverterService}.
@@ -1610,6 +1764,22 @@ public class ClientResource extends Resource {
         return handle(Method.PUT, entity);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Asynchronously puts a representation.
+     * 
+     * @param entity
+     *            The entity to put.
+     * @return The future response.
+     * @see #handleAsync(Method)
+     * @see <a
+     *      href="http://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.6">HTTP
+     *      PUT method</a>
+     */
+    public org.restlet.util.ResponseFuture putAsync(Representation entity) {
+        return handleAsync(Method.PUT, entity);
+    }
+
     /**
      * Effectively redirects a client call. By default, it checks for infinite
      * loops and unavailable entities, the references list is updated and the
@@ -42,7 +42,6 @@ import org.restlet.data.ChallengeRequest;
 import org.restlet.data.CookieSetting;
 import org.restlet.data.Dimension;
 import org.restlet.data.Form;
-import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Reference;
 import org.restlet.data.ServerInfo;
@@ -518,10 +517,10 @@ public abstract class ServerResource extends Resource {
                     }
                 }
 
-                resultObject = annotationInfo.getJavaMethod().invoke(this,
+                resultObject = annotationInfo.invoke(this,
                         parameters.toArray());
             } else {
-                resultObject = annotationInfo.getJavaMethod().invoke(this);
+                resultObject = annotationInfo.invoke(this);
             }
 
             if (resultObject != null) {
@@ -943,66 +942,43 @@ public abstract class ServerResource extends Resource {
 
             // Add annotation-based variants in priority
             if (isAnnotated() && hasAnnotations()) {
-                List<Variant> annoVariants = null;
                 method = (Method.HEAD.equals(method)) ? Method.GET : method;
-
-                for (AnnotationInfo annotationInfo : getAnnotations()) {
-                    try {
-                        if (annotationInfo instanceof MethodAnnotationInfo) {
-                            MethodAnnotationInfo methodAnnotationInfo = (MethodAnnotationInfo) annotationInfo;
-
-                            if (methodAnnotationInfo
-                                    .isCompatible(method, getQuery(),
-                                            getRequestEntity(),
-                                            getMetadataService(),
-                                            getConverterService())) {
-                                annoVariants = methodAnnotationInfo
-                                        .getResponseVariants(
-                                                getMetadataService(),
-                                                getConverterService());
-
-                                if (annoVariants != null) {
-                                    // Compute an affinity score between this
-                                    // annotation and the input entity.
-                                    float score = 0.5f;
-                                    if ((getRequest().getEntity() != null)
-                                            && getRequest().getEntity()
-                                                    .isAvailable()) {
-                                        MediaType emt = getRequest()
-                                                .getEntity().getMediaType();
-                                        List<MediaType> amts = getMetadataService()
-                                                .getAllMediaTypes(
-                                                        methodAnnotationInfo
-                                                                .getInput());
-                                        if (amts != null) {
-                                            for (MediaType amt : amts) {
-                                                if (amt.equals(emt)) {
-                                                    score = 1.0f;
-                                                } else if (amt.includes(emt)) {
-                                                    score = Math.max(0.8f,
-                                                            score);
-                                                } else if (amt
-                                                        .isCompatible(emt)) {
-                                                    score = Math.max(0.6f,
-                                                            score);
-                                                }
-                                            }
-                                        }
-                                    }
-
-                                    for (Variant v : annoVariants) {
-                                        VariantInfo vi = new VariantInfo(v,
-                                                methodAnnotationInfo);
-                                        vi.setInputScore(score);
-                                        result.add(vi);
-                                    }
-                                }
-                            }
+                Representation entity = getRequest().getEntity();
+                boolean entityAvailable = (entity != null)
+                        && entity.isAvailable();
+
+                // The candidate variants are scored once per resource class,
+                // method and request media type
+                List<VariantInfo> candidates = AnnotationUtils.getInstance()
+                        .getResponseVariants(getClass(), method,
+                                entityAvailable,
+                                entityAvailable ? entity.getMediaType() : null,
+                                getMetadataService(), getConverterService());
+                MethodAnnotationInfo methodAnnotationInfo = null;
+                boolean compatible = false;
+
+                for (VariantInfo candidate : candidates) {
+                    if (candidate.getAnnotationInfo() != methodAnnotationInfo) {
+                        methodAnnotationInfo = candidate.getAnnotationInfo();
+
+                        try {
+                            compatible = methodAnnotationInfo.isCompatible(
+                                    method, getQuery(), getRequestEntity(),
+                                    getMetadataService(),
+                                    getConverterService());
+                        } catch (IOException e) {
+                            compatible = false;
+                            getLogger().log(Level.FINE,
+                                    "Unable to get variants from annotation",
+                                    e);
                         }
-                    } catch (IOException e) {
-                        getLogger().log(Level.FINE,
-                                "Unable to get variants from annotation", e);
+                    }
 
+                    if (compatible) {
+                        VariantInfo vi = new VariantInfo(candidate,
+                                methodAnnotationInfo);
+                        vi.setInputScore(candidate.getInputScore());
+                        result.add(vi);
                     }
                 }
             }
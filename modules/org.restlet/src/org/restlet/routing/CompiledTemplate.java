@@ -0,0 +1,609 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.restlet.data.Reference;
+
+/**
+ * Compiled form of a {@link Template}, made of a precomputed sequence of
+ * literal and variable segments. It matches formatted strings with a
+ * hand-written scanner instead of a {@link java.util.regex.Matcher} and
+ * directly writes the captured values into the target map. The scanner
+ * explores the same alternatives, in the same order, as the regular expression
+ * generated by the template, so both give identical results.<br>
+ * <br>
+ * Templates using variable types that aren't supported by the scanner (token,
+ * comment and scheme types) or literal characters that the generated regular
+ * expression doesn't quote can't be compiled and keep using the regular
+ * expression.
+ * 
+ * @author Jerome Louvel
+ */
+final class CompiledTemplate {
+
+    /**
+     * Builder of compiled templates, fed while the template pattern is
+     * scanned.
+     */
+    static final class Builder {
+
+        /** The current literal being built. */
+        private final StringBuilder literal = new StringBuilder();
+
+        /** The variable names, in the order of their first occurrence. */
+        private final List<String> names = new ArrayList<String>();
+
+        /** The segments added so far. */
+        private final List<Segment> segments = new ArrayList<Segment>();
+
+        /** Indicates if the template can still be compiled. */
+        private boolean supported = true;
+
+        /**
+         * Appends a literal character.
+         * 
+         * @param character
+         *            The literal character.
+         */
+        void appendLiteral(char character) {
+            if (character == '+') {
+                // Not quoted in the generated regular expression
+                this.supported = false;
+            }
+
+            this.literal.append(character);
+        }
+
+        /**
+         * Appends a variable.
+         * 
+         * @param name
+         *            The variable name.
+         * @param variable
+         *            The variable descriptor.
+         */
+        void appendVariable(String name, Variable variable) {
+            int slot = this.names.indexOf(name);
+
+            if (slot != -1) {
+                flushLiteral();
+                this.segments.add(new Segment(Segment.BACK_REFERENCE,
+                        Variable.TYPE_ALL, false, slot));
+            } else if (variable.isFixed()) {
+                this.names.add(name);
+
+                if (variable.getDefaultValue() == null) {
+                    this.supported = false;
+                } else {
+                    flushLiteral();
+                    this.segments.add(new Segment(Segment.FIXED,
+                            variable.getDefaultValue(), this.names.size() - 1));
+                }
+            } else {
+                this.names.add(name);
+
+                if (!isSupported(variable.getType())) {
+                    this.supported = false;
+                } else {
+                    flushLiteral();
+                    this.segments.add(new Segment(Segment.VARIABLE, variable
+                            .getType(), variable.isRequired(), this.names
+                            .size() - 1));
+                }
+            }
+        }
+
+        /**
+         * Builds the compiled template.
+         * 
+         * @return The compiled template or null if the template can't be
+         *         compiled.
+         */
+        CompiledTemplate build() {
+            if (!this.supported) {
+                return null;
+            }
+
+            flushLiteral();
+            return new CompiledTemplate(
+                    this.segments.toArray(new Segment[this.segments.size()]),
+                    this.names.toArray(new String[this.names.size()]));
+        }
+
+        /**
+         * Adds the current literal as a new segment.
+         */
+        private void flushLiteral() {
+            if (this.literal.length() > 0) {
+                this.segments.add(new Segment(Segment.LITERAL, this.literal
+                        .toString(), -1));
+                this.literal.setLength(0);
+            }
+        }
+    }
+
+    /** Segment of a compiled template. */
+    private static final class Segment {
+
+        /** Segment matching the value captured by a previous variable. */
+        static final int BACK_REFERENCE = 4;
+
+        /** Segment matching the fixed value of a variable. */
+        static final int FIXED = 3;
+
+        /** Segment matching a literal string. */
+        static final int LITERAL = 1;
+
+        /** Segment capturing a variable value. */
+        static final int VARIABLE = 2;
+
+        /** The kind of segment. */
+        final int kind;
+
+        /** The literal or fixed value to match. */
+        final String literal;
+
+        /** Indicates if at least one character must be captured. */
+        final boolean required;
+
+        /** The index of the captured variable. */
+        final int slot;
+
+        /** The type of variable. See {@link Variable} TYPE_* constants. */
+        final int type;
+
+        /**
+         * Constructor for literal and fixed segments.
+         * 
+         * @param kind
+         *            The kind of segment.
+         * @param literal
+         *            The literal or fixed value to match.
+         * @param slot
+         *            The index of the captured variable or -1.
+         */
+        Segment(int kind, String literal, int slot) {
+            this.kind = kind;
+            this.literal = literal;
+            this.required = false;
+            this.slot = slot;
+            this.type = 0;
+        }
+
+        /**
+         * Constructor for variable and back reference segments.
+         * 
+         * @param kind
+         *            The kind of segment.
+         * @param type
+         *            The type of variable.
+         * @param required
+         *            Indicates if at least one character must be captured.
+         * @param slot
+         *            The index of the captured variable.
+         */
+        Segment(int kind, int type, boolean required, int slot) {
+            this.kind = kind;
+            this.literal = null;
+            this.required = required;
+            this.slot = slot;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Indicates if the character is an ASCII letter.
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the character is an ASCII letter.
+     */
+    private static boolean isAlpha(char character) {
+        return ((character >= 'a') && (character <= 'z'))
+                || ((character >= 'A') && (character <= 'Z'));
+    }
+
+    /**
+     * Indicates if the character is an ASCII digit.
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the character is an ASCII digit.
+     */
+    private static boolean isDigit(char character) {
+        return (character >= '0') && (character <= '9');
+    }
+
+    /**
+     * Indicates if the character is an hexadecimal digit.
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the character is an hexadecimal digit.
+     */
+    private static boolean isHexa(char character) {
+        return isDigit(character) || ((character >= 'a') && (character <= 'f'))
+                || ((character >= 'A') && (character <= 'F'));
+    }
+
+    /**
+     * Indicates if the character is matched by the "." regular expression.
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the character isn't a line terminator.
+     */
+    private static boolean isNotLineTerminator(char character) {
+        return (character != '\n') && (character != '\r')
+                && (character != '\u0085') && (character != '\u2028')
+                && (character != '\u2029');
+    }
+
+    /**
+     * Indicates if the variable type is supported by the scanner.
+     * 
+     * @param type
+     *            The variable type.
+     * @return True if the variable type is supported.
+     */
+    private static boolean isSupported(int type) {
+        switch (type) {
+        case Variable.TYPE_ALL:
+        case Variable.TYPE_ALPHA:
+        case Variable.TYPE_DIGIT:
+        case Variable.TYPE_ALPHA_DIGIT:
+        case Variable.TYPE_URI_ALL:
+        case Variable.TYPE_URI_UNRESERVED:
+        case Variable.TYPE_WORD:
+        case Variable.TYPE_URI_FRAGMENT:
+        case Variable.TYPE_URI_PATH:
+        case Variable.TYPE_URI_QUERY:
+        case Variable.TYPE_URI_QUERY_PARAM:
+        case Variable.TYPE_URI_SEGMENT:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Indicates if the character is a valid URI path character, excluding the
+     * percent-encoded octets.
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the character is a valid URI path character.
+     */
+    private static boolean isPathChar(char character) {
+        return Reference.isUnreserved(character)
+                || Reference.isSubDelimiter(character) || (character == ':')
+                || (character == '@');
+    }
+
+    /**
+     * Indicates if the character is a valid query parameter character,
+     * excluding the percent-encoded octets.
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the character is a valid query parameter character.
+     */
+    private static boolean isQueryParamChar(char character) {
+        return Reference.isUnreserved(character) || (character == '!')
+                || (character == '$') || (character == '\'')
+                || (character == '(') || (character == ')')
+                || (character == '*') || (character == '+')
+                || (character == ',') || (character == ';')
+                || (character == ':') || (character == '@');
+    }
+
+    /** The sequence of segments. */
+    private final Segment[] segments;
+
+    /** The variable names, in the order of their first occurrence. */
+    private final String[] variableNames;
+
+    /**
+     * Constructor.
+     * 
+     * @param segments
+     *            The sequence of segments.
+     * @param variableNames
+     *            The variable names.
+     */
+    private CompiledTemplate(Segment[] segments, String[] variableNames) {
+        this.segments = segments;
+        this.variableNames = variableNames;
+    }
+
+    /**
+     * Returns the length of the token of the given variable type starting at
+     * the given index.
+     * 
+     * @param type
+     *            The variable type.
+     * @param value
+     *            The string to scan.
+     * @param index
+     *            The start index.
+     * @return The length of the token or 0 if no token matches.
+     */
+    private int getTokenLength(int type, String value, int index) {
+        char c = value.charAt(index);
+
+        switch (type) {
+        case Variable.TYPE_ALL:
+            if (Character.isHighSurrogate(c) && (index + 1 < value.length())
+                    && Character.isLowSurrogate(value.charAt(index + 1))) {
+                return 2;
+            }
+
+            return isNotLineTerminator(c) ? 1 : 0;
+        case Variable.TYPE_ALPHA:
+            return isAlpha(c) ? 1 : 0;
+        case Variable.TYPE_DIGIT:
+            return isDigit(c) ? 1 : 0;
+        case Variable.TYPE_ALPHA_DIGIT:
+            return (isAlpha(c) || isDigit(c)) ? 1 : 0;
+        case Variable.TYPE_URI_UNRESERVED:
+            return Reference.isUnreserved(c) ? 1 : 0;
+        case Variable.TYPE_WORD:
+            return (isAlpha(c) || isDigit(c) || (c == '_')) ? 1 : 0;
+        case Variable.TYPE_URI_ALL:
+            if (Reference.isReserved(c) || Reference.isUnreserved(c)) {
+                return 1;
+            }
+            break;
+        case Variable.TYPE_URI_SEGMENT:
+            if (isPathChar(c)) {
+                return 1;
+            }
+            break;
+        case Variable.TYPE_URI_PATH:
+            if (isPathChar(c) || (c == '/')) {
+                return 1;
+            }
+            break;
+        case Variable.TYPE_URI_QUERY:
+        case Variable.TYPE_URI_FRAGMENT:
+            if (isPathChar(c) || (c == '/') || (c == '?')) {
+                return 1;
+            }
+            break;
+        case Variable.TYPE_URI_QUERY_PARAM:
+            if (isQueryParamChar(c) || (c == '/') || (c == '?')) {
+                return 1;
+            }
+            break;
+        }
+
+        // Percent-encoded octet
+        if ((c == '%') && (index + 2 < value.length())
+                && isHexa(value.charAt(index + 1))
+                && isHexa(value.charAt(index + 2))) {
+            return 3;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Returns the end index of the token preceding the given one.
+     * 
+     * @param type
+     *            The variable type.
+     * @param value
+     *            The string to scan.
+     * @param start
+     *            The start index of the captured value.
+     * @param end
+     *            The end index of the current token.
+     * @return The end index of the previous token.
+     */
+    private int getPreviousEnd(int type, String value, int start, int end) {
+        if (type == Variable.TYPE_ALL) {
+            if ((end - 2 >= start)
+                    && Character.isLowSurrogate(value.charAt(end - 1))
+                    && Character.isHighSurrogate(value.charAt(end - 2))) {
+                return end - 2;
+            }
+        } else if ((end - 3 >= start) && (value.charAt(end - 3) == '%')) {
+            // A percent sign can only start an encoded octet
+            return end - 3;
+        }
+
+        return end - 1;
+    }
+
+    /**
+     * Indicates if the current pattern matches the given formatted string.
+     * 
+     * @param formattedString
+     *            The formatted string to match.
+     * @param matchingMode
+     *            The matching mode.
+     * @param captures
+     *            The start and end indexes of the captured variables, updated
+     *            on success.
+     * @return The number of matched characters or -1 if the match failed.
+     */
+    int match(String formattedString, int matchingMode, int[] captures) {
+        if ((matchingMode != Template.MODE_EQUALS)
+                && (matchingMode != Template.MODE_STARTS_WITH)) {
+            return -1;
+        }
+
+        return match(formattedString, 0, 0,
+                matchingMode == Template.MODE_EQUALS, captures);
+    }
+
+    /**
+     * Recursively matches the segments, starting at the given one.
+     * 
+     * @param value
+     *            The formatted string to match.
+     * @param segmentIndex
+     *            The index of the segment to match.
+     * @param index
+     *            The current index in the formatted string.
+     * @param equals
+     *            Indicates if the whole string must be matched.
+     * @param captures
+     *            The start and end indexes of the captured variables.
+     * @return The end index of the match or -1 if the match failed.
+     */
+    private int match(String value, int segmentIndex, int index,
+            boolean equals, int[] captures) {
+        if (segmentIndex == this.segments.length) {
+            return (!equals || (index == value.length())) ? index : -1;
+        }
+
+        Segment segment = this.segments[segmentIndex];
+
+        switch (segment.kind) {
+        case Segment.LITERAL:
+        case Segment.FIXED:
+            if (!value.startsWith(segment.literal, index)) {
+                return -1;
+            }
+
+            if (segment.kind == Segment.FIXED) {
+                captures[2 * segment.slot] = index;
+                captures[2 * segment.slot + 1] = index
+                        + segment.literal.length();
+            }
+
+            return match(value, segmentIndex + 1, index
+                    + segment.literal.length(), equals, captures);
+
+        case Segment.BACK_REFERENCE:
+            int start = captures[2 * segment.slot];
+            int length = captures[2 * segment.slot + 1] - start;
+
+            if (!value.regionMatches(index, value, start, length)) {
+                return -1;
+            }
+
+            return match(value, segmentIndex + 1, index + length, equals,
+                    captures);
+
+        default:
+            // Greedily consume the tokens, then backtrack one token at a time
+            int end = index;
+            int tokenLength;
+
+            while ((end < value.length())
+                    && ((tokenLength = getTokenLength(segment.type, value, end)) > 0)) {
+                end += tokenLength;
+            }
+
+            int min = segment.required ? index + 1 : index;
+
+            while (end >= min) {
+                captures[2 * segment.slot] = index;
+                captures[2 * segment.slot + 1] = end;
+                int result = match(value, segmentIndex + 1, end, equals,
+                        captures);
+
+                if (result != -1) {
+                    return result;
+                }
+
+                if (end == index) {
+                    break;
+                }
+
+                end = getPreviousEnd(segment.type, value, index, end);
+            }
+
+            return -1;
+        }
+    }
+
+    /**
+     * Returns a new array able to hold the captured indexes.
+     * 
+     * @return A new array able to hold the captured indexes.
+     */
+    int[] newCaptures() {
+        return new int[2 * this.variableNames.length];
+    }
+
+    /**
+     * Attempts to parse a formatted string. If the parsing succeeds, the given
+     * map of variables is updated.
+     * 
+     * @param formattedString
+     *            The string to parse.
+     * @param matchingMode
+     *            The matching mode.
+     * @param variables
+     *            The map of variables to update.
+     * @param descriptors
+     *            The map of variable descriptors, read on each call so that
+     *            their decoding flag can be updated.
+     * @param loggable
+     *            True if the parsing should be logged.
+     * @param logger
+     *            The logger to use.
+     * @return The number of matched characters or -1 if no character matched.
+     */
+    int parse(String formattedString, int matchingMode,
+            Map<String, Object> variables, Map<String, Variable> descriptors,
+            boolean loggable, Logger logger) {
+        int[] captures = newCaptures();
+        int result = match(formattedString, matchingMode, captures);
+
+        if (result != -1) {
+            for (int i = 0; i < this.variableNames.length; i++) {
+                String attributeValue = formattedString.substring(
+                        captures[2 * i], captures[2 * i + 1]);
+
+                Variable var = descriptors.get(this.variableNames[i]);
+
+                if ((var != null) && var.isDecodingOnParse()) {
+                    attributeValue = Reference.decode(attributeValue);
+                }
+
+                if (loggable) {
+                    logger.fine("Template variable \""
+                            + this.variableNames[i]
+                            + "\" matched with value \"" + attributeValue
+                            + "\"");
+                }
+
+                variables.put(this.variableNames[i], attributeValue);
+            }
+        }
+
+        return result;
+    }
+
+}
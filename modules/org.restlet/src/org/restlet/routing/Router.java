@@ -47,6 +47,8 @@ import org.restlet.util.RouteList;
  * <ul>
  * <li>Best match</li>
  * <li>First match (default)</li>
+ * <li>Indexed best match</li>
+ * <li>Indexed first match</li>
  * <li>Last match</li>
  * <li>Random match</li>
  * <li>Round robin</li>
@@ -92,6 +94,26 @@ public class Router extends Restlet {
      */
     public static final int MODE_FIRST_MATCH = 2;
 
+    /**
+     * Each call will be routed to the route with the best score, like with
+     * {@link #MODE_BEST_MATCH}, but only the routes whose URI template can
+     * match the remaining part of the resource reference are scored. This is
+     * recommended for routers with many attached templates. See
+     * {@link RouteList#getIndexedBest(Request, Response, float)} method for
+     * implementation details.
+     */
+    public static final int MODE_INDEXED_BEST_MATCH = 7;
+
+    /**
+     * Each call is routed to the first route if the required score is reached,
+     * like with {@link #MODE_FIRST_MATCH}, but only the routes whose URI
+     * template can match the remaining part of the resource reference are
+     * scored. This is recommended for routers with many attached templates.
+     * See {@link RouteList#getIndexedFirst(Request, Response, float)} method
+     * for implementation details.
+     */
+    public static final int MODE_INDEXED_FIRST_MATCH = 8;
+
     /**
      * Each call will be routed to the last route if the required score is
      * reached. If the required score is not reached, then the route is skipped
@@ -541,6 +563,16 @@ public class Router extends Restlet {
                             getRequiredScore());
                     break;
 
+                case MODE_INDEXED_BEST_MATCH:
+                    result = getRoutes().getIndexedBest(request, response,
+                            getRequiredScore());
+                    break;
+
+                case MODE_INDEXED_FIRST_MATCH:
+                    result = getRoutes().getIndexedFirst(request, response,
+                            getRequiredScore());
+                    break;
+
                 case MODE_LAST_MATCH:
                     result = getRoutes().getLast(request, response,
                             getRequiredScore());
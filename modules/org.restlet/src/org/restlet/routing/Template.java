@@ -231,6 +231,9 @@ public class Template {
         return result;
     }
 
+    /** The compiled template, null if the template can't be compiled. */
+    private volatile CompiledTemplate compiledTemplate;
+
     /** The default variable to use when no matching variable descriptor exists. */
     private volatile Variable defaultVariable;
 
@@ -493,6 +496,7 @@ public class Template {
             synchronized (this) {
                 if (this.regexPattern == null) {
                     getRegexVariables().clear();
+                    final CompiledTemplate.Builder compiledBuilder = new CompiledTemplate.Builder();
                     final StringBuilder patternBuffer = new StringBuilder();
                     StringBuilder varBuffer = null;
                     char next;
@@ -521,6 +525,8 @@ public class Template {
                                         // constraint is enforced when parsing.
                                         patternBuffer.append("\\"
                                                 + (varIndex + 1));
+                                        compiledBuilder.appendVariable(varName,
+                                                null);
                                     } else {
                                         // New variable detected. Insert a
                                         // capturing group.
@@ -532,6 +538,8 @@ public class Template {
                                         }
                                         patternBuffer
                                                 .append(getVariableRegex(var));
+                                        compiledBuilder.appendVariable(varName,
+                                                var);
                                     }
 
                                     // Reset the variable name buffer
@@ -554,10 +562,12 @@ public class Template {
                                                 + this.regexPattern);
                             } else {
                                 patternBuffer.append(quote(next));
+                                compiledBuilder.appendLiteral(next);
                             }
                         }
                     }
 
+                    this.compiledTemplate = compiledBuilder.build();
                     this.regexPattern = Pattern.compile(patternBuffer
                             .toString());
                 }
@@ -675,14 +685,23 @@ public class Template {
 
         try {
             if (formattedString != null) {
-                final Matcher matcher = getRegexPattern().matcher(
-                        formattedString);
+                final Pattern regex = getRegexPattern();
+                final CompiledTemplate compiled = this.compiledTemplate;
 
-                if ((getMatchingMode() == MODE_EQUALS) && matcher.matches()) {
-                    result = matcher.end();
-                } else if ((getMatchingMode() == MODE_STARTS_WITH)
-                        && matcher.lookingAt()) {
-                    result = matcher.end();
+                if (compiled != null) {
+                    // Fast path without regex matcher
+                    result = compiled.match(formattedString, getMatchingMode(),
+                            compiled.newCaptures());
+                } else {
+                    final Matcher matcher = regex.matcher(formattedString);
+
+                    if ((getMatchingMode() == MODE_EQUALS)
+                            && matcher.matches()) {
+                        result = matcher.end();
+                    } else if ((getMatchingMode() == MODE_STARTS_WITH)
+                            && matcher.lookingAt()) {
+                        result = matcher.end();
+                    }
                 }
             }
         } catch (StackOverflowError soe) {
@@ -734,7 +753,16 @@ public class Template {
 
         if (formattedString != null) {
             try {
-                Matcher matcher = getRegexPattern().matcher(formattedString);
+                Pattern regex = getRegexPattern();
+                CompiledTemplate compiled = this.compiledTemplate;
+
+                if (compiled != null) {
+                    // Fast path writing the values directly into the map
+                    return compiled.parse(formattedString, getMatchingMode(),
+                            variables, getVariables(), loggable, getLogger());
+                }
+
+                Matcher matcher = regex.matcher(formattedString);
                 boolean matched = ((getMatchingMode() == MODE_EQUALS) && matcher
                         .matches())
                         || ((getMatchingMode() == MODE_STARTS_WITH) && matcher
@@ -891,6 +919,7 @@ public class Template {
      */
     public void setPattern(String pattern) {
         this.pattern = pattern;
+        this.compiledTemplate = null;
         this.regexPattern = null;
     }
 
@@ -352,7 +352,9 @@ public class VirtualHost extends Router {
 
     /**
      * Returns the hostRef host domain to match. See the
-     * {@link java.util.regex.Pattern} class for details on the syntax.
+     * {@link java.util.regex.Pattern} class for details on the syntax. When
+     * there is no other special character, the dots of the host domain match
+     * literal dots only, such as in "www.example.com".
      * 
      * @return The hostRef host domain to match.
      */
@@ -439,7 +441,9 @@ public class VirtualHost extends Router {
 
     /**
      * Sets the hostRef host domain to match. See the
-     * {@link java.util.regex.Pattern} class for details on the syntax.
+     * {@link java.util.regex.Pattern} class for details on the syntax. When
+     * there is no other special character, the dots of the host domain match
+     * literal dots only, such as in "www.example.com".
      * 
      * @param hostDomain
      *            The hostRef host domain to match.
@@ -27,13 +27,19 @@ package org.restlet.service;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 
 import org.restlet.Context;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Encoding;
+import org.restlet.data.Language;
 import org.restlet.data.MediaType;
 import org.restlet.data.Preference;
 import org.restlet.engine.Engine;
 import org.restlet.engine.converter.ConverterHelper;
+import org.restlet.engine.converter.ConverterList;
 import org.restlet.engine.converter.ConverterUtils;
 import org.restlet.engine.resource.VariantInfo;
 import org.restlet.representation.Representation;
@@ -48,12 +54,231 @@ import org.restlet.resource.Resource;
  * Root object classes used for conversion shouldn't be generic classes
  * otherwise important contextual type information will be missing at runtime
  * due to Java type erasure mechanism. If needed, create a fully resolved
- * subclasses and/or a container classes.
+ * subclasses and/or a container classes.<br>
+ * <br>
+ * The selection of the best converter helper and the list of variants
+ * available for a given class are cached, as they only depend on the classes
+ * and variant metadata involved. The cache is bounded and is invalidated each
+ * time the list of converters registered with the engine changes.
  * 
  * @author Jerome Louvel
  */
 public class ConverterService extends Service {
 
+    /**
+     * Cache of converter selections, valid for a given version of the list of
+     * converters registered with an engine.
+     */
+    private static class SelectionCache {
+
+        /** The engine owning the list of converters. */
+        private final Engine engine;
+
+        /** The cached selections. */
+        private final ConcurrentMap<SelectionKey, Object> selections;
+
+        /** The version of the list of converters. */
+        private final int version;
+
+        /**
+         * Constructor.
+         * 
+         * @param engine
+         *            The engine owning the list of converters.
+         * @param version
+         *            The version of the list of converters.
+         */
+        private SelectionCache(Engine engine, int version) {
+            this.engine = engine;
+            this.version = version;
+            this.selections = new ConcurrentHashMap<SelectionKey, Object>();
+        }
+
+        /**
+         * Returns the cached selection.
+         * 
+         * @param key
+         *            The selection key.
+         * @return The cached selection, {@link ConverterService#NO_SELECTION}
+         *         or null if not cached.
+         */
+        private Object get(SelectionKey key) {
+            return this.selections.get(key);
+        }
+
+        /**
+         * Caches a selection. The cache is cleared when its maximum size is
+         * reached.
+         * 
+         * @param key
+         *            The selection key.
+         * @param selection
+         *            The selection or null.
+         */
+        private void put(SelectionKey key, Object selection) {
+            if (this.selections.size() >= SELECTION_CACHE_MAX_SIZE) {
+                this.selections.clear();
+            }
+
+            this.selections.put(key, (selection == null) ? NO_SELECTION
+                    : selection);
+        }
+    }
+
+    /**
+     * Key of a cached converter selection. It captures the classes and the
+     * variant metadata used by the converter helpers to score a conversion.
+     * The parameters of the variant media type, such as a multipart boundary,
+     * are left out of the key so that they don't create one entry per
+     * request. Only their presence is kept, as it prevents an exact match with
+     * the media types supported by the converter helpers.
+     */
+    private static class SelectionKey {
+
+        /** The character set of the variant. */
+        private final CharacterSet characterSet;
+
+        /** The encodings of the variant. */
+        private final List<Encoding> encodings;
+
+        /** The kind of selection. */
+        private final int kind;
+
+        /** The languages of the variant. */
+        private final List<Language> languages;
+
+        /** The media type of the variant without parameters. */
+        private final MediaType mediaType;
+
+        /** Indicates if the media type of the variant has parameters. */
+        private final boolean mediaTypeParameters;
+
+        /** The source class. */
+        private final Class<?> sourceClass;
+
+        /** The target class. */
+        private final Class<?> targetClass;
+
+        /** Indicates if a variant was provided. */
+        private final boolean variant;
+
+        /**
+         * Constructor.
+         * 
+         * @param kind
+         *            The kind of selection.
+         * @param sourceClass
+         *            The source class.
+         * @param targetClass
+         *            The target class.
+         * @param variant
+         *            The variant whose metadata are scored or null.
+         */
+        private SelectionKey(int kind, Class<?> sourceClass,
+                Class<?> targetClass, Variant variant) {
+            this.kind = kind;
+            this.sourceClass = sourceClass;
+            this.targetClass = targetClass;
+            this.variant = (variant != null);
+
+            if (variant != null) {
+                this.characterSet = variant.getCharacterSet();
+                this.encodings = new ArrayList<Encoding>(
+                        variant.getEncodings());
+                this.languages = new ArrayList<Language>(
+                        variant.getLanguages());
+                MediaType mediaType = variant.getMediaType();
+                this.mediaTypeParameters = (mediaType != null)
+                        && !mediaType.getParameters().isEmpty();
+                this.mediaType = this.mediaTypeParameters ? MediaType
+                        .valueOf(mediaType.getMainType() + "/"
+                                + mediaType.getSubType()) : mediaType;
+            } else {
+                this.characterSet = null;
+                this.encodings = null;
+                this.languages = null;
+                this.mediaType = null;
+                this.mediaTypeParameters = false;
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof SelectionKey)) {
+                return false;
+            }
+
+            SelectionKey that = (SelectionKey) obj;
+            return (this.kind == that.kind)
+                    && (this.sourceClass == that.sourceClass)
+                    && (this.targetClass == that.targetClass)
+                    && (this.variant == that.variant)
+                    && (this.mediaTypeParameters == that.mediaTypeParameters)
+                    && equals(this.mediaType, that.mediaType)
+                    && equals(this.characterSet, that.characterSet)
+                    && equals(this.languages, that.languages)
+                    && equals(this.encodings, that.encodings);
+        }
+
+        /**
+         * Indicates if two nullable objects are equal.
+         * 
+         * @param o1
+         *            The first object.
+         * @param o2
+         *            The second object.
+         * @return True if both objects are equal.
+         */
+        private boolean equals(Object o1, Object o2) {
+            return (o1 == null) ? (o2 == null) : o1.equals(o2);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = this.kind;
+            result = 31 * result + hashCode(this.sourceClass);
+            result = 31 * result + hashCode(this.targetClass);
+            result = 31 * result + hashCode(this.mediaType);
+            result = 31 * result + (this.mediaTypeParameters ? 1 : 0);
+            result = 31 * result + hashCode(this.characterSet);
+            result = 31 * result + hashCode(this.languages);
+            return 31 * result + hashCode(this.encodings);
+        }
+
+        /**
+         * Returns the hash code of a nullable object.
+         * 
+         * @param o
+         *            The object.
+         * @return The hash code or 0 if the object is null.
+         */
+        private int hashCode(Object o) {
+            return (o == null) ? 0 : o.hashCode();
+        }
+    }
+
+    /** Selection of the helper converting an object to a representation. */
+    private static final int KIND_REPRESENTATION = 1;
+
+    /** Selection of the helper converting a representation to an object. */
+    private static final int KIND_OBJECT = 2;
+
+    /** Selection of the variants a class can be converted to. */
+    private static final int KIND_VARIANTS = 3;
+
+    /** Marker of a cached selection without result. */
+    private static final Object NO_SELECTION = new Object();
+
+    /** The maximum number of cached selections. */
+    private static final int SELECTION_CACHE_MAX_SIZE = 1024;
+
+    /** The cache of converter selections. */
+    private volatile SelectionCache selectionCache;
+
     /**
      * Constructor.
      */
@@ -107,6 +332,74 @@ public class ConverterService extends Service {
         return null;
     }
 
+    /**
+     * Returns the best converter helper matching the given parameters, using
+     * the cache of selections when possible.
+     * 
+     * @param source
+     *            The object to convert to a representation.
+     * @param target
+     *            The target representation variant.
+     * @param resource
+     *            The optional parent resource.
+     * @return The matched converter helper or null.
+     */
+    private ConverterHelper getBestHelper(Object source, Variant target,
+            Resource resource) {
+        SelectionCache cache = getSelectionCache();
+
+        if (cache == null) {
+            return ConverterUtils.getBestHelper(source, target, resource);
+        }
+
+        SelectionKey key = new SelectionKey(KIND_REPRESENTATION,
+                (source == null) ? null : source.getClass(), null, target);
+        Object selection = cache.get(key);
+
+        if (selection == null) {
+            selection = ConverterUtils.getBestHelper(source, target, resource);
+            cache.put(key, selection);
+        }
+
+        return (selection == NO_SELECTION) ? null
+                : (ConverterHelper) selection;
+    }
+
+    /**
+     * Returns the best converter helper matching the given parameters, using
+     * the cache of selections when possible.
+     * 
+     * @param <T>
+     *            The target class.
+     * @param source
+     *            The source representation variant.
+     * @param target
+     *            The target class.
+     * @param resource
+     *            The parent resource.
+     * @return The matched converter helper or null.
+     */
+    private <T> ConverterHelper getBestHelper(Representation source,
+            Class<T> target, Resource resource) {
+        SelectionCache cache = getSelectionCache();
+
+        if (cache == null) {
+            return ConverterUtils.getBestHelper(source, target, resource);
+        }
+
+        SelectionKey key = new SelectionKey(KIND_OBJECT, source.getClass(),
+                target, source);
+        Object selection = cache.get(key);
+
+        if (selection == null) {
+            selection = ConverterUtils.getBestHelper(source, target, resource);
+            cache.put(key, selection);
+        }
+
+        return (selection == NO_SELECTION) ? null
+                : (ConverterHelper) selection;
+    }
+
     /**
      * Returns the list of object classes that can be converted from a given
      * variant.
@@ -148,6 +441,33 @@ public class ConverterService extends Service {
         return null;
     }
 
+    /**
+     * Returns the cache of converter selections, matching the current list of
+     * converters registered with the engine.
+     * 
+     * @return The cache of converter selections or null if the list of
+     *         converters doesn't track its modifications.
+     */
+    private SelectionCache getSelectionCache() {
+        Engine engine = Engine.getInstance();
+        List<ConverterHelper> converters = engine.getRegisteredConverters();
+
+        if (!(converters instanceof ConverterList)) {
+            return null;
+        }
+
+        int version = ((ConverterList) converters).getVersion();
+        SelectionCache result = this.selectionCache;
+
+        if ((result == null) || (result.engine != engine)
+                || (result.version != version)) {
+            result = new SelectionCache(engine, version);
+            this.selectionCache = result;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the list of variants that can be converted from a given object
      * class.
@@ -159,9 +479,27 @@ public class ConverterService extends Service {
      * @return The list of variants that can be converted.
      * @throws IOException
      */
+    @SuppressWarnings("unchecked")
     public List<? extends Variant> getVariants(Class<?> source, Variant target)
             throws IOException {
-        return ConverterUtils.getVariants(source, target);
+        SelectionCache cache = getSelectionCache();
+
+        if (cache == null) {
+            return ConverterUtils.getVariants(source, target);
+        }
+
+        SelectionKey key = new SelectionKey(KIND_VARIANTS, source, null,
+                target);
+        Object selection = cache.get(key);
+
+        if (selection == null) {
+            selection = ConverterUtils.getVariants(source, target);
+            cache.put(key, selection);
+        }
+
+        // Return a copy as callers are free to modify the list
+        return (selection == NO_SELECTION) ? null
+                : new ArrayList<VariantInfo>((List<VariantInfo>) selection);
     }
 
     /**
@@ -215,8 +553,7 @@ public class ConverterService extends Service {
         boolean loggable = (resource == null) ? true : resource.isLoggable();
 
         if ((source != null) && source.isAvailable() && (source.getSize() != 0)) {
-            ConverterHelper ch = ConverterUtils.getBestHelper(source, target,
-                    resource);
+            ConverterHelper ch = getBestHelper(source, target, resource);
 
             if (ch != null) {
                 if (loggable
@@ -311,8 +648,7 @@ public class ConverterService extends Service {
             Resource resource) throws IOException {
         Representation result = null;
         boolean loggable = (resource == null) ? true : resource.isLoggable();
-        ConverterHelper ch = ConverterUtils.getBestHelper(source, target,
-                resource);
+        ConverterHelper ch = getBestHelper(source, target, resource);
 
         if (ch != null) {
             if (loggable && Context.getCurrentLogger().isLoggable(Level.FINE)) {
@@ -24,16 +24,14 @@
 
 package org.restlet.service;
 
-import java.util.logging.Level;
+import java.util.Calendar;
 
 import org.restlet.Application;
 import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
-import org.restlet.data.Method;
 import org.restlet.data.Reference;
-import org.restlet.data.Status;
-import org.restlet.engine.Engine;
+import org.restlet.engine.log.AccessLogEntry;
 import org.restlet.engine.log.LogFilter;
 import org.restlet.representation.Representation;
 import org.restlet.resource.ClientResource;
@@ -73,6 +71,11 @@ import org.restlet.routing.Template;
  * <br>
  * For custom access log format, see the syntax to use and the list of available
  * variable names in {@link org.restlet.routing.Template}. <br>
+ * <br>
+ * Access log entries can also be written asynchronously, see
+ * {@link #setAsynchronous(boolean)}, so that the calling threads only capture
+ * the entry fields while a background thread formats and writes them in
+ * batches.<br>
  * 
  * @see <a href="http://wiki.restlet.org/docs_2.2/201-restlet.html">User Guide -
  *      Access logging</a>
@@ -82,6 +85,23 @@ import org.restlet.routing.Template;
  */
 public class LogService extends Service {
 
+    // [ifndef gae]
+    /** The asynchronous access log. */
+    private volatile org.restlet.engine.log.AsyncAccessLog asyncAccessLog;
+
+    // [enddef]
+    /** Indicates if the calling threads wait when the buffer is full. */
+    private volatile boolean asyncBlocking;
+
+    /** The number of entries of the asynchronous buffer. */
+    private volatile int asyncBufferSize;
+
+    /** Indicates if the access log entries are written asynchronously. */
+    private volatile boolean asynchronous;
+
+    /** The path of the asynchronous access log file. */
+    private volatile String asyncLogFile;
+
     /** Indicates if the debugging mode is enabled. */
     private volatile boolean debugging;
 
@@ -123,6 +143,10 @@ public class LogService extends Service {
         this.responseLogFormat = null;
         this.logPropertiesRef = null;
         this.identityCheck = false;
+        this.asynchronous = false;
+        this.asyncBlocking = false;
+        this.asyncBufferSize = 8192;
+        this.asyncLogFile = null;
     }
 
     @Override
@@ -130,6 +154,38 @@ public class LogService extends Service {
         return new LogFilter(context, this);
     }
 
+    // [ifndef gae] method
+    /**
+     * Returns the asynchronous access log, if the service is asynchronous and
+     * started.
+     * 
+     * @return The asynchronous access log or null.
+     */
+    public org.restlet.engine.log.AsyncAccessLog getAsyncAccessLog() {
+        return this.asyncAccessLog;
+    }
+
+    /**
+     * Returns the number of entries of the buffer used by the asynchronous
+     * access log. Rounded up to a power of two. Default value is 8192.
+     * 
+     * @return The number of entries of the asynchronous buffer.
+     */
+    public int getAsyncBufferSize() {
+        return this.asyncBufferSize;
+    }
+
+    /**
+     * Returns the path of the file where the asynchronous access log entries
+     * are appended, encoded in UTF-8. Default value is null, meaning that the
+     * entries are passed to the JDK's logger like in synchronous mode.
+     * 
+     * @return The path of the asynchronous access log file.
+     */
+    public String getAsyncLogFile() {
+        return this.asyncLogFile;
+    }
+
     /**
      * Format a log entry using the default IIS log format.
      * 
@@ -141,124 +197,10 @@ public class LogService extends Service {
      */
     protected String getDefaultResponseLogMessage(Response response,
             int duration) {
-        StringBuilder sb = new StringBuilder();
-        Request request = response.getRequest();
-        long currentTime = System.currentTimeMillis();
-
-        // Append the date of the request
-        sb.append(String.format("%tF", currentTime));
-        sb.append('\t');
-
-        // Append the time of the request
-        sb.append(String.format("%tT", currentTime));
-        sb.append('\t');
-
-        // Append the client IP address
-        String clientAddress = request.getClientInfo().getUpstreamAddress();
-        sb.append((clientAddress == null) ? "-" : clientAddress);
-        sb.append('\t');
-
-        // Append the user name (via IDENT protocol)
-        if (isIdentityCheck()) {
-            // [ifndef gae]
-            org.restlet.engine.log.IdentClient ic = new org.restlet.engine.log.IdentClient(
-                    request.getClientInfo().getUpstreamAddress(), request
-                            .getClientInfo().getPort(), response
-                            .getServerInfo().getPort());
-            sb.append((ic.getUserIdentifier() == null) ? "-" : ic
-                    .getUserIdentifier());
-        } else if ((request.getChallengeResponse() != null)
-                && (request.getChallengeResponse().getIdentifier() != null)) {
-            sb.append(request.getChallengeResponse().getIdentifier());
-        } else {
-            // [enddef]
-            sb.append('-');
-        }
-
-        sb.append('\t');
-
-        // Append the server IP address
-        String serverAddress = response.getServerInfo().getAddress();
-        sb.append((serverAddress == null) ? "-" : serverAddress);
-        sb.append('\t');
-
-        // Append the server port
-        Integer serverport = response.getServerInfo().getPort();
-        sb.append((serverport == null) ? "-" : serverport.toString());
-        sb.append('\t');
-
-        // Append the method name
-        String methodName = (request.getMethod() == null) ? "-" : request
-                .getMethod().getName();
-        sb.append((methodName == null) ? "-" : methodName);
-
-        // Append the resource path
-        sb.append('\t');
-        String resourcePath = (request.getResourceRef() == null) ? "-"
-                : request.getResourceRef().getPath();
-        sb.append((resourcePath == null) ? "-" : resourcePath);
-
-        // Append the resource query
-        sb.append('\t');
-        String resourceQuery = (request.getResourceRef() == null) ? "-"
-                : request.getResourceRef().getQuery();
-        sb.append((resourceQuery == null) ? "-" : resourceQuery);
-
-        // Append the status code
-        sb.append('\t');
-        sb.append((response.getStatus() == null) ? "-" : Integer
-                .toString(response.getStatus().getCode()));
-
-        // Append the returned size
-        sb.append('\t');
-
-        if (!response.isEntityAvailable()
-                || Status.REDIRECTION_NOT_MODIFIED.equals(response.getStatus())
-                || Status.SUCCESS_NO_CONTENT.equals(response.getStatus())
-                || Method.HEAD.equals(request.getMethod())) {
-            sb.append('0');
-        } else {
-            sb.append((response.getEntity().getSize() == -1) ? "-" : Long
-                    .toString(response.getEntity().getSize()));
-        }
-
-        // Append the received size
-        sb.append('\t');
-
-        try {
-            if (request.getEntity() == null) {
-                sb.append('0');
-            } else {
-                sb.append((request.getEntity().getSize() == -1) ? "-" : Long
-                        .toString(request.getEntity().getSize()));
-            }
-        } catch (Throwable t) {
-            // Error while getting the request's entity, cf issue #931
-            Engine.getLogger(LogService.class).log(Level.SEVERE,
-                    "Cannot retrieve size of request's entity", t);
-            sb.append("-");
-        }
-
-        // Append the duration
-        sb.append('\t');
-        sb.append(duration);
-
-        // Append the host reference
-        sb.append('\t');
-        sb.append((request.getHostRef() == null) ? "-" : request.getHostRef()
-                .toString());
-
-        // Append the agent name
-        sb.append('\t');
-        String agentName = request.getClientInfo().getAgent();
-        sb.append((agentName == null) ? "-" : agentName);
-
-        // Append the referrer
-        sb.append('\t');
-        sb.append((request.getReferrerRef() == null) ? "-" : request
-                .getReferrerRef().getIdentifier());
-
-        return sb.toString();
+        AccessLogEntry entry = new AccessLogEntry();
+        entry.update(response, duration, isIdentityCheck());
+        return entry.appendTo(new StringBuilder(), Calendar.getInstance())
+                .toString();
     }
 
     /**
@@ -329,6 +271,29 @@ public class LogService extends Service {
         return result;
     }
 
+    /**
+     * Indicates if the calling threads wait for a free slot when the
+     * asynchronous buffer is full. Default value is false, meaning that the
+     * entries are dropped.
+     * 
+     * @return True if the calling threads wait when the buffer is full.
+     */
+    public boolean isAsyncBlocking() {
+        return this.asyncBlocking;
+    }
+
+    /**
+     * Indicates if the access log entries are written asynchronously. In this
+     * mode, the calling threads only capture the entry into a bounded buffer
+     * that is formatted and written in batches by a background thread. Default
+     * value is false.
+     * 
+     * @return True if the access log entries are written asynchronously.
+     */
+    public boolean isAsynchronous() {
+        return this.asynchronous;
+    }
+
     /**
      * Indicates if the debugging mode is enabled. False by default.
      * 
@@ -364,6 +329,49 @@ public class LogService extends Service {
                 .match(request.getResourceRef().getTargetRef().toString()) > 0;
     }
 
+    /**
+     * Indicates if the calling threads wait for a free slot when the
+     * asynchronous buffer is full.
+     * 
+     * @param asyncBlocking
+     *            True if the calling threads wait when the buffer is full.
+     */
+    public void setAsyncBlocking(boolean asyncBlocking) {
+        this.asyncBlocking = asyncBlocking;
+    }
+
+    /**
+     * Sets the number of entries of the buffer used by the asynchronous access
+     * log.
+     * 
+     * @param asyncBufferSize
+     *            The number of entries of the asynchronous buffer.
+     */
+    public void setAsyncBufferSize(int asyncBufferSize) {
+        this.asyncBufferSize = asyncBufferSize;
+    }
+
+    /**
+     * Indicates if the access log entries are written asynchronously.
+     * 
+     * @param asynchronous
+     *            True if the access log entries are written asynchronously.
+     */
+    public void setAsynchronous(boolean asynchronous) {
+        this.asynchronous = asynchronous;
+    }
+
+    /**
+     * Sets the path of the file where the asynchronous access log entries are
+     * appended.
+     * 
+     * @param asyncLogFile
+     *            The path of the asynchronous access log file.
+     */
+    public void setAsyncLogFile(String asyncLogFile) {
+        this.asyncLogFile = asyncLogFile;
+    }
+
     /**
      * Indicates if the debugging mode is enabled.
      * 
@@ -455,7 +463,8 @@ public class LogService extends Service {
 
     /**
      * Starts the log service by attempting to read the log properties if the
-     * {@link #getLogPropertiesRef()} returns a non null URI reference.
+     * {@link #getLogPropertiesRef()} returns a non null URI reference. Also
+     * starts the asynchronous access log if enabled.
      */
     @Override
     public synchronized void start() throws Exception {
@@ -473,6 +482,29 @@ public class LogService extends Service {
                         logProperties.getStream());
             }
         }
+
+        if (isEnabled() && isAsynchronous() && (this.asyncAccessLog == null)) {
+            org.restlet.engine.log.AsyncAccessLog asyncLog = new org.restlet.engine.log.AsyncAccessLog(
+                    this);
+            asyncLog.start();
+            this.asyncAccessLog = asyncLog;
+        }
         // [enddef]
     }
+
+    /**
+     * Stops the log service, writing the pending asynchronous access log
+     * entries.
+     */
+    @Override
+    public synchronized void stop() throws Exception {
+        // [ifndef gae]
+        if (this.asyncAccessLog != null) {
+            this.asyncAccessLog.stop();
+            this.asyncAccessLog = null;
+        }
+        // [enddef]
+
+        super.stop();
+    }
 }
@@ -25,7 +25,10 @@
 package org.restlet.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.restlet.data.CharacterSet;
@@ -41,10 +44,175 @@ import org.restlet.engine.application.MetadataExtension;
  * {@link #addCommonExtensions()} method.<br>
  * <br>
  * Internally, the mappings are stored as a list of "extension, metadata" pairs.
+ * The lookups rely on an immutable index of this list, rebuilt each time the
+ * mappings are modified, so that concurrent reads don't need any lock.
  * 
  * @author Jerome Louvel
  */
 public class MetadataService extends Service {
+
+    /**
+     * Immutable index of a snapshot of the mappings.
+     */
+    private static class MappingsIndex {
+
+        /** The extension names mapped to character sets. */
+        private final List<String> characterSetNames;
+
+        /** The extension names mapped to encodings. */
+        private final List<String> encodingNames;
+
+        /** The mappings of each extension name, in the list order. */
+        private final Map<String, List<MetadataExtension>> extensions;
+
+        /** The extension names mapped to languages. */
+        private final List<String> languageNames;
+
+        /** The extension names mapped to media types. */
+        private final List<String> mediaTypeNames;
+
+        /** The mappings of each metadata key, in the list order. */
+        private final Map<String, List<MetadataExtension>> metadata;
+
+        /** The extension names. */
+        private final List<String> names;
+
+        /**
+         * Indicates if one of the mappings has a metadata of the same type as
+         * the given one.
+         * 
+         * @param mappings
+         *            The mappings to check.
+         * @param metadata
+         *            The metadata to compare.
+         * @return True if one of the mappings has a metadata of the same type.
+         */
+        private static boolean containsType(List<MetadataExtension> mappings,
+                Metadata metadata) {
+            for (MetadataExtension mapping : mappings) {
+                if ((metadata instanceof CharacterSet && mapping.getMetadata() instanceof CharacterSet)
+                        || (metadata instanceof Encoding && mapping
+                                .getMetadata() instanceof Encoding)
+                        || (metadata instanceof Language && mapping
+                                .getMetadata() instanceof Language)
+                        || (metadata instanceof MediaType && mapping
+                                .getMetadata() instanceof MediaType)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Returns the index key of a metadata. It is the lower case name,
+         * without any parameter, so that equal metadata share the same key.
+         * 
+         * @param metadata
+         *            The metadata.
+         * @return The index key.
+         */
+        private static String getKey(Metadata metadata) {
+            String name = metadata.getName();
+
+            if (name == null) {
+                return "";
+            }
+
+            int index = name.indexOf(';');
+
+            if (index != -1) {
+                name = name.substring(0, index);
+            }
+
+            return name.trim().toLowerCase();
+        }
+
+        /**
+         * Constructor.
+         * 
+         * @param mappings
+         *            The mappings to index.
+         */
+        public MappingsIndex(List<MetadataExtension> mappings) {
+            this.characterSetNames = new ArrayList<String>();
+            this.encodingNames = new ArrayList<String>();
+            this.extensions = new HashMap<String, List<MetadataExtension>>();
+            this.languageNames = new ArrayList<String>();
+            this.mediaTypeNames = new ArrayList<String>();
+            this.metadata = new HashMap<String, List<MetadataExtension>>();
+            this.names = new ArrayList<String>();
+
+            for (MetadataExtension mapping : mappings) {
+                String name = mapping.getName();
+                Metadata metadata = mapping.getMetadata();
+                List<MetadataExtension> extensionMappings = this.extensions
+                        .get(name);
+
+                if (extensionMappings == null) {
+                    extensionMappings = new ArrayList<MetadataExtension>();
+                    this.extensions.put(name, extensionMappings);
+                    this.names.add(name);
+                }
+
+                if (!containsType(extensionMappings, metadata)) {
+                    if (metadata instanceof CharacterSet) {
+                        this.characterSetNames.add(name);
+                    } else if (metadata instanceof Encoding) {
+                        this.encodingNames.add(name);
+                    } else if (metadata instanceof Language) {
+                        this.languageNames.add(name);
+                    } else if (metadata instanceof MediaType) {
+                        this.mediaTypeNames.add(name);
+                    }
+                }
+
+                extensionMappings.add(mapping);
+
+                if (metadata != null) {
+                    String key = getKey(metadata);
+                    List<MetadataExtension> metadataMappings = this.metadata
+                            .get(key);
+
+                    if (metadataMappings == null) {
+                        metadataMappings = new ArrayList<MetadataExtension>();
+                        this.metadata.put(key, metadataMappings);
+                    }
+
+                    metadataMappings.add(mapping);
+                }
+            }
+        }
+
+        /**
+         * Returns the mappings of an extension name.
+         * 
+         * @param extension
+         *            The extension name.
+         * @return The mappings of an extension name, possibly empty.
+         */
+        public List<MetadataExtension> getExtensionMappings(String extension) {
+            List<MetadataExtension> result = this.extensions.get(extension);
+            return (result == null) ? Collections
+                    .<MetadataExtension> emptyList() : result;
+        }
+
+        /**
+         * Returns the mappings whose metadata has the same key as the given
+         * one. They include at least all the mappings of equal metadata.
+         * 
+         * @param metadata
+         *            The metadata.
+         * @return The mappings of metadata with the same key, possibly empty.
+         */
+        public List<MetadataExtension> getMetadataMappings(Metadata metadata) {
+            List<MetadataExtension> result = this.metadata
+                    .get(getKey(metadata));
+            return (result == null) ? Collections
+                    .<MetadataExtension> emptyList() : result;
+        }
+    }
+
     /** The default character set for textual representations. */
     private volatile CharacterSet defaultCharacterSet;
 
@@ -57,6 +225,9 @@ public class MetadataService extends Service {
     /** The default media type for representations. */
     private volatile MediaType defaultMediaType;
 
+    /** The index of the mappings. */
+    private volatile MappingsIndex index;
+
     /** The list of mappings between extension names and metadata. */
     private final List<MetadataExtension> mappings;
 
@@ -75,6 +246,7 @@ public class MetadataService extends Service {
         // [ifdef gwt] instruction uncomment
         // this.defaultMediaType = MediaType.APPLICATION_JSON;
         this.mappings = new CopyOnWriteArrayList<MetadataExtension>();
+        this.index = new MappingsIndex(this.mappings);
         addCommonExtensions();
     }
 
@@ -213,7 +385,7 @@ public class MetadataService extends Service {
      * <li>zip: Zip archive</li>
      * </ul>
      */
-    public void addCommonExtensions() {
+    public synchronized void addCommonExtensions() {
         List<MetadataExtension> dm = new ArrayList<MetadataExtension>();
 
         ext(dm, "en", Language.ENGLISH);
@@ -365,6 +537,7 @@ public class MetadataService extends Service {
 
         // Add all those mappings
         this.mappings.addAll(dm);
+        updateIndex();
     }
 
     /**
@@ -391,8 +564,8 @@ public class MetadataService extends Service {
      * @param preferred
      *            indicates if this mapping is the preferred one.
      */
-    public void addExtension(String extension, Metadata metadata,
-            boolean preferred) {
+    public synchronized void addExtension(String extension,
+            Metadata metadata, boolean preferred) {
         if (preferred) {
             // Add the mapping at the beginning of the list
             this.mappings.add(0, new MetadataExtension(extension, metadata));
@@ -400,13 +573,16 @@ public class MetadataService extends Service {
             // Add the mapping at the end of the list
             this.mappings.add(new MetadataExtension(extension, metadata));
         }
+
+        updateIndex();
     }
 
     /**
      * clears the mappings for all extensions.
      */
-    public void clearExtensions() {
+    public synchronized void clearExtensions() {
         this.mappings.clear();
+        updateIndex();
     }
 
     /**
@@ -457,16 +633,7 @@ public class MetadataService extends Service {
      * @return The ordered list of extension names mapped to character set.
      */
     public List<String> getAllCharacterSetExtensionNames() {
-        List<String> result = new ArrayList<String>();
-
-        for (MetadataExtension mapping : this.mappings) {
-            if ((mapping.getMetadata() instanceof CharacterSet)
-                    && !result.contains(mapping.getName())) {
-                result.add(mapping.getName());
-            }
-        }
-
-        return result;
+        return new ArrayList<String>(this.index.characterSetNames);
     }
 
     /**
@@ -482,9 +649,9 @@ public class MetadataService extends Service {
 
         if (extension != null) {
             // Look for all registered convenient mapping.
-            for (MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())
-                        && (metadataExtension.getMetadata() instanceof CharacterSet)) {
+            for (MetadataExtension metadataExtension : this.index
+                    .getExtensionMappings(extension)) {
+                if (metadataExtension.getMetadata() instanceof CharacterSet) {
                     if (result == null) {
                         result = new ArrayList<CharacterSet>();
                     }
@@ -503,16 +670,7 @@ public class MetadataService extends Service {
      * @return The ordered list of extension names mapped to encodings.
      */
     public List<String> getAllEncodingExtensionNames() {
-        List<String> result = new ArrayList<String>();
-
-        for (MetadataExtension mapping : this.mappings) {
-            if ((mapping.getMetadata() instanceof Encoding)
-                    && !result.contains(mapping.getName())) {
-                result.add(mapping.getName());
-            }
-        }
-
-        return result;
+        return new ArrayList<String>(this.index.encodingNames);
     }
 
     /**
@@ -521,15 +679,7 @@ public class MetadataService extends Service {
      * @return The ordered list of extension names.
      */
     public List<String> getAllExtensionNames() {
-        List<String> result = new ArrayList<String>();
-
-        for (MetadataExtension mapping : this.mappings) {
-            if (!result.contains(mapping.getName())) {
-                result.add(mapping.getName());
-            }
-        }
-
-        return result;
+        return new ArrayList<String>(this.index.names);
     }
 
     /**
@@ -538,16 +688,7 @@ public class MetadataService extends Service {
      * @return The ordered list of extension names mapped to languages.
      */
     public List<String> getAllLanguageExtensionNames() {
-        List<String> result = new ArrayList<String>();
-
-        for (MetadataExtension mapping : this.mappings) {
-            if ((mapping.getMetadata() instanceof Language)
-                    && !result.contains(mapping.getName())) {
-                result.add(mapping.getName());
-            }
-        }
-
-        return result;
+        return new ArrayList<String>(this.index.languageNames);
     }
 
     /**
@@ -563,9 +704,9 @@ public class MetadataService extends Service {
 
         if (extension != null) {
             // Look for all registered convenient mapping.
-            for (MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())
-                        && (metadataExtension.getMetadata() instanceof Language)) {
+            for (MetadataExtension metadataExtension : this.index
+                    .getExtensionMappings(extension)) {
+                if (metadataExtension.getMetadata() instanceof Language) {
                     if (result == null) {
                         result = new ArrayList<Language>();
                     }
@@ -584,16 +725,7 @@ public class MetadataService extends Service {
      * @return The ordered list of extension names mapped to media types.
      */
     public List<String> getAllMediaTypeExtensionNames() {
-        List<String> result = new ArrayList<String>();
-
-        for (MetadataExtension mapping : this.mappings) {
-            if ((mapping.getMetadata() instanceof MediaType)
-                    && !result.contains(mapping.getName())) {
-                result.add(mapping.getName());
-            }
-        }
-
-        return result;
+        return new ArrayList<String>(this.index.mediaTypeNames);
     }
 
     /**
@@ -609,9 +741,9 @@ public class MetadataService extends Service {
 
         if (extension != null) {
             // Look for all registered convenient mapping.
-            for (MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())
-                        && (metadataExtension.getMetadata() instanceof MediaType)) {
+            for (MetadataExtension metadataExtension : this.index
+                    .getExtensionMappings(extension)) {
+                if (metadataExtension.getMetadata() instanceof MediaType) {
                     if (result == null) {
                         result = new ArrayList<MediaType>();
                     }
@@ -637,14 +769,13 @@ public class MetadataService extends Service {
 
         if (extension != null) {
             // Look for all registered convenient mapping.
-            for (MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())) {
-                    if (result == null) {
-                        result = new ArrayList<Metadata>();
-                    }
-
-                    result.add(metadataExtension.getMetadata());
+            for (MetadataExtension metadataExtension : this.index
+                    .getExtensionMappings(extension)) {
+                if (result == null) {
+                    result = new ArrayList<Metadata>();
                 }
+
+                result.add(metadataExtension.getMetadata());
             }
         }
 
@@ -744,7 +875,8 @@ public class MetadataService extends Service {
     public String getExtension(Metadata metadata) {
         if (metadata != null) {
             // Look for the first registered convenient mapping.
-            for (final MetadataExtension metadataExtension : this.mappings) {
+            for (final MetadataExtension metadataExtension : this.index
+                    .getMetadataMappings(metadata)) {
                 if (metadata.equals(metadataExtension.getMetadata())) {
                     return metadataExtension.getName();
                 }
@@ -814,10 +946,11 @@ public class MetadataService extends Service {
     public Metadata getMetadata(String extension) {
         if (extension != null) {
             // Look for the first registered convenient mapping.
-            for (final MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())) {
-                    return metadataExtension.getMetadata();
-                }
+            List<MetadataExtension> extensionMappings = this.index
+                    .getExtensionMappings(extension);
+
+            if (!extensionMappings.isEmpty()) {
+                return extensionMappings.get(0).getMetadata();
             }
         }
 
@@ -888,4 +1021,12 @@ public class MetadataService extends Service {
         this.defaultMediaType = defaultMediaType;
     }
 
+    /**
+     * Rebuilds the index of the mappings. Must be called after each
+     * modification of the mappings.
+     */
+    private void updateIndex() {
+        this.index = new MappingsIndex(this.mappings);
+    }
+
 }
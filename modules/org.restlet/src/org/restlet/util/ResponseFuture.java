@@ -0,0 +1,244 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Uniform;
+
+// [excludes gwt]
+/**
+ * Future response of an asynchronous client call. It is set as the
+ * {@link Request#getOnResponse()} callback of the request and completed when
+ * the client connector provides the response. Callbacks can be chained with
+ * the {@link #onResponse(Uniform)} method instead of blocking a thread with
+ * the {@link #get()} methods.<br>
+ * <br>
+ * The future is completed as soon as the response status and headers are
+ * received. With the NIO client connectors, the response entity is then read
+ * from the connection as it is consumed, so a slow consumer doesn't buffer the
+ * whole entity in memory but throttles the remote server instead. The entity
+ * must be exhausted or released to free the connection.
+ * 
+ * @author Jerome Louvel
+ * @see org.restlet.resource.ClientResource#handleAsync(org.restlet.data.Method)
+ */
+public class ResponseFuture implements Future<Response>, Uniform {
+
+    /** The callbacks to invoke on completion. */
+    private final List<Uniform> callbacks;
+
+    /** Indicates if the future was cancelled. */
+    private volatile boolean cancelled;
+
+    /** The latch released on completion. */
+    private final CountDownLatch latch;
+
+    /** The request handled. */
+    private volatile Request request;
+
+    /** The response received. */
+    private volatile Response response;
+
+    /**
+     * Constructor.
+     */
+    public ResponseFuture() {
+        this.callbacks = new ArrayList<Uniform>();
+        this.latch = new CountDownLatch(1);
+    }
+
+    /**
+     * Cancels the notification of the response. Note that the call itself
+     * isn't aborted.
+     * 
+     * @param mayInterruptIfRunning
+     *            Ignored.
+     * @return True if the future was cancelled.
+     */
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this.callbacks) {
+            if (isDone()) {
+                return false;
+            }
+
+            this.cancelled = true;
+            this.callbacks.clear();
+            this.latch.countDown();
+        }
+
+        return true;
+    }
+
+    /**
+     * Waits for the response.
+     * 
+     * @return The response received.
+     */
+    public Response get() throws InterruptedException {
+        this.latch.await();
+        return getResponse();
+    }
+
+    /**
+     * Waits for the response, at most for the given time.
+     * 
+     * @param timeout
+     *            The maximum time to wait.
+     * @param unit
+     *            The time unit of the timeout argument.
+     * @return The response received.
+     */
+    public Response get(long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException {
+        if (!this.latch.await(timeout, unit)) {
+            throw new TimeoutException("No response received after "
+                    + timeout + " " + unit);
+        }
+
+        return getResponse();
+    }
+
+    /**
+     * Returns the response received, once the future is completed.
+     * 
+     * @return The response received.
+     */
+    private Response getResponse() {
+        if (this.cancelled) {
+            throw new CancellationException();
+        }
+
+        return this.response;
+    }
+
+    /**
+     * Completes the future with the response and invokes the callbacks, in
+     * their registration order. Provisional responses, with an informational
+     * status such as "100 Continue", are ignored so that the future is
+     * completed with the final response. Later invocations are ignored.
+     * 
+     * @param request
+     *            The request handled.
+     * @param response
+     *            The response received.
+     */
+    public void handle(Request request, Response response) {
+        List<Uniform> toInvoke;
+
+        if ((response != null) && (response.getStatus() != null)
+                && response.getStatus().isInformational()) {
+            // Wait for the final response
+            return;
+        }
+
+        synchronized (this.callbacks) {
+            if (isDone()) {
+                return;
+            }
+
+            this.request = request;
+            this.response = response;
+            toInvoke = new ArrayList<Uniform>(this.callbacks);
+            this.callbacks.clear();
+            this.latch.countDown();
+        }
+
+        for (Uniform callback : toInvoke) {
+            invoke(callback);
+        }
+    }
+
+    /**
+     * Invokes a callback with the request and the response, logging its
+     * errors.
+     * 
+     * @param callback
+     *            The callback to invoke.
+     */
+    private void invoke(Uniform callback) {
+        try {
+            callback.handle(this.request, this.response);
+        } catch (Throwable t) {
+            Context.getCurrentLogger().log(Level.WARNING,
+                    "Unexpected error or exception inside the user call back",
+                    t);
+        }
+    }
+
+    /**
+     * Indicates if the future was cancelled.
+     * 
+     * @return True if the future was cancelled.
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Indicates if the future was completed or cancelled.
+     * 
+     * @return True if the future was completed or cancelled.
+     */
+    public boolean isDone() {
+        return this.latch.getCount() == 0;
+    }
+
+    /**
+     * Adds a callback invoked with the request and the response once the
+     * future is completed, on the thread completing it. If the future is
+     * already completed, the callback is immediately invoked on the current
+     * thread. Nothing is invoked if the future was cancelled.
+     * 
+     * @param callback
+     *            The callback to add.
+     * @return This future, to chain other callbacks.
+     */
+    public ResponseFuture onResponse(Uniform callback) {
+        synchronized (this.callbacks) {
+            if (!isDone()) {
+                this.callbacks.add(callback);
+                return this;
+            }
+        }
+
+        if (!this.cancelled) {
+            invoke(callback);
+        }
+
+        return this;
+    }
+
+}
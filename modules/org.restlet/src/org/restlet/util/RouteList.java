@@ -24,15 +24,19 @@
 
 package org.restlet.util;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.data.Reference;
 import org.restlet.routing.Route;
+import org.restlet.routing.TemplateRoute;
 
 /**
  * Modifiable list of routes with some helper methods. Note that this class
@@ -51,12 +55,19 @@ public final class RouteList extends WrapperList<Route> {
     /** The index of the last route used in the round robin mode. */
     private volatile int lastIndex;
 
+    /** The prefix trie compiled from the routes, lazily created. */
+    private volatile RouteTrie trie;
+
+    /** The version of the list, incremented by each structural change. */
+    private final AtomicInteger version;
+
     /**
      * Constructor.
      */
     public RouteList() {
         super(new CopyOnWriteArrayList<Route>());
         this.lastIndex = -1;
+        this.version = new AtomicInteger();
     }
 
     /**
@@ -68,6 +79,52 @@ public final class RouteList extends WrapperList<Route> {
     public RouteList(List<Route> delegate) {
         super(new CopyOnWriteArrayList<Route>(delegate));
         this.lastIndex = -1;
+        this.version = new AtomicInteger();
+    }
+
+    @Override
+    public boolean add(Route element) {
+        try {
+            return super.add(element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void add(int index, Route element) {
+        try {
+            super.add(index, element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Route> elements) {
+        try {
+            return super.addAll(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Route> elements) {
+        try {
+            return super.addAll(index, elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            this.version.incrementAndGet();
+        }
     }
 
     /**
@@ -98,6 +155,47 @@ public final class RouteList extends WrapperList<Route> {
         return result;
     }
 
+    /**
+     * Returns the routes whose {@link TemplateRoute} literal prefix matches
+     * the remaining part of the request's resource reference, in the list
+     * order. Compiles the prefix trie if needed.
+     * 
+     * @param request
+     *            The request to score.
+     * @return The candidate routes or null if the routes can't be selected.
+     */
+    private Route[] getCandidates(Request request) {
+        if ((request == null) || (request.getResourceRef() == null)) {
+            return null;
+        }
+
+        Reference baseRef = request.getResourceRef().getBaseRef();
+
+        if ((baseRef != null) && baseRef.hasQuery()) {
+            // The remaining parts with and without query would differ
+            return null;
+        }
+
+        String remainingPart = request.getResourceRef().getRemainingPart(
+                false, true);
+
+        if (remainingPart == null) {
+            return null;
+        }
+
+        RouteTrie current = this.trie;
+        int currentVersion = this.version.get();
+
+        if ((current == null) || (current.getVersion() != currentVersion)) {
+            // The version is read before taking the snapshot so that a
+            // concurrent change invalidates the new trie
+            current = new RouteTrie(toArray(new Route[0]), currentVersion);
+            this.trie = current;
+        }
+
+        return current.getCandidates(remainingPart);
+    }
+
     /**
      * Returns the first route match for a given call.
      * 
@@ -121,6 +219,83 @@ public final class RouteList extends WrapperList<Route> {
         return null;
     }
 
+    /**
+     * Returns the best route match for a given call, only scoring the routes
+     * that can match the remaining part of the resource reference. The result
+     * is the same as {@link #getBest(Request, Response, float)}, but the
+     * routes are first selected by walking a prefix trie compiled from the
+     * literal beginning of their URI templates. The trie is rebuilt after each
+     * structural change of the list. Note that changes to the template of a
+     * route already attached aren't taken into account, detach and attach the
+     * route again instead.
+     * 
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @return The best route match or null.
+     */
+    public Route getIndexedBest(Request request, Response response,
+            float requiredScore) {
+        Route[] candidates = getCandidates(request);
+
+        if (candidates == null) {
+            return getBest(request, response, requiredScore);
+        }
+
+        Route result = null;
+        float bestScore = 0F;
+        float score;
+
+        for (Route current : candidates) {
+            score = current.score(request, response);
+
+            if ((score > bestScore) && (score >= requiredScore)) {
+                bestScore = score;
+                result = current;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the first route match for a given call, only scoring the routes
+     * that can match the remaining part of the resource reference. The result
+     * is the same as {@link #getFirst(Request, Response, float)}. See
+     * {@link #getIndexedBest(Request, Response, float)} for details on the
+     * selection of the routes.
+     * 
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @return The first route match or null.
+     */
+    public Route getIndexedFirst(Request request, Response response,
+            float requiredScore) {
+        // A non positive required score accepts routes that don't match
+        Route[] candidates = (requiredScore > 0F) ? getCandidates(request)
+                : null;
+
+        if (candidates == null) {
+            return getFirst(request, response, requiredScore);
+        }
+
+        for (Route current : candidates) {
+            if (current.score(request, response) >= requiredScore) {
+                return current;
+            }
+        }
+
+        // No match found
+        return null;
+    }
+
     /**
      * Returns the last route match for a given call.
      * 
@@ -234,6 +409,51 @@ public final class RouteList extends WrapperList<Route> {
         }
     }
 
+    @Override
+    public Route remove(int index) {
+        try {
+            return super.remove(index);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        try {
+            return super.remove(element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        try {
+            return super.removeAll(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> elements) {
+        try {
+            return super.retainAll(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Route set(int index, Route element) {
+        try {
+            return super.set(index, element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
     /**
      * Returns a view of the portion of this list between the specified
      * fromIndex, inclusive, and toIndex, exclusive.
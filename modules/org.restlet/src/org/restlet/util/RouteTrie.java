@@ -0,0 +1,311 @@
+/**
+ * Copyright 2005-2014 Restlet
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or or EPL 1.0 (the "Licenses"). You can
+ * select the license that you prefer but you may not use this file except in
+ * compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.restlet.routing.Route;
+import org.restlet.routing.Template;
+import org.restlet.routing.TemplateRoute;
+
+/**
+ * Immutable prefix trie compiled from a snapshot of a {@link RouteList}. Each
+ * {@link TemplateRoute} is indexed by the literal characters preceding the
+ * first variable of its URI template. As a template can only match a reference
+ * starting with those literal characters, walking the trie with the remaining
+ * part of a reference gives the only routes that can score above zero. Edges
+ * are labeled with whole literal runs so that a path segment is compared in a
+ * single step.<br>
+ * <br>
+ * Routes that can't be indexed (other route types, subclasses of
+ * {@link TemplateRoute} possibly overriding the scoring logic or routes
+ * without template) are attached to the root node and are therefore always
+ * candidates.
+ * 
+ * @author Jerome Louvel
+ */
+final class RouteTrie {
+
+    /** Trie node, mutable while the trie is built, then frozen. */
+    private static final class Node {
+
+        /** The child nodes, sorted by the first character of their label. */
+        private Node[] children;
+
+        /** The list of child nodes used while building the trie. */
+        private List<Node> childList = new ArrayList<Node>();
+
+        /** The first character of each child label, used for lookups. */
+        private char[] firsts;
+
+        /** The label of the edge leading to this node. */
+        private String label;
+
+        /** The indexes of the routes whose literal prefix ends here. */
+        private int[] routes;
+
+        /** The list of routes indexes used while building the trie. */
+        private List<Integer> routeList = new ArrayList<Integer>();
+
+        /**
+         * Constructor.
+         * 
+         * @param label
+         *            The label of the edge leading to this node.
+         */
+        private Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Returns the child node whose label starts with the given character.
+         * 
+         * @param first
+         *            The first character of the label.
+         * @return The child node or null.
+         */
+        private Node getChild(char first) {
+            for (Node child : this.childList) {
+                if (child.label.charAt(0) == first) {
+                    return child;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Freezes the node and its children into arrays.
+         * 
+         * @return The maximum number of routes found on a path from this node
+         *         to a leaf.
+         */
+        private int freeze() {
+            int maxChildRoutes = 0;
+            this.routes = new int[this.routeList.size()];
+
+            for (int i = 0; i < this.routes.length; i++) {
+                this.routes[i] = this.routeList.get(i);
+            }
+
+            Node[] sorted = this.childList.toArray(new Node[this.childList
+                    .size()]);
+            Arrays.sort(sorted, new Comparator<Node>() {
+                public int compare(Node n1, Node n2) {
+                    return n1.label.charAt(0) - n2.label.charAt(0);
+                }
+            });
+
+            this.children = sorted;
+            this.firsts = new char[sorted.length];
+
+            for (int i = 0; i < sorted.length; i++) {
+                this.firsts[i] = sorted[i].label.charAt(0);
+                maxChildRoutes = Math.max(maxChildRoutes, sorted[i].freeze());
+            }
+
+            this.childList = null;
+            this.routeList = null;
+            return this.routes.length + maxChildRoutes;
+        }
+    }
+
+    /**
+     * Returns the literal prefix used to index a route. It stops at the first
+     * variable delimiter of the template pattern, or at the first '+'
+     * character as it isn't quoted by the template and acts as a regular
+     * expression quantifier.
+     * 
+     * @param route
+     *            The route to index.
+     * @return The literal prefix or an empty string if the route must always
+     *         be scored.
+     */
+    private static String getLiteralPrefix(Route route) {
+        String result = "";
+
+        if ((route != null) && (route.getClass() == TemplateRoute.class)) {
+            Template template = ((TemplateRoute) route).getTemplate();
+
+            if ((template != null) && (template.getPattern() != null)) {
+                String pattern = template.getPattern();
+                int end = 0;
+
+                while ((end < pattern.length())
+                        && (pattern.charAt(end) != '{')
+                        && (pattern.charAt(end) != '}')
+                        && (pattern.charAt(end) != '+')) {
+                    end++;
+                }
+
+                result = pattern.substring(0, end);
+            }
+        }
+
+        return result;
+    }
+
+    /** The maximum number of candidate routes returned by a lookup. */
+    private final int maxCandidates;
+
+    /** The root node. */
+    private final Node root;
+
+    /** The snapshot of indexed routes, in the list order. */
+    private final Route[] routes;
+
+    /** The version of the route list when the snapshot was taken. */
+    private final int version;
+
+    /**
+     * Constructor.
+     * 
+     * @param routes
+     *            The snapshot of routes to index.
+     * @param version
+     *            The version of the route list when the snapshot was taken.
+     */
+    RouteTrie(Route[] routes, int version) {
+        this.routes = routes;
+        this.version = version;
+        this.root = new Node("");
+
+        for (int i = 0; i < routes.length; i++) {
+            insert(this.root, getLiteralPrefix(routes[i]), 0, i);
+        }
+
+        this.maxCandidates = this.root.freeze();
+    }
+
+    /**
+     * Returns the candidate routes, in the list order, whose literal prefix
+     * matches the beginning of the given remaining part.
+     * 
+     * @param remainingPart
+     *            The remaining part of the resource reference, including the
+     *            query.
+     * @return The candidate routes.
+     */
+    Route[] getCandidates(String remainingPart) {
+        int[] indexes = new int[this.maxCandidates];
+        int count = 0;
+        int position = 0;
+        Node node = this.root;
+
+        while (node != null) {
+            for (int i = 0; i < node.routes.length; i++) {
+                indexes[count++] = node.routes[i];
+            }
+
+            Node next = null;
+
+            if (position < remainingPart.length()) {
+                int childIndex = Arrays.binarySearch(node.firsts,
+                        remainingPart.charAt(position));
+
+                if (childIndex >= 0) {
+                    String label = node.children[childIndex].label;
+
+                    if (remainingPart.regionMatches(position, label, 0,
+                            label.length())) {
+                        position += label.length();
+                        next = node.children[childIndex];
+                    }
+                }
+            }
+
+            node = next;
+        }
+
+        Arrays.sort(indexes, 0, count);
+        Route[] result = new Route[count];
+
+        for (int i = 0; i < count; i++) {
+            result[i] = this.routes[indexes[i]];
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the version of the route list when the snapshot was taken.
+     * 
+     * @return The version of the route list when the snapshot was taken.
+     */
+    int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Inserts a route index under the given key, splitting edges as needed.
+     * 
+     * @param node
+     *            The current node.
+     * @param key
+     *            The literal prefix of the route.
+     * @param position
+     *            The position in the key already matched.
+     * @param route
+     *            The index of the route.
+     */
+    private void insert(Node node, String key, int position, int route) {
+        if (position == key.length()) {
+            node.routeList.add(route);
+        } else {
+            Node child = node.getChild(key.charAt(position));
+
+            if (child == null) {
+                Node leaf = new Node(key.substring(position));
+                leaf.routeList.add(route);
+                node.childList.add(leaf);
+            } else {
+                String label = child.label;
+                int common = 0;
+
+                while ((common < label.length())
+                        && (position + common < key.length())
+                        && (label.charAt(common) == key.charAt(position
+                                + common))) {
+                    common++;
+                }
+
+                if (common < label.length()) {
+                    // Split the edge at the end of the common part
+                    Node middle = new Node(label.substring(0, common));
+                    child.label = label.substring(common);
+                    middle.childList.add(child);
+                    node.childList.set(node.childList.indexOf(child), middle);
+                    child = middle;
+                }
+
+                insert(child, key, position + common, route);
+            }
+        }
+    }
+
+}